@@ -0,0 +1,65 @@
+package frc.lib.math;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import frc.robot.Constants.ArmProfile;
+import frc.robot.Constants.SwerveProfile;
+
+/**
+ * LinearInterpolation and Conversions with the tables and wheel size the robot uses.
+ * Inputs cycle through a fixed set so the JIT cannot fold the calls into constants.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MathBenchmark {
+    private static final int kInputCount = 1024;
+
+    private final double[] distances = new double[kInputCount];
+    private final double[] speeds = new double[kInputCount];
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        double minDistance = ArmProfile.TargetDistanceArray[0] - 0.5;
+        double maxDistance = ArmProfile.TargetDistanceArray[ArmProfile.TargetDistanceArray.length - 1] + 0.5;
+        for (int i = 0; i < kInputCount; i++) {
+            // Spread across the table, including just outside both ends
+            distances[i] = minDistance + (maxDistance - minDistance) * i / (kInputCount - 1);
+            speeds[i] = -SwerveProfile.maxSpeed + 2 * SwerveProfile.maxSpeed * i / (kInputCount - 1);
+        }
+    }
+
+    private int next() {
+        index = (index + 1) & (kInputCount - 1);
+        return index;
+    }
+
+    @Benchmark
+    public double linearInterpolation() {
+        return LinearInterpolation.linearInterpolation(ArmProfile.TargetDistanceArray, ArmProfile.ArmPosArray, distances[next()]);
+    }
+
+    @Benchmark
+    public double mpsToRps() {
+        return Conversions.MPSToRPS(speeds[next()], SwerveProfile.wheelCircumference);
+    }
+
+    @Benchmark
+    public double rpsToMps() {
+        return Conversions.RPSToMPS(speeds[next()], SwerveProfile.wheelCircumference);
+    }
+
+    @Benchmark
+    public double rotationsToMeters() {
+        return Conversions.rotationsToMeters(speeds[next()], SwerveProfile.wheelCircumference);
+    }
+}
@@ -0,0 +1,130 @@
+package frc.robot;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+import frc.lib.math.PrecomputedTrajectory;
+import frc.lib.math.SwerveMath;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.SwerveProfile;
+
+/**
+ * The math the drivetrain runs every loop, without any hardware: the SwerveMath kinematics and
+ * optimize step Swerve and SwerveModule run, an odometry update and a trajectory sample.
+ * Inputs cycle through a fixed set so the JIT cannot fold the calls into constants.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DriveBenchmark {
+    private static final int kInputCount = 256;
+
+    private final double[] vxs = new double[kInputCount];
+    private final double[] vys = new double[kInputCount];
+    private final double[] rotations = new double[kInputCount];
+    private final Rotation2d[] headings = new Rotation2d[kInputCount];
+    private final double[] desiredSpeeds = new double[kInputCount];
+    private final double[] desiredAngles = new double[kInputCount];
+    private final double[] moduleSpeeds = new double[4];
+    private final double[] moduleAngles = new double[4];
+    private final SwerveModulePosition[][] modulePositions = new SwerveModulePosition[kInputCount][];
+    private int index = 0;
+
+    private SwerveDriveOdometry odometry;
+    private PrecomputedTrajectory trajectory;
+    private final PrecomputedTrajectory.Sample sample = new PrecomputedTrajectory.Sample();
+    private double sampleTime = 0;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < kInputCount; i++) {
+            double angle = 2 * Math.PI * i / kInputCount;
+            vxs[i] = SwerveProfile.maxSpeed * Math.cos(angle);
+            vys[i] = SwerveProfile.maxSpeed * Math.sin(angle) * 0.5;
+            rotations[i] = SwerveProfile.maxAngularVelocity * Math.sin(angle * 3);
+            headings[i] = new Rotation2d(angle * 7);
+            desiredSpeeds[i] = SwerveProfile.maxSpeed * Math.cos(angle * 5);
+            desiredAngles[i] = angle * 11;
+            // Every module moves forward a little each loop, as if driving at 2 m/s
+            modulePositions[i] = new SwerveModulePosition[4];
+            for (int mod = 0; mod < 4; mod++) {
+                modulePositions[i][mod] = new SwerveModulePosition(0.04 * i, new Rotation2d(angle + mod));
+            }
+        }
+        odometry = new SwerveDriveOdometry(SwerveProfile.swerveKinematics, headings[0], modulePositions[0]);
+
+        Trajectory generated = TrajectoryGenerator.generateTrajectory(
+            new Pose2d(0, 0, new Rotation2d(0)),
+            List.of(new Translation2d(1, 1), new Translation2d(2, -1)),
+            new Pose2d(3, 0, new Rotation2d(0)),
+            new TrajectoryConfig(AutoConstants.kMaxSpeedMetersPerSecond, AutoConstants.kMaxAccelerationMetersPerSecondSquared)
+                .setKinematics(SwerveProfile.swerveKinematics));
+        trajectory = new PrecomputedTrajectory(generated);
+    }
+
+    private int next() {
+        index = (index + 1) & (kInputCount - 1);
+        return index;
+    }
+
+    /** Same calls as Swerve.calculateModuleSetpoints, field relative */
+    @Benchmark
+    public double[] driveKinematics() {
+        int i = next();
+        SwerveMath.toModuleSetpoints(vxs[i], vys[i], -rotations[i], headings[i].getRadians(),
+            SwerveProfile.moduleX, SwerveProfile.moduleY, moduleSpeeds, moduleAngles);
+        SwerveMath.desaturate(moduleSpeeds, SwerveProfile.maxSpeed);
+        return moduleSpeeds;
+    }
+
+    /** Same steps as SwerveModule.setDesiredState up to the angle and speed it sends */
+    @Benchmark
+    public double optimize() {
+        int i = next();
+        double speed = desiredSpeeds[i];
+        double angle = desiredAngles[i];
+        if (SwerveMath.isReversed(angle, headings[i].getRadians())) {
+            speed = -speed;
+            angle += Math.PI;
+        }
+        return MathUtil.angleModulus(angle) + speed;
+    }
+
+    @Benchmark
+    public Pose2d odometryUpdate() {
+        int i = next();
+        if (i == 0) {
+            // Positions restart from zero, start the odometry over with them
+            odometry.resetPosition(headings[0], modulePositions[0], new Pose2d());
+        }
+        return odometry.update(headings[i], modulePositions[i]);
+    }
+
+    /** What FollowTrajectory samples every loop, stepping forward 20 ms at a time */
+    @Benchmark
+    public double trajectorySample() {
+        sampleTime += 0.02;
+        if (sampleTime > trajectory.getTotalTime()) {
+            sampleTime = 0;
+        }
+        trajectory.sample(sampleTime, sample);
+        return sample.x + sample.y;
+    }
+}
@@ -0,0 +1,45 @@
+package frc.robot.subsystems;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.filter.LinearFilter;
+import frc.robot.Constants.LimelightProfile;
+
+/**
+ * The FIR filters Vision runs on the Limelight distance and angles, built from the same gains.
+ * Vision itself needs NetworkTables, so the filters are benchmarked on their own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VisionFilterBenchmark {
+    private static final int kInputCount = 1024;
+
+    private final double[] angles = new double[kInputCount];
+    private LinearFilter filter;
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        filter = new LinearFilter(LimelightProfile.kFilterGains, new double[] {});
+        for (int i = 0; i < kInputCount; i++) {
+            // A target sweeping across the frame with some noise
+            angles[i] = 25 * Math.sin(2 * Math.PI * i / kInputCount) + Math.sin(i * 12.9898) * 0.5;
+        }
+    }
+
+    /** One filter step, Vision runs three of these per frame */
+    @Benchmark
+    public double firFilter() {
+        index = (index + 1) & (kInputCount - 1);
+        return filter.calculate(angles[index]);
+    }
+}
@@ -0,0 +1,75 @@
+package frc.lib.math;
+
+/**
+ * Joint space model of where an arm and an intake wrist can hit each other.
+ * The arm is free to move while it stays at or below armFreeZoneMax, and the wrist is out of
+ * the way once it is at or beyond wristClearPos. The blocked region is everything else:
+ * arm above its free zone while the wrist is short of clear.
+ */
+public class CollisionEnvelope {
+    private final double armFreeZoneMax;
+    private final double wristClearPos;
+
+    /**
+     * @param armFreeZoneMax Highest arm position that can never touch the wrist
+     * @param wristClearPos Lowest wrist position where the arm can swing past it
+     */
+    public CollisionEnvelope(double armFreeZoneMax, double wristClearPos) {
+        this.armFreeZoneMax = armFreeZoneMax;
+        this.wristClearPos = wristClearPos;
+    }
+
+    public boolean isSafe(double armPos, double wristPos) {
+        return isArmInFreeZone(armPos) || isWristClear(wristPos);
+    }
+
+    /** Whether the arm is low enough that no wrist position can hit it. */
+    public boolean isArmInFreeZone(double armPos) {
+        return armPos <= armFreeZoneMax;
+    }
+
+    /** Whether the wrist is far enough out that no arm position can hit it. */
+    public boolean isWristClear(double wristPos) {
+        return wristPos >= wristClearPos;
+    }
+
+    /**
+     * Checks the straight line between two joint space states against the blocked region.
+     * @return true if no point on the swept path is blocked
+     */
+    public boolean isPathClear(double armStart, double wristStart, double armEnd, double wristEnd) {
+        // Part of the path (as a fraction 0 to 1) where the arm is above its free zone
+        double armBlockedStart = enterFraction(armStart, armEnd, armFreeZoneMax);
+        double armBlockedEnd = exitFraction(armStart, armEnd, armFreeZoneMax);
+        // Part of the path where the wrist is short of clear, mirrored so it is also an "above" check
+        double wristBlockedStart = enterFraction(-wristStart, -wristEnd, -wristClearPos);
+        double wristBlockedEnd = exitFraction(-wristStart, -wristEnd, -wristClearPos);
+
+        if (armBlockedStart > armBlockedEnd || wristBlockedStart > wristBlockedEnd) {
+            return true;
+        }
+        return Math.max(armBlockedStart, wristBlockedStart) >= Math.min(armBlockedEnd, wristBlockedEnd);
+    }
+
+    /* First fraction of a linear move from start to end where the value is above the limit (greater than 1 if never) */
+    private static double enterFraction(double start, double end, double limit) {
+        if (start > limit) {
+            return 0;
+        }
+        if (end > limit) {
+            return (limit - start) / (end - start);
+        }
+        return 2;
+    }
+
+    /* Last fraction of a linear move from start to end where the value is above the limit (less than 0 if never) */
+    private static double exitFraction(double start, double end, double limit) {
+        if (end > limit) {
+            return 1;
+        }
+        if (start > limit) {
+            return (limit - start) / (end - start);
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,165 @@
+package frc.lib.math;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Any-angle (Theta*) path planner on a NavGrid. Each expanded cell tries to connect straight back to
+ * its parent's parent, so paths come out as a few straight legs between obstacle corners instead of
+ * grid staircases.
+ * Distance fields (cost to a goal from every cell, found once with Dijkstra) can be precomputed for goals
+ * that are planned to often. With one available the search heads almost straight for the goal, at the cost
+ * of paths that can be a few percent longer than the shortest one. Otherwise it uses straight line distance.
+ * Not thread safe, meant to be used from one worker thread.
+ */
+public class GridPlanner {
+    private static final int[] kNeighborColumns = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] kNeighborRows = {0, 0, 1, -1, 1, -1, 1, -1};
+    private static final double kDiagonal = Math.sqrt(2);
+
+    private final NavGrid grid;
+    private final Map<Integer, float[]> distanceFields = new HashMap<>();
+
+    /* Search state, reused between plans */
+    private final double[] costs;
+    private final int[] parents;
+    private final boolean[] closed;
+
+    public GridPlanner(NavGrid grid) {
+        this.grid = grid;
+        costs = new double[grid.getCellCount()];
+        parents = new int[grid.getCellCount()];
+        closed = new boolean[grid.getCellCount()];
+    }
+
+    /** Builds and keeps the distance field for a goal, so later plans to it are fast. */
+    public void precompute(Translation2d goal) {
+        int goalCell = grid.nearestFree(grid.indexOf(goal));
+        if (goalCell >= 0) {
+            distanceFields.computeIfAbsent(goalCell, this::buildDistanceField);
+        }
+    }
+
+    /* Cost to the goal from every cell, in cells, moving between 8-connected free cells */
+    private float[] buildDistanceField(int goalCell) {
+        float[] field = new float[grid.getCellCount()];
+        Arrays.fill(field, Float.POSITIVE_INFINITY);
+        field[goalCell] = 0;
+        PriorityQueue<double[]> open = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        open.add(new double[] {0, goalCell});
+        while (!open.isEmpty()) {
+            double[] entry = open.poll();
+            int cell = (int)entry[1];
+            if (entry[0] > field[cell]) {
+                continue;
+            }
+            for (int i = 0; i < kNeighborColumns.length; i++) {
+                int neighbor = neighborOf(cell, i);
+                if (neighbor < 0) {
+                    continue;
+                }
+                float cost = (float)(field[cell] + (i < 4 ? 1 : kDiagonal));
+                if (cost < field[neighbor]) {
+                    field[neighbor] = cost;
+                    open.add(new double[] {cost, neighbor});
+                }
+            }
+        }
+        return field;
+    }
+
+    /* Free neighbor in direction i, or -1. Diagonal moves may not cut a blocked corner */
+    private int neighborOf(int cell, int i) {
+        int column = grid.columnOf(cell);
+        int row = grid.rowOf(cell);
+        int dColumn = kNeighborColumns[i];
+        int dRow = kNeighborRows[i];
+        if (grid.isBlocked(column + dColumn, row + dRow)) {
+            return -1;
+        }
+        if (i >= 4 && (grid.isBlocked(column + dColumn, row) || grid.isBlocked(column, row + dRow))) {
+            return -1;
+        }
+        return grid.indexOf(column + dColumn, row + dRow);
+    }
+
+    /**
+     * Plans around the grid's obstacles. Starts or goals inside an inflated obstacle are moved to the
+     * nearest free cell, but the returned path still begins and ends at the exact positions given.
+     * @return Corner points from start to goal, or null if the goal cannot be reached
+     */
+    public List<Translation2d> findPath(Translation2d start, Translation2d goal) {
+        int startCell = grid.nearestFree(grid.indexOf(start));
+        int goalCell = grid.nearestFree(grid.indexOf(goal));
+        if (startCell < 0 || goalCell < 0) {
+            return null;
+        }
+        float[] field = distanceFields.get(goalCell);
+        if (field != null && Float.isInfinite(field[startCell])) {
+            return null;
+        }
+
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        Arrays.fill(closed, false);
+        costs[startCell] = 0;
+        parents[startCell] = startCell;
+        PriorityQueue<double[]> open = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        open.add(new double[] {heuristic(startCell, goalCell, field), startCell});
+
+        boolean found = false;
+        while (!open.isEmpty()) {
+            int cell = (int)open.poll()[1];
+            if (closed[cell]) {
+                continue;
+            }
+            if (cell == goalCell) {
+                found = true;
+                break;
+            }
+            closed[cell] = true;
+
+            int parent = parents[cell];
+            for (int i = 0; i < kNeighborColumns.length; i++) {
+                int neighbor = neighborOf(cell, i);
+                if (neighbor < 0 || closed[neighbor]) {
+                    continue;
+                }
+                // Theta*: skip this cell entirely when the parent can see the neighbor
+                int from = grid.hasLineOfSight(parent, neighbor) ? parent : cell;
+                double cost = costs[from] + cellDistance(from, neighbor);
+                if (cost < costs[neighbor]) {
+                    costs[neighbor] = cost;
+                    parents[neighbor] = from;
+                    open.add(new double[] {cost + heuristic(neighbor, goalCell, field), neighbor});
+                }
+            }
+        }
+        if (!found) {
+            return null;
+        }
+
+        List<Translation2d> path = new ArrayList<>();
+        path.add(goal);
+        for (int cell = parents[goalCell]; cell != startCell; cell = parents[cell]) {
+            path.add(grid.centerOf(cell));
+        }
+        path.add(start);
+        Collections.reverse(path);
+        return path;
+    }
+
+    private double heuristic(int cell, int goalCell, float[] field) {
+        return field != null ? field[cell] : cellDistance(cell, goalCell);
+    }
+
+    private double cellDistance(int a, int b) {
+        return Math.hypot(grid.columnOf(a) - grid.columnOf(b), grid.rowOf(a) - grid.rowOf(b));
+    }
+}
@@ -0,0 +1,49 @@
+package frc.lib.math;
+
+import edu.wpi.first.math.controller.ProfiledPIDController;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+
+/**
+ * Turns the robot to a target yaw along a trapezoid profile. The profile's velocity is fed forward,
+ * position error is a P term, and the derivative term compares the profile's velocity to the gyro's
+ * measured yaw rate instead of differencing noisy yaw samples.
+ * Yaws are continuous (not wrapped), so no continuous input handling is needed.
+ */
+public class HeadingController {
+    private final ProfiledPIDController controller;
+    private final double kD;
+
+    /**
+     * @param maxVelocity Profile yaw rate limit: (in Radians Per Second)
+     * @param maxAcceleration Profile yaw acceleration limit: (in Radians Per Second Squared)
+     */
+    public HeadingController(double kP, double kD, double maxVelocity, double maxAcceleration) {
+        controller = new ProfiledPIDController(kP, 0, 0, new TrapezoidProfile.Constraints(maxVelocity, maxAcceleration));
+        this.kD = kD;
+    }
+
+    /** Restarts the profile from the robot's current yaw and yaw rate. */
+    public void reset(double yaw, double yawRate) {
+        controller.reset(yaw, yawRate);
+        controller.setGoal(yaw);
+    }
+
+    public void setTarget(double targetYaw) {
+        controller.setGoal(targetYaw);
+    }
+
+    public double getTarget() {
+        return controller.getGoal().position;
+    }
+
+    /**
+     * @param yaw Current continuous yaw: (in Radians)
+     * @param yawRate Current yaw rate from the gyro: (in Radians Per Second)
+     * @return Commanded yaw rate, counterclockwise positive: (in Radians Per Second)
+     */
+    public double calculate(double yaw, double yawRate) {
+        double feedback = controller.calculate(yaw);
+        TrapezoidProfile.State setpoint = controller.getSetpoint();
+        return setpoint.velocity + feedback + kD * (setpoint.velocity - yawRate);
+    }
+}
@@ -0,0 +1,117 @@
+package frc.lib.math;
+
+/**
+ * Output gate that keeps an arm and an intake wrist out of a CollisionEnvelope's blocked region.
+ * Every output request for either joint is passed through it on its way to the motor, so no writer
+ * can get around it. Raising the arm and retracting the wrist are the only moves that can cause a
+ * collision; the predicted state one lookahead ahead is checked for those, and a blocked move is
+ * held at 0 until the other joint is out of the way, even if the joint has since stopped and its
+ * prediction alone would look safe again.
+ */
+public class JointInterlock {
+    private final CollisionEnvelope envelope;
+    private final double lookahead;
+
+    private double armPos;
+    private double wristPos;
+    private double armVelocity = 0;
+    private double wristVelocity = 0;
+    private double lastUpdateTime = Double.NaN;
+
+    private boolean armBlocked = false;
+    private boolean wristBlocked = false;
+    private int blockCount = 0;
+
+    /**
+     * @param envelope Where the joints can hit each other
+     * @param lookahead How far ahead the joint states are predicted before letting a move through: (in Seconds)
+     * @param armPos Arm position at startup
+     * @param wristPos Wrist position at startup
+     */
+    public JointInterlock(CollisionEnvelope envelope, double lookahead, double armPos, double wristPos) {
+        this.envelope = envelope;
+        this.lookahead = lookahead;
+        this.armPos = armPos;
+        this.wristPos = wristPos;
+    }
+
+    /** Updates the measured joint positions, the velocities are taken from the change since the last update. */
+    public void update(double time, double newArmPos, double newWristPos) {
+        if (!Double.isNaN(lastUpdateTime) && time > lastUpdateTime) {
+            armVelocity = (newArmPos - armPos) / (time - lastUpdateTime);
+            wristVelocity = (newWristPos - wristPos) / (time - lastUpdateTime);
+        }
+        armPos = newArmPos;
+        wristPos = newWristPos;
+        lastUpdateTime = time;
+    }
+
+    /**
+     * @param requested Arm output a writer asked for, positive raises the arm
+     * @return Output that may be sent to the arm
+     */
+    public double limitArmOutput(double requested) {
+        if (requested <= 0) {
+            // Lowering the arm never adds a collision
+            armBlocked = false;
+            return requested;
+        }
+        if (armBlocked && envelope.isWristClear(wristPos)) {
+            armBlocked = false;
+        }
+        if (!armBlocked && !envelope.isSafe(armPos + armVelocity * lookahead, wristPos)) {
+            armBlocked = true;
+            blockCount++;
+        }
+        return armBlocked ? 0 : requested;
+    }
+
+    /**
+     * @param requested Wrist output a writer asked for, negative retracts the wrist
+     * @return Output that may be sent to the wrist
+     */
+    public double limitWristOutput(double requested) {
+        if (requested >= 0) {
+            // Deploying the wrist never adds a collision
+            wristBlocked = false;
+            return requested;
+        }
+        if (wristBlocked && envelope.isArmInFreeZone(armPos)) {
+            wristBlocked = false;
+        }
+        if (!wristBlocked && !envelope.isSafe(armPos, wristPos + wristVelocity * lookahead)) {
+            wristBlocked = true;
+            blockCount++;
+        }
+        return wristBlocked ? 0 : requested;
+    }
+
+    public boolean isArmBlocked() {
+        return armBlocked;
+    }
+
+    public boolean isWristBlocked() {
+        return wristBlocked;
+    }
+
+    /** Number of moves that have been stopped, each held move counts once however long it stays held. */
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    public double getArmPosition() {
+        return armPos;
+    }
+
+    public double getWristPosition() {
+        return wristPos;
+    }
+
+    public double getArmVelocity() {
+        return armVelocity;
+    }
+
+    public double getWristVelocity() {
+        return wristVelocity;
+    }
+}
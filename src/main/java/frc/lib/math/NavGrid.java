@@ -0,0 +1,182 @@
+package frc.lib.math;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Field occupancy grid, built once from a JSON description of the field's obstacles and stored as
+ * one bit per cell. Obstacles are inflated by the robot's radius, so a cell is free when the robot's
+ * center can be there, and the field walls are blocked the same way.
+ * <pre>
+ * { "cellSize": 0.2, "fieldLength": 16.54, "fieldWidth": 8.21,
+ *   "obstacles": [ { "name": "Blue Stage", "polygon": [[x, y], [x, y], [x, y]] } ] }
+ * </pre>
+ * All units in meters.
+ */
+public class NavGrid {
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final long[] blocked;
+
+    private NavGrid(double cellSize, double fieldLength, double fieldWidth) {
+        this.cellSize = cellSize;
+        columns = (int)Math.ceil(fieldLength / cellSize);
+        rows = (int)Math.ceil(fieldWidth / cellSize);
+        blocked = new long[(columns * rows + 63) / 64];
+    }
+
+    /**
+     * Reads a grid description and rasterizes it.
+     * @param robotRadius How far the robot's center must stay from obstacles and walls: (in Meters)
+     */
+    public static NavGrid load(Path file, double robotRadius) throws IOException {
+        JsonNode root = new ObjectMapper().readTree(file.toFile());
+        double fieldLength = root.get("fieldLength").asDouble();
+        double fieldWidth = root.get("fieldWidth").asDouble();
+        NavGrid grid = new NavGrid(root.get("cellSize").asDouble(), fieldLength, fieldWidth);
+
+        List<double[][]> polygons = new ArrayList<>();
+        for (JsonNode obstacle : root.get("obstacles")) {
+            JsonNode points = obstacle.get("polygon");
+            double[][] polygon = new double[points.size()][];
+            for (int i = 0; i < points.size(); i++) {
+                polygon[i] = new double[] {points.get(i).get(0).asDouble(), points.get(i).get(1).asDouble()};
+            }
+            polygons.add(polygon);
+        }
+
+        for (int row = 0; row < grid.rows; row++) {
+            for (int column = 0; column < grid.columns; column++) {
+                double x = (column + 0.5) * grid.cellSize;
+                double y = (row + 0.5) * grid.cellSize;
+                boolean isBlocked = x < robotRadius || y < robotRadius || x > fieldLength - robotRadius || y > fieldWidth - robotRadius;
+                for (int i = 0; i < polygons.size() && !isBlocked; i++) {
+                    isBlocked = distanceToPolygon(polygons.get(i), x, y) < robotRadius;
+                }
+                if (isBlocked) {
+                    int index = grid.indexOf(column, row);
+                    grid.blocked[index >> 6] |= 1L << index;
+                }
+            }
+        }
+        return grid;
+    }
+
+    /* Zero inside the polygon, otherwise the distance to its closest edge */
+    private static double distanceToPolygon(double[][] polygon, double x, double y) {
+        boolean inside = false;
+        double closest = Double.POSITIVE_INFINITY;
+        for (int i = 0, j = polygon.length - 1; i < polygon.length; j = i++) {
+            double ax = polygon[j][0], ay = polygon[j][1];
+            double bx = polygon[i][0], by = polygon[i][1];
+            if ((by > y) != (ay > y) && x < (ax - bx) * (y - by) / (ay - by) + bx) {
+                inside = !inside;
+            }
+            double dx = bx - ax;
+            double dy = by - ay;
+            double lengthSquared = dx * dx + dy * dy;
+            double t = lengthSquared > 0 ? Math.max(0, Math.min(1, ((x - ax) * dx + (y - ay) * dy) / lengthSquared)) : 0;
+            closest = Math.min(closest, Math.hypot(x - (ax + t * dx), y - (ay + t * dy)));
+        }
+        return inside ? 0 : closest;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCellCount() {
+        return columns * rows;
+    }
+
+    public int indexOf(int column, int row) {
+        return row * columns + column;
+    }
+
+    /** Cell containing a field position, clamped onto the grid. */
+    public int indexOf(Translation2d position) {
+        int column = Math.max(0, Math.min(columns - 1, (int)(position.getX() / cellSize)));
+        int row = Math.max(0, Math.min(rows - 1, (int)(position.getY() / cellSize)));
+        return indexOf(column, row);
+    }
+
+    public int columnOf(int index) {
+        return index % columns;
+    }
+
+    public int rowOf(int index) {
+        return index / columns;
+    }
+
+    /** Center of a cell: (in Meters) */
+    public Translation2d centerOf(int index) {
+        return new Translation2d((columnOf(index) + 0.5) * cellSize, (rowOf(index) + 0.5) * cellSize);
+    }
+
+    public boolean isBlocked(int index) {
+        return (blocked[index >> 6] & (1L << index)) != 0;
+    }
+
+    public boolean isBlocked(int column, int row) {
+        return column < 0 || row < 0 || column >= columns || row >= rows || isBlocked(indexOf(column, row));
+    }
+
+    /** Whether the straight line between two cell centers only crosses free cells, checked every half cell. */
+    public boolean hasLineOfSight(int from, int to) {
+        double x0 = columnOf(from) + 0.5, y0 = rowOf(from) + 0.5;
+        double x1 = columnOf(to) + 0.5, y1 = rowOf(to) + 0.5;
+        int steps = (int)Math.ceil(Math.hypot(x1 - x0, y1 - y0) * 2);
+        for (int i = 1; i < steps; i++) {
+            double t = (double)i / steps;
+            if (isBlocked((int)(x0 + (x1 - x0) * t), (int)(y0 + (y1 - y0) * t))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Closest free cell to a cell, searching outward ring by ring. Returns -1 if the grid has no free cells. */
+    public int nearestFree(int index) {
+        if (!isBlocked(index)) {
+            return index;
+        }
+        int column = columnOf(index);
+        int row = rowOf(index);
+        for (int ring = 1; ring < Math.max(columns, rows); ring++) {
+            int best = -1;
+            double bestDistance = Double.POSITIVE_INFINITY;
+            for (int dRow = -ring; dRow <= ring; dRow++) {
+                for (int dColumn = -ring; dColumn <= ring; dColumn++) {
+                    if (Math.max(Math.abs(dRow), Math.abs(dColumn)) != ring || isBlocked(column + dColumn, row + dRow)) {
+                        continue;
+                    }
+                    double distance = Math.hypot(dColumn, dRow);
+                    if (distance < bestDistance) {
+                        best = indexOf(column + dColumn, row + dRow);
+                        bestDistance = distance;
+                    }
+                }
+            }
+            if (best >= 0) {
+                return best;
+            }
+        }
+        return -1;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+}
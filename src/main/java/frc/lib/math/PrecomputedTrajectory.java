@@ -0,0 +1,167 @@
+package frc.lib.math;
+
+import java.util.List;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.trajectory.Trajectory;
+
+/**
+ * A trajectory unpacked into plain arrays so it can be sampled every loop without creating objects.
+ * Sampling remembers the segment it last used, so a follower moving forward in time only ever
+ * steps ahead by a segment or two instead of searching the whole trajectory.
+ */
+public class PrecomputedTrajectory {
+    /** Reference state written by sample(), reused every loop. */
+    public static class Sample {
+        public double time;
+        public double x;
+        public double y;
+        /* Direction of travel: (in Radians) */
+        public double heading;
+        public double velocity;
+        public double acceleration;
+        public double curvature;
+    }
+
+    private final double[] times;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] headings;
+    private final double[] velocities;
+    private final double[] accelerations;
+    private final double[] curvatures;
+    /* Distance along the path at each state: (in Meters) */
+    private final double[] distances;
+    private final int lastIndex;
+
+    private int segmentIndex = 0;
+
+    public PrecomputedTrajectory(Trajectory trajectory) {
+        List<Trajectory.State> states = trajectory.getStates();
+        int count = states.size();
+        times = new double[count];
+        xs = new double[count];
+        ys = new double[count];
+        headings = new double[count];
+        velocities = new double[count];
+        accelerations = new double[count];
+        curvatures = new double[count];
+        distances = new double[count];
+        for (int i = 0; i < count; i++) {
+            Trajectory.State state = states.get(i);
+            times[i] = state.timeSeconds;
+            xs[i] = state.poseMeters.getX();
+            ys[i] = state.poseMeters.getY();
+            headings[i] = state.poseMeters.getRotation().getRadians();
+            velocities[i] = state.velocityMetersPerSecond;
+            accelerations[i] = state.accelerationMetersPerSecondSq;
+            curvatures[i] = state.curvatureRadPerMeter;
+            if (i > 0) {
+                distances[i] = distances[i - 1] + Math.hypot(xs[i] - xs[i - 1], ys[i] - ys[i - 1]);
+            }
+        }
+        lastIndex = count - 1;
+    }
+
+    public double getTotalTime() {
+        return times[lastIndex];
+    }
+
+    /** Direction of travel at the end of the trajectory: (in Radians) */
+    public double getFinalHeading() {
+        return headings[lastIndex];
+    }
+
+    public double getTotalDistance() {
+        return distances[lastIndex];
+    }
+
+    /**
+     * Time at which the robot has travelled a distance along the path, found from the same
+     * constant acceleration segments sample() uses. Not meant for every loop, it searches from the start.
+     * @param meters Distance from the start of the path, clamped to the path
+     * @return Time since the start of the trajectory: (in Seconds)
+     */
+    public double getTimeAtDistance(double meters) {
+        if (meters <= 0) {
+            return times[0];
+        }
+        if (meters >= distances[lastIndex]) {
+            return times[lastIndex];
+        }
+        int i = 0;
+        while (distances[i + 1] < meters) {
+            i++;
+        }
+        double remaining = meters - distances[i];
+        double segmentTime = times[i + 1] - times[i];
+        double dt;
+        if (Math.abs(accelerations[i]) < 1e-9) {
+            dt = velocities[i] > 1e-9 ? remaining / velocities[i] : segmentTime;
+        }
+        else {
+            // Solve remaining = v * dt + a * dt^2 / 2 for the first time it is reached
+            double discriminant = velocities[i] * velocities[i] + 2.0 * accelerations[i] * remaining;
+            dt = (-velocities[i] + Math.sqrt(Math.max(0, discriminant))) / accelerations[i];
+        }
+        return times[i] + MathUtil.clamp(dt, 0, segmentTime);
+    }
+
+    /** Forgets the cached segment, e.g. before following the trajectory again. */
+    public void reset() {
+        segmentIndex = 0;
+    }
+
+    /**
+     * Samples the trajectory the same way Trajectory.sample does: velocity from the segment's
+     * constant acceleration, and position by how far along the segment that puts the robot.
+     * @param time Time since the start of the trajectory: (in Seconds)
+     * @param out Sample to write into
+     */
+    public void sample(double time, Sample out) {
+        if (time <= times[0]) {
+            copyState(0, time, out);
+            return;
+        }
+        if (time >= times[lastIndex]) {
+            copyState(lastIndex, time, out);
+            return;
+        }
+
+        if (time < times[segmentIndex]) {
+            // Time went backwards, start the search over
+            segmentIndex = 0;
+        }
+        while (times[segmentIndex + 1] <= time) {
+            segmentIndex++;
+        }
+
+        int i = segmentIndex;
+        double dt = time - times[i];
+        double distanceTravelled = velocities[i] * dt + 0.5 * accelerations[i] * dt * dt;
+        double dx = xs[i + 1] - xs[i];
+        double dy = ys[i + 1] - ys[i];
+        double segmentLength = Math.sqrt(dx * dx + dy * dy);
+        double fraction = segmentLength > 1e-9
+            ? MathUtil.clamp(distanceTravelled / segmentLength, 0.0, 1.0)
+            : dt / (times[i + 1] - times[i]);
+
+        out.time = time;
+        out.velocity = velocities[i] + accelerations[i] * dt;
+        out.acceleration = accelerations[i];
+        out.x = xs[i] + dx * fraction;
+        out.y = ys[i] + dy * fraction;
+        out.heading = headings[i] + MathUtil.angleModulus(headings[i + 1] - headings[i]) * fraction;
+        out.curvature = curvatures[i] + (curvatures[i + 1] - curvatures[i]) * fraction;
+    }
+
+    private void copyState(int index, double time, Sample out) {
+        out.time = time;
+        out.x = xs[index];
+        out.y = ys[index];
+        out.heading = headings[index];
+        out.velocity = velocities[index];
+        out.acceleration = accelerations[index];
+        out.curvature = curvatures[index];
+    }
+}
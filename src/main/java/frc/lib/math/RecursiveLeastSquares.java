@@ -0,0 +1,139 @@
+package frc.lib.math;
+
+import java.util.Arrays;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Recursive least squares estimate of y = b0*x0 + b1*x1 + ..., updated one sample at a time.
+ * A forgetting factor below one lets the estimate follow slowly changing coefficients.
+ * Each update is O(n^2) in the number of coefficients and allocates nothing.
+ *
+ * Updates are guarded so a bad stretch of data cannot run the estimate away:
+ * -Each update's target is clamped to the bounds first, then each coefficient moves toward it by at most its
+ *  rate limit times dt, so a starting value outside the bounds is also walked in at the rate limit, not snapped
+ * -The covariance stops growing past a maximum trace, so it does not wind up while the input is not exciting
+ */
+public class RecursiveLeastSquares {
+    private final int size;
+    private final double[] estimate;
+    private final double[][] covariance;
+    private final double forgettingFactor;
+    private final double initialCovariance;
+    private final double maxCovarianceTrace;
+
+    private final double[] min;
+    private final double[] max;
+    private final double[] maxRate;
+
+    /* Work arrays */
+    private final double[] px;
+    private final double[] gain;
+
+    private long updates = 0;
+
+    /**
+     * @param initial Starting coefficients, also how many there are
+     * @param initialCovariance Starting covariance diagonal, larger trusts the starting coefficients less
+     * @param forgettingFactor Weight kept by old samples each update, e.g. 0.995 remembers about 200 samples
+     * @param maxCovarianceTrace Covariance size at which forgetting stops inflating it
+     */
+    public RecursiveLeastSquares(double[] initial, double initialCovariance, double forgettingFactor, double maxCovarianceTrace) {
+        size = initial.length;
+        estimate = initial.clone();
+        covariance = new double[size][size];
+        this.forgettingFactor = forgettingFactor;
+        this.initialCovariance = initialCovariance;
+        this.maxCovarianceTrace = maxCovarianceTrace;
+        min = new double[size];
+        max = new double[size];
+        maxRate = new double[size];
+        Arrays.fill(min, Double.NEGATIVE_INFINITY);
+        Arrays.fill(max, Double.POSITIVE_INFINITY);
+        Arrays.fill(maxRate, Double.POSITIVE_INFINITY);
+        px = new double[size];
+        gain = new double[size];
+        reset(initial);
+    }
+
+    public RecursiveLeastSquares withBounds(double[] min, double[] max) {
+        System.arraycopy(min, 0, this.min, 0, size);
+        System.arraycopy(max, 0, this.max, 0, size);
+        return this;
+    }
+
+    /** @param maxRate Fastest each coefficient may change: (in Units Per Second) */
+    public RecursiveLeastSquares withRateLimits(double[] maxRate) {
+        System.arraycopy(maxRate, 0, this.maxRate, 0, size);
+        return this;
+    }
+
+    /** Starts over from these coefficients with the initial covariance. */
+    public void reset(double[] values) {
+        System.arraycopy(values, 0, estimate, 0, size);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                covariance[i][j] = i == j ? initialCovariance : 0;
+            }
+        }
+        updates = 0;
+    }
+
+    /**
+     * Adds one sample.
+     * @param x Features of the sample
+     * @param y Measured output
+     * @param dt Time since the last update, for the rate limits: (in Seconds)
+     */
+    public void update(double[] x, double y, double dt) {
+        double error = y;
+        double denominator = forgettingFactor;
+        for (int i = 0; i < size; i++) {
+            double sum = 0;
+            for (int j = 0; j < size; j++) {
+                sum += covariance[i][j] * x[j];
+            }
+            px[i] = sum;
+            denominator += x[i] * sum;
+            error -= estimate[i] * x[i];
+        }
+        for (int i = 0; i < size; i++) {
+            gain[i] = px[i] / denominator;
+            double target = MathUtil.clamp(estimate[i] + gain[i] * error, min[i], max[i]);
+            estimate[i] += MathUtil.clamp(target - estimate[i], -maxRate[i] * dt, maxRate[i] * dt);
+        }
+
+        double trace = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                covariance[i][j] -= gain[i] * px[j];
+            }
+            trace += covariance[i][i];
+        }
+        if (trace < maxCovarianceTrace) {
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    covariance[i][j] /= forgettingFactor;
+                }
+            }
+        }
+        updates++;
+    }
+
+    public double getEstimate(int index) {
+        return estimate[index];
+    }
+
+    public long getUpdateCount() {
+        return updates;
+    }
+
+    /** Sum of the coefficient variances, small once the estimate has settled */
+    public double getCovarianceTrace() {
+        double trace = 0;
+        for (int i = 0; i < size; i++) {
+            trace += covariance[i][i];
+        }
+        return trace;
+    }
+}
@@ -0,0 +1,104 @@
+package frc.lib.math;
+
+/**
+ * Ordinary least squares fit of y = b0*x0 + b1*x1 + ... that only keeps the normal equations
+ * (X'X, X'y and y'y), so any number of samples can be added in constant memory.
+ */
+public class StreamingLeastSquares {
+    private final int size;
+    private final double[][] xtx;
+    private final double[] xty;
+    private double yty = 0;
+    private double ySum = 0;
+    private long count = 0;
+
+    /** @param size Number of features per sample */
+    public StreamingLeastSquares(int size) {
+        this.size = size;
+        xtx = new double[size][size];
+        xty = new double[size];
+    }
+
+    public void add(double[] x, double y) {
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                xtx[i][j] += x[i] * x[j];
+            }
+            xty[i] += x[i] * y;
+        }
+        yty += y * y;
+        ySum += y;
+        count++;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Solves the normal equations with Gaussian elimination and partial pivoting.
+     * @return Coefficients, or null if there are too few samples or a feature never varied
+     */
+    public double[] solve() {
+        if (count < size) {
+            return null;
+        }
+        double[][] a = new double[size][size + 1];
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(xtx[i], 0, a[i], 0, size);
+            a[i][size] = xty[i];
+        }
+        for (int column = 0; column < size; column++) {
+            int pivot = column;
+            for (int row = column + 1; row < size; row++) {
+                if (Math.abs(a[row][column]) > Math.abs(a[pivot][column])) {
+                    pivot = row;
+                }
+            }
+            if (Math.abs(a[pivot][column]) < 1e-12) {
+                return null;
+            }
+            double[] swap = a[column];
+            a[column] = a[pivot];
+            a[pivot] = swap;
+            for (int row = column + 1; row < size; row++) {
+                double factor = a[row][column] / a[column][column];
+                for (int k = column; k <= size; k++) {
+                    a[row][k] -= factor * a[column][k];
+                }
+            }
+        }
+        double[] coefficients = new double[size];
+        for (int row = size - 1; row >= 0; row--) {
+            double sum = a[row][size];
+            for (int k = row + 1; k < size; k++) {
+                sum -= a[row][k] * coefficients[k];
+            }
+            coefficients[row] = sum / a[row][row];
+        }
+        return coefficients;
+    }
+
+    /** Sum of squared residuals for a solution, from the normal equations alone: y'y - 2b'X'y + b'X'Xb */
+    public double getResidualSumOfSquares(double[] coefficients) {
+        double sum = yty;
+        for (int i = 0; i < size; i++) {
+            sum -= 2 * coefficients[i] * xty[i];
+            for (int j = 0; j < size; j++) {
+                sum += coefficients[i] * xtx[i][j] * coefficients[j];
+            }
+        }
+        return Math.max(0, sum);
+    }
+
+    /** R squared of a solution, the fraction of the variation in y it explains */
+    public double getRSquared(double[] coefficients) {
+        double totalSumOfSquares = yty - ySum * ySum / count;
+        return totalSumOfSquares > 0 ? 1 - getResidualSumOfSquares(coefficients) / totalSumOfSquares : 0;
+    }
+
+    /** Standard deviation of the residuals for a solution */
+    public double getResidualStdDev(double[] coefficients) {
+        return count > size ? Math.sqrt(getResidualSumOfSquares(coefficients) / (count - size)) : 0;
+    }
+}
@@ -0,0 +1,66 @@
+package frc.lib.math;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Swerve inverse kinematics and the module optimize step on plain arrays. Same math as
+ * SwerveDriveKinematics.toSwerveModuleStates, desaturateWheelSpeeds and SwerveModuleState.optimize,
+ * without creating any objects, for the drive code that runs every loop.
+ */
+public class SwerveMath {
+
+    /**
+     * Field relative chassis speeds to module speeds and angles.
+     * A module that is not moving keeps the angle already in moduleAngles instead of snapping to zero.
+     * @param fieldVx Field relative x velocity: (in Meters per Second)
+     * @param fieldVy Field relative y velocity: (in Meters per Second)
+     * @param omega Rotation rate, counterclockwise positive: (in Radians per Second)
+     * @param headingRadians Robot heading the speeds are turned by, 0 for robot relative speeds: (in Radians)
+     * @param moduleX Each module's position forward of the robot's center: (in Meters)
+     * @param moduleY Each module's position left of the robot's center: (in Meters)
+     * @param moduleSpeeds Filled with each module's speed: (in Meters per Second)
+     * @param moduleAngles Filled with each module's angle: (in Radians)
+     */
+    public static void toModuleSetpoints(double fieldVx, double fieldVy, double omega, double headingRadians,
+            double[] moduleX, double[] moduleY, double[] moduleSpeeds, double[] moduleAngles) {
+        double cos = Math.cos(headingRadians);
+        double sin = Math.sin(headingRadians);
+        double vx = fieldVx * cos + fieldVy * sin;
+        double vy = -fieldVx * sin + fieldVy * cos;
+        for (int i = 0; i < moduleSpeeds.length; i++) {
+            double moduleVx = vx - omega * moduleY[i];
+            double moduleVy = vy + omega * moduleX[i];
+            moduleSpeeds[i] = Math.sqrt(moduleVx * moduleVx + moduleVy * moduleVy);
+            if (moduleSpeeds[i] > 1e-6) {
+                moduleAngles[i] = Math.atan2(moduleVy, moduleVx);
+            }
+        }
+    }
+
+    /**
+     * Scales every module speed down by the same amount so none is faster than the limit.
+     * @param maxSpeed Fastest a module can drive: (in Meters per Second)
+     */
+    public static void desaturate(double[] moduleSpeeds, double maxSpeed) {
+        double maxModuleSpeed = 0;
+        for (double speed : moduleSpeeds) {
+            maxModuleSpeed = Math.max(maxModuleSpeed, Math.abs(speed));
+        }
+        if (maxModuleSpeed > maxSpeed) {
+            double scale = maxSpeed / maxModuleSpeed;
+            for (int i = 0; i < moduleSpeeds.length; i++) {
+                moduleSpeeds[i] *= scale;
+            }
+        }
+    }
+
+    /**
+     * Whether a module should turn the shorter way to the opposite angle and drive backwards instead,
+     * i.e. the desired angle is more than 90 degrees from where it points now.
+     * @param desiredAngle (in Radians)
+     * @param currentAngle (in Radians)
+     */
+    public static boolean isReversed(double desiredAngle, double currentAngle) {
+        return Math.abs(MathUtil.angleModulus(desiredAngle - currentAngle)) > Math.PI / 2.0;
+    }
+}
@@ -0,0 +1,110 @@
+package frc.lib.util;
+
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.REVLibError;
+import com.revrobotics.SparkPIDController;
+
+/**
+ * CANSparkMax that skips redundant output, idle mode, soft limit and current limit writes.
+ * Setting the idle mode or a limit is a blocking config transaction, so calling them every loop
+ * costs real CAN time even when nothing changes.
+ * setVoltage uses the controller's voltage mode, so it is correct whether or not voltage compensation is enabled.
+ */
+public class CachedSparkMax extends CANSparkMax {
+    /* Outputs are refreshed often, config values only occasionally in case the controller reset */
+    public static final double kOutputRefreshPeriod = 0.1;
+    public static final double kConfigRefreshPeriod = 2.0;
+
+    private static final String kDeviceName = "Spark Max";
+
+    private final WriteCache outputCache = new WriteCache(kOutputRefreshPeriod);
+    private final WriteCache voltageCache = new WriteCache(kOutputRefreshPeriod);
+    private final WriteCache idleModeCache = new WriteCache(kConfigRefreshPeriod);
+    private final WriteCache currentLimitCache = new WriteCache(kConfigRefreshPeriod);
+    private final WriteCache fwdSoftLimitCache = new WriteCache(kConfigRefreshPeriod);
+    private final WriteCache rvsSoftLimitCache = new WriteCache(kConfigRefreshPeriod);
+    private final WriteCache fwdSoftLimitEnableCache = new WriteCache(kConfigRefreshPeriod);
+    private final WriteCache rvsSoftLimitEnableCache = new WriteCache(kConfigRefreshPeriod);
+
+    private final SparkPIDController voltageController;
+
+    public CachedSparkMax(int deviceId, MotorType type) {
+        super(deviceId, type);
+        voltageController = getPIDController();
+    }
+
+    @Override
+    public void set(double speed) {
+        if (outputCache.needsWrite(speed)) {
+            // The other output mode must be resent once it is used again
+            voltageCache.invalidate();
+            RobotEvents.beginDeviceCall();
+            super.set(speed);
+            RobotEvents.endDeviceCall(kDeviceName, getDeviceId(), "set");
+        }
+    }
+
+    @Override
+    public void setVoltage(double outputVolts) {
+        if (voltageCache.needsWrite(outputVolts)) {
+            outputCache.invalidate();
+            RobotEvents.beginDeviceCall();
+            voltageController.setReference(outputVolts, ControlType.kVoltage);
+            RobotEvents.endDeviceCall(kDeviceName, getDeviceId(), "setVoltage");
+        }
+    }
+
+    @Override
+    public REVLibError setIdleMode(IdleMode mode) {
+        if (!idleModeCache.needsWrite(mode.value)) {
+            return REVLibError.kOk;
+        }
+        RobotEvents.beginDeviceCall();
+        REVLibError error = super.setIdleMode(mode);
+        RobotEvents.endDeviceCall(kDeviceName, getDeviceId(), "setIdleMode");
+        return checkWrite(idleModeCache, error);
+    }
+
+    @Override
+    public REVLibError setSmartCurrentLimit(int limit) {
+        if (!currentLimitCache.needsWrite(limit)) {
+            return REVLibError.kOk;
+        }
+        RobotEvents.beginDeviceCall();
+        REVLibError error = super.setSmartCurrentLimit(limit);
+        RobotEvents.endDeviceCall(kDeviceName, getDeviceId(), "setSmartCurrentLimit");
+        return checkWrite(currentLimitCache, error);
+    }
+
+    @Override
+    public REVLibError setSoftLimit(SoftLimitDirection direction, float limit) {
+        WriteCache cache = (direction == SoftLimitDirection.kForward) ? fwdSoftLimitCache : rvsSoftLimitCache;
+        if (!cache.needsWrite(limit)) {
+            return REVLibError.kOk;
+        }
+        RobotEvents.beginDeviceCall();
+        REVLibError error = super.setSoftLimit(direction, limit);
+        RobotEvents.endDeviceCall(kDeviceName, getDeviceId(), "setSoftLimit");
+        return checkWrite(cache, error);
+    }
+
+    @Override
+    public REVLibError enableSoftLimit(SoftLimitDirection direction, boolean enable) {
+        WriteCache cache = (direction == SoftLimitDirection.kForward) ? fwdSoftLimitEnableCache : rvsSoftLimitEnableCache;
+        if (!cache.needsWrite(enable ? 1 : 0)) {
+            return REVLibError.kOk;
+        }
+        RobotEvents.beginDeviceCall();
+        REVLibError error = super.enableSoftLimit(direction, enable);
+        RobotEvents.endDeviceCall(kDeviceName, getDeviceId(), "enableSoftLimit");
+        return checkWrite(cache, error);
+    }
+
+    // A failed write must not be remembered as applied
+    private static REVLibError checkWrite(WriteCache cache, REVLibError error) {
+        if (error != REVLibError.kOk) {
+            cache.invalidate();
+        }
+        return error;
+    }
+}
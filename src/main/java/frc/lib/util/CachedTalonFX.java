@@ -0,0 +1,86 @@
+package frc.lib.util;
+
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.configs.CurrentLimitsConfigs;
+import com.ctre.phoenix6.controls.VoltageOut;
+import com.ctre.phoenix6.hardware.TalonFX;
+
+/**
+ * Phoenix 6 TalonFX that skips resending identical duty cycle and voltage outputs and supply current limits.
+ * Phoenix 6 has no voltage compensation for duty cycle outputs, mechanisms that need consistent speed use setVoltage.
+ */
+public class CachedTalonFX extends TalonFX {
+    private static final String kDeviceName = "Talon FX";
+
+    private final WriteCache outputCache = new WriteCache(CachedSparkMax.kOutputRefreshPeriod);
+    private final WriteCache voltageCache = new WriteCache(CachedSparkMax.kOutputRefreshPeriod);
+    private final VoltageOut voltageOut = new VoltageOut(0);
+    private final WriteCache supplyCurrentLimitCache = new WriteCache(CachedSparkMax.kConfigRefreshPeriod);
+
+    /* Current limit settings sent by setSupplyCurrentLimit, starting from the configured ones */
+    private final CurrentLimitsConfigs currentLimits = new CurrentLimitsConfigs();
+    private double baseSupplyLimit = Double.POSITIVE_INFINITY;
+    private double baseSupplyThreshold = Double.POSITIVE_INFINITY;
+
+    public CachedTalonFX(int deviceId) {
+        super(deviceId);
+    }
+
+    public CachedTalonFX(int deviceId, String canbus) {
+        super(deviceId, canbus);
+    }
+
+    @Override
+    public void set(double speed) {
+        if (outputCache.needsWrite(speed)) {
+            // The other output mode must be resent once it is used again
+            voltageCache.invalidate();
+            RobotEvents.beginDeviceCall();
+            super.set(speed);
+            RobotEvents.endDeviceCall(kDeviceName, getDeviceID(), "set");
+        }
+    }
+
+    /** Closed loop on the motor's own voltage measurement, so the output does not change as the battery sags */
+    @Override
+    public void setVoltage(double volts) {
+        if (voltageCache.needsWrite(volts)) {
+            outputCache.invalidate();
+            voltageOut.Output = volts;
+            RobotEvents.beginDeviceCall();
+            setControl(voltageOut);
+            RobotEvents.endDeviceCall(kDeviceName, getDeviceID(), "setVoltage");
+        }
+    }
+
+    /** Current limit settings that setSupplyCurrentLimit keeps, normally the ones the device was configured with */
+    public void setBaseCurrentLimits(CurrentLimitsConfigs limits) {
+        currentLimits.StatorCurrentLimit = limits.StatorCurrentLimit;
+        currentLimits.StatorCurrentLimitEnable = limits.StatorCurrentLimitEnable;
+        currentLimits.SupplyCurrentLimit = limits.SupplyCurrentLimit;
+        currentLimits.SupplyCurrentLimitEnable = limits.SupplyCurrentLimitEnable;
+        currentLimits.SupplyCurrentThreshold = limits.SupplyCurrentThreshold;
+        currentLimits.SupplyTimeThreshold = limits.SupplyTimeThreshold;
+        baseSupplyLimit = limits.SupplyCurrentLimit;
+        baseSupplyThreshold = limits.SupplyCurrentThreshold;
+    }
+
+    /**
+     * Changes the supply current limit without waiting for the device to acknowledge it, so it can be called every loop.
+     * Below the base limit the threshold is lowered to the limit too, bursts above the limit are only allowed at the base limit.
+     */
+    public StatusCode setSupplyCurrentLimit(double amps) {
+        if (!supplyCurrentLimitCache.needsWrite(amps)) {
+            return StatusCode.OK;
+        }
+        currentLimits.SupplyCurrentLimit = amps;
+        currentLimits.SupplyCurrentThreshold = amps < baseSupplyLimit ? amps : baseSupplyThreshold;
+        RobotEvents.beginDeviceCall();
+        StatusCode status = getConfigurator().apply(currentLimits, 0);
+        RobotEvents.endDeviceCall(kDeviceName, getDeviceID(), "setSupplyCurrentLimit");
+        if (!status.isOK()) {
+            supplyCurrentLimitCache.invalidate();
+        }
+        return status;
+    }
+}
@@ -0,0 +1,88 @@
+package frc.lib.util;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
+
+/**
+ * WPI_TalonSRX that skips resending identical percent outputs and current limits.
+ * The config calls without a timeout do not wait for the device, so current limits can be changed every loop.
+ * With voltage compensation configured, percent outputs are fractions of the compensation voltage and setVoltage uses it too.
+ */
+public class CachedTalonSRX extends WPI_TalonSRX {
+    private static final String kDeviceName = "Talon SRX";
+
+    private final WriteCache outputCache = new WriteCache(CachedSparkMax.kOutputRefreshPeriod);
+    private final WriteCache peakCurrentLimitCache = new WriteCache(CachedSparkMax.kConfigRefreshPeriod);
+    private final WriteCache continuousCurrentLimitCache = new WriteCache(CachedSparkMax.kConfigRefreshPeriod);
+
+    private double compensationVoltage = 0;
+
+    public CachedTalonSRX(int deviceNumber) {
+        super(deviceNumber);
+    }
+
+    @Override
+    public void set(double speed) {
+        if (outputCache.needsWrite(speed)) {
+            RobotEvents.beginDeviceCall();
+            super.set(speed);
+            RobotEvents.endDeviceCall(kDeviceName, getDeviceID(), "set");
+        }
+        else {
+            // Keep motor safety fed even though nothing was sent
+            feed();
+        }
+    }
+
+    /* The default divides by the battery voltage, which compensation would then scale a second time */
+    @Override
+    public void setVoltage(double outputVolts) {
+        if (compensationVoltage > 0) {
+            set(outputVolts / compensationVoltage);
+        }
+        else {
+            super.setVoltage(outputVolts);
+        }
+    }
+
+    /**
+     * Scales full output to this voltage instead of the battery voltage, so outputs do not change as the battery sags.
+     * @param nominalVoltage Voltage of full output: (in Volts)
+     */
+    public ErrorCode configVoltageCompensation(double nominalVoltage) {
+        ErrorCode error = configVoltageCompSaturation(nominalVoltage);
+        enableVoltageCompensation(true);
+        if (error == ErrorCode.OK) {
+            compensationVoltage = nominalVoltage;
+        }
+        return error;
+    }
+
+    @Override
+    public ErrorCode configPeakCurrentLimit(int amps) {
+        if (!peakCurrentLimitCache.needsWrite(amps)) {
+            return ErrorCode.OK;
+        }
+        RobotEvents.beginDeviceCall();
+        ErrorCode error = super.configPeakCurrentLimit(amps);
+        RobotEvents.endDeviceCall(kDeviceName, getDeviceID(), "configPeakCurrentLimit");
+        if (error != ErrorCode.OK) {
+            peakCurrentLimitCache.invalidate();
+        }
+        return error;
+    }
+
+    @Override
+    public ErrorCode configContinuousCurrentLimit(int amps) {
+        if (!continuousCurrentLimitCache.needsWrite(amps)) {
+            return ErrorCode.OK;
+        }
+        RobotEvents.beginDeviceCall();
+        ErrorCode error = super.configContinuousCurrentLimit(amps);
+        RobotEvents.endDeviceCall(kDeviceName, getDeviceID(), "configContinuousCurrentLimit");
+        if (error != ErrorCode.OK) {
+            continuousCurrentLimitCache.invalidate();
+        }
+        return error;
+    }
+}
@@ -0,0 +1,335 @@
+package frc.lib.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.PowerDistribution;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.lib.math.RecursiveLeastSquares;
+
+/**
+ * Shares the current the battery can supply between the robot's loads by priority, instead of every
+ * motor having a fixed supply limit that together add up to far more than the battery can give.
+ *
+ * Every cycle the PDH voltage and total current update a battery model (voltage = open circuit voltage - resistance * current),
+ * which gives the total current that keeps the voltage above the minimum. What the registered loads do not
+ * account for (steer motors, radio, roboRIO) is taken off first. Then, from that budget:
+ * -Every load gets its minimum limit
+ * -In priority order, each load is raised to what it needs: its measured current plus headroom, or its full limit while demanding
+ * -Whatever is left is handed out in priority order up to the full limits
+ * So a shooter spinning up (demanding) is served before drive acceleration, and the drive gets what remains.
+ *
+ * Sheddable loads drop to their shed limit when the voltage falls below the shed voltage, or when the budget cannot
+ * cover every minimum, and come back once the voltage has recovered for a while. Shedding and brownouts are logged.
+ * Limits are rounded down to a step so the devices are only reconfigured when an allocation really changes.
+ * With applyLimits off the allocation is still worked out, logged and published, but no limit is sent to a device.
+ * Nothing is allocated per update.
+ */
+public class CurrentBudget {
+    /** Limits for the budget and the battery model */
+    public static class Config {
+        public double maxTotalCurrent = 300.0;
+        public double minVoltage = 8.0;
+        public double batteryVoltage = 12.5;
+        public double batteryResistance = 0.02;
+        public double batteryForgettingFactor = 0.999;
+        public double shedVoltage = 9.0;
+        public double restoreVoltage = 10.5;
+        public double restoreDelay = 1.0;
+        public double headroom = 10.0;
+        public double limitStep = 5.0;
+        /** Off to only monitor: every device keeps its configured limit */
+        public boolean applyLimits = true;
+    }
+
+    /** One group of identical devices sharing a priority, e.g. the four drive motors. Limits are per device */
+    public static class Load {
+        private final String name;
+        private final int priority;
+        private final int devices;
+        private final double minLimit;
+        private final double maxLimit;
+        private final DoubleSupplier current;
+        private final DoubleConsumer setLimit;
+        private final String limitKey;
+        private final String currentKey;
+        private BooleanSupplier demanding = () -> false;
+        private double shedLimit = Double.NaN;
+
+        private double measured;
+        private double allocated;
+
+        private Load(String name, int priority, int devices, double minLimit, double maxLimit, DoubleSupplier current, DoubleConsumer setLimit) {
+            this.name = name;
+            this.priority = priority;
+            this.devices = devices;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.current = current;
+            this.setLimit = setLimit;
+            limitKey = "Power/" + name + " Limit (A)";
+            currentKey = "Power/" + name + " Current (A)";
+        }
+
+        /** While this is true the load is given its full limit before lower priorities get anything above their minimum */
+        public Load withDemand(BooleanSupplier demanding) {
+            this.demanding = demanding;
+            return this;
+        }
+
+        /** Lets the load be cut to this limit when the voltage sags */
+        public Load sheddable(double shedLimit) {
+            this.shedLimit = shedLimit;
+            return this;
+        }
+
+        public boolean isSheddable() {
+            return !Double.isNaN(shedLimit);
+        }
+
+        /** Current limit given to each device this cycle: (in Amps) */
+        public double getAllocatedLimit() {
+            return allocated;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final Config config;
+    private final PowerDistribution pdh;
+    private final List<Load> loads = new ArrayList<>();
+
+    /* Battery Model: voltage = open circuit voltage - resistance * current */
+    private final RecursiveLeastSquares battery;
+    private final double[] batteryFeatures = new double[2];
+
+    private double voltage;
+    private double totalCurrent;
+    private double unmanagedCurrent;
+    private double budget;
+    private boolean shedding = false;
+    private double recoveredTime = Double.NaN;
+    private boolean wasBrownedOut = false;
+    private double lastUpdateTime = Double.NaN;
+
+    /* Per Match Statistics */
+    private long matchBrownouts;
+    private long matchSheds;
+    private double matchMinVoltage;
+
+    /** @param pdh Power distribution to read, null to only use allocate() with values from elsewhere */
+    public CurrentBudget(PowerDistribution pdh, Config config) {
+        this.pdh = pdh;
+        this.config = config;
+        battery = new RecursiveLeastSquares(new double[] {config.batteryVoltage, config.batteryResistance}, 1.0, config.batteryForgettingFactor, 10.0)
+            .withBounds(new double[] {config.minVoltage, config.batteryResistance * 0.25}, new double[] {14.0, config.batteryResistance * 4.0});
+        reset();
+    }
+
+    /**
+     * Adds a group of loads. Loads are served in priority order, lower first.
+     * @param devices Number of devices in the group, limits are per device
+     * @param minLimit Limit every device keeps unless shed: (in Amps)
+     * @param maxLimit Full limit, normally the one in the device's configuration: (in Amps)
+     * @param current Supply current of the whole group: (in Amps)
+     * @param setLimit Applies a per device limit, null for loads that cannot be limited, which only reserve what they draw plus headroom
+     */
+    public Load register(String name, int priority, int devices, double minLimit, double maxLimit, DoubleSupplier current, DoubleConsumer setLimit) {
+        Load load = new Load(name, priority, devices, minLimit, maxLimit, current, setLimit);
+        int index = 0;
+        while (index < loads.size() && loads.get(index).priority <= priority) {
+            index++;
+        }
+        loads.add(index, load);
+        return load;
+    }
+
+    /** Reads the PDH and reallocates. Call every cycle */
+    public void update() {
+        allocate(RobotClock.now(), pdh.getVoltage(), pdh.getTotalCurrent(), RobotController.isBrownedOut());
+    }
+
+    /**
+     * Reallocates the limits from a voltage and total current reading.
+     * @param time Reading time on the RobotClock: (in Seconds)
+     * @param voltage Battery voltage at the PDH: (in Volts)
+     * @param totalCurrent Current through the PDH: (in Amps)
+     * @param brownedOut Whether the roboRIO has cut outputs for low voltage
+     */
+    public void allocate(double time, double voltage, double totalCurrent, boolean brownedOut) {
+        double dt = Double.isNaN(lastUpdateTime) ? 0 : time - lastUpdateTime;
+        lastUpdateTime = time;
+        this.voltage = voltage;
+        this.totalCurrent = totalCurrent;
+        matchMinVoltage = Math.min(matchMinVoltage, voltage);
+
+        if (dt > 0) {
+            batteryFeatures[0] = 1;
+            batteryFeatures[1] = -totalCurrent;
+            battery.update(batteryFeatures, voltage, dt);
+        }
+        double resistance = getBatteryResistance();
+        budget = Math.min(config.maxTotalCurrent, (getOpenCircuitVoltage() - config.minVoltage) / resistance);
+
+        double managedCurrent = 0;
+        double minimums = 0;
+        for (int i = 0; i < loads.size(); i++) {
+            Load load = loads.get(i);
+            load.measured = Math.max(0, load.current.getAsDouble());
+            managedCurrent += load.measured;
+            minimums += load.setLimit == null ? getReserved(load) : load.minLimit * load.devices;
+        }
+        unmanagedCurrent = Math.max(0, totalCurrent - managedCurrent);
+        double available = budget - unmanagedCurrent;
+
+        updateShedding(time, voltage, available < minimums);
+        if (brownedOut && !wasBrownedOut) {
+            matchBrownouts++;
+            DataLogManager.log(String.format("[Power] Brownout at %.2f V, %.0f A total, %.0f A budget, shedding %s",
+                voltage, totalCurrent, budget, shedding ? "on" : "off"));
+        }
+        wasBrownedOut = brownedOut;
+
+        /* Minimums, shed loads only keep their shed limit */
+        double remaining = available;
+        for (int i = 0; i < loads.size(); i++) {
+            Load load = loads.get(i);
+            if (load.setLimit == null) {
+                load.allocated = load.maxLimit;
+                remaining -= getReserved(load);
+                continue;
+            }
+            load.allocated = shedding && load.isSheddable() ? load.shedLimit : load.minLimit;
+            remaining -= load.allocated * load.devices;
+        }
+        /* What each load needs, in priority order */
+        for (int i = 0; i < loads.size(); i++) {
+            Load load = loads.get(i);
+            if (load.setLimit == null || (shedding && load.isSheddable())) {
+                continue;
+            }
+            double needed = load.demanding.getAsBoolean() ? load.maxLimit : load.measured / load.devices + config.headroom;
+            remaining -= raise(load, needed, remaining);
+        }
+        /* The rest, in priority order */
+        for (int i = 0; i < loads.size(); i++) {
+            Load load = loads.get(i);
+            if (load.setLimit == null || (shedding && load.isSheddable())) {
+                continue;
+            }
+            remaining -= raise(load, load.maxLimit, remaining);
+        }
+
+        if (!config.applyLimits) {
+            return;
+        }
+        for (int i = 0; i < loads.size(); i++) {
+            Load load = loads.get(i);
+            if (load.setLimit != null) {
+                load.setLimit.accept(load.allocated);
+            }
+        }
+    }
+
+    /* Loads that cannot be limited keep what they draw now plus headroom */
+    private double getReserved(Load load) {
+        return Math.min(load.maxLimit * load.devices, load.measured + config.headroom * load.devices);
+    }
+
+    /* Raises a load towards a per device limit, in whole steps, returns the total current it took */
+    private double raise(Load load, double target, double remaining) {
+        target = Math.min(target, load.maxLimit);
+        if (target <= load.allocated || remaining <= 0) {
+            return 0;
+        }
+        double perDevice = Math.min(target - load.allocated, remaining / load.devices);
+        // Rounded up to the next step when there is room, so the need is covered, otherwise down
+        double steps = Math.ceil(perDevice / config.limitStep) * config.limitStep;
+        if (steps * load.devices > remaining || load.allocated + steps > load.maxLimit) {
+            steps = Math.floor(perDevice / config.limitStep) * config.limitStep;
+        }
+        double limit = Math.min(load.allocated + steps, load.maxLimit);
+        double taken = (limit - load.allocated) * load.devices;
+        load.allocated = limit;
+        return taken;
+    }
+
+    private void updateShedding(double time, double voltage, boolean overBudget) {
+        if (!shedding && (voltage < config.shedVoltage || overBudget)) {
+            shedding = true;
+            recoveredTime = Double.NaN;
+            matchSheds++;
+            DataLogManager.log(String.format("[Power] Shedding loads at %.2f V, %.0f A total, %.0f A budget, %.0f A unmanaged%s",
+                voltage, totalCurrent, budget, unmanagedCurrent, config.applyLimits ? "" : " (monitor only, limits not applied)"));
+            return;
+        }
+        if (!shedding) {
+            return;
+        }
+        if (voltage < config.restoreVoltage || overBudget) {
+            recoveredTime = Double.NaN;
+        }
+        else if (Double.isNaN(recoveredTime)) {
+            recoveredTime = time;
+        }
+        else if (time - recoveredTime >= config.restoreDelay) {
+            shedding = false;
+            DataLogManager.log(String.format("[Power] Restored shed loads at %.2f V", voltage));
+        }
+    }
+
+    /** Starts the per match statistics over, e.g. from autonomousInit. */
+    public void reset() {
+        matchBrownouts = 0;
+        matchSheds = 0;
+        matchMinVoltage = Double.POSITIVE_INFINITY;
+    }
+
+    public double getOpenCircuitVoltage() {
+        return battery.getEstimate(0);
+    }
+
+    public double getBatteryResistance() {
+        return battery.getEstimate(1);
+    }
+
+    /** Total current the battery can give while staying above the minimum voltage: (in Amps) */
+    public double getBudget() {
+        return budget;
+    }
+
+    public boolean isShedding() {
+        return shedding;
+    }
+
+    public List<Load> getLoads() {
+        return loads;
+    }
+
+    /** Publishes the budget and every load's limit. Call from the slow tier */
+    public void updateTelemetry() {
+        SmartDashboard.putNumber("Power/Voltage (V)", voltage);
+        SmartDashboard.putNumber("Power/Total Current (A)", totalCurrent);
+        SmartDashboard.putNumber("Power/Unmanaged Current (A)", unmanagedCurrent);
+        SmartDashboard.putNumber("Power/Budget (A)", budget);
+        SmartDashboard.putNumber("Power/Battery Voltage (V)", getOpenCircuitVoltage());
+        SmartDashboard.putNumber("Power/Battery Resistance (mOhm)", getBatteryResistance() * 1000.0);
+        SmartDashboard.putBoolean("Power/Shedding", shedding);
+        SmartDashboard.putBoolean("Power/Applying Limits", config.applyLimits);
+        SmartDashboard.putNumber("Power/Brownouts", matchBrownouts);
+        SmartDashboard.putNumber("Power/Sheds", matchSheds);
+        SmartDashboard.putNumber("Power/Min Voltage (V)", matchMinVoltage);
+        for (int i = 0; i < loads.size(); i++) {
+            Load load = loads.get(i);
+            SmartDashboard.putNumber(load.limitKey, load.allocated);
+            SmartDashboard.putNumber(load.currentKey, load.measured);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package frc.lib.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.configs.CANcoderConfiguration;
+import com.ctre.phoenix6.configs.CANcoderConfigurator;
+import com.ctre.phoenix6.configs.ClosedLoopGeneralConfigs;
+import com.ctre.phoenix6.configs.ClosedLoopRampsConfigs;
+import com.ctre.phoenix6.configs.CurrentLimitsConfigs;
+import com.ctre.phoenix6.configs.FeedbackConfigs;
+import com.ctre.phoenix6.configs.GyroTrimConfigs;
+import com.ctre.phoenix6.configs.MagnetSensorConfigs;
+import com.ctre.phoenix6.configs.MotorOutputConfigs;
+import com.ctre.phoenix6.configs.MountPoseConfigs;
+import com.ctre.phoenix6.configs.OpenLoopRampsConfigs;
+import com.ctre.phoenix6.configs.Pigeon2Configuration;
+import com.ctre.phoenix6.configs.Pigeon2Configurator;
+import com.ctre.phoenix6.configs.Pigeon2FeaturesConfigs;
+import com.ctre.phoenix6.configs.Slot0Configs;
+import com.ctre.phoenix6.configs.SoftwareLimitSwitchConfigs;
+import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.configs.TalonFXConfigurator;
+import com.ctre.phoenix6.configs.VoltageConfigs;
+import com.ctre.phoenix6.hardware.CANcoder;
+import com.ctre.phoenix6.hardware.Pigeon2;
+import com.ctre.phoenix6.hardware.TalonFX;
+import com.revrobotics.CANSparkBase.SoftLimitDirection;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.REVLibError;
+import com.revrobotics.RelativeEncoder;
+import com.revrobotics.SparkPIDController;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Applies device configurations by reading back what the device already has and only writing
+ * (and flashing) the parameters that differ. A device that is already configured is left alone,
+ * which keeps boot time short and avoids wearing out the Spark Max flash.
+ *
+ * Phoenix 6 configs are compared group by group on the fields this robot sets, and only the groups
+ * that differ are applied. Groups not compared here are left at whatever the device already has,
+ * the same as parameters missing from a SparkMaxProfile.
+ *
+ * Every write is checked. The configure methods return false if any write, the read back or the
+ * flash failed, so the caller can retry the device.
+ */
+public class DeviceConfigurator {
+    /* How long to wait for a Phoenix 6 config read back or apply */
+    private static final double kPhoenixTimeout = 0.1;
+    /* Relative tolerance when comparing values the Spark Max stores as floats */
+    private static final double kFloatTolerance = 1e-5;
+    /* Relative tolerance for Phoenix 6 values, which the device stores in fixed point */
+    private static final double kPhoenixTolerance = 1e-3;
+
+    /**
+     * When true, Spark Maxes are factory reset and every parameter is written and flashed like before.
+     * Use this after swapping in a controller with unknown settings.
+     */
+    public static boolean forceFullConfig = false;
+
+    private static boolean differs(double actual, double desired) {
+        return differs(actual, desired, kFloatTolerance);
+    }
+
+    private static boolean differs(double actual, double desired, double tolerance) {
+        return Math.abs(actual - desired) > tolerance * Math.max(1.0, Math.abs(desired));
+    }
+
+    private static boolean phoenixDiffers(double actual, double desired) {
+        return differs(actual, desired, kPhoenixTolerance);
+    }
+
+    /** Collects which parameters were written and which writes failed for one device. */
+    private static class Result {
+        final List<String> changed = new ArrayList<>();
+        final List<String> failed = new ArrayList<>();
+
+        void check(String parameter, REVLibError error) {
+            changed.add(parameter);
+            if (error != REVLibError.kOk) {
+                failed.add(parameter + " (" + error + ")");
+            }
+        }
+
+        void check(String parameter, StatusCode status) {
+            changed.add(parameter);
+            if (!status.isOK()) {
+                failed.add(parameter + " (" + status + ")");
+            }
+        }
+
+        boolean ok() {
+            return failed.isEmpty();
+        }
+    }
+
+    /**
+     * Configures a Spark Max, writing only what differs from the profile and burning flash only if something changed.
+     * @return true if the controller now has the profile's settings, false if any write or the flash failed
+     */
+    public static boolean configureSparkMax(String name, CANSparkMax motor, RelativeEncoder encoder, SparkPIDController controller, SparkMaxProfile profile) {
+        double startTime = Timer.getFPGATimestamp();
+        Result result = new Result();
+
+        if (forceFullConfig) {
+            result.check("Factory Defaults", motor.restoreFactoryDefaults());
+        }
+
+        if (forceFullConfig || motor.getInverted() != profile.inverted) {
+            // setInverted does not return a status, the error is read back instead
+            motor.setInverted(profile.inverted);
+            result.check("Inverted", motor.getLastError());
+        }
+        if (forceFullConfig || motor.getIdleMode() != profile.idleMode) {
+            result.check("Idle Mode", motor.setIdleMode(profile.idleMode));
+        }
+
+        /* Voltage Compensation, the controller reports 0 while it is disabled */
+        if (forceFullConfig || differs(motor.getVoltageCompensationNominalVoltage(), profile.voltageCompensation)) {
+            result.check("Voltage Compensation", profile.voltageCompensation > 0
+                ? motor.enableVoltageCompensation(profile.voltageCompensation)
+                : motor.disableVoltageCompensation());
+        }
+
+        /* Soft Limits */
+        if (forceFullConfig || motor.isSoftLimitEnabled(SoftLimitDirection.kForward) != profile.fwdSoftLimitEnabled) {
+            result.check("Forward Soft Limit Enable", motor.enableSoftLimit(SoftLimitDirection.kForward, profile.fwdSoftLimitEnabled));
+        }
+        if (forceFullConfig || motor.isSoftLimitEnabled(SoftLimitDirection.kReverse) != profile.rvsSoftLimitEnabled) {
+            result.check("Reverse Soft Limit Enable", motor.enableSoftLimit(SoftLimitDirection.kReverse, profile.rvsSoftLimitEnabled));
+        }
+        if (forceFullConfig || differs(motor.getSoftLimit(SoftLimitDirection.kForward), profile.fwdSoftLimit)) {
+            result.check("Forward Soft Limit", motor.setSoftLimit(SoftLimitDirection.kForward, (float)profile.fwdSoftLimit));
+        }
+        if (forceFullConfig || differs(motor.getSoftLimit(SoftLimitDirection.kReverse), profile.rvsSoftLimit)) {
+            result.check("Reverse Soft Limit", motor.setSoftLimit(SoftLimitDirection.kReverse, (float)profile.rvsSoftLimit));
+        }
+
+        /* Conversion Factors */
+        if (forceFullConfig || differs(encoder.getPositionConversionFactor(), profile.positionFactor)) {
+            result.check("Position Factor", encoder.setPositionConversionFactor(profile.positionFactor));
+        }
+        if (forceFullConfig || differs(encoder.getVelocityConversionFactor(), profile.velocityFactor)) {
+            result.check("Velocity Factor", encoder.setVelocityConversionFactor(profile.velocityFactor));
+        }
+
+        /* PID Gains */
+        if (forceFullConfig || differs(controller.getP(), profile.gains.p)) {
+            result.check("kP", controller.setP(profile.gains.p));
+        }
+        if (forceFullConfig || differs(controller.getI(), profile.gains.i)) {
+            result.check("kI", controller.setI(profile.gains.i));
+        }
+        if (forceFullConfig || differs(controller.getD(), profile.gains.d)) {
+            result.check("kD", controller.setD(profile.gains.d));
+        }
+
+        boolean flash = !result.changed.isEmpty();
+
+        // The smart current limit cannot be read back, it is a cheap volatile write so it is always sent
+        REVLibError currentLimitError = motor.setSmartCurrentLimit(profile.smartCurrentLimit);
+        if (currentLimitError != REVLibError.kOk) {
+            result.failed.add("Smart Current Limit (" + currentLimitError + ")");
+        }
+
+        // Flashing after a failed write would save a half applied configuration
+        if (flash && result.ok()) {
+            result.check("Flash", motor.burnFlash());
+        }
+
+        String summary = !flash ? "unchanged, flash skipped"
+            : result.changed.size() + " parameter(s) changed " + result.changed + (result.ok() ? ", flash burned" : "");
+        return report(name, startTime, summary, result);
+    }
+
+    /**
+     * Applies the parts of a TalonFX configuration that differ from what the device has.
+     * @return true if the device now has the desired configuration, false if the read back or any apply failed
+     */
+    public static boolean configureTalonFX(String name, TalonFX motor, TalonFXConfiguration desired) {
+        double startTime = Timer.getFPGATimestamp();
+        TalonFXConfigurator configurator = motor.getConfigurator();
+        Result result = new Result();
+
+        TalonFXConfiguration current = new TalonFXConfiguration();
+        StatusCode readStatus = configurator.refresh(current, kPhoenixTimeout);
+
+        if (forceFullConfig || !readStatus.isOK()) {
+            result.check("Full Config" + (readStatus.isOK() ? "" : " (read back " + readStatus + ")"), configurator.apply(desired, kPhoenixTimeout));
+            return report(name, startTime, "applied in full", result);
+        }
+
+        if (differs(current.MotorOutput, desired.MotorOutput)) {
+            result.check("MotorOutput", configurator.apply(desired.MotorOutput, kPhoenixTimeout));
+        }
+        if (differs(current.CurrentLimits, desired.CurrentLimits)) {
+            result.check("CurrentLimits", configurator.apply(desired.CurrentLimits, kPhoenixTimeout));
+        }
+        if (differs(current.Voltage, desired.Voltage)) {
+            result.check("Voltage", configurator.apply(desired.Voltage, kPhoenixTimeout));
+        }
+        if (differs(current.Feedback, desired.Feedback)) {
+            result.check("Feedback", configurator.apply(desired.Feedback, kPhoenixTimeout));
+        }
+        if (current.ClosedLoopGeneral.ContinuousWrap != desired.ClosedLoopGeneral.ContinuousWrap) {
+            result.check("ClosedLoopGeneral", configurator.apply(desired.ClosedLoopGeneral, kPhoenixTimeout));
+        }
+        if (differs(current.Slot0, desired.Slot0)) {
+            result.check("Slot0", configurator.apply(desired.Slot0, kPhoenixTimeout));
+        }
+        if (differs(current.OpenLoopRamps, desired.OpenLoopRamps)) {
+            result.check("OpenLoopRamps", configurator.apply(desired.OpenLoopRamps, kPhoenixTimeout));
+        }
+        if (differs(current.ClosedLoopRamps, desired.ClosedLoopRamps)) {
+            result.check("ClosedLoopRamps", configurator.apply(desired.ClosedLoopRamps, kPhoenixTimeout));
+        }
+        if (differs(current.SoftwareLimitSwitch, desired.SoftwareLimitSwitch)) {
+            result.check("SoftwareLimitSwitch", configurator.apply(desired.SoftwareLimitSwitch, kPhoenixTimeout));
+        }
+
+        return report(name, startTime, result.changed.isEmpty() ? "unchanged, apply skipped" : "applied " + result.changed, result);
+    }
+
+    /**
+     * Applies a CANcoder's magnet sensor configuration if it differs from what the device has.
+     * @return true if the device now has the desired configuration, false if the read back or the apply failed
+     */
+    public static boolean configureCANcoder(String name, CANcoder encoder, CANcoderConfiguration desired) {
+        double startTime = Timer.getFPGATimestamp();
+        CANcoderConfigurator configurator = encoder.getConfigurator();
+        Result result = new Result();
+
+        CANcoderConfiguration current = new CANcoderConfiguration();
+        StatusCode readStatus = configurator.refresh(current, kPhoenixTimeout);
+
+        if (forceFullConfig || !readStatus.isOK()) {
+            result.check("Full Config" + (readStatus.isOK() ? "" : " (read back " + readStatus + ")"), configurator.apply(desired, kPhoenixTimeout));
+            return report(name, startTime, "applied in full", result);
+        }
+
+        if (differs(current.MagnetSensor, desired.MagnetSensor)) {
+            result.check("MagnetSensor", configurator.apply(desired.MagnetSensor, kPhoenixTimeout));
+        }
+
+        return report(name, startTime, result.changed.isEmpty() ? "unchanged, apply skipped" : "applied " + result.changed, result);
+    }
+
+    /**
+     * Applies the parts of a Pigeon 2 configuration that differ from what the device has.
+     * @return true if the device now has the desired configuration, false if the read back or any apply failed
+     */
+    public static boolean configurePigeon2(String name, Pigeon2 gyro, Pigeon2Configuration desired) {
+        double startTime = Timer.getFPGATimestamp();
+        Pigeon2Configurator configurator = gyro.getConfigurator();
+        Result result = new Result();
+
+        Pigeon2Configuration current = new Pigeon2Configuration();
+        StatusCode readStatus = configurator.refresh(current, kPhoenixTimeout);
+
+        if (forceFullConfig || !readStatus.isOK()) {
+            result.check("Full Config" + (readStatus.isOK() ? "" : " (read back " + readStatus + ")"), configurator.apply(desired, kPhoenixTimeout));
+            return report(name, startTime, "applied in full", result);
+        }
+
+        if (differs(current.MountPose, desired.MountPose)) {
+            result.check("MountPose", configurator.apply(desired.MountPose, kPhoenixTimeout));
+        }
+        if (differs(current.GyroTrim, desired.GyroTrim)) {
+            result.check("GyroTrim", configurator.apply(desired.GyroTrim, kPhoenixTimeout));
+        }
+        if (differs(current.Pigeon2Features, desired.Pigeon2Features)) {
+            result.check("Pigeon2Features", configurator.apply(desired.Pigeon2Features, kPhoenixTimeout));
+        }
+
+        return report(name, startTime, result.changed.isEmpty() ? "unchanged, apply skipped" : "applied " + result.changed, result);
+    }
+
+    /* Phoenix 6 Config Group Comparisons */
+    private static boolean differs(MotorOutputConfigs actual, MotorOutputConfigs desired) {
+        return actual.Inverted != desired.Inverted
+            || actual.NeutralMode != desired.NeutralMode
+            || phoenixDiffers(actual.DutyCycleNeutralDeadband, desired.DutyCycleNeutralDeadband)
+            || phoenixDiffers(actual.PeakForwardDutyCycle, desired.PeakForwardDutyCycle)
+            || phoenixDiffers(actual.PeakReverseDutyCycle, desired.PeakReverseDutyCycle);
+    }
+
+    private static boolean differs(CurrentLimitsConfigs actual, CurrentLimitsConfigs desired) {
+        return actual.SupplyCurrentLimitEnable != desired.SupplyCurrentLimitEnable
+            || actual.StatorCurrentLimitEnable != desired.StatorCurrentLimitEnable
+            || phoenixDiffers(actual.SupplyCurrentLimit, desired.SupplyCurrentLimit)
+            || phoenixDiffers(actual.SupplyCurrentThreshold, desired.SupplyCurrentThreshold)
+            || phoenixDiffers(actual.SupplyTimeThreshold, desired.SupplyTimeThreshold)
+            || phoenixDiffers(actual.StatorCurrentLimit, desired.StatorCurrentLimit);
+    }
+
+    private static boolean differs(VoltageConfigs actual, VoltageConfigs desired) {
+        return phoenixDiffers(actual.PeakForwardVoltage, desired.PeakForwardVoltage)
+            || phoenixDiffers(actual.PeakReverseVoltage, desired.PeakReverseVoltage)
+            || phoenixDiffers(actual.SupplyVoltageTimeConstant, desired.SupplyVoltageTimeConstant);
+    }
+
+    private static boolean differs(FeedbackConfigs actual, FeedbackConfigs desired) {
+        return actual.FeedbackSensorSource != desired.FeedbackSensorSource
+            || actual.FeedbackRemoteSensorID != desired.FeedbackRemoteSensorID
+            || phoenixDiffers(actual.SensorToMechanismRatio, desired.SensorToMechanismRatio)
+            || phoenixDiffers(actual.RotorToSensorRatio, desired.RotorToSensorRatio)
+            || phoenixDiffers(actual.FeedbackRotorOffset, desired.FeedbackRotorOffset);
+    }
+
+    private static boolean differs(Slot0Configs actual, Slot0Configs desired) {
+        return actual.GravityType != desired.GravityType
+            || phoenixDiffers(actual.kP, desired.kP)
+            || phoenixDiffers(actual.kI, desired.kI)
+            || phoenixDiffers(actual.kD, desired.kD)
+            || phoenixDiffers(actual.kS, desired.kS)
+            || phoenixDiffers(actual.kV, desired.kV)
+            || phoenixDiffers(actual.kA, desired.kA)
+            || phoenixDiffers(actual.kG, desired.kG);
+    }
+
+    private static boolean differs(OpenLoopRampsConfigs actual, OpenLoopRampsConfigs desired) {
+        return phoenixDiffers(actual.DutyCycleOpenLoopRampPeriod, desired.DutyCycleOpenLoopRampPeriod)
+            || phoenixDiffers(actual.VoltageOpenLoopRampPeriod, desired.VoltageOpenLoopRampPeriod)
+            || phoenixDiffers(actual.TorqueOpenLoopRampPeriod, desired.TorqueOpenLoopRampPeriod);
+    }
+
+    private static boolean differs(ClosedLoopRampsConfigs actual, ClosedLoopRampsConfigs desired) {
+        return phoenixDiffers(actual.DutyCycleClosedLoopRampPeriod, desired.DutyCycleClosedLoopRampPeriod)
+            || phoenixDiffers(actual.VoltageClosedLoopRampPeriod, desired.VoltageClosedLoopRampPeriod)
+            || phoenixDiffers(actual.TorqueClosedLoopRampPeriod, desired.TorqueClosedLoopRampPeriod);
+    }
+
+    private static boolean differs(SoftwareLimitSwitchConfigs actual, SoftwareLimitSwitchConfigs desired) {
+        return actual.ForwardSoftLimitEnable != desired.ForwardSoftLimitEnable
+            || actual.ReverseSoftLimitEnable != desired.ReverseSoftLimitEnable
+            || phoenixDiffers(actual.ForwardSoftLimitThreshold, desired.ForwardSoftLimitThreshold)
+            || phoenixDiffers(actual.ReverseSoftLimitThreshold, desired.ReverseSoftLimitThreshold);
+    }
+
+    private static boolean differs(MagnetSensorConfigs actual, MagnetSensorConfigs desired) {
+        return actual.SensorDirection != desired.SensorDirection
+            || actual.AbsoluteSensorRange != desired.AbsoluteSensorRange
+            || phoenixDiffers(actual.MagnetOffset, desired.MagnetOffset);
+    }
+
+    private static boolean differs(MountPoseConfigs actual, MountPoseConfigs desired) {
+        return phoenixDiffers(actual.MountPoseYaw, desired.MountPoseYaw)
+            || phoenixDiffers(actual.MountPosePitch, desired.MountPosePitch)
+            || phoenixDiffers(actual.MountPoseRoll, desired.MountPoseRoll);
+    }
+
+    private static boolean differs(GyroTrimConfigs actual, GyroTrimConfigs desired) {
+        return phoenixDiffers(actual.GyroScalarX, desired.GyroScalarX)
+            || phoenixDiffers(actual.GyroScalarY, desired.GyroScalarY)
+            || phoenixDiffers(actual.GyroScalarZ, desired.GyroScalarZ);
+    }
+
+    private static boolean differs(Pigeon2FeaturesConfigs actual, Pigeon2FeaturesConfigs desired) {
+        return actual.EnableCompass != desired.EnableCompass
+            || actual.DisableTemperatureCompensation != desired.DisableTemperatureCompensation
+            || actual.DisableNoMotionCalibration != desired.DisableNoMotionCalibration;
+    }
+
+    private static boolean report(String name, double startTime, String summary, Result result) {
+        double elapsedMs = (Timer.getFPGATimestamp() - startTime) * 1000.0;
+        if (result.ok()) {
+            DataLogManager.log(String.format("[Config] %s: %s in %.1f ms", name, summary, elapsedMs));
+        }
+        else {
+            DriverStation.reportWarning(String.format("[Config] %s: %s, FAILED %s in %.1f ms", name, summary, result.failed, elapsedMs), false);
+        }
+        SmartDashboard.putNumber("Config Time (ms)/" + name, elapsedMs);
+        SmartDashboard.putBoolean("Config OK/" + name, result.ok());
+        return result.ok();
+    }
+}
@@ -0,0 +1,118 @@
+package frc.lib.util;
+
+import frc.lib.math.RecursiveLeastSquares;
+
+/**
+ * Follows a motor's kS/kV/kA while it is driven normally, by fitting the voltage it was given to
+ * the velocity and acceleration it measured: voltage = kS * sign(v) + kV * v + kA * a.
+ * The starting gains are usually the offline fit (see FeedforwardGains), so the two can be compared.
+ *
+ * Samples are only used while the motor is enabled, moving, below saturation and not accelerating
+ * unrealistically (wheel slip, collisions). Locking keeps using the current gains without updating them.
+ * Nothing is allocated per update.
+ */
+public class FeedforwardEstimator {
+    /** Limits on which samples are used and how fast the gains may move */
+    public static class Config {
+        public double forgettingFactor = 0.995;
+        public double initialCovariance = 1.0;
+        public double maxCovarianceTrace = 100.0;
+        /* Samples slower than this are skipped, kS is discontinuous at zero velocity */
+        public double minVelocity = 0.1;
+        public double maxAcceleration = 10.0;
+        public double maxVoltage = 11.0;
+        /* Gain bounds and rate limits, in kS, kV, kA order */
+        public double[] min = {0, 0, 0};
+        public double[] max = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        public double[] maxRate = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+    }
+
+    private final FeedforwardGains initial;
+    private final Config config;
+    private final RecursiveLeastSquares leastSquares;
+    private final double[] features = new double[3];
+    private final double[] initialValues;
+
+    private boolean locked;
+    private double lastVelocity;
+    private double lastTime;
+    private boolean hasLastSample = false;
+
+    public FeedforwardEstimator(FeedforwardGains initial, Config config, boolean locked) {
+        this.initial = initial;
+        this.config = config;
+        this.locked = locked;
+        initialValues = new double[] {initial.kS, initial.kV, initial.kA};
+        leastSquares = new RecursiveLeastSquares(initialValues, config.initialCovariance, config.forgettingFactor, config.maxCovarianceTrace)
+            .withBounds(config.min, config.max)
+            .withRateLimits(config.maxRate);
+    }
+
+    /**
+     * Adds one measurement. Call once per loop while the motor is in use.
+     * @param time Measurement time on the RobotClock: (in Seconds)
+     * @param voltage Voltage applied to the motor
+     * @param velocity Measured velocity, in the units the gains use
+     * @param enabled False while the robot is disabled, the motor is not driven then even if it moves
+     */
+    public void update(double time, double voltage, double velocity, boolean enabled) {
+        double dt = time - lastTime;
+        double acceleration = (velocity - lastVelocity) / dt;
+        boolean usable = hasLastSample && enabled && !locked && dt > 1e-4
+            && Math.abs(velocity) >= config.minVelocity
+            && Math.abs(acceleration) <= config.maxAcceleration
+            && Math.abs(voltage) <= config.maxVoltage;
+        lastVelocity = velocity;
+        lastTime = time;
+        hasLastSample = enabled;
+        if (!usable) {
+            return;
+        }
+        features[0] = Math.signum(velocity);
+        features[1] = velocity;
+        features[2] = acceleration;
+        leastSquares.update(features, voltage, dt);
+    }
+
+    /** Feedforward voltage from the current gains */
+    public double calculate(double velocity, double acceleration) {
+        return getKS() * Math.signum(velocity) + getKV() * velocity + getKA() * acceleration;
+    }
+
+    public double calculate(double velocity) {
+        return calculate(velocity, 0);
+    }
+
+    public void setLocked(boolean locked) {
+        this.locked = locked;
+    }
+
+    public boolean isLocked() {
+        return locked;
+    }
+
+    /** Goes back to the starting gains */
+    public void reset() {
+        leastSquares.reset(initialValues);
+    }
+
+    public double getKS() {
+        return leastSquares.getEstimate(0);
+    }
+
+    public double getKV() {
+        return leastSquares.getEstimate(1);
+    }
+
+    public double getKA() {
+        return leastSquares.getEstimate(2);
+    }
+
+    public long getUpdateCount() {
+        return leastSquares.getUpdateCount();
+    }
+
+    public FeedforwardGains getInitialGains() {
+        return initial;
+    }
+}
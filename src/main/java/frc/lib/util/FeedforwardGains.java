@@ -0,0 +1,72 @@
+package frc.lib.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+
+/**
+ * Feedforward gains for one mechanism, as written by GainFitter into the deploy directory.
+ * At runtime the fitted file is used when it exists, otherwise the gains in Constants are.
+ * Units follow the log the gains were fitted from (volts against meters or rotations).
+ */
+public class FeedforwardGains {
+    public final double kS;
+    public final double kV;
+    public final double kA;
+    public final double kG;
+
+    public FeedforwardGains(double kS, double kV, double kA, double kG) {
+        this.kS = kS;
+        this.kV = kV;
+        this.kA = kA;
+        this.kG = kG;
+    }
+
+    /**
+     * Reads fitted gains, falling back to defaults if the file is missing or unreadable.
+     * @param file Gains file, normally in the deploy directory
+     */
+    public static FeedforwardGains load(Path file, FeedforwardGains defaults) {
+        if (!Files.exists(file)) {
+            return defaults;
+        }
+        try {
+            JsonNode root = new ObjectMapper().readTree(file.toFile());
+            FeedforwardGains gains = new FeedforwardGains(
+                root.path("kS").asDouble(defaults.kS),
+                root.path("kV").asDouble(defaults.kV),
+                root.path("kA").asDouble(defaults.kA),
+                root.path("kG").asDouble(defaults.kG));
+            DataLogManager.log(String.format("[Gains] Loaded %s: kS %.4f, kV %.4f, kA %.4f, kG %.4f",
+                file.getFileName(), gains.kS, gains.kV, gains.kA, gains.kG));
+            return gains;
+        } catch (IOException | RuntimeException e) {
+            DataLogManager.log("[Gains] Could not read " + file + ", using the gains in Constants: " + e);
+            return defaults;
+        }
+    }
+
+    /**
+     * Writes the gains with a description of the fit they came from.
+     * @param fitInfo Extra fields stored next to the gains (sample counts, R squared, source log)
+     */
+    public void write(Path file, ObjectNode fitInfo) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("kS", kS);
+        root.put("kV", kV);
+        root.put("kA", kA);
+        root.put("kG", kG);
+        root.set("fit", fitInfo);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), root);
+    }
+}
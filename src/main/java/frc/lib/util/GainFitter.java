@@ -0,0 +1,231 @@
+package frc.lib.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import frc.lib.math.StreamingLeastSquares;
+
+/**
+ * Desktop tool run by the fitGains Gradle task. Fits feedforward gains to the data a SysIdRoutine
+ * logged and writes them as a JSON gains profile (see FeedforwardGains) that can be deployed.
+ *
+ * Fits voltage = kS * sign(v) + kV * v + kA * a (+ kG * cos(angle) for an arm) with ordinary least squares.
+ * The log is read record by record and only the normal equations are kept, so a log of any length
+ * fits in constant memory. It is read twice: the first pass fits every sample, the second refits
+ * without the samples whose residual is more than kOutlierSigmas standard deviations from the first fit.
+ *
+ * Usage: GainFitter <log.wpilog> <mechanism> <motor> <output.json> [<arm horizontal position> <gear ratio>]
+ * The mechanism and motor are the names given to the SysIdRoutine, e.g. "swerve-drive" and "drive-".
+ * Every motor whose name starts with the motor argument is pooled into one fit.
+ * The arm horizontal position is the logged position (in logged Rotations) at which the arm is level, and turns on the kG term.
+ * The gear ratio is logged rotations per arm rotation, e.g. kArmGearRatio when the pivot is logged in motor shaft
+ * rotations, or 1 when it is logged in arm rotations. kS, kV and kA come out in the logged units either way.
+ */
+public final class GainFitter {
+    /* Samples slower than this are left out, kS makes the model discontinuous at zero velocity */
+    private static final double kMinVelocity = 0.01;
+    private static final double kOutlierSigmas = 3.0;
+
+    private GainFitter() {}
+
+    /** Latest values of one motor, a sample is complete once all three have been logged again */
+    private static class MotorState {
+        double voltage = Double.NaN;
+        double position = Double.NaN;
+        double velocity = Double.NaN;
+        boolean hasVoltage;
+        boolean hasPosition;
+        boolean hasVelocity;
+        double lastVelocity = Double.NaN;
+        long lastTimestamp;
+    }
+
+    private static class FitPass {
+        final StreamingLeastSquares leastSquares;
+        final double[] previous;
+        final double limit;
+        long rejected = 0;
+
+        FitPass(int size, double[] previous, double limit) {
+            leastSquares = new StreamingLeastSquares(size);
+            this.previous = previous;
+            this.limit = limit;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4 && args.length != 6) {
+            System.err.println("Usage: GainFitter <log.wpilog> <mechanism> <motor> <output.json> [<arm horizontal position> <gear ratio>]");
+            System.exit(2);
+        }
+        String logFile = args[0];
+        String mechanism = args[1];
+        String motor = args[2];
+        Path output = Path.of(args[3]);
+        boolean isArm = args.length == 6;
+        double horizontalPosition = isArm ? Double.parseDouble(args[4]) : 0;
+        double gearRatio = isArm ? Double.parseDouble(args[5]) : 1;
+        if (!(gearRatio > 0)) {
+            System.err.println("The gear ratio must be positive, got " + args[5]);
+            System.exit(2);
+        }
+        int size = isArm ? 4 : 3;
+
+        long startTime = System.nanoTime();
+        FitPass first = new FitPass(size, null, Double.POSITIVE_INFINITY);
+        runPass(logFile, mechanism, motor, horizontalPosition, gearRatio, isArm, first);
+        double[] coefficients = first.leastSquares.solve();
+        if (coefficients == null) {
+            System.err.printf("Not enough samples for %s %s* in %s (%d found), check the names and that the routines ran%n",
+                mechanism, motor, logFile, first.leastSquares.getCount());
+            System.exit(1);
+        }
+        double sigma = first.leastSquares.getResidualStdDev(coefficients);
+        System.out.printf("First pass:  %d samples, residual std dev %.4f V%n", first.leastSquares.getCount(), sigma);
+
+        FitPass second = new FitPass(size, coefficients, kOutlierSigmas * sigma);
+        runPass(logFile, mechanism, motor, horizontalPosition, gearRatio, isArm, second);
+        double[] refit = second.leastSquares.solve();
+        FitPass result = second;
+        if (refit == null) {
+            System.err.println("Too many samples rejected as outliers, keeping the first pass fit");
+            result = first;
+        }
+        else {
+            coefficients = refit;
+        }
+        double rSquared = result.leastSquares.getRSquared(coefficients);
+        System.out.printf("Second pass: %d samples, %d rejected, R squared %.4f, in %.0f ms%n",
+            second.leastSquares.getCount(), second.rejected, rSquared, (System.nanoTime() - startTime) / 1e6);
+
+        FeedforwardGains gains = new FeedforwardGains(coefficients[0], coefficients[1], coefficients[2], isArm ? coefficients[3] : 0);
+        System.out.printf("kS %.5f  kV %.5f  kA %.5f  kG %.5f%n", gains.kS, gains.kV, gains.kA, gains.kG);
+
+        ObjectNode fitInfo = new ObjectMapper().createObjectNode();
+        fitInfo.put("log", Path.of(logFile).getFileName().toString());
+        fitInfo.put("mechanism", mechanism);
+        fitInfo.put("motor", motor);
+        fitInfo.put("samples", result.leastSquares.getCount());
+        fitInfo.put("rejected", result.rejected);
+        fitInfo.put("rSquared", rSquared);
+        fitInfo.put("residualStdDev", result.leastSquares.getResidualStdDev(coefficients));
+        if (isArm) {
+            fitInfo.put("horizontalPosition", horizontalPosition);
+            fitInfo.put("gearRatio", gearRatio);
+        }
+        gains.write(output, fitInfo);
+        System.out.println("Wrote " + output);
+    }
+
+    /** Streams the log once, adding every usable sample that is within the pass's outlier limit. */
+    private static void runPass(String logFile, String mechanism, String motor, double horizontalPosition, double gearRatio,
+            boolean isArm, FitPass pass) throws IOException {
+        DataLogReader reader = new DataLogReader(logFile);
+        if (!reader.isValid()) {
+            throw new IOException(logFile + " is not a wpilog file");
+        }
+
+        String suffix = "-" + mechanism;
+        String prefix = "-" + motor;
+        int stateEntry = -1;
+        /* Entry id to the motor it belongs to, and which value it holds: 0 voltage, 1 position, 2 velocity */
+        Map<Integer, MotorState> entryMotors = new HashMap<>();
+        Map<Integer, Integer> entryKinds = new HashMap<>();
+        Map<String, MotorState> motors = new HashMap<>();
+        boolean testRunning = false;
+        double[] features = new double[isArm ? 4 : 3];
+
+        for (DataLogRecord record : reader) {
+            if (record.isStart()) {
+                DataLogRecord.StartRecordData start = record.getStartData();
+                if (start.name.equals("sysid-test-state" + suffix)) {
+                    stateEntry = start.entry;
+                    continue;
+                }
+                if (!start.name.endsWith(suffix)) {
+                    continue;
+                }
+                // Names are <value>-<motor>-<mechanism>
+                String name = start.name.substring(0, start.name.length() - suffix.length());
+                int dash = name.indexOf('-');
+                if (dash < 0 || !name.substring(dash).startsWith(prefix)) {
+                    continue;
+                }
+                int kind;
+                switch (name.substring(0, dash)) {
+                    case "voltage": kind = 0; break;
+                    case "position": kind = 1; break;
+                    case "velocity": kind = 2; break;
+                    default: continue;
+                }
+                entryMotors.put(start.entry, motors.computeIfAbsent(name.substring(dash + 1), key -> new MotorState()));
+                entryKinds.put(start.entry, kind);
+                continue;
+            }
+            if (record.isControl()) {
+                continue;
+            }
+
+            int entry = record.getEntry();
+            if (entry == stateEntry) {
+                testRunning = !record.getString().equals("none");
+                // Acceleration is not carried across tests, the velocity jumps between them
+                for (MotorState state : motors.values()) {
+                    state.lastVelocity = Double.NaN;
+                }
+                continue;
+            }
+            MotorState state = entryMotors.get(entry);
+            if (state == null) {
+                continue;
+            }
+            switch (entryKinds.get(entry)) {
+                case 0: state.voltage = record.getDouble(); state.hasVoltage = true; break;
+                case 1: state.position = record.getDouble(); state.hasPosition = true; break;
+                default: state.velocity = record.getDouble(); state.hasVelocity = true; break;
+            }
+            if (!(state.hasVoltage && state.hasPosition && state.hasVelocity)) {
+                continue;
+            }
+            state.hasVoltage = false;
+            state.hasPosition = false;
+            state.hasVelocity = false;
+
+            long timestamp = record.getTimestamp();
+            double dt = (timestamp - state.lastTimestamp) / 1e6;
+            double lastVelocity = state.lastVelocity;
+            state.lastVelocity = state.velocity;
+            state.lastTimestamp = timestamp;
+            if (!testRunning || Double.isNaN(lastVelocity) || dt <= 0 || Math.abs(state.velocity) < kMinVelocity) {
+                continue;
+            }
+
+            features[0] = Math.signum(state.velocity);
+            features[1] = state.velocity;
+            features[2] = (state.velocity - lastVelocity) / dt;
+            if (isArm) {
+                features[3] = Math.cos((state.position - horizontalPosition) / gearRatio * 2 * Math.PI);
+            }
+            if (pass.previous != null && Math.abs(state.voltage - predict(pass.previous, features)) > pass.limit) {
+                pass.rejected++;
+                continue;
+            }
+            pass.leastSquares.add(features, state.voltage);
+        }
+    }
+
+    private static double predict(double[] coefficients, double[] features) {
+        double sum = 0;
+        for (int i = 0; i < coefficients.length; i++) {
+            sum += coefficients[i] * features[i];
+        }
+        return sum;
+    }
+}
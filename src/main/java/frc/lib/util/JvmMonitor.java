@@ -0,0 +1,205 @@
+package frc.lib.util;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.lib.util.MultiRateScheduler.RateTier;
+
+/**
+ * Finds out whether scheduler overruns were caused by garbage collection, JIT compilation or our own code.
+ *
+ * The collectors' collection counts and the JIT's total compilation time are read on the robot thread
+ * at the start and end of every tier run, so each overrun is classified as soon as it happens:
+ * -GC: a collection happened during the run (collections stop every thread)
+ * -JIT: no collection, but the compiler was busy (on the roboRIO's two cores it competes with the robot thread)
+ * -Code: neither, the time went to our own code
+ *
+ * GarbageCollectorMXBean notifications, delivered on a JMX thread, add each collection's name, cause and
+ * pause length. They arrive in the same order the collections were counted, so update() pairs them with
+ * the scheduler cycle each collection hit and logs them.
+ * Statistics are kept per match (see reset()). Nothing is allocated on the robot thread except when logging a collection.
+ */
+public class JvmMonitor implements MultiRateScheduler.RunListener {
+    private final GarbageCollectorMXBean[] collectors;
+    private final CompilationMXBean compiler;
+
+    /* Collections Reported By Notifications, Written By The JMX Thread */
+    private final Object notificationLock = new Object();
+    private final String[] notifiedNames;
+    private final String[] notifiedCauses;
+    private final long[] notifiedDurations;
+    private long notificationsWritten = 0;
+
+    /* Cycle Each Collection Was Counted In, In The Same Order */
+    private final RateTier[] collectionTiers;
+    private final long[] collectionCycles;
+    private final boolean[] collectionsDuringRun;
+    private long collectionsCounted = 0;
+    private long collectionsLogged = 0;
+
+    private long lastCollectionCount;
+    private long runStartCompilationTime;
+    private long runStartCollectionCount;
+    private long lastCycleTotal = 0;
+
+    /* Per Match Statistics */
+    private long matchGcCount;
+    private long matchGcPause;
+    private long matchMaxGcPause;
+    private long matchOverruns;
+    private long matchGcOverruns;
+    private long matchJitOverruns;
+    private long matchCodeOverruns;
+    private long matchStartCompilationTime;
+
+    /** @param bufferSize Collections that can wait to be logged between update() calls */
+    public JvmMonitor(int bufferSize) {
+        notifiedNames = new String[bufferSize];
+        notifiedCauses = new String[bufferSize];
+        notifiedDurations = new long[bufferSize];
+        collectionTiers = new RateTier[bufferSize];
+        collectionCycles = new long[bufferSize];
+        collectionsDuringRun = new boolean[bufferSize];
+
+        List<GarbageCollectorMXBean> collectorBeans = ManagementFactory.getGarbageCollectorMXBeans();
+        collectors = collectorBeans.toArray(new GarbageCollectorMXBean[0]);
+        CompilationMXBean compilationBean = ManagementFactory.getCompilationMXBean();
+        compiler = compilationBean != null && compilationBean.isCompilationTimeMonitoringSupported() ? compilationBean : null;
+
+        for (GarbageCollectorMXBean collector : collectors) {
+            if (collector instanceof NotificationEmitter) {
+                ((NotificationEmitter)collector).addNotificationListener(this::handleNotification, null, null);
+            }
+        }
+        lastCollectionCount = getCollectionCount();
+        reset();
+    }
+
+    /** Starts the per match statistics over, e.g. from autonomousInit. */
+    public void reset() {
+        matchGcCount = 0;
+        matchGcPause = 0;
+        matchMaxGcPause = 0;
+        matchOverruns = 0;
+        matchGcOverruns = 0;
+        matchJitOverruns = 0;
+        matchCodeOverruns = 0;
+        matchStartCompilationTime = getCompilationTime();
+    }
+
+    /* Runs on the JMX notification thread */
+    private void handleNotification(Notification notification, Object handback) {
+        if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData)notification.getUserData());
+        synchronized (notificationLock) {
+            int index = (int)(notificationsWritten % notifiedNames.length);
+            notifiedNames[index] = info.getGcName();
+            notifiedCauses[index] = info.getGcCause();
+            notifiedDurations[index] = info.getGcInfo().getDuration();
+            notificationsWritten++;
+        }
+    }
+
+    @Override
+    public void onRunStart(RateTier tier, long cycle) {
+        // Collections since the last run ended happened between runs
+        countCollections(tier, cycle, false);
+        runStartCollectionCount = lastCollectionCount;
+        runStartCompilationTime = getCompilationTime();
+    }
+
+    @Override
+    public void onRun(RateTier tier, long cycle, double startTime, double duration, boolean overran) {
+        countCollections(tier, cycle, true);
+        if (tier == RateTier.NORMAL) {
+            lastCycleTotal = cycle + 1;
+        }
+        if (!overran) {
+            return;
+        }
+        matchOverruns++;
+        if (lastCollectionCount > runStartCollectionCount) {
+            matchGcOverruns++;
+        }
+        else if (getCompilationTime() > runStartCompilationTime) {
+            matchJitOverruns++;
+        }
+        else {
+            matchCodeOverruns++;
+        }
+    }
+
+    private void countCollections(RateTier tier, long cycle, boolean duringRun) {
+        long count = getCollectionCount();
+        for (long i = lastCollectionCount; i < count; i++) {
+            int index = (int)(collectionsCounted % collectionCycles.length);
+            collectionTiers[index] = tier;
+            collectionCycles[index] = cycle;
+            collectionsDuringRun[index] = duringRun;
+            collectionsCounted++;
+        }
+        lastCollectionCount = count;
+    }
+
+    /** Logs the collections reported since the last call and publishes the statistics. Call from the slow tier. */
+    public void update() {
+        synchronized (notificationLock) {
+            long available = Math.min(notificationsWritten, collectionsCounted);
+            if (available - collectionsLogged > notifiedNames.length) {
+                // More collections than the buffers hold since the last update, the oldest are not logged
+                collectionsLogged = available - notifiedNames.length;
+            }
+            while (collectionsLogged < available) {
+                int index = (int)(collectionsLogged % notifiedNames.length);
+                logCollection(notifiedNames[index], notifiedCauses[index], notifiedDurations[index],
+                    collectionTiers[index], collectionCycles[index], collectionsDuringRun[index]);
+                collectionsLogged++;
+            }
+        }
+        publish();
+    }
+
+    private void logCollection(String name, String cause, long pauseMs, RateTier tier, long cycle, boolean duringRun) {
+        matchGcCount++;
+        matchGcPause += pauseMs;
+        matchMaxGcPause = Math.max(matchMaxGcPause, pauseMs);
+        DataLogManager.log(String.format("[JVM] %s (%s) paused %d ms %s %s tier cycle %d",
+            name, cause, pauseMs, duringRun ? "during" : "before", tier.label, cycle));
+    }
+
+    private long getCollectionCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private long getCompilationTime() {
+        return compiler != null ? compiler.getTotalCompilationTime() : 0;
+    }
+
+    private void publish() {
+        SmartDashboard.putNumber("JVM/GC Count", matchGcCount);
+        SmartDashboard.putNumber("JVM/GC Max Pause (ms)", matchMaxGcPause);
+        SmartDashboard.putNumber("JVM/GC Total Pause (ms)", matchGcPause);
+        SmartDashboard.putNumber("JVM/JIT Time (ms)", getCompilationTime() - matchStartCompilationTime);
+        SmartDashboard.putNumber("JVM/Main Loop Cycles", lastCycleTotal);
+        SmartDashboard.putNumber("JVM/Overruns", matchOverruns);
+        SmartDashboard.putNumber("JVM/Overruns From GC", matchGcOverruns);
+        SmartDashboard.putNumber("JVM/Overruns During JIT", matchJitOverruns);
+        SmartDashboard.putNumber("JVM/Overruns From Code", matchCodeOverruns);
+    }
+}
@@ -0,0 +1,183 @@
+package frc.lib.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Runs periodic work at a few fixed rates on top of TimedRobot.addPeriodic.
+ * Every tier runs on the main robot thread, so tasks in different tiers never run at the same time
+ * and need no locking. Each tier has a time budget, and overruns and start time jitter are
+ * published for every tier.
+ */
+public class MultiRateScheduler {
+    public enum RateTier {
+        /* Control loops that benefit from more than 50 Hz */
+        FAST("Fast"),
+        /* The main robot loop, where the command scheduler runs */
+        NORMAL("Normal"),
+        /* Telemetry and anything else that does not need 50 Hz */
+        SLOW("Slow");
+
+        public final String label;
+
+        RateTier(String label) {
+            this.label = label;
+        }
+    }
+
+    /** Told about every tier run, e.g. to find out what caused an overrun. Called on the main robot thread. */
+    public interface RunListener {
+        /** Called just before a tier's tasks run */
+        void onRunStart(RateTier tier, long cycle);
+
+        /**
+         * @param cycle Number of times this tier has run, starting from 0
+         * @param startTime RobotClock time the run started: (in Seconds)
+         * @param duration How long the run took: (in Seconds)
+         * @param overran Whether the run took longer than the tier's budget
+         */
+        void onRun(RateTier tier, long cycle, double startTime, double duration, boolean overran);
+    }
+
+    private static final double kWarningInterval = 5.0;
+
+    private class Task {
+        final String name;
+        final Runnable work;
+        double lastDuration = 0;
+
+        Task(String name, Runnable work) {
+            this.name = name;
+            this.work = work;
+        }
+    }
+
+    private class Tier {
+        final RateTier rateTier;
+        final double period;
+        final double budget;
+        final List<Task> tasks = new ArrayList<>();
+
+        long cycle = 0;
+        double lastStartTime = Double.NaN;
+        double maxJitter = 0;
+        double jitterSum = 0;
+        int jitterSamples = 0;
+        double maxDuration = 0;
+        int overruns = 0;
+        String slowestTask = "";
+        double lastWarningTime = Double.NEGATIVE_INFINITY;
+
+        Tier(RateTier rateTier, double period, double budget) {
+            this.rateTier = rateTier;
+            this.period = period;
+            this.budget = budget;
+        }
+
+        void run() {
+            double startTime = RobotClock.now();
+            if (!Double.isNaN(lastStartTime)) {
+                double jitter = Math.abs((startTime - lastStartTime) - period);
+                maxJitter = Math.max(maxJitter, jitter);
+                jitterSum += jitter;
+                jitterSamples++;
+            }
+            lastStartTime = startTime;
+            if (runListener != null) {
+                runListener.onRunStart(rateTier, cycle);
+            }
+
+            Task slowest = null;
+            double taskStartTime = startTime;
+            for (Task task : tasks) {
+                task.work.run();
+                double taskEndTime = RobotClock.now();
+                task.lastDuration = taskEndTime - taskStartTime;
+                taskStartTime = taskEndTime;
+                if (slowest == null || task.lastDuration > slowest.lastDuration) {
+                    slowest = task;
+                }
+            }
+
+            double duration = taskStartTime - startTime;
+            maxDuration = Math.max(maxDuration, duration);
+            if (duration > budget) {
+                overruns++;
+                slowestTask = slowest != null ? slowest.name : "";
+                if (taskStartTime - lastWarningTime > kWarningInterval) {
+                    DriverStation.reportWarning(String.format("[Scheduler] %s tier took %.1f ms (budget %.1f ms), slowest task: %s",
+                        rateTier.label, duration * 1000.0, budget * 1000.0, slowestTask), false);
+                    lastWarningTime = taskStartTime;
+                }
+            }
+            if (runListener != null) {
+                runListener.onRun(rateTier, cycle, startTime, duration, duration > budget);
+            }
+            cycle++;
+        }
+
+        void publish() {
+            String prefix = "Scheduler/" + rateTier.label + " ";
+            SmartDashboard.putNumber(prefix + "Max Jitter (ms)", maxJitter * 1000.0);
+            SmartDashboard.putNumber(prefix + "Mean Jitter (ms)", jitterSamples > 0 ? jitterSum / jitterSamples * 1000.0 : 0);
+            SmartDashboard.putNumber(prefix + "Max Duration (ms)", maxDuration * 1000.0);
+            SmartDashboard.putNumber(prefix + "Overruns", overruns);
+            SmartDashboard.putString(prefix + "Slowest Overrun Task", slowestTask);
+            // Max and mean cover the time since the last report, overruns are kept for the whole run
+            maxJitter = 0;
+            jitterSum = 0;
+            jitterSamples = 0;
+            maxDuration = 0;
+        }
+    }
+
+    private final Tier[] tiers = new Tier[RateTier.values().length];
+    private RunListener runListener;
+
+    /**
+     * @param robot Robot whose main loop runs the NORMAL tier
+     * @param fastPeriod Period of the FAST tier: (in Seconds)
+     * @param fastBudget Time one run of the FAST tier may take: (in Seconds)
+     * @param normalBudget Time one run of the NORMAL tier may take: (in Seconds)
+     * @param slowPeriod Period of the SLOW tier: (in Seconds)
+     * @param slowBudget Time one run of the SLOW tier may take: (in Seconds)
+     */
+    public MultiRateScheduler(TimedRobot robot, double fastPeriod, double fastBudget, double normalBudget, double slowPeriod, double slowBudget) {
+        tiers[RateTier.FAST.ordinal()] = new Tier(RateTier.FAST, fastPeriod, fastBudget);
+        tiers[RateTier.NORMAL.ordinal()] = new Tier(RateTier.NORMAL, robot.getPeriod(), normalBudget);
+        tiers[RateTier.SLOW.ordinal()] = new Tier(RateTier.SLOW, slowPeriod, slowBudget);
+
+        // Offsets keep the extra tiers from landing on the same instant as the main loop
+        robot.addPeriodic(tiers[RateTier.FAST.ordinal()]::run, fastPeriod, fastPeriod / 2.0);
+        robot.addPeriodic(tiers[RateTier.SLOW.ordinal()]::run, slowPeriod, robot.getPeriod() * 0.55);
+
+        register(RateTier.SLOW, "Scheduler Telemetry", this::publish);
+    }
+
+    /**
+     * Adds work to a tier. Tasks in a tier run in the order they were registered.
+     * @param name Name used in overrun reports
+     */
+    public void register(RateTier tier, String name, Runnable work) {
+        tiers[tier.ordinal()].tasks.add(new Task(name, work));
+    }
+
+    public void setRunListener(RunListener listener) {
+        runListener = listener;
+    }
+
+    /** Runs the NORMAL tier. Call this from robotPeriodic. */
+    public void runNormalTier() {
+        tiers[RateTier.NORMAL.ordinal()].run();
+    }
+
+    private void publish() {
+        for (Tier tier : tiers) {
+            tier.publish();
+        }
+    }
+}
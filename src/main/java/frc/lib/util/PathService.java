@@ -0,0 +1,162 @@
+package frc.lib.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.lib.math.GridPlanner;
+
+/**
+ * Generates paths on a single worker thread so the robot loop never waits on spline generation.
+ * Results come back through a CompletableFuture. The last path to each target is kept, and a request
+ * that starts close to where that path started (position, heading and velocity) gets it back right away,
+ * even if it is still being generated.
+ * With a GridPlanner, paths are routed around the field's obstacles first and the planner's corner
+ * points become the trajectory's interior waypoints. Without one, or if no route is found, paths go straight.
+ * request() is meant to be called from the main robot thread only.
+ */
+public class PathService {
+    private static class CachedPath {
+        final Pose2d start;
+        final Translation2d velocity;
+        final Pose2d goal;
+        final CompletableFuture<Trajectory> result;
+
+        CachedPath(Pose2d start, Translation2d velocity, Pose2d goal, CompletableFuture<Trajectory> result) {
+            this.start = start;
+            this.velocity = velocity;
+            this.goal = goal;
+            this.result = result;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final GridPlanner planner;
+    private final Map<String, CachedPath> cache = new HashMap<>();
+
+    private final double maxSpeed;
+    private final double maxAcceleration;
+    private final double movingSpeed;
+    private final double translationTolerance;
+    private final double headingTolerance;
+    private final double speedTolerance;
+
+    private int requests = 0;
+    private int cacheHits = 0;
+
+    /**
+     * @param maxSpeed Path speed limit: (in Meters Per Second)
+     * @param maxAcceleration Path acceleration limit: (in Meters Per Second Squared)
+     * @param movingSpeed Below this speed a path starts pointed at its goal instead of along the robot's velocity
+     * @param translationTolerance How far the start may be from a cached path's start: (in Meters)
+     * @param headingTolerance How far the robot's heading may be from a cached path's start: (in Radians)
+     * @param speedTolerance How far the velocity may be from a cached path's start velocity: (in Meters Per Second)
+     * @param planner Obstacle aware router, only ever used on the worker thread, or null to drive straight to goals
+     */
+    public PathService(GridPlanner planner, double maxSpeed, double maxAcceleration, double movingSpeed,
+            double translationTolerance, double headingTolerance, double speedTolerance) {
+        this.planner = planner;
+        this.maxSpeed = maxSpeed;
+        this.maxAcceleration = maxAcceleration;
+        this.movingSpeed = movingSpeed;
+        this.translationTolerance = translationTolerance;
+        this.headingTolerance = headingTolerance;
+        this.speedTolerance = speedTolerance;
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Path Service");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Builds the planner's distance field for a goal on the worker thread, so replans to it take milliseconds. */
+    public void precompute(Translation2d goal) {
+        if (planner != null) {
+            executor.execute(() -> planner.precompute(goal));
+        }
+    }
+
+    /**
+     * Starts generating a path from the robot's current pose and velocity to a goal, or returns the
+     * cached one if it started close enough to here.
+     * @param target Name the path is cached under
+     * @param velocity Field relative robot velocity: (in Meters Per Second)
+     */
+    public CompletableFuture<Trajectory> request(String target, Pose2d start, Translation2d velocity, Pose2d goal) {
+        requests++;
+        CachedPath cached = cache.get(target);
+        if (cached != null && isCloseTo(cached, start, velocity, goal)) {
+            cacheHits++;
+            publishCounts();
+            return cached.result;
+        }
+
+        CompletableFuture<Trajectory> result = CompletableFuture.supplyAsync(() -> generate(start, velocity, goal), executor);
+        cache.put(target, new CachedPath(start, velocity, goal, result));
+        publishCounts();
+        return result;
+    }
+
+    private boolean isCloseTo(CachedPath cached, Pose2d start, Translation2d velocity, Pose2d goal) {
+        return !cached.result.isCompletedExceptionally()
+            && cached.goal.equals(goal)
+            && cached.start.getTranslation().getDistance(start.getTranslation()) <= translationTolerance
+            && Math.abs(MathUtil.angleModulus(cached.start.getRotation().getRadians() - start.getRotation().getRadians())) <= headingTolerance
+            && cached.velocity.getDistance(velocity) <= speedTolerance;
+    }
+
+    private Trajectory generate(Pose2d start, Translation2d velocity, Pose2d goal) {
+        long startTime = System.nanoTime();
+        Translation2d toGoal = goal.getTranslation().minus(start.getTranslation());
+        if (toGoal.getNorm() < 1e-3) {
+            // Already there, a single state path just holds the goal
+            return new Trajectory(List.of(new Trajectory.State(0, 0, 0, goal, 0)));
+        }
+
+        List<Translation2d> corners = List.of(start.getTranslation(), goal.getTranslation());
+        if (planner != null) {
+            long planStartTime = System.nanoTime();
+            List<Translation2d> route = planner.findPath(start.getTranslation(), goal.getTranslation());
+            SmartDashboard.putNumber("PathService/Plan Time (ms)", (System.nanoTime() - planStartTime) / 1e6);
+            if (route != null) {
+                corners = route;
+            }
+            else {
+                DataLogManager.log("[PathService] No route around obstacles to " + goal + ", driving straight");
+            }
+        }
+        List<Translation2d> interiorWaypoints = corners.subList(1, corners.size() - 1);
+
+        // The spline's headings are directions of travel, the follower turns the robot to the goal's heading separately
+        double speed = velocity.getNorm();
+        Rotation2d approach = goal.getTranslation().minus(corners.get(corners.size() - 2)).getAngle();
+        Rotation2d departure = speed > movingSpeed ? velocity.getAngle() : corners.get(1).minus(start.getTranslation()).getAngle();
+        TrajectoryConfig config = new TrajectoryConfig(maxSpeed, maxAcceleration)
+            .setStartVelocity(speed > movingSpeed ? Math.min(speed, maxSpeed) : 0);
+
+        Trajectory trajectory = TrajectoryGenerator.generateTrajectory(
+            new Pose2d(start.getTranslation(), departure),
+            interiorWaypoints,
+            new Pose2d(goal.getTranslation(), approach),
+            config);
+        SmartDashboard.putNumber("PathService/Generation Time (ms)", (System.nanoTime() - startTime) / 1e6);
+        return trajectory;
+    }
+
+    private void publishCounts() {
+        SmartDashboard.putNumber("PathService/Requests", requests);
+        SmartDashboard.putNumber("PathService/Cache Hits", cacheHits);
+    }
+}
@@ -0,0 +1,42 @@
+package frc.lib.util;
+
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Monotonic time source for robot logic. Reads the FPGA clock on the robot and in simulation,
+ * and can be swapped for a fake clock so time based logic can be stepped by hand.
+ * Anything that measures elapsed time should use this instead of counting loops, so a loop overrun
+ * or a different loop period does not stretch the timing.
+ */
+public final class RobotClock {
+    private static final DoubleSupplier kFPGASource = Timer::getFPGATimestamp;
+
+    private static volatile DoubleSupplier source = kFPGASource;
+
+    private RobotClock() {}
+
+    /** Current time: (in Seconds) */
+    public static double now() {
+        return source.getAsDouble();
+    }
+
+    /** Time elapsed since an earlier call to now(): (in Seconds) */
+    public static double since(double startTime) {
+        return now() - startTime;
+    }
+
+    /**
+     * Replaces the time source, e.g. with a counter a test advances by hand.
+     * The source must never go backwards.
+     */
+    public static void setSource(DoubleSupplier newSource) {
+        source = newSource;
+    }
+
+    /** Goes back to the FPGA clock. */
+    public static void useFPGA() {
+        source = kFPGASource;
+    }
+}
@@ -0,0 +1,184 @@
+package frc.lib.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JDK Flight Recorder side of RobotEvents. Only RobotEvents should use this class, and only once it
+ * has checked that jdk.jfr is there, so a JRE without the module never loads it.
+ * Everything except the recording itself is used from the main robot thread only.
+ */
+final class RobotEventTypes {
+    private RobotEventTypes() {}
+
+    @Name("frc.SchedulerCycle")
+    @Label("Scheduler Cycle")
+    @Description("One run of robotPeriodic: the command scheduler and the rest of the normal tier")
+    @Category({"Robot", "Scheduler"})
+    @StackTrace(false)
+    public static class SchedulerCycleEvent extends Event {
+        @Label("Cycle")
+        long cycle;
+    }
+
+    @Name("frc.SubsystemPeriodic")
+    @Label("Subsystem Periodic")
+    @Category({"Robot", "Subsystems"})
+    @StackTrace(false)
+    public static class SubsystemPeriodicEvent extends Event {
+        @Label("Subsystem")
+        String subsystem;
+    }
+
+    @Name("frc.Command")
+    @Label("Command")
+    @Description("A command from initialize until it finished or was interrupted")
+    @Category({"Robot", "Commands"})
+    @StackTrace(false)
+    public static class CommandEvent extends Event {
+        @Label("Command")
+        String command;
+
+        @Label("Interrupted")
+        boolean interrupted;
+    }
+
+    @Name("frc.DeviceCall")
+    @Label("Device Call")
+    @Description("A write that went out to a motor controller")
+    @Category({"Robot", "Devices"})
+    @StackTrace(false)
+    public static class DeviceCallEvent extends Event {
+        @Label("Device")
+        String device;
+
+        @Label("Device Id")
+        int deviceId;
+
+        @Label("Operation")
+        String operation;
+    }
+
+    /* Events in progress, at most one of each kind runs at a time on the main thread */
+    private static SchedulerCycleEvent cycleEvent;
+    private static SubsystemPeriodicEvent periodicEvent;
+    private static DeviceCallEvent deviceEvent;
+    private static final Map<Object, CommandEvent> commandEvents = new IdentityHashMap<>();
+
+    private static Recording recording;
+
+    static boolean isAvailable() {
+        return FlightRecorder.isAvailable();
+    }
+
+    /**
+     * Starts a recording with the JDK's low overhead "default" settings plus every robot event.
+     * @param maxAge Oldest data kept: (in Seconds)
+     * @param maxSize Most data kept: (in Bytes)
+     */
+    static synchronized void startRecording(double maxAge, long maxSize) throws IOException, ParseException {
+        if (recording != null) {
+            recording.close();
+        }
+        Recording newRecording = new Recording(Configuration.getConfiguration("default"));
+        newRecording.setName("Robot");
+        newRecording.setMaxAge(Duration.ofMillis((long)(maxAge * 1000.0)));
+        newRecording.setMaxSize(maxSize);
+        newRecording.enable(SchedulerCycleEvent.class);
+        newRecording.enable(SubsystemPeriodicEvent.class);
+        newRecording.enable(CommandEvent.class);
+        newRecording.enable(DeviceCallEvent.class);
+        newRecording.start();
+        recording = newRecording;
+    }
+
+    /** Writes the recording to a file and ends it. */
+    static synchronized void dumpRecording(Path file) throws IOException {
+        if (recording == null) {
+            return;
+        }
+        try {
+            recording.dump(file);
+        } finally {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    static void clearPending() {
+        cycleEvent = null;
+        periodicEvent = null;
+        deviceEvent = null;
+        commandEvents.clear();
+    }
+
+    static void beginCycle(long cycle) {
+        cycleEvent = new SchedulerCycleEvent();
+        cycleEvent.cycle = cycle;
+        cycleEvent.begin();
+    }
+
+    static void endCycle() {
+        if (cycleEvent != null) {
+            cycleEvent.commit();
+            cycleEvent = null;
+        }
+    }
+
+    static void beginPeriodic(String subsystem) {
+        periodicEvent = new SubsystemPeriodicEvent();
+        periodicEvent.subsystem = subsystem;
+        periodicEvent.begin();
+    }
+
+    static void endPeriodic() {
+        if (periodicEvent != null) {
+            periodicEvent.commit();
+            periodicEvent = null;
+        }
+    }
+
+    static void beginDeviceCall() {
+        deviceEvent = new DeviceCallEvent();
+        deviceEvent.begin();
+    }
+
+    static void endDeviceCall(String device, int deviceId, String operation) {
+        if (deviceEvent != null) {
+            deviceEvent.device = device;
+            deviceEvent.deviceId = deviceId;
+            deviceEvent.operation = operation;
+            deviceEvent.commit();
+            deviceEvent = null;
+        }
+    }
+
+    static void commandStarted(Object command, String name) {
+        CommandEvent event = new CommandEvent();
+        event.command = name;
+        event.begin();
+        commandEvents.put(command, event);
+    }
+
+    static void commandEnded(Object command, boolean interrupted) {
+        CommandEvent event = commandEvents.remove(command);
+        if (event != null) {
+            event.interrupted = interrupted;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package frc.lib.util;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/**
+ * Custom JDK Flight Recorder events for post match profiling: scheduler cycles, subsystem periodics,
+ * command lifetimes and motor controller writes, shown next to the JVM's own GC, JIT and thread events.
+ *
+ * The robot JRE may be built without the jdk.jfr module, so this class never touches JFR itself.
+ * It checks for the module once and hands everything to RobotEventTypes only while a recording runs.
+ * When nothing is recording every call is a single flag check and nothing is allocated.
+ * Events are only emitted from the thread that started the recording (the main robot thread),
+ * so device configuration on startup threads is not recorded.
+ */
+public final class RobotEvents {
+    private static final boolean kAvailable = checkAvailable();
+
+    private static volatile boolean recording = false;
+    private static Thread robotThread;
+    private static long cycle = 0;
+
+    private RobotEvents() {}
+
+    private static boolean checkAvailable() {
+        if (!ModuleLayer.boot().findModule("jdk.jfr").isPresent()) {
+            return false;
+        }
+        try {
+            return RobotEventTypes.isAvailable();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    public static boolean isAvailable() {
+        return kAvailable;
+    }
+
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    /** Emits command lifetime events from the scheduler's hooks. Call once from robotInit. */
+    public static void installCommandHooks(CommandScheduler scheduler) {
+        if (!kAvailable) {
+            return;
+        }
+        scheduler.onCommandInitialize(command -> {
+            if (isEmitting()) {
+                RobotEventTypes.commandStarted(command, command.getName());
+            }
+        });
+        scheduler.onCommandFinish(command -> {
+            if (isEmitting()) {
+                RobotEventTypes.commandEnded(command, false);
+            }
+        });
+        scheduler.onCommandInterrupt(command -> {
+            if (isEmitting()) {
+                RobotEventTypes.commandEnded(command, true);
+            }
+        });
+    }
+
+    /**
+     * Starts recording from the calling thread, which should be the main robot thread.
+     * @param maxAge Oldest data kept: (in Seconds)
+     * @param maxSize Most data kept: (in Bytes)
+     */
+    public static void startRecording(double maxAge, long maxSize) {
+        if (!kAvailable) {
+            DataLogManager.log("[JFR] This JRE has no Flight Recorder, not recording");
+            return;
+        }
+        try {
+            RobotEventTypes.startRecording(maxAge, maxSize);
+            RobotEventTypes.clearPending();
+            robotThread = Thread.currentThread();
+            recording = true;
+            DataLogManager.log("[JFR] Recording started");
+        } catch (Exception e) {
+            DataLogManager.log("[JFR] Could not start recording: " + e);
+        }
+    }
+
+    /**
+     * Stops emitting events and writes the recording to a timestamped file on a background thread,
+     * so the robot loop is not held up by the file write.
+     * @param directory Directory the .jfr file is written to
+     */
+    public static void dumpRecording(Path directory) {
+        if (!recording) {
+            return;
+        }
+        recording = false;
+        Path file = directory.resolve("robot-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".jfr");
+        Thread writer = new Thread(() -> {
+            try {
+                Files.createDirectories(directory);
+                long startTime = System.nanoTime();
+                RobotEventTypes.dumpRecording(file);
+                DataLogManager.log(String.format("[JFR] Wrote %s (%d bytes) in %.0f ms", file, Files.size(file), (System.nanoTime() - startTime) / 1e6));
+            } catch (Exception e) {
+                DataLogManager.log("[JFR] Could not write " + file + ": " + e);
+            }
+        }, "JFR Dump");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static boolean isEmitting() {
+        return recording && Thread.currentThread() == robotThread;
+    }
+
+    public static void beginCycle() {
+        cycle++;
+        if (isEmitting()) {
+            RobotEventTypes.beginCycle(cycle);
+        }
+    }
+
+    public static void endCycle() {
+        if (isEmitting()) {
+            RobotEventTypes.endCycle();
+        }
+    }
+
+    public static void beginPeriodic(String subsystem) {
+        if (isEmitting()) {
+            RobotEventTypes.beginPeriodic(subsystem);
+        }
+    }
+
+    public static void endPeriodic() {
+        if (isEmitting()) {
+            RobotEventTypes.endPeriodic();
+        }
+    }
+
+    /** Call just before a write goes out to a device, and endDeviceCall() right after it. */
+    public static void beginDeviceCall() {
+        if (isEmitting()) {
+            RobotEventTypes.beginDeviceCall();
+        }
+    }
+
+    /**
+     * @param device Kind of device, e.g. "Spark Max"
+     * @param deviceId CAN id
+     * @param operation What was written, e.g. "set"
+     */
+    public static void endDeviceCall(String device, int deviceId, String operation) {
+        if (isEmitting()) {
+            RobotEventTypes.endDeviceCall(device, deviceId, operation);
+        }
+    }
+}
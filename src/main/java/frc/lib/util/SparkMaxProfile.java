@@ -0,0 +1,49 @@
+package frc.lib.util;
+
+import com.revrobotics.CANSparkBase.IdleMode;
+
+public class SparkMaxProfile {
+    public final boolean inverted;
+    public final IdleMode idleMode;
+    public final int smartCurrentLimit;
+    public final double voltageCompensation;
+    public final boolean fwdSoftLimitEnabled;
+    public final double fwdSoftLimit;
+    public final boolean rvsSoftLimitEnabled;
+    public final double rvsSoftLimit;
+    public final double positionFactor;
+    public final double velocityFactor;
+    public final PIDGains gains;
+
+    /**
+     * Desired configuration of a Spark Max and its built in encoder and PID controller.
+     * Parameters not listed here are left at whatever the controller already has.
+     * @param inverted
+     * @param idleMode
+     * @param smartCurrentLimit Current Limit: (in Amps)
+     * @param voltageCompensation Voltage that full output is scaled to, so outputs do not change with the battery: (in Volts, 0 disables it)
+     * @param fwdSoftLimitEnabled
+     * @param fwdSoftLimit
+     * @param rvsSoftLimitEnabled
+     * @param rvsSoftLimit
+     * @param positionFactor Encoder Position Conversion Factor (1.0 is the factory default)
+     * @param velocityFactor Encoder Velocity Conversion Factor (1.0 is the factory default)
+     * @param gains Slot 0 PID Gains
+     */
+    public SparkMaxProfile(boolean inverted, IdleMode idleMode, int smartCurrentLimit, double voltageCompensation,
+                           boolean fwdSoftLimitEnabled, double fwdSoftLimit,
+                           boolean rvsSoftLimitEnabled, double rvsSoftLimit,
+                           double positionFactor, double velocityFactor, PIDGains gains) {
+        this.inverted = inverted;
+        this.idleMode = idleMode;
+        this.smartCurrentLimit = smartCurrentLimit;
+        this.voltageCompensation = voltageCompensation;
+        this.fwdSoftLimitEnabled = fwdSoftLimitEnabled;
+        this.fwdSoftLimit = fwdSoftLimit;
+        this.rvsSoftLimitEnabled = rvsSoftLimitEnabled;
+        this.rvsSoftLimit = rvsSoftLimit;
+        this.positionFactor = positionFactor;
+        this.velocityFactor = velocityFactor;
+        this.gains = gains;
+    }
+}
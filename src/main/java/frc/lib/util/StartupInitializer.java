@@ -0,0 +1,198 @@
+package frc.lib.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Runs device configuration tasks concurrently with a per-task timeout and retries,
+ * and keeps a timeline of when each one started and finished.
+ *
+ * An attempt that reports failure or throws is retried. Vendor calls do not stop when their thread is
+ * interrupted, so a retry only starts once the previous attempt has actually returned; two threads never
+ * configure the same device at once. An attempt that runs past its timeout is waited on for one more
+ * timeout, and if it still has not returned the task is failed without a retry.
+ * The FPGA clock starts when the roboRIO boots, so timeline times are also time since power-on.
+ */
+public class StartupInitializer {
+    private static final long kPollPeriodMs = 2;
+
+    private class Task {
+        final String name;
+        final BooleanSupplier configure;
+        final double timeout;
+        final int maxAttempts;
+
+        Future<Boolean> future;
+        int attempts = 0;
+        boolean timedOut = false;
+        volatile double attemptStartTime = Double.NaN;
+        double firstStartTime = Double.NaN;
+        double endTime = Double.NaN;
+        boolean finished = false;
+        boolean succeeded = false;
+
+        Task(String name, BooleanSupplier configure, double timeout, int retries) {
+            this.name = name;
+            this.configure = configure;
+            this.timeout = timeout;
+            this.maxAttempts = retries + 1;
+        }
+
+        void start() {
+            attempts++;
+            attemptStartTime = Double.NaN;
+            timedOut = false;
+            future = executor.submit(() -> {
+                attemptStartTime = Timer.getFPGATimestamp();
+                return configure.getAsBoolean();
+            });
+        }
+    }
+
+    private final ExecutorService executor;
+    private final List<Task> tasks = new ArrayList<>();
+    private final List<String> events = new ArrayList<>();
+    private final double createdTime;
+
+    /**
+     * @param threads Number of devices configured at the same time
+     */
+    public StartupInitializer(int threads) {
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Device Init");
+            thread.setDaemon(true);
+            return thread;
+        });
+        createdTime = Timer.getFPGATimestamp();
+        mark("Startup initializer created");
+    }
+
+    /**
+     * Queues a configuration task. It starts running right away.
+     * @param name Name shown in the timeline
+     * @param configure Configuration to run, returns false if any write failed. Must be safe to run again.
+     * @param timeout Time one attempt should take: (in Seconds)
+     * @param retries Number of extra attempts after a failure, exception or late attempt
+     */
+    public void submit(String name, BooleanSupplier configure, double timeout, int retries) {
+        Task task = new Task(name, configure, timeout, retries);
+        tasks.add(task);
+        task.start();
+    }
+
+    /** Adds a named point in time to the timeline. */
+    public void mark(String event) {
+        events.add(String.format("%8.1f ms (%7.3f s since power-on)  %s",
+            (Timer.getFPGATimestamp() - createdTime) * 1000.0, Timer.getFPGATimestamp(), event));
+    }
+
+    /**
+     * Blocks until every task has finished or used up its attempts, then prints and logs the timeline.
+     * @return true if every task succeeded
+     */
+    public boolean awaitAll() {
+        boolean pending = true;
+        while (pending) {
+            pending = false;
+            for (Task task : tasks) {
+                if (task.finished) {
+                    continue;
+                }
+                if (Double.isNaN(task.firstStartTime) && !Double.isNaN(task.attemptStartTime)) {
+                    task.firstStartTime = task.attemptStartTime;
+                }
+
+                if (task.future.isDone()) {
+                    try {
+                        if (task.future.get()) {
+                            task.succeeded = true;
+                            finish(task);
+                        }
+                        else {
+                            retryOrFail(task, task.timedOut ? "timed out after " + task.timeout + " s and reported failure" : "a write failed");
+                        }
+                    } catch (ExecutionException | InterruptedException e) {
+                        retryOrFail(task, e.getCause() != null ? e.getCause().toString() : e.toString());
+                    }
+                }
+                else if (!Double.isNaN(task.attemptStartTime)) {
+                    double elapsed = Timer.getFPGATimestamp() - task.attemptStartTime;
+                    if (!task.timedOut && elapsed > task.timeout) {
+                        // The vendor call cannot be stopped, the retry has to wait for it to return
+                        task.timedOut = true;
+                        DataLogManager.log("[Startup] " + task.name + " attempt " + task.attempts + " timed out after " + task.timeout + " s, waiting for it to return");
+                    }
+                    else if (elapsed > 2.0 * task.timeout) {
+                        // Still stuck, retrying now would configure the device from two threads at once
+                        task.future.cancel(true);
+                        fail(task, "attempt " + task.attempts + " never returned, not retried");
+                    }
+                }
+                pending |= !task.finished;
+            }
+            if (pending) {
+                try {
+                    Thread.sleep(kPollPeriodMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        executor.shutdown();
+        mark("All devices configured");
+        return report();
+    }
+
+    private void retryOrFail(Task task, String reason) {
+        if (task.attempts < task.maxAttempts) {
+            DataLogManager.log("[Startup] " + task.name + " attempt " + task.attempts + " failed (" + reason + "), retrying");
+            task.start();
+        }
+        else {
+            fail(task, reason);
+        }
+    }
+
+    private void fail(Task task, String reason) {
+        DriverStation.reportError("[Startup] " + task.name + " failed after " + task.attempts + " attempt(s): " + reason, false);
+        finish(task);
+    }
+
+    private void finish(Task task) {
+        task.finished = true;
+        task.endTime = Timer.getFPGATimestamp();
+    }
+
+    private boolean report() {
+        boolean allSucceeded = true;
+        StringBuilder timeline = new StringBuilder("********** Startup Timeline **********\n");
+        for (String event : events) {
+            timeline.append(event).append('\n');
+        }
+        for (Task task : tasks) {
+            allSucceeded &= task.succeeded;
+            timeline.append(String.format("%8.1f ms -> %8.1f ms  %-20s %s, %d attempt(s)\n",
+                (task.firstStartTime - createdTime) * 1000.0,
+                (task.endTime - createdTime) * 1000.0,
+                task.name,
+                task.succeeded ? "ok" : "FAILED",
+                task.attempts));
+        }
+        DataLogManager.log(timeline.toString());
+        SmartDashboard.putNumber("Startup/Device Config Time (ms)", (Timer.getFPGATimestamp() - createdTime) * 1000.0);
+        SmartDashboard.putNumber("Startup/Robot Ready Since Power-On (s)", Timer.getFPGATimestamp());
+        SmartDashboard.putBoolean("Startup/All Devices OK", allSucceeded);
+        return allSucceeded;
+    }
+}
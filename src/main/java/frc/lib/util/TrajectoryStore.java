@@ -0,0 +1,172 @@
+package frc.lib.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+
+/**
+ * Compact binary file of pre-generated trajectories, read through a memory map so only the
+ * trajectories that are used get decoded.
+ *
+ * Layout (big endian):
+ *   int magic, int version, int trajectory count
+ *   per trajectory: short name length, name (UTF-8), long fingerprint, int state count, int data offset
+ *   per state: time, velocity, acceleration, x, y, heading (radians), curvature as doubles
+ *
+ * The fingerprint identifies the waypoints and constraints a trajectory was generated from,
+ * so a file baked from older definitions is never used.
+ */
+public class TrajectoryStore {
+    private static final int kMagic = 0x54524A31; // "TRJ1"
+    private static final int kVersion = 1;
+    private static final int kDoublesPerState = 7;
+    private static final int kBytesPerState = kDoublesPerState * Double.BYTES;
+
+    /** A trajectory to be written, with the fingerprint of the definition it came from. */
+    public static class Entry {
+        public final String name;
+        public final long fingerprint;
+        public final Trajectory trajectory;
+
+        public Entry(String name, long fingerprint, Trajectory trajectory) {
+            this.name = name;
+            this.fingerprint = fingerprint;
+            this.trajectory = trajectory;
+        }
+    }
+
+    private static class IndexEntry {
+        final long fingerprint;
+        final int stateCount;
+        final int dataOffset;
+
+        IndexEntry(long fingerprint, int stateCount, int dataOffset) {
+            this.fingerprint = fingerprint;
+            this.stateCount = stateCount;
+            this.dataOffset = dataOffset;
+        }
+    }
+
+    private final MappedByteBuffer buffer;
+    private final Map<String, IndexEntry> index = new HashMap<>();
+
+    private TrajectoryStore(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != kMagic || buffer.getInt(4) != kVersion) {
+            throw new IOException("not a version " + kVersion + " trajectory file");
+        }
+        int count = buffer.getInt(8);
+        int position = 12;
+        for (int i = 0; i < count; i++) {
+            int nameLength = buffer.getShort(position);
+            position += Short.BYTES;
+            byte[] name = new byte[nameLength];
+            buffer.get(position, name);
+            position += nameLength;
+            long fingerprint = buffer.getLong(position);
+            int stateCount = buffer.getInt(position + Long.BYTES);
+            int dataOffset = buffer.getInt(position + Long.BYTES + Integer.BYTES);
+            position += Long.BYTES + 2 * Integer.BYTES;
+            index.put(new String(name, StandardCharsets.UTF_8), new IndexEntry(fingerprint, stateCount, dataOffset));
+        }
+    }
+
+    /**
+     * Memory maps a trajectory file and reads its index.
+     * @return the store, or null if the file is missing or unreadable
+     */
+    public static TrajectoryStore open(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new TrajectoryStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[Trajectories] Could not read " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Decodes a trajectory.
+     * @param fingerprint Fingerprint of the current definition
+     * @return the trajectory, or null if it is not in the file or was baked from a different definition
+     */
+    public Trajectory get(String name, long fingerprint) {
+        IndexEntry entry = index.get(name);
+        if (entry == null || entry.fingerprint != fingerprint) {
+            return null;
+        }
+        List<Trajectory.State> states = new ArrayList<>(entry.stateCount);
+        int position = entry.dataOffset;
+        for (int i = 0; i < entry.stateCount; i++) {
+            double time = buffer.getDouble(position);
+            double velocity = buffer.getDouble(position + 8);
+            double acceleration = buffer.getDouble(position + 16);
+            double x = buffer.getDouble(position + 24);
+            double y = buffer.getDouble(position + 32);
+            double heading = buffer.getDouble(position + 40);
+            double curvature = buffer.getDouble(position + 48);
+            states.add(new Trajectory.State(time, velocity, acceleration, new Pose2d(x, y, new Rotation2d(heading)), curvature));
+            position += kBytesPerState;
+        }
+        return new Trajectory(states);
+    }
+
+    /** Writes trajectories to a file, replacing it if it exists. */
+    public static void write(Path file, List<Entry> entries) throws IOException {
+        List<byte[]> names = new ArrayList<>();
+        int indexSize = 3 * Integer.BYTES;
+        int dataSize = 0;
+        for (Entry entry : entries) {
+            byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            indexSize += Short.BYTES + name.length + Long.BYTES + 2 * Integer.BYTES;
+            dataSize += entry.trajectory.getStates().size() * kBytesPerState;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(indexSize + dataSize);
+        out.putInt(kMagic).putInt(kVersion).putInt(entries.size());
+        int dataOffset = indexSize;
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            int stateCount = entry.trajectory.getStates().size();
+            out.putShort((short)names.get(i).length).put(names.get(i));
+            out.putLong(entry.fingerprint).putInt(stateCount).putInt(dataOffset);
+            dataOffset += stateCount * kBytesPerState;
+        }
+        for (Entry entry : entries) {
+            for (Trajectory.State state : entry.trajectory.getStates()) {
+                out.putDouble(state.timeSeconds);
+                out.putDouble(state.velocityMetersPerSecond);
+                out.putDouble(state.accelerationMetersPerSecondSq);
+                out.putDouble(state.poseMeters.getX());
+                out.putDouble(state.poseMeters.getY());
+                out.putDouble(state.poseMeters.getRotation().getRadians());
+                out.putDouble(state.curvatureRadPerMeter);
+            }
+        }
+
+        Files.createDirectories(file.getParent());
+        out.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package frc.lib.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the last value sent to a device so identical writes can be skipped.
+ * The value is still resent once the refresh period has passed, in case the device rebooted
+ * or missed the frame.
+ */
+public class WriteCache {
+    private static final AtomicLong skippedWrites = new AtomicLong();
+    private static final AtomicLong sentWrites = new AtomicLong();
+
+    private final double refreshPeriod;
+    private double lastValue = Double.NaN;
+    private double lastWriteTime = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param refreshPeriod Time after which an unchanged value is written again: (in Seconds)
+     */
+    public WriteCache(double refreshPeriod) {
+        this.refreshPeriod = refreshPeriod;
+    }
+
+    /**
+     * Checks whether a value has to be sent to the device, and if so records it as written.
+     * @param value Value about to be written
+     * @return true if the caller should perform the write
+     */
+    public boolean needsWrite(double value) {
+        double now = RobotClock.now();
+        if (value == lastValue && (now - lastWriteTime) < refreshPeriod) {
+            skippedWrites.incrementAndGet();
+            return false;
+        }
+        lastValue = value;
+        lastWriteTime = now;
+        sentWrites.incrementAndGet();
+        return true;
+    }
+
+    /** Forces the next write through, e.g. after a write failed. */
+    public void invalidate() {
+        lastValue = Double.NaN;
+    }
+
+    /** Number of CAN transactions avoided across all caches since boot. */
+    public static long getSkippedWrites() {
+        return skippedWrites.get();
+    }
+
+    /** Number of writes passed through to devices across all caches since boot. */
+    public static long getSentWrites() {
+        return sentWrites.get();
+    }
+}
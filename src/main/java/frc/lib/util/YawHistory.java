@@ -0,0 +1,53 @@
+package frc.lib.util;
+
+/**
+ * Fixed size ring buffer of timestamped gyro yaw samples, so a vision frame can be paired with the
+ * yaw the robot had when the frame was captured instead of the yaw it has when the frame arrives.
+ * Samples must be added in time order. Nothing is allocated after construction.
+ */
+public class YawHistory {
+    private final double[] times;
+    private final double[] yaws;
+    private int newestIndex = -1;
+    private int count = 0;
+
+    public YawHistory(int size) {
+        times = new double[size];
+        yaws = new double[size];
+    }
+
+    /**
+     * @param time Sample time on the RobotClock: (in Seconds)
+     * @param yaw Continuous (not wrapped) yaw: (in Radians)
+     */
+    public void add(double time, double yaw) {
+        newestIndex = (newestIndex + 1) % times.length;
+        times[newestIndex] = time;
+        yaws[newestIndex] = yaw;
+        count = Math.min(count + 1, times.length);
+    }
+
+    /**
+     * Yaw at a time, linearly interpolated between the samples around it.
+     * Times older than the buffer return the oldest sample, newer ones return the newest.
+     * @return Yaw: (in Radians), NaN if there are no samples yet
+     */
+    public double getYawAt(double time) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        int newer = newestIndex;
+        if (time >= times[newer]) {
+            return yaws[newer];
+        }
+        for (int i = 1; i < count; i++) {
+            int older = (newestIndex - i + times.length) % times.length;
+            if (times[older] <= time) {
+                double fraction = (time - times[older]) / (times[newer] - times[older]);
+                return yaws[older] + (yaws[newer] - yaws[older]) * fraction;
+            }
+            newer = older;
+        }
+        return yaws[newer];
+    }
+}
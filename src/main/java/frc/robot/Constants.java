@@ -7,7 +7,9 @@ package frc.robot;
 import com.ctre.phoenix6.signals.InvertedValue;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 import com.ctre.phoenix6.signals.SensorDirectionValue;
+import com.revrobotics.CANSparkBase.IdleMode;
 
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
@@ -15,6 +17,7 @@ import edu.wpi.first.math.trajectory.TrapezoidProfile;
 import edu.wpi.first.math.util.Units;
 import frc.lib.util.COTSTalonFXSwerveConstants;
 import frc.lib.util.PIDGains;
+import frc.lib.util.SparkMaxProfile;
 import frc.lib.util.SwerveModuleConstants;
 
 public final class Constants {
@@ -51,6 +54,7 @@ public final class Constants {
     public static final double kpivotSpeakerPos = 13000;
     public static final double kpivotAmpPos = 53000; //54700;
     public static final double kPivotClimbPos = 53000;
+    public static final double kPivotHangPos = 50000; // Arm position held after pulling onto the chain
 
     /* Conversion Factors */
     public static final int neoEncoderCountsPerRev = 42;
@@ -58,10 +62,13 @@ public final class Constants {
     public static final double kPositionFactor = kArmGearRatio * 2.0 * Math.PI; //multiply SM value by this number and get arm position in radians
     public static final double kVelocityFactor = kArmGearRatio * 2.0 * Math.PI / 60.0;
     public static final double kArmFreeSpeed = 5676.0 * kVelocityFactor;
+    public static final int kShooterEncoderCountsPerRev = 4096; //TODO: Needs an encoder on shooter B's data port
+    public static final boolean kShooterEncoderInstalled = false; // Shooter SysId is only offered once it is
 
     /* Set Outputs */
     public static final double kArmDefaultOutput = 0.35;
     public static final double kIndexorDefaultOutput = 1;
+    public static final double kIndexorReverseOutput = -0.4;
     public static final double kShooterDefaultOutput = 1;
     public static final double kShooterAmpOutput = 0.4;
 
@@ -75,6 +82,16 @@ public final class Constants {
     public static final double[] TargetDistanceArray = {
         4, 5, 6
     };
+
+    /* Pivot Spark Max Configurations */
+    public static final SparkMaxProfile kPivotAProfile = new SparkMaxProfile(
+        true, IdleMode.kBrake, kPivotCurrentLimit, PowerProfile.kCompensationVoltage,
+        false, kPivotSoftLiimitFwd, true, kPivotSoftLimitRvs,
+        kPositionFactor, 1.0, kArmPositionGains);
+    public static final SparkMaxProfile kPivotBProfile = new SparkMaxProfile(
+        false, IdleMode.kBrake, kPivotCurrentLimit, PowerProfile.kCompensationVoltage,
+        false, kPivotSoftLiimitFwd, true, kPivotSoftLimitRvs,
+        1.0, kVelocityFactor, kArmPositionGains);
   }
 
   public static class IntakeProfile {
@@ -110,6 +127,164 @@ public final class Constants {
     /* Set Outputs */
     public static final double kOuterDefaultOutput = 1;
     public static final double kInnerDefaultOutput = 0.8;
+
+    /* Wrist Spark Max Configuration */
+    public static final SparkMaxProfile kWristProfile = new SparkMaxProfile(
+        false, IdleMode.kBrake, kWristCurrentLimit, PowerProfile.kCompensationVoltage,
+        true, kDeployedPos, true, kInitialPos,
+        kPositionFactor, kVelocityFactor, kWristPositionGains);
+  }
+
+  public static class StartupProfile {
+    /* Devices Configured At The Same Time */
+    public static final int kInitThreads = 6;
+
+    /* Time One Configuration Attempt May Take (Seconds) and Extra Attempts */
+    public static final double kDeviceTimeout = 3.0;
+    public static final int kDeviceRetries = 2;
+  }
+
+  public static class FlightRecorderProfile {
+    /* Test Mode Starts A JDK Flight Recorder Recording, Disabling Writes It Out */
+    public static final boolean kRecordInTestMode = true;
+
+    /* Recording Limits (Seconds, Bytes) */
+    public static final double kMaxAge = 600.0;
+    public static final long kMaxSize = 64L * 1024 * 1024;
+
+    /* Directory For .jfr Files, Relative To The Operating Directory (/home/lvuser On The Robot) */
+    public static final String kRecordingDirectory = "jfr";
+  }
+
+  public static class SchedulerProfile {
+    /* Rate Tier Periods (Seconds), The Normal Tier Is The Main 20 ms Robot Loop */
+    public static final double kFastPeriod = 0.01;
+    public static final double kSlowPeriod = 0.1;
+
+    /* Time One Run Of Each Tier May Take (Seconds) */
+    public static final double kFastBudget = 0.003;
+    public static final double kNormalBudget = 0.012;
+    public static final double kSlowBudget = 0.005;
+
+    /* Drive And Steer Position Signals Are Sent Fast Enough For Odometry In The Fast Tier (Hz) */
+    public static final double kOdometrySignalFrequency = 1.0 / kFastPeriod;
+
+    /* GC Pauses Waiting To Be Logged Between Slow Tier Runs */
+    public static final int kGcEventBuffer = 64;
+  }
+
+  public static class PowerProfile { //TODO: Battery model and minimum limits must be checked against match logs
+    /* Power Distribution Hub CAN Id */
+    public static final int kPDHID = 1;
+
+    /* Off Until The Model Is Checked: The Budget Is Worked Out And Published, But No Limit Is Sent
+     * The Shooter, Indexor And Roller Talons Also Keep The Limits They Had Before The Budget (None Enabled) */
+    public static final boolean kApplyCurrentBudget = false;
+
+    /* Mechanism Outputs Are Fractions Of This Voltage Instead Of The Battery Voltage (Volts)
+     * Same As Nominal So Existing Outputs Keep Their Meaning. Outputs Still Saturate Once The Battery Sags Below It,
+     * So Arm Times And Shooter Speeds Are Only Consistent Down To 12 V */
+    public static final double kCompensationVoltage = 12.0; //TODO: Recheck shot positions and timed auto outputs after changing
+
+    /* Most Current The Whole Robot May Draw (Amps), And The Voltage The Battery Must Stay Above While Supplying It (Volts) */
+    public static final double kMaxTotalCurrent = 300.0;
+    public static final double kMinVoltage = 8.0;
+
+    /* Starting Battery Model, Refined From PDH Readings: Open Circuit Voltage (Volts), Resistance With Wiring (Ohms) */
+    public static final double kBatteryVoltage = 12.5;
+    public static final double kBatteryResistance = 0.02;
+    public static final double kBatteryForgettingFactor = 0.999;
+
+    /* Non Critical Loads Are Shed Below kShedVoltage, And Restored After kRestoreDelay Above kRestoreVoltage (Volts, Seconds) */
+    public static final double kShedVoltage = 9.0;
+    public static final double kRestoreVoltage = 10.5;
+    public static final double kRestoreDelay = 1.0;
+
+    /* Allowance Above A Load's Measured Current, And The Step Limits Are Rounded To (Amps) */
+    public static final double kHeadroom = 10.0;
+    public static final double kLimitStep = 5.0;
+
+    /* Priorities, Lower Is Served First. The Shooter Spinning Up Comes Before Drive Acceleration */
+    public static final int kMechanismPriority = 0;
+    public static final int kShooterPriority = 1;
+    public static final int kClimberPriority = 2;
+    public static final int kDrivePriority = 3;
+    public static final int kIndexorPriority = 4;
+    public static final int kRollerPriority = 5;
+
+    /* Per Device Limits (Amps), The Full Limits Are The Static Ones In Each Profile */
+    public static final double kShooterMaxCurrentLimit = 40.0;
+    public static final double kShooterMinCurrentLimit = 20.0;
+    public static final double kClimberMinCurrentLimit = 20.0;
+    public static final double kDriveMinCurrentLimit = 20.0;
+    public static final double kIndexorMaxCurrentLimit = 30.0;
+    public static final double kIndexorMinCurrentLimit = 10.0;
+    public static final double kRollerMinCurrentLimit = 10.0;
+    public static final double kRollerShedCurrentLimit = 5.0;
+  }
+
+  public static class NoteDetectorProfile {
+    /* Ring Buffer Size (One Sample Per Scheduler Run) */
+    public static final int kSampleWindow = 16;
+
+    /* Samples Averaged For The No-Note Baseline */
+    public static final int kBaselineSamples = 6;
+
+    /* Ignore The Indexor Inrush Current After It Starts (Seconds) */
+    public static final double kSpinUpBlankingTime = 0.15;
+
+    /* Current Rise Over Baseline That Marks A Note (Amps) */
+    public static final double kIndexorSpikeDelta = 2.5;
+    public static final double kRollerSpikeDelta = 3.0;
+    public static final double kIndexorMinimumCurrent = 4.0;
+
+    /* Consecutive Samples Above Threshold Required To Accept A Detection */
+    public static final int kDebounceSamples = 3;
+  }
+
+  public static class SuperstructureProfile { //TODO: Envelope and speeds must be measured on the robot
+    /* Collision Envelope (Encoder Counts) */
+    public static final double kArmFreeZoneMax = 2500; // Arm at or below this never reaches the wrist
+    public static final double kWristClearPos = 6500; // Wrist at or beyond this is clear of the arm
+
+    /* Margin Added To The Predicted Wrist Position Before Letting The Arm Leave Its Free Zone */
+    public static final double kWristClearMargin = 500;
+
+    /* How Far Ahead (Seconds) The Per Cycle Interlock Looks */
+    public static final double kInterlockLookahead = 0.06;
+
+    /* Approximate Joint Speeds (Counts Per Second) */
+    public static final double kArmSpeedEstimate = 22000;
+    public static final double kWristSpeedEstimate = 25000;
+
+    /* Minimum Time (Seconds) The Shooter Runs Before The Indexor Fires */
+    public static final double kShooterSpinUpTime = 0.5;
+
+    /* Time (Seconds) A Timed Auto Shot Keeps Firing Before The Note Counts As Gone */
+    public static final double kNoteExitTime = 0.5;
+  }
+
+  public static class SysIdProfile {
+    /* Quasistatic Ramp Rate (Volts Per Second), Dynamic Step (Volts) And Timeout (Seconds) For Each Routine */
+    public static final double kDriveRampRate = 1.0;
+    public static final double kDriveStepVoltage = 7.0;
+    public static final double kDriveTimeout = 10.0;
+
+    public static final double kSteerRampRate = 1.0;
+    public static final double kSteerStepVoltage = 4.0;
+    public static final double kSteerTimeout = 10.0;
+
+    public static final double kArmRampRate = 0.5;
+    public static final double kArmStepVoltage = 2.0;
+    public static final double kArmTimeout = 4.0;
+
+    public static final double kShooterRampRate = 1.0;
+    public static final double kShooterStepVoltage = 7.0;
+    public static final double kShooterTimeout = 10.0;
+
+    /* Arm Routines Stop Before These Positions (Encoder Counts) */
+    public static final double kArmMinPos = 2000;
+    public static final double kArmMaxPos = 50000;
   }
 
   public static class ClimberProfile {
@@ -171,6 +346,91 @@ public final class Constants {
     public static final int visionProcessorEntry = 0;
     public static final int driverCameraEntry = 1;
     public static final int alignWindow = 2;
+
+    /* Field Pose From botpose_wpiblue: Frames Need At Least This Many Tags, Trust In Meters And Radians */
+    public static final int kMinPoseTags = 1;
+    public static final double kPoseTranslationStdDev = 0.7;
+    public static final double kPoseHeadingStdDev = 2.0;
+
+    /* 25 Tap Low Pass FIR Gains For The Limelight Angles */
+    public static final double[] kFilterGains = {
+      0.0008171388625648901,
+      0.0025796090816614394,
+      0.004245625441810102,
+      0.0028920364306526743,
+      -0.004485549864848663,
+      -0.017206206747234075,
+      -0.027692599432802778,
+      -0.022583572720391073,
+      0.01028905933557547,
+      0.07228314186855418,
+      0.14849473849283668,
+      0.21195572576869964,
+      0.23668096456728935,
+      0.21195572576869964,
+      0.14849473849283668,
+      0.07228314186855418,
+      0.01028905933557547,
+      -0.022583572720391073,
+      -0.027692599432802778,
+      -0.017206206747234075,
+      -0.004485549864848663,
+      0.0028920364306526743,
+      0.004245625441810102,
+      0.0025796090816614394,
+      0.0008171388625648901
+    };
+  }
+
+  public static class AlignProfile { //TODO: Gains must be tuned on the robot
+    /* Set Once The Gains Below Are Tuned, Until Then Alignment Turns At A Fixed Rate On The Filtered tx */
+    public static final boolean kGainsTuned = false;
+    public static final double kFixedRate = 0.5; // Radians Per Second
+
+    /* Heading Controller */
+    public static final double kP = 5.0;
+    public static final double kD = 0.3;
+    public static final double kMaxVelocity = Math.PI; // Radians Per Second
+    public static final double kMaxAcceleration = 4 * Math.PI; // Radians Per Second Squared
+
+    /* Aligned Once Within This Error (Degrees) And Below This Yaw Rate (Degrees Per Second) */
+    public static final double kAlignedTolerance = 1.0;
+    public static final double kAlignedRateTolerance = 5.0;
+
+    /* Yaw Samples Kept For Latency Compensation, One Per Fast Tier Run (About 0.5 s) */
+    public static final int kYawHistorySize = 50;
+  }
+
+  public static class FieldProfile { //TODO: Scoring poses must be checked on the field
+    /* Set Once Every Pose Below Has Been Driven To And Checked, Drive To Target Is Not Bound Until Then */
+    public static final boolean kScoringPosesVerified = false;
+
+    /* Field Length (Meters), Red Poses Are Mirrored Across It */
+    public static final double kFieldLength = 16.54;
+
+    /* Blue Alliance Robot Poses For Each Target (Meters, Robot Facing) */
+    public static final Pose2d kSpeakerScoringPose = new Pose2d(1.35, 5.55, Rotation2d.fromDegrees(180));
+    public static final Pose2d kAmpScoringPose = new Pose2d(1.84, 7.60, Rotation2d.fromDegrees(90));
+    public static final Pose2d kSourcePose = new Pose2d(15.40, 1.00, Rotation2d.fromDegrees(-60));
+  }
+
+  public static class PathProfile {
+    /* Field Obstacle Description In The Deploy Directory */
+    public static final String kNavGridFile = "navgrid.json";
+    /* How Far The Robot's Center Stays From Obstacles And Walls (Meters), Half The Bumper Diagonal Plus Margin */
+    public static final double kRobotRadius = 0.45;
+
+    /* On The Fly Path Constraints */
+    public static final double kMaxSpeed = 3.0; // Meters Per Second
+    public static final double kMaxAcceleration = 2.0; // Meters Per Second Squared
+
+    /* Below This Speed (Meters Per Second) A Path Starts Pointed At Its Target Instead Of Along The Robot's Velocity */
+    public static final double kMovingSpeed = 0.2;
+
+    /* A Cached Path Is Reused When The New Start Is This Close To The Cached One */
+    public static final double kCacheTranslationTolerance = 0.15; // Meters
+    public static final double kCacheHeadingTolerance = Math.toRadians(10);
+    public static final double kCacheSpeedTolerance = 0.3; // Meters Per Second
   }
 
   public static final class SwerveProfile {
@@ -191,6 +451,10 @@ public final class Constants {
             new Translation2d(-wheelBase / 2.0, trackWidth / 2.0),
             new Translation2d(-wheelBase / 2.0, -trackWidth / 2.0));
 
+        /* Module Positions As Plain Arrays, In The Same Order As swerveKinematics (Meters) */
+        public static final double[] moduleX = {wheelBase / 2.0, wheelBase / 2.0, -wheelBase / 2.0, -wheelBase / 2.0};
+        public static final double[] moduleY = {trackWidth / 2.0, -trackWidth / 2.0, trackWidth / 2.0, -trackWidth / 2.0};
+
         /* Module Gear Ratios */
         public static final double driveGearRatio = chosenModule.driveGearRatio;
         public static final double angleGearRatio = chosenModule.angleGearRatio;
@@ -233,6 +497,21 @@ public final class Constants {
         public static final double driveKS = 0; //TODO: This must be configured
         public static final double driveKV = 0;
         public static final double driveKA = 0;
+        /** Gains fitted by ./gradlew fitGains replace the values above when this file is deployed */
+        public static final String driveGainsFile = "gains/swerve-drive.json";
+
+        /* Online Drive Feedforward Estimation, Starts From The Gains Above */
+        public static final boolean driveFFLocked = true; // Until the gains above are fitted, can also be unlocked from the dashboard
+        public static final double driveFFForgettingFactor = 0.995; // About 4 seconds of driving at 50 Hz
+        public static final double driveFFInitialCovariance = 1.0;
+        public static final double driveFFMaxCovarianceTrace = 100.0;
+        public static final double driveFFMinVelocity = 0.1; // Meters per Second
+        public static final double driveFFMaxAcceleration = 8.0; // Meters per Second Squared, faster is wheel slip
+        public static final double driveFFMaxVoltage = 11.0;
+        /* kS, kV, kA Bounds And Fastest Change (Per Second) */
+        public static final double[] driveFFMin = {0.0, 1.0, 0.0}; //TODO: Check against the offline fit
+        public static final double[] driveFFMax = {0.6, 4.0, 1.0};
+        public static final double[] driveFFMaxRate = {0.02, 0.05, 0.02};
 
         /* Swerve Profiling Values */
         /** Meters per Second */
@@ -330,5 +609,19 @@ public final class Constants {
         public static final TrapezoidProfile.Constraints kThetaControllerConstraints =
             new TrapezoidProfile.Constraints(
                 kMaxAngularSpeedRadiansPerSecond, kMaxAngularSpeedRadiansPerSecondSquared);
+
+        /* Warm up the selected auto's hot paths while disabled so they are JIT compiled before autonomousInit
+         * Turn this off to measure the cold first cycle latency for comparison */
+        public static final boolean kWarmUpAutoWhileDisabled = true;
+        public static final int kWarmupIterationsPerLoop = 100;
+        public static final int kWarmupTotalIterations = 20000; // Comfortably past the C2 compile threshold
+
+        /* Number of auto loops timed after autonomousInit */
+        public static final int kFirstCyclesMeasured = 10;
+
+        /* Trajectory Follower: How Far Ahead (Seconds) Velocity Feedforward Is Taken Along The Path */
+        public static final double kFeedforwardLead = 0.02;
+        /* Measure how much the follower allocates per loop (needs a HotSpot JVM) */
+        public static final boolean kMeasureFollowerAllocations = true;
     }
 }
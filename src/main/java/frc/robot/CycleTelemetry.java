@@ -0,0 +1,145 @@
+package frc.robot;
+
+import java.util.Arrays;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.lib.util.RobotClock;
+
+/**
+ * Records when each stage of an intake-to-shot cycle happens and keeps per-match statistics
+ * (mean and 90th percentile time from the start of the cycle to each stage).
+ * A cycle starts when the intake deploys and completes when the arm is reset after firing.
+ */
+public final class CycleTelemetry {
+    public enum Stage {
+        INTAKE_DEPLOY_START("Intake Deploy Start", null),
+        INTAKE_PLUS_ENABLED("Intake++ Enabled", null),
+        NOTE_DETECTED("Note Detected", null),
+        WRIST_RETRACTED("Wrist Retracted", NOTE_DETECTED),
+        ARM_AT_SCORING_POS("Arm At Scoring Pos", null),
+        INDEXER_FIRE("Indexer Fire", null),
+        ARM_RESET("Arm Reset", INDEXER_FIRE);
+
+        public final String label;
+        /* Stage that has to be recorded first, so e.g. the stowed arm at the start of a cycle is not counted as reset */
+        public final Stage prerequisite;
+
+        Stage(String label, Stage prerequisite) {
+            this.label = label;
+            this.prerequisite = prerequisite;
+        }
+    }
+
+    private static final int kMaxCycles = 64;
+    private static final Stage[] stages = Stage.values();
+
+    private static double cycleStartTime = 0;
+    private static boolean cycleActive = false;
+    private static final double[] stageTimes = new double[stages.length];
+
+    private static final double[][] stageHistory = new double[stages.length][kMaxCycles];
+    private static final int[] stageHistoryCount = new int[stages.length];
+    private static final double[] sortScratch = new double[kMaxCycles];
+    private static int completedCycles = 0;
+
+    private CycleTelemetry() {}
+
+    /**
+     * Starts timing a new cycle. A cycle that already has a note is kept, so shooting a note that was
+     * just intaken continues the same cycle while shooting a preload starts a new one.
+     */
+    public static void startCycle() {
+        if (cycleActive && !Double.isNaN(stageTimes[Stage.NOTE_DETECTED.ordinal()])) {
+            return;
+        }
+        cycleActive = true;
+        cycleStartTime = RobotClock.now();
+        Arrays.fill(stageTimes, Double.NaN);
+        stageTimes[Stage.INTAKE_DEPLOY_START.ordinal()] = 0;
+    }
+
+    public static void mark(Stage stage) {
+        mark(stage, RobotClock.now());
+    }
+
+    /** Records the first time a stage is reached in the current cycle. Ignored when no cycle is running. */
+    public static void mark(Stage stage, double timestamp) {
+        if (!cycleActive || !Double.isNaN(stageTimes[stage.ordinal()])) {
+            return;
+        }
+        if (stage.prerequisite != null && Double.isNaN(stageTimes[stage.prerequisite.ordinal()])) {
+            return;
+        }
+        stageTimes[stage.ordinal()] = Math.max(0, timestamp - cycleStartTime);
+
+        if (stage == Stage.ARM_RESET) {
+            completeCycle();
+        }
+    }
+
+    /**
+     * Marks the arm reaching its scoring position and the indexer firing, for code that polls the arm while
+     * scoring instead of knowing exactly when each happens.
+     */
+    public static void recordScoringStages(boolean armAtScoringPos, boolean indexerRunning) {
+        if (armAtScoringPos) {
+            mark(Stage.ARM_AT_SCORING_POS);
+        }
+        if (indexerRunning) {
+            mark(Stage.INDEXER_FIRE);
+        }
+    }
+
+    private static void completeCycle() {
+        cycleActive = false;
+        completedCycles++;
+
+        StringBuilder summary = new StringBuilder("Cycle ").append(completedCycles).append(':');
+        for (Stage stage : stages) {
+            double time = stageTimes[stage.ordinal()];
+            if (Double.isNaN(time)) {
+                continue;
+            }
+            int count = stageHistoryCount[stage.ordinal()];
+            if (count < kMaxCycles) {
+                stageHistory[stage.ordinal()][count] = time;
+                stageHistoryCount[stage.ordinal()] = count + 1;
+            }
+            summary.append(' ').append(stage.label).append('=').append(String.format("%.3f", time));
+        }
+        DataLogManager.log(summary.toString());
+        publish();
+    }
+
+    private static void publish() {
+        SmartDashboard.putNumber("Cycle/Completed Cycles", completedCycles);
+        SmartDashboard.putNumber("Cycle/Last Cycle Time", stageTimes[Stage.ARM_RESET.ordinal()]);
+        for (Stage stage : stages) {
+            int count = stageHistoryCount[stage.ordinal()];
+            if (count == 0) {
+                continue;
+            }
+            System.arraycopy(stageHistory[stage.ordinal()], 0, sortScratch, 0, count);
+            Arrays.sort(sortScratch, 0, count);
+
+            double sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += sortScratch[i];
+            }
+            int p90Index = Math.max(0, (int) Math.ceil(0.9 * count) - 1);
+
+            SmartDashboard.putNumber("Cycle/" + stage.label + " Mean", sum / count);
+            SmartDashboard.putNumber("Cycle/" + stage.label + " P90", sortScratch[p90Index]);
+        }
+    }
+
+    /** Clears all statistics, called at the start of each match. */
+    public static void reset() {
+        cycleActive = false;
+        completedCycles = 0;
+        Arrays.fill(stageHistoryCount, 0);
+        Arrays.fill(stageTimes, Double.NaN);
+        SmartDashboard.putNumber("Cycle/Completed Cycles", 0);
+    }
+}
@@ -0,0 +1,42 @@
+package frc.robot;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import frc.robot.Constants.FieldProfile;
+
+/**
+ * Named places on the field the robot can drive itself to.
+ * Poses are stored for the blue alliance and mirrored across the field when on red.
+ */
+public enum FieldTarget {
+    SPEAKER(FieldProfile.kSpeakerScoringPose),
+    AMP(FieldProfile.kAmpScoringPose),
+    SOURCE(FieldProfile.kSourcePose);
+
+    private final Pose2d bluePose;
+    private final Pose2d redPose;
+
+    FieldTarget(Pose2d bluePose) {
+        this.bluePose = bluePose;
+        redPose = new Pose2d(
+            FieldProfile.kFieldLength - bluePose.getX(),
+            bluePose.getY(),
+            new Rotation2d(Math.PI - bluePose.getRotation().getRadians()));
+    }
+
+    public Pose2d getBluePose() {
+        return bluePose;
+    }
+
+    public Pose2d getRedPose() {
+        return redPose;
+    }
+
+    /** Robot pose for this target on the current alliance, blue if the alliance is not known yet. */
+    public Pose2d getPose() {
+        boolean isRed = DriverStation.getAlliance().map(alliance -> alliance == Alliance.Red).orElse(false);
+        return isRed ? redPose : bluePose;
+    }
+}
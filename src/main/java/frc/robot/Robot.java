@@ -4,9 +4,21 @@
 
 package frc.robot;
 
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.lib.util.JvmMonitor;
+import frc.lib.util.MultiRateScheduler;
+import frc.lib.util.MultiRateScheduler.RateTier;
+import frc.lib.util.RobotClock;
+import frc.lib.util.RobotEvents;
+import frc.lib.util.WriteCache;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.FlightRecorderProfile;
+import frc.robot.Constants.SchedulerProfile;
 
 /**
  * The VM is configured to automatically run this class, and to call the functions corresponding to
@@ -22,6 +34,13 @@ public class Robot extends TimedRobot {
   private Command m_teleOpCommandInitialization;
 
   private RobotContainer m_robotContainer;
+  private MultiRateScheduler m_rateScheduler;
+  private JvmMonitor m_jvmMonitor;
+
+  /* First auto cycle latency */
+  private int m_autoCyclesMeasured = AutoConstants.kFirstCyclesMeasured;
+  private double m_autoInitTime;
+  private double m_maxAutoCycleTime;
 
   /**
    * This function is run when the robot is first started up and should be used for any
@@ -30,9 +49,30 @@ public class Robot extends TimedRobot {
   @Override
   public void robotInit() {
     fxConfigs = new FXConfigs();
-    // Instantiate our RobotContainer.  This will perform all our button bindings, and put our
-    // autonomous chooser on the dashboard.
-    m_robotContainer = new RobotContainer();
+    m_rateScheduler = new MultiRateScheduler(this,
+        SchedulerProfile.kFastPeriod, SchedulerProfile.kFastBudget,
+        SchedulerProfile.kNormalBudget,
+        SchedulerProfile.kSlowPeriod, SchedulerProfile.kSlowBudget);
+
+    // Tells GC and JIT apart from our own code when a tier overruns
+    m_jvmMonitor = new JvmMonitor(SchedulerProfile.kGcEventBuffer);
+    m_rateScheduler.setRunListener(m_jvmMonitor);
+    m_rateScheduler.register(RateTier.SLOW, "JVM Monitor", m_jvmMonitor::update);
+
+    // Runs the Scheduler.  This is responsible for polling buttons, adding newly-scheduled
+    // commands, running already-scheduled commands, removing finished or interrupted commands,
+    // and running subsystem periodic() methods.  It runs first in the normal tier, which is
+    // run from robotPeriodic, in order for anything in the Command-based framework to work.
+    m_rateScheduler.register(RateTier.NORMAL, "Command Scheduler", CommandScheduler.getInstance()::run);
+    RobotEvents.installCommandHooks(CommandScheduler.getInstance());
+    m_rateScheduler.register(RateTier.SLOW, "CAN Write Telemetry", () -> {
+      SmartDashboard.putNumber("CAN Writes Skipped", WriteCache.getSkippedWrites());
+      SmartDashboard.putNumber("CAN Writes Sent", WriteCache.getSentWrites());
+    });
+
+    // Instantiate our RobotContainer.  This will perform all our button bindings, put our
+    // autonomous chooser on the dashboard, and register subsystem work at its rate tier.
+    m_robotContainer = new RobotContainer(m_rateScheduler);
   }
 
   /**
@@ -44,16 +84,36 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void robotPeriodic() {
-    // Runs the Scheduler.  This is responsible for polling buttons, adding newly-scheduled
-    // commands, running already-scheduled commands, removing finished or interrupted commands,
-    // and running subsystem periodic() methods.  This must be called from the robot's periodic
-    // block in order for anything in the Command-based framework to work.
-    CommandScheduler.getInstance().run();
+    // Runs the command scheduler and the rest of the 50 Hz work, the fast and slow tiers run on their own
+    double startTime = RobotClock.now();
+    RobotEvents.beginCycle();
+    m_rateScheduler.runNormalTier();
+    RobotEvents.endCycle();
+    if (m_autoCyclesMeasured < AutoConstants.kFirstCyclesMeasured) {
+      recordAutoCycle(RobotClock.since(startTime));
+    }
+  }
+
+  private void recordAutoCycle(double cycleTime) {
+    if (m_autoCyclesMeasured == 0) {
+      SmartDashboard.putNumber("Auto/First Cycle (ms)", cycleTime * 1000.0);
+    }
+    m_maxAutoCycleTime = Math.max(m_maxAutoCycleTime, cycleTime);
+    m_autoCyclesMeasured++;
+    if (m_autoCyclesMeasured == AutoConstants.kFirstCyclesMeasured) {
+      SmartDashboard.putNumber("Auto/Max Of First Cycles (ms)", m_maxAutoCycleTime * 1000.0);
+      DataLogManager.log(String.format("[Auto] autonomousInit %.2f ms, slowest of first %d cycles %.2f ms (warm up %s)",
+          m_autoInitTime * 1000.0, AutoConstants.kFirstCyclesMeasured, m_maxAutoCycleTime * 1000.0,
+          AutoConstants.kWarmUpAutoWhileDisabled ? "on" : "off"));
+    }
   }
 
   /** This function is called once each time the robot enters Disabled mode. */
   @Override
   public void disabledInit() {
+    // Writes out the Flight Recorder recording started in test mode, if there is one
+    RobotEvents.dumpRecording(Filesystem.getOperatingDirectory().toPath().resolve(FlightRecorderProfile.kRecordingDirectory));
+
     if (m_teleOpCommandInitialization != null){
       m_teleOpCommandInitialization.cancel();
       m_teleOpCommandInitialization = null;
@@ -66,17 +126,30 @@ public class Robot extends TimedRobot {
   }
 
   @Override
-  public void disabledPeriodic() {}
+  public void disabledPeriodic() {
+    m_robotContainer.prepareAutonomous();
+  }
 
   /** This autonomous runs the autonomous command selected by your {@link RobotContainer} class. */
   @Override
   public void autonomousInit() {
+    double startTime = RobotClock.now();
+    // Cycle statistics are kept per match
+    CycleTelemetry.reset();
+    m_jvmMonitor.reset();
+    m_robotContainer.getCurrentBudget().reset();
+
     m_autonomousCommand = m_robotContainer.getAutonomousCommand();
 
     // schedule the autonomous command (example)
     if (m_autonomousCommand != null) {
       m_autonomousCommand.schedule();
     }
+
+    m_autoInitTime = RobotClock.since(startTime);
+    SmartDashboard.putNumber("Auto/Init (ms)", m_autoInitTime * 1000.0);
+    m_autoCyclesMeasured = 0;
+    m_maxAutoCycleTime = 0;
   }
 
   /** This function is called periodically during autonomous. */
@@ -112,6 +185,16 @@ public class Robot extends TimedRobot {
   public void testInit() {
     // Cancels all running commands at the start of test mode.
     CommandScheduler.getInstance().cancelAll();
+
+    if (FlightRecorderProfile.kRecordInTestMode) {
+      RobotEvents.startRecording(FlightRecorderProfile.kMaxAge, FlightRecorderProfile.kMaxSize);
+    }
+
+    // Runs the SysId routine picked on the dashboard, disabling stops it
+    Command sysIdCommand = m_robotContainer.getSysIdCommand();
+    if (sysIdCommand != null) {
+      sysIdCommand.schedule();
+    }
   }
 
   /** This function is called periodically during test mode. */
@@ -4,37 +4,66 @@
 
 package frc.robot;
 
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.GenericHID;
 import edu.wpi.first.wpilibj.Joystick;
+import edu.wpi.first.wpilibj.PowerDistribution;
+import edu.wpi.first.wpilibj.PowerDistribution.ModuleType;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.button.JoystickButton;
+import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine.Direction;
+import frc.lib.math.GridPlanner;
+import frc.lib.math.NavGrid;
+import frc.lib.util.CurrentBudget;
+import frc.lib.util.MultiRateScheduler;
+import frc.lib.util.MultiRateScheduler.RateTier;
+import frc.lib.util.PathService;
+import frc.lib.util.StartupInitializer;
 import frc.robot.Constants.ArmProfile;
+import frc.robot.Constants.AutoConstants;
 import frc.robot.Constants.ClimberProfile;
 import frc.robot.Constants.ControllerProfile;
+import frc.robot.Constants.FieldProfile;
 import frc.robot.Constants.IntakeProfile;
+import frc.robot.Constants.PathProfile;
+import frc.robot.Constants.PowerProfile;
+import frc.robot.Constants.StartupProfile;
+import frc.robot.Constants.SwerveProfile;
 import frc.robot.RobotStates.SetDisabledState;
 import frc.robot.RobotStates.SetEnabledState;
 import frc.robot.RobotStates.SetTestState;
+import frc.robot.autos.AutoWarmup;
 import frc.robot.autos.BackUp;
 // import frc.robot.TechnitionCommands.ArmControl;
 // import frc.robot.TechnitionCommands.WristControl;
 import frc.robot.autos.DefaultAuto;
 import frc.robot.autos.RDefault;
 import frc.robot.autos.TimedIntakeNote;
+import frc.robot.commands.AlignToSpeaker;
 import frc.robot.commands.ClimbChain;
+import frc.robot.commands.DriveToTarget;
 import frc.robot.commands.DumpNote;
 import frc.robot.commands.IntakeNote;
+import frc.robot.commands.ReverseNote;
 import frc.robot.commands.RunClimbersToFirstState;
+import frc.robot.commands.RunManualOutputs;
 import frc.robot.commands.ShootNote;
 import frc.robot.commands.TeleopSwerve;
 import frc.robot.subsystems.Arm;
 import frc.robot.subsystems.Climber;
 import frc.robot.subsystems.Intake;
 import frc.robot.subsystems.Lighting;
+import frc.robot.subsystems.NoteDetector;
+import frc.robot.subsystems.Superstructure;
 import frc.robot.subsystems.Swerve;
 import frc.robot.subsystems.Vision;
 
@@ -65,8 +94,9 @@ public class RobotContainer {
     // private final int armAxis = XboxController.Axis.kLeftY.value;
 
     /* Sendable Choosers */
-    SendableChooser<Command> m_AutoChooser = new SendableChooser<>();
+    SendableChooser<Supplier<Command>> m_AutoChooser = new SendableChooser<>();
     SendableChooser<Command> m_TeleOpInitChooser = new SendableChooser<>();
+    SendableChooser<Command> m_SysIdChooser = new SendableChooser<>();
 
     /* Subsystems */
     private final Swerve s_Swerve = new Swerve();
@@ -75,12 +105,46 @@ public class RobotContainer {
     private final Vision s_Vision = new Vision();
     private final Climber s_Climber = new Climber();
     private final Lighting s_Lighting = new Lighting();
+    private final NoteDetector s_NoteDetector = new NoteDetector(s_Arm, s_Intake);
+    private final Superstructure s_Superstructure = new Superstructure(s_Arm, s_Intake, s_NoteDetector, s_Lighting);
+
+    /* Generates on the fly paths off the main thread */
+    private final PathService m_pathService = new PathService(
+        createPlanner(),
+        PathProfile.kMaxSpeed, PathProfile.kMaxAcceleration, PathProfile.kMovingSpeed,
+        PathProfile.kCacheTranslationTolerance, PathProfile.kCacheHeadingTolerance, PathProfile.kCacheSpeedTolerance);
+
+    /* Shares the battery's current between the motors by priority */
+    private final CurrentBudget m_currentBudget = new CurrentBudget(
+        new PowerDistribution(PowerProfile.kPDHID, ModuleType.kRev), createBudgetConfig());
+
+    /* Autos are only built once selected */
+    private Supplier<Command> m_builtAutoSupplier;
+    private Command m_builtAuto;
+    private AutoWarmup m_autoWarmup;
 
     /** The container for the robot. Contains subsystems, OI devices, and commands. */
-    public RobotContainer() {
+    public RobotContainer(MultiRateScheduler rateScheduler) {
+        //Configure every device at once instead of one subsystem after another
+        configureDevices();
+
+        //Give each motor group its place in the current budget
+        configureCurrentBudget();
+
+        //Run each subsystem's periodic work at the rate it needs
+        configureRateTiers(rateScheduler);
+
         //Configure the button bindings
         configureButtonBindings();
 
+        //Build the distance fields for every field target in the background
+        if (FieldProfile.kScoringPosesVerified) {
+            for (FieldTarget target : FieldTarget.values()) {
+                m_pathService.precompute(target.getBluePose().getTranslation());
+                m_pathService.precompute(target.getRedPose().getTranslation());
+            }
+        }
+
         s_Swerve.setDefaultCommand(
             new TeleopSwerve(
                 s_Swerve, 
@@ -102,16 +166,121 @@ public class RobotContainer {
         //     s_Arm, 
         //     () -> -technition.getRawAxis(armAxis)));
 
-        /* Chooser for Auton Commands */
-        m_AutoChooser.setDefaultOption("Default Auto", new DefaultAuto(s_Swerve, s_Arm, s_Intake, s_Lighting));
-        m_AutoChooser.addOption("Right Default", new RDefault(s_Swerve, s_Arm, s_Intake, s_Lighting));
-        m_AutoChooser.addOption("BackUp", new BackUp(s_Swerve, s_Arm, s_Intake, s_Lighting));
+        /* Chooser for Auton Commands, each one is built when it is selected */
+        m_AutoChooser.setDefaultOption("Default Auto", () -> new DefaultAuto(s_Swerve, s_Lighting, s_Superstructure));
+        m_AutoChooser.addOption("Right Default", () -> new RDefault(s_Swerve, s_Lighting, s_Superstructure));
+        m_AutoChooser.addOption("BackUp", () -> new BackUp(s_Swerve, s_Arm, s_Intake, s_Lighting));
         SmartDashboard.putData(m_AutoChooser);
 
         // A chooser for TeleOp Initialization Commands
         m_TeleOpInitChooser.setDefaultOption("Match Mode", new SetEnabledState(s_Lighting));
         m_TeleOpInitChooser.addOption("Test mode", new SetTestState(s_Lighting));
         SmartDashboard.putData(m_TeleOpInitChooser);
+
+        // A chooser for the SysId routine run when Test mode is enabled
+        configureSysIdChooser();
+    }
+
+    private void configureSysIdChooser() {
+        m_SysIdChooser.setDefaultOption("None", Commands.none());
+        for (Direction direction : Direction.values()) {
+            String suffix = direction == Direction.kForward ? " Forward" : " Reverse";
+            m_SysIdChooser.addOption("Drive Quasistatic" + suffix, s_Swerve.driveSysIdQuasistatic(direction));
+            m_SysIdChooser.addOption("Drive Dynamic" + suffix, s_Swerve.driveSysIdDynamic(direction));
+            m_SysIdChooser.addOption("Steer Quasistatic" + suffix, s_Swerve.steerSysIdQuasistatic(direction));
+            m_SysIdChooser.addOption("Steer Dynamic" + suffix, s_Swerve.steerSysIdDynamic(direction));
+            m_SysIdChooser.addOption("Arm Quasistatic" + suffix, s_Arm.pivotSysIdQuasistatic(direction));
+            m_SysIdChooser.addOption("Arm Dynamic" + suffix, s_Arm.pivotSysIdDynamic(direction));
+            if (ArmProfile.kShooterEncoderInstalled) { // Without it the shooter log has no position or velocity to fit
+                m_SysIdChooser.addOption("Shooter Quasistatic" + suffix, s_Arm.shooterSysIdQuasistatic(direction));
+                m_SysIdChooser.addOption("Shooter Dynamic" + suffix, s_Arm.shooterSysIdDynamic(direction));
+            }
+        }
+        SmartDashboard.putData("SysId Routine", m_SysIdChooser);
+    }
+
+    private static GridPlanner createPlanner() {
+        try {
+            NavGrid grid = NavGrid.load(Filesystem.getDeployDirectory().toPath().resolve(PathProfile.kNavGridFile), PathProfile.kRobotRadius);
+            return new GridPlanner(grid);
+        } catch (IOException | RuntimeException e) {
+            DataLogManager.log("[PathService] Could not load " + PathProfile.kNavGridFile + ", paths will go straight to their targets: " + e);
+            return null;
+        }
+    }
+
+    private void configureDevices() {
+        StartupInitializer startup = new StartupInitializer(StartupProfile.kInitThreads);
+        startup.mark("Subsystems constructed");
+
+        s_Swerve.configureDevices(startup);
+        startup.submit("Arm", s_Arm::configureDevices, StartupProfile.kDeviceTimeout, StartupProfile.kDeviceRetries);
+        startup.submit("Intake", s_Intake::configureDevices, StartupProfile.kDeviceTimeout, StartupProfile.kDeviceRetries);
+        startup.submit("Climber", s_Climber::configureDevices, StartupProfile.kDeviceTimeout, StartupProfile.kDeviceRetries);
+        startup.submit("Lighting", s_Lighting::configureDevices, StartupProfile.kDeviceTimeout, StartupProfile.kDeviceRetries);
+        startup.awaitAll();
+
+        // Drive encoders were zeroed during configuration, so restart odometry from the new positions
+        s_Swerve.zeroHeading();
+    }
+
+    private static CurrentBudget.Config createBudgetConfig() {
+        CurrentBudget.Config config = new CurrentBudget.Config();
+        config.maxTotalCurrent = PowerProfile.kMaxTotalCurrent;
+        config.minVoltage = PowerProfile.kMinVoltage;
+        config.batteryVoltage = PowerProfile.kBatteryVoltage;
+        config.batteryResistance = PowerProfile.kBatteryResistance;
+        config.batteryForgettingFactor = PowerProfile.kBatteryForgettingFactor;
+        config.shedVoltage = PowerProfile.kShedVoltage;
+        config.restoreVoltage = PowerProfile.kRestoreVoltage;
+        config.restoreDelay = PowerProfile.kRestoreDelay;
+        config.headroom = PowerProfile.kHeadroom;
+        config.limitStep = PowerProfile.kLimitStep;
+        config.applyLimits = PowerProfile.kApplyCurrentBudget;
+        return config;
+    }
+
+    private void configureCurrentBudget() {
+        /* Arm pivot and intake wrist hold position and keep their static limits, the budget sets aside what they draw */
+        m_currentBudget.register("Arm Pivot", PowerProfile.kMechanismPriority, 2,
+            ArmProfile.kPivotCurrentLimit, ArmProfile.kPivotCurrentLimit, s_Arm::getPivotSupplyCurrent, null);
+        m_currentBudget.register("Intake Wrist", PowerProfile.kMechanismPriority, 1,
+            IntakeProfile.kWristCurrentLimit, IntakeProfile.kWristCurrentLimit, s_Intake::getWristSupplyCurrent, null);
+
+        /* A spinning up shooter takes its full limit before the drive gets more than its minimum */
+        m_currentBudget.register("Shooter", PowerProfile.kShooterPriority, 2,
+            PowerProfile.kShooterMinCurrentLimit, PowerProfile.kShooterMaxCurrentLimit, s_Arm::getShooterSupplyCurrent, s_Arm::setShooterCurrentLimit)
+            .withDemand(s_Arm::isShooterRunning);
+        m_currentBudget.register("Climber", PowerProfile.kClimberPriority, 2,
+            PowerProfile.kClimberMinCurrentLimit, ClimberProfile.climberCurrentLimit, s_Climber::getSupplyCurrent, s_Climber::setCurrentLimit);
+        m_currentBudget.register("Swerve Drive", PowerProfile.kDrivePriority, 4,
+            PowerProfile.kDriveMinCurrentLimit, SwerveProfile.driveCurrentLimit, s_Swerve::getDriveSupplyCurrent, s_Swerve::setDriveCurrentLimit);
+
+        /* Rollers are shed first when the voltage sags */
+        m_currentBudget.register("Indexor", PowerProfile.kIndexorPriority, 1,
+            PowerProfile.kIndexorMinCurrentLimit, PowerProfile.kIndexorMaxCurrentLimit, s_Arm::getIndexorCurrent, s_Arm::setIndexorCurrentLimit);
+        m_currentBudget.register("Intake Rollers", PowerProfile.kRollerPriority, 2,
+            PowerProfile.kRollerMinCurrentLimit, IntakeProfile.kRollerCurrentLimit, s_Intake::getRollerSupplyCurrent, s_Intake::setRollerCurrentLimit)
+            .sheddable(PowerProfile.kRollerShedCurrentLimit);
+    }
+
+    private void configureRateTiers(MultiRateScheduler rateScheduler) {
+        /* Fast: Odometry, Module Control And Arm/Intake Coordination
+         * Commands still run in the normal tier and set a drive request, module control turns it into setpoints
+         * against the heading odometry just updated */
+        rateScheduler.register(RateTier.FAST, "Swerve Odometry", s_Swerve::updateOdometry);
+        rateScheduler.register(RateTier.FAST, "Swerve Module Control", s_Swerve::updateModuleControl);
+        rateScheduler.register(RateTier.FAST, "Superstructure Control", s_Superstructure::updateControl);
+
+        /* Normal: Current Budget (after the commands have set this cycle's outputs) And The Field Pose From AprilTags */
+        rateScheduler.register(RateTier.NORMAL, "Current Budget", m_currentBudget::update);
+        rateScheduler.register(RateTier.NORMAL, "Field Pose", () -> s_Swerve.updateFieldPose(s_Vision));
+
+        /* Slow: Telemetry And Lights */
+        rateScheduler.register(RateTier.SLOW, "Swerve Telemetry", s_Swerve::updateTelemetry);
+        rateScheduler.register(RateTier.SLOW, "Climber Telemetry", s_Climber::updateTelemetry);
+        rateScheduler.register(RateTier.SLOW, "Power Telemetry", m_currentBudget::updateTelemetry);
+        rateScheduler.register(RateTier.SLOW, "Lighting", s_Lighting::updateLighting);
     }
 
     /**
@@ -124,22 +293,29 @@ public class RobotContainer {
         /* Driver Buttons */
         zeroGyro.onTrue(new InstantCommand(() -> s_Swerve.zeroHeading())); // Y = Zero Gryo
         new JoystickButton(driver, XboxController.Button.kB.value)
-        .onTrue(new TimedIntakeNote(s_Intake, s_Arm, s_Lighting, 3));
+        .onTrue(new TimedIntakeNote(s_Superstructure, 3));
+        if (FieldProfile.kScoringPosesVerified) { // Placeholder poses would drive the robot somewhere wrong
+            new JoystickButton(driver, XboxController.Button.kA.value) // A = Drive To Amp
+            .whileTrue(new DriveToTarget(s_Swerve, m_pathService, FieldTarget.AMP));
+            new JoystickButton(driver, XboxController.Button.kX.value) // X = Drive To Speaker
+            .whileTrue(new DriveToTarget(s_Swerve, m_pathService, FieldTarget.SPEAKER));
+        }
+        new JoystickButton(driver, XboxController.Button.kStart.value) // Start = Align To Speaker
+        .whileTrue(new AlignToSpeaker(s_Swerve, s_Vision));
 
         /* Manipulator Buttons */
         new JoystickButton(munipulator, XboxController.Button.kA.value) // A = Intake 
-        .whileTrue(new IntakeNote(s_Intake, s_Arm));
-        new JoystickButton(munipulator, XboxController.Button.kB.value)
-        .onTrue(new InstantCommand(() -> s_Arm.setIndexorOuput(-0.4)))
-        .onFalse(new InstantCommand(() -> s_Arm.setIndexorOuput(0)));
+        .whileTrue(new IntakeNote(s_Superstructure));
+        new JoystickButton(munipulator, XboxController.Button.kB.value) // B = Reverse Indexor
+        .whileTrue(new ReverseNote(s_Superstructure));
         new JoystickButton(munipulator, XboxController.Button.kY.value) // Y = Shoot At Speaker
-        .whileTrue(new ShootNote(s_Swerve, s_Vision, s_Intake, s_Arm, s_Lighting));
+        .whileTrue(new ShootNote(s_Superstructure));
         new JoystickButton(munipulator, XboxController.Button.kX.value) // X = Shoot In Amp
-        .whileTrue(new DumpNote(s_Intake, s_Arm, s_Lighting));
+        .whileTrue(new DumpNote(s_Superstructure));
         new JoystickButton(munipulator, XboxController.Button.kBack.value) // Back = Climbers to First State
-        .whileTrue(new RunClimbersToFirstState(s_Intake, s_Arm, s_Climber)); 
+        .whileTrue(new RunClimbersToFirstState(s_Climber, s_Superstructure)); 
         new JoystickButton(munipulator, XboxController.Button.kStart.value) // Start = Climb Chain
-        .whileTrue(new ClimbChain(s_Climber, s_Arm));
+        .whileTrue(new ClimbChain(s_Climber, s_Superstructure));
         new JoystickButton(munipulator, XboxController.Button.kLeftStick.value) // Down Left Stick = Climber A
         .onTrue(new InstantCommand(() -> s_Climber.setClimberAOutput(ClimberProfile.outputWithRobotLoad)))
         .onFalse(new InstantCommand(() -> s_Climber.setClimberAOutput(0)));
@@ -147,21 +323,15 @@ public class RobotContainer {
         .onTrue(new InstantCommand(() -> s_Climber.setClimberBOutput(ClimberProfile.outputWithRobotLoad)))
         .onFalse(new InstantCommand(() -> s_Climber.setClimberBOutput(0)));
 
-        /* Technition Buttons */
+        /* Technition Buttons, run through the superstructure so they do not fight its states */
         new JoystickButton(technition, XboxController.Button.kA.value) // X = Inner Roller
-        .onTrue(new InstantCommand(() -> s_Intake.setInnerRollerOutput(IntakeProfile.kInnerDefaultOutput)))
-        .onTrue(new InstantCommand(() -> s_Arm.setIndexorOuput(ArmProfile.kIndexorDefaultOutput)))
-        .onFalse(new InstantCommand(() -> s_Intake.setInnerRollerOutput(0)))
-        .onFalse(new InstantCommand(() -> s_Arm.setIndexorOuput(0)));
+        .whileTrue(new RunManualOutputs(s_Superstructure, IntakeProfile.kInnerDefaultOutput, 0, ArmProfile.kIndexorDefaultOutput, 0));
         new JoystickButton(technition, XboxController.Button.kB.value) // B = Outer Roller
-        .onTrue(new InstantCommand(() -> s_Intake.setOuterRollerOutput(IntakeProfile.kOuterDefaultOutput)))
-        .onFalse(new InstantCommand(() -> s_Intake.setOuterRollerOutput(0)));
+        .whileTrue(new RunManualOutputs(s_Superstructure, 0, IntakeProfile.kOuterDefaultOutput, 0, 0));
         new JoystickButton(technition, XboxController.Button.kLeftBumper.value) // LB = Indexor
-        .onTrue(new InstantCommand(() -> s_Arm.setIndexorOuput(ArmProfile.kIndexorDefaultOutput)))
-        .onFalse(new InstantCommand(() -> s_Arm.setIndexorOuput(0)));
+        .whileTrue(new RunManualOutputs(s_Superstructure, 0, 0, ArmProfile.kIndexorDefaultOutput, 0));
         new JoystickButton(technition, XboxController.Button.kRightBumper.value) // RB = Shooter
-        .onTrue(new InstantCommand(() -> s_Arm.setShooterOutput(ArmProfile.kShooterAmpOutput)))
-        .onFalse(new InstantCommand(() -> s_Arm.setShooterOutput(0)));
+        .whileTrue(new RunManualOutputs(s_Superstructure, 0, 0, 0, ArmProfile.kShooterAmpOutput));
         new JoystickButton(technition, XboxController.Button.kY.value) // Y = Climbers
         .onTrue(new InstantCommand(() -> s_Climber.setClimberOutput(ClimberProfile.climberDefaultOutput)))
         .onFalse(new InstantCommand(() -> s_Climber.setClimberOutput(0)));
@@ -173,7 +343,36 @@ public class RobotContainer {
      * @return the command to run in autonomous
      */
     public Command getAutonomousCommand() {
-        return m_AutoChooser.getSelected();
+        Supplier<Command> selected = m_AutoChooser.getSelected();
+        if (selected == null) {
+            return null;
+        }
+        if (selected != m_builtAutoSupplier) {
+            m_builtAuto = selected.get();
+            m_builtAutoSupplier = selected;
+        }
+        return m_builtAuto;
+    }
+
+    /* Current budget shared between the motors, so Robot can start its battery model over each match */
+    public CurrentBudget getCurrentBudget() {
+        return m_currentBudget;
+    }
+
+    /* Called every disabled loop: builds the selected auto ahead of time and warms up its hot paths */
+    public void prepareAutonomous() {
+        getAutonomousCommand();
+        if (AutoConstants.kWarmUpAutoWhileDisabled) {
+            if (m_autoWarmup == null) {
+                m_autoWarmup = new AutoWarmup(s_Swerve);
+            }
+            m_autoWarmup.run();
+        }
+    }
+
+    // SysId routine to run in Test mode
+    public Command getSysIdCommand() {
+        return m_SysIdChooser.getSelected();
     }
 
     // Command to reset robot to initial teleop lightshow/state
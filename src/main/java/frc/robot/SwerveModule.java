@@ -1,74 +1,204 @@
 package frc.robot;
 
+import com.ctre.phoenix6.controls.ControlRequest;
 import com.ctre.phoenix6.controls.DutyCycleOut;
 import com.ctre.phoenix6.controls.PositionVoltage;
 import com.ctre.phoenix6.controls.VelocityVoltage;
+import com.ctre.phoenix6.controls.VoltageOut;
 import com.ctre.phoenix6.hardware.CANcoder;
 import com.ctre.phoenix6.hardware.TalonFX;
 
-import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
 import frc.lib.math.Conversions;
+import frc.lib.math.SwerveMath;
+import frc.lib.util.CachedTalonFX;
+import frc.lib.util.DeviceConfigurator;
+import frc.lib.util.FeedforwardEstimator;
+import frc.lib.util.FeedforwardGains;
+import frc.lib.util.RobotClock;
+import frc.lib.util.RobotEvents;
 import frc.lib.util.SwerveModuleConstants;
+import frc.robot.Constants.SchedulerProfile;
 import frc.robot.Constants.SwerveProfile;
 
 public class SwerveModule {
+    private static final String kMotorDeviceName = "Talon FX";
+
     public int moduleNumber;
     private Rotation2d angleOffset;
 
     private TalonFX mAngleMotor;
-    public TalonFX mDriveMotor;
+    public CachedTalonFX mDriveMotor;
     private CANcoder angleEncoder;
 
-    private final SimpleMotorFeedforward driveFeedForward = new SimpleMotorFeedforward(SwerveProfile.driveKS, SwerveProfile.driveKV, SwerveProfile.driveKA);
+    /* Fitted gains from the deploy directory if there are any, shared by every module */
+    private static final FeedforwardGains driveGains = FeedforwardGains.load(
+        Filesystem.getDeployDirectory().toPath().resolve(SwerveProfile.driveGainsFile),
+        new FeedforwardGains(SwerveProfile.driveKS, SwerveProfile.driveKV, SwerveProfile.driveKA, 0));
+    /* Adjusts the drive feedforward while driving, starting from the gains above */
+    private final FeedforwardEstimator driveFeedForward = new FeedforwardEstimator(driveGains, createEstimatorConfig(), SwerveProfile.driveFFLocked);
 
     /* drive motor control requests */
     private final DutyCycleOut driveDutyCycle = new DutyCycleOut(0);
     private final VelocityVoltage driveVelocity = new VelocityVoltage(0);
+    private final VoltageOut driveVoltage = new VoltageOut(0);
 
     /* angle motor control requests */
     private final PositionVoltage anglePosition = new PositionVoltage(0);
+    private final VoltageOut angleVoltage = new VoltageOut(0);
 
     public SwerveModule(int moduleNumber, SwerveModuleConstants moduleConstants){
         this.moduleNumber = moduleNumber;
         this.angleOffset = moduleConstants.angleOffset;
-        
-        /* Angle Encoder Config */
+
         angleEncoder = new CANcoder(moduleConstants.cancoderID, "canivore1");
-        angleEncoder.getConfigurator().apply(Robot.fxConfigs.swerveCANcoderConfig);
+        mAngleMotor = new TalonFX(moduleConstants.angleMotorID, "canivore1");
+        mDriveMotor = new CachedTalonFX(moduleConstants.driveMotorID, "canivore1");
+    }
+
+    /* Steer and drive configuration are split so they can run at the same time during startup */
+    /* Both return false if any configuration write failed */
+    public boolean configureSteer(){
+        /* Angle Encoder Config */
+        boolean encoderOk = DeviceConfigurator.configureCANcoder("Mod " + moduleNumber + " CANcoder", angleEncoder, Robot.fxConfigs.swerveCANcoderConfig);
 
         /* Angle Motor Config */
-        mAngleMotor = new TalonFX(moduleConstants.angleMotorID, "canivore1");
-        mAngleMotor.getConfigurator().apply(Robot.fxConfigs.swerveAngleFXConfig);
+        boolean angleOk = DeviceConfigurator.configureTalonFX("Mod " + moduleNumber + " Angle", mAngleMotor, Robot.fxConfigs.swerveAngleFXConfig);
+        mAngleMotor.getPosition().setUpdateFrequency(SchedulerProfile.kOdometrySignalFrequency);
         resetToAbsolute();
+        return encoderOk && angleOk;
+    }
 
+    public boolean configureDrive(){
         /* Drive Motor Config */
-        mDriveMotor = new TalonFX(moduleConstants.driveMotorID, "canivore1");
-        mDriveMotor.getConfigurator().apply(Robot.fxConfigs.swerveDriveFXConfig);
+        boolean driveOk = DeviceConfigurator.configureTalonFX("Mod " + moduleNumber + " Drive", mDriveMotor, Robot.fxConfigs.swerveDriveFXConfig);
+        /* The current budget lowers the supply limit from the configured one */
+        mDriveMotor.setBaseCurrentLimits(Robot.fxConfigs.swerveDriveFXConfig.CurrentLimits);
         mDriveMotor.getConfigurator().setPosition(0.0);
-
+        /* Odometry runs in the fast rate tier */
+        mDriveMotor.getPosition().setUpdateFrequency(SchedulerProfile.kOdometrySignalFrequency);
+        return driveOk;
     }
 
     public void setDesiredState(SwerveModuleState desiredState, boolean isOpenLoop){
         desiredState = SwerveModuleState.optimize(desiredState, getState().angle); 
-        mAngleMotor.setControl(anglePosition.withPosition(desiredState.angle.getRotations()));
-        setSpeed(desiredState, isOpenLoop);
+        setControl(mAngleMotor, anglePosition.withPosition(desiredState.angle.getRotations()));
+        setSpeed(desiredState.speedMetersPerSecond, isOpenLoop);
+    }
+
+    /* Same as setDesiredState without creating any objects, used by the trajectory follower */
+    public void setDesiredState(double speedMetersPerSecond, double angleRadians, boolean isOpenLoop){
+        double currentAngle = mAngleMotor.getPosition().getValueAsDouble() * 2.0 * Math.PI;
+        // Turn the shorter way and drive backwards, like SwerveModuleState.optimize
+        if (SwerveMath.isReversed(angleRadians, currentAngle)) {
+            speedMetersPerSecond = -speedMetersPerSecond;
+            angleRadians += Math.PI;
+        }
+        anglePosition.Position = MathUtil.angleModulus(angleRadians) / (2.0 * Math.PI);
+        setControl(mAngleMotor, anglePosition);
+        setSpeed(speedMetersPerSecond, isOpenLoop);
+    }
+
+    private static FeedforwardEstimator.Config createEstimatorConfig(){
+        FeedforwardEstimator.Config config = new FeedforwardEstimator.Config();
+        config.forgettingFactor = SwerveProfile.driveFFForgettingFactor;
+        config.initialCovariance = SwerveProfile.driveFFInitialCovariance;
+        config.maxCovarianceTrace = SwerveProfile.driveFFMaxCovarianceTrace;
+        config.minVelocity = SwerveProfile.driveFFMinVelocity;
+        config.maxAcceleration = SwerveProfile.driveFFMaxAcceleration;
+        config.maxVoltage = SwerveProfile.driveFFMaxVoltage;
+        config.min = SwerveProfile.driveFFMin;
+        config.max = SwerveProfile.driveFFMax;
+        config.maxRate = SwerveProfile.driveFFMaxRate;
+        return config;
+    }
+
+    /* Feeds the drive feedforward estimator the voltage and velocity of this loop, no objects are created */
+    public void updateFeedforwardEstimate(){
+        driveFeedForward.update(RobotClock.now(), getDriveVoltage(), getDriveMetersPerSecond(), DriverStation.isEnabled());
     }
 
-    private void setSpeed(SwerveModuleState desiredState, boolean isOpenLoop){
+    public FeedforwardEstimator getDriveFeedforward(){
+        return driveFeedForward;
+    }
+
+    public static FeedforwardGains getOfflineDriveGains(){
+        return driveGains;
+    }
+
+    private void setSpeed(double speedMetersPerSecond, boolean isOpenLoop){
         if(isOpenLoop){
-            driveDutyCycle.Output = desiredState.speedMetersPerSecond / SwerveProfile.maxSpeed;
-            mDriveMotor.setControl(driveDutyCycle);
+            driveDutyCycle.Output = speedMetersPerSecond / SwerveProfile.maxSpeed;
+            setControl(mDriveMotor, driveDutyCycle);
         }
         else {
-            driveVelocity.Velocity = Conversions.MPSToRPS(desiredState.speedMetersPerSecond, SwerveProfile.wheelCircumference);
-            driveVelocity.FeedForward = driveFeedForward.calculate(desiredState.speedMetersPerSecond);
-            mDriveMotor.setControl(driveVelocity);
+            driveVelocity.Velocity = Conversions.MPSToRPS(speedMetersPerSecond, SwerveProfile.wheelCircumference);
+            driveVelocity.FeedForward = driveFeedForward.calculate(speedMetersPerSecond);
+            setControl(mDriveMotor, driveVelocity);
         }
     }
 
+    /* SysId: drives at a voltage with the wheel held straight ahead */
+    public void setDriveVoltage(double volts){
+        anglePosition.Position = 0;
+        setControl(mAngleMotor, anglePosition);
+        driveVoltage.Output = volts;
+        setControl(mDriveMotor, driveVoltage);
+    }
+
+    /* SysId: turns the wheel at a voltage without driving */
+    public void setSteerVoltage(double volts){
+        driveDutyCycle.Output = 0;
+        setControl(mDriveMotor, driveDutyCycle);
+        angleVoltage.Output = volts;
+        setControl(mAngleMotor, angleVoltage);
+    }
+
+    /* Every control request goes out through here so it shows up as a device call in the flight recorder */
+    private static void setControl(TalonFX motor, ControlRequest request){
+        RobotEvents.beginDeviceCall();
+        motor.setControl(request);
+        RobotEvents.endDeviceCall(kMotorDeviceName, motor.getDeviceID(), "setControl");
+    }
+
+    public double getDriveVoltage(){
+        return mDriveMotor.getMotorVoltage().getValueAsDouble();
+    }
+
+    public double getDriveSupplyCurrent(){
+        return mDriveMotor.getSupplyCurrent().getValueAsDouble();
+    }
+
+    /* Current Budget: only sent when it changes, without waiting for the motor */
+    public void setDriveCurrentLimit(double amps){
+        mDriveMotor.setSupplyCurrentLimit(amps);
+    }
+
+    public double getDriveMeters(){
+        return Conversions.rotationsToMeters(mDriveMotor.getPosition().getValueAsDouble(), SwerveProfile.wheelCircumference);
+    }
+
+    public double getDriveMetersPerSecond(){
+        return Conversions.RPSToMPS(mDriveMotor.getVelocity().getValueAsDouble(), SwerveProfile.wheelCircumference);
+    }
+
+    public double getSteerVoltage(){
+        return mAngleMotor.getMotorVoltage().getValueAsDouble();
+    }
+
+    public double getSteerRotations(){
+        return mAngleMotor.getPosition().getValueAsDouble();
+    }
+
+    public double getSteerRotationsPerSecond(){
+        return mAngleMotor.getVelocity().getValueAsDouble();
+    }
+
     public Rotation2d getCANcoder(){
         return Rotation2d.fromRotations(angleEncoder.getAbsolutePosition().getValue());
     }
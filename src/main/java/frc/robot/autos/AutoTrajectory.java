@@ -0,0 +1,127 @@
+package frc.robot.autos;
+
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.lib.util.TrajectoryStore;
+import frc.robot.Constants;
+import frc.robot.Constants.SwerveProfile;
+
+/**
+ * Every trajectory used by an auto. They are generated at build time by the generateTrajectories
+ * Gradle task (see TrajectoryBaker) and loaded from the deploy directory, so robot startup does no
+ * spline generation. If the baked file is missing or out of date, the trajectory is generated at runtime instead.
+ * All units in meters.
+ */
+public enum AutoTrajectory {
+    /* Default Auto */
+    DEFAULT_BACKUP(
+        new Pose2d(0, 0, new Rotation2d(0)),
+        List.of(new Translation2d(0.5, 0)),
+        new Pose2d(1.15, 0, new Rotation2d(0.029))),
+    DEFAULT_BACKUP_2(
+        new Pose2d(0, 0, new Rotation2d(0)),
+        List.of(new Translation2d(0.5, 0)),
+        new Pose2d(0.5, 0, new Rotation2d(0.01))),
+
+    /* Right Default */
+    RIGHT_ROTATE(
+        new Pose2d(0, 0, new Rotation2d(0)),
+        List.of(new Translation2d(0.5, 0.4)),
+        new Pose2d(1.19, 0.26, new Rotation2d(0.24))),
+    RIGHT_BACKUP(
+        new Pose2d(0, 0, new Rotation2d(0)),
+        List.of(new Translation2d(0.25, 0.2)),
+        new Pose2d(0.5, 0.4, new Rotation2d(0.24))),
+
+    /* Back Up */
+    BACKUP(
+        new Pose2d(0, 0, new Rotation2d(0)),
+        List.of(new Translation2d(1, 0)),
+        new Pose2d(1.5, 0, new Rotation2d(0.025)));
+
+    /** Baked trajectory file, relative to the deploy directory */
+    public static final String kFileName = "trajectories/autos.bin";
+
+    private static TrajectoryStore store;
+    private static boolean storeOpened = false;
+
+    private final Pose2d start;
+    private final List<Translation2d> interiorWaypoints;
+    private final Pose2d end;
+    private Trajectory trajectory;
+
+    AutoTrajectory(Pose2d start, List<Translation2d> interiorWaypoints, Pose2d end) {
+        this.start = start;
+        this.interiorWaypoints = interiorWaypoints;
+        this.end = end;
+    }
+
+    public static TrajectoryConfig createConfig() {
+        return new TrajectoryConfig(
+                Constants.AutoConstants.kMaxSpeedMetersPerSecond,
+                Constants.AutoConstants.kMaxAccelerationMetersPerSecondSquared)
+            .setKinematics(SwerveProfile.swerveKinematics);
+    }
+
+    /** Runs the spline generation. Only the baker and the fallback path should need this. */
+    public Trajectory generate() {
+        return TrajectoryGenerator.generateTrajectory(start, interiorWaypoints, end, createConfig());
+    }
+
+    /**
+     * Identifies everything the generated trajectory depends on, so a stale baked file is detected
+     * without generating anything.
+     */
+    public long fingerprint() {
+        long hash = 17;
+        hash = mix(hash, start.getX(), start.getY(), start.getRotation().getRadians());
+        for (Translation2d waypoint : interiorWaypoints) {
+            hash = mix(hash, waypoint.getX(), waypoint.getY());
+        }
+        hash = mix(hash, end.getX(), end.getY(), end.getRotation().getRadians());
+        hash = mix(hash,
+            Constants.AutoConstants.kMaxSpeedMetersPerSecond,
+            Constants.AutoConstants.kMaxAccelerationMetersPerSecondSquared,
+            SwerveProfile.trackWidth,
+            SwerveProfile.wheelBase);
+        return hash;
+    }
+
+    private static long mix(long hash, double... values) {
+        for (double value : values) {
+            hash = hash * 31 + Double.doubleToLongBits(value);
+        }
+        return hash;
+    }
+
+    /** Returns the baked trajectory, decoding it the first time it is used. */
+    public synchronized Trajectory get() {
+        if (trajectory == null) {
+            TrajectoryStore bakedTrajectories = getStore();
+            if (bakedTrajectories != null) {
+                trajectory = bakedTrajectories.get(name(), fingerprint());
+            }
+            if (trajectory == null) {
+                DataLogManager.log("[Trajectories] " + name() + " is not baked or out of date, generating it at runtime (run ./gradlew generateTrajectories)");
+                trajectory = generate();
+            }
+        }
+        return trajectory;
+    }
+
+    private static synchronized TrajectoryStore getStore() {
+        if (!storeOpened) {
+            store = TrajectoryStore.open(Filesystem.getDeployDirectory().toPath().resolve(kFileName));
+            storeOpened = true;
+        }
+        return store;
+    }
+}
@@ -0,0 +1,70 @@
+package frc.robot.autos;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.Constants;
+import frc.robot.commands.FollowTrajectory;
+import frc.robot.subsystems.Swerve;
+
+/**
+ * Runs the same code an auto path runs every loop (FollowTrajectory's sampling, control and
+ * kinematics, and the module output path) while the robot is disabled, so the JIT has already
+ * compiled it when autonomousInit fires. Motor outputs are neutral while disabled, and the only
+ * output sent is zero speed at each module's current angle.
+ */
+public class AutoWarmup {
+    private final Swerve s_Swerve;
+    private final FollowTrajectory[] followers;
+    private final double[] holdSpeeds = new double[4];
+    private final double[] holdAngles = new double[4];
+
+    private int iterations = 0;
+    private int trajectoryIndex = 0;
+    private double sampleTime = 0;
+    /* Results are summed into a field so the JIT cannot drop the work as unused */
+    private double checksum = 0;
+
+    public AutoWarmup(Swerve swerve) {
+        s_Swerve = swerve;
+        AutoTrajectory[] trajectories = AutoTrajectory.values();
+        followers = new FollowTrajectory[trajectories.length];
+        for (int i = 0; i < trajectories.length; i++) {
+            // Never scheduled, only used for calculate()
+            followers[i] = new FollowTrajectory(swerve, trajectories[i].name(), trajectories[i].get());
+        }
+    }
+
+    public boolean isDone() {
+        return iterations >= Constants.AutoConstants.kWarmupTotalIterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /** Runs one disabled loop's worth of warm up. Call from disabledPeriodic. */
+    public void run() {
+        if (isDone()) {
+            return;
+        }
+        Pose2d currentPose = s_Swerve.getPose();
+        for (int i = 0; i < Constants.AutoConstants.kWarmupIterationsPerLoop; i++) {
+            FollowTrajectory follower = followers[trajectoryIndex];
+            checksum += follower.calculate(sampleTime, currentPose);
+
+            sampleTime += 0.02;
+            if (sampleTime > follower.getTotalTime()) {
+                sampleTime = 0;
+                trajectoryIndex = (trajectoryIndex + 1) % followers.length;
+            }
+        }
+        iterations += Constants.AutoConstants.kWarmupIterationsPerLoop;
+
+        // The real output path runs once per loop, with zero speed so nothing moves once enabled
+        SwerveModuleState[] currentStates = s_Swerve.getModuleStates();
+        for (int i = 0; i < holdAngles.length; i++) {
+            holdAngles[i] = currentStates[i].angle.getRadians();
+        }
+        s_Swerve.setModuleStates(holdSpeeds, holdAngles);
+    }
+}
@@ -1,88 +1,36 @@
 package frc.robot.autos;
 
-import java.util.List;
-
-import edu.wpi.first.math.controller.PIDController;
-import edu.wpi.first.math.controller.ProfiledPIDController;
-import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.trajectory.Trajectory;
-import edu.wpi.first.math.trajectory.TrajectoryConfig;
-import edu.wpi.first.math.trajectory.TrajectoryGenerator;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
-import edu.wpi.first.wpilibj2.command.SwerveControllerCommand;
-import frc.robot.Constants;
 import frc.robot.Constants.ArmProfile;
-import frc.robot.Constants.SwerveProfile;
-import frc.robot.subsystems.Arm;
-import frc.robot.subsystems.Intake;
+import frc.robot.commands.FollowTrajectory;
 import frc.robot.subsystems.Lighting;
+import frc.robot.subsystems.Superstructure;
+import frc.robot.subsystems.Superstructure.State;
 import frc.robot.subsystems.Swerve;
  
 public class DefaultAuto extends SequentialCommandGroup {
-    public DefaultAuto(Swerve s_Swerve, Arm s_Arm, Intake s_Intake, Lighting s_Lighting){
-        TrajectoryConfig config =
-            new TrajectoryConfig(
-                    Constants.AutoConstants.kMaxSpeedMetersPerSecond,
-                    Constants.AutoConstants.kMaxAccelerationMetersPerSecondSquared)
-                .setKinematics(SwerveProfile.swerveKinematics);
-
-        // An example trajectory to follow.  All units in meters.
-        Trajectory backupTrajectory =
-            TrajectoryGenerator.generateTrajectory(
-                // Start at the origin facing the +X direction
-                new Pose2d(0, 0, new Rotation2d(0)),
-              List.of(new Translation2d(0.5, 0)),
-              new Pose2d(1.15, 0, new Rotation2d(0.029)),
-                config);
-
-        Trajectory backup2Trajectory =
-            TrajectoryGenerator.generateTrajectory(
-                // Start at the origin facing the +X direction
-                new Pose2d(0, 0, new Rotation2d(0)),
-              List.of(new Translation2d(0.5, 0)),
-              new Pose2d(0.5, 0, new Rotation2d(0.01)),
-                config);
-
-        var thetaController =
-            new ProfiledPIDController(
-                Constants.AutoConstants.kPThetaController, 0, 0, Constants.AutoConstants.kThetaControllerConstraints);
-        thetaController.enableContinuousInput(-Math.PI, Math.PI);
-
-        SwerveControllerCommand swerveControllerCommand =
-            new SwerveControllerCommand(
-                backupTrajectory,
-                s_Swerve::getPose,
-                SwerveProfile.swerveKinematics,
-                new PIDController(Constants.AutoConstants.kPXController, 0, 0),
-                new PIDController(Constants.AutoConstants.kPYController, 0, 0),
-                thetaController,
-                s_Swerve::setModuleStates,
-                s_Swerve);
+    public DefaultAuto(Swerve s_Swerve, Lighting s_Lighting, Superstructure s_Superstructure){
+        Trajectory backupTrajectory = AutoTrajectory.DEFAULT_BACKUP.get();
+        Trajectory backup2Trajectory = AutoTrajectory.DEFAULT_BACKUP_2.get();
 
-                SwerveControllerCommand swerveControllerCommand2 =
-                new SwerveControllerCommand(
-                    backup2Trajectory,
-                    s_Swerve::getPose,
-                    SwerveProfile.swerveKinematics,
-                    new PIDController(Constants.AutoConstants.kPXController, 0, 0),
-                    new PIDController(Constants.AutoConstants.kPYController, 0, 0),
-                    thetaController,
-                    s_Swerve::setModuleStates,
-                    s_Swerve);
+        // The intake deploys as soon as the robot starts backing up instead of once it has stopped
+        FollowTrajectory followPath = new FollowTrajectory(s_Swerve, "DEFAULT_BACKUP", backupTrajectory)
+            .atTime(0, () -> s_Superstructure.requestState(State.INTAKING));
+        FollowTrajectory followPath2 = new FollowTrajectory(s_Swerve, "DEFAULT_BACKUP_2", backup2Trajectory);
 
         addCommands(
             new InstantCommand(() -> s_Lighting.setRedLightShow()),
-            new TimedShootNote(s_Intake, s_Arm, s_Lighting, ArmProfile.kpivotSpeakerPos, 2.5),
+            new TimedShootNote(s_Superstructure, ArmProfile.kpivotSpeakerPos, 2.5),
             new InstantCommand(() -> s_Swerve.setPose(backupTrajectory.getInitialPose())),
-            swerveControllerCommand,
+            followPath,
             new InstantCommand(() -> s_Swerve.drive(new Translation2d(0,0), 0, true, false)),
-            new TimedIntakeNote(s_Intake, s_Arm, s_Lighting, 3.4),
-            new TimedShootNote(s_Intake, s_Arm, s_Lighting, 22000, 3),
+            new TimedIntakeNote(s_Superstructure, 3.4),
+            new TimedShootNote(s_Superstructure, 22000, 3),
             new InstantCommand(() -> s_Swerve.setPose(backup2Trajectory.getInitialPose())),
-            swerveControllerCommand2,
+            followPath2,
             new InstantCommand(() -> s_Swerve.drive(new Translation2d(0,0), 0, true, false)),
             new InstantCommand(() -> s_Lighting.setDisabledLightShow())
         );
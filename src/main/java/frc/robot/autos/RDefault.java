@@ -1,88 +1,37 @@
 package frc.robot.autos;
 
-import java.util.List;
-
-import edu.wpi.first.math.controller.PIDController;
-import edu.wpi.first.math.controller.ProfiledPIDController;
-import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.trajectory.Trajectory;
-import edu.wpi.first.math.trajectory.TrajectoryConfig;
-import edu.wpi.first.math.trajectory.TrajectoryGenerator;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
-import edu.wpi.first.wpilibj2.command.SwerveControllerCommand;
-import frc.robot.Constants;
 import frc.robot.Constants.ArmProfile;
-import frc.robot.Constants.SwerveProfile;
-import frc.robot.subsystems.Arm;
-import frc.robot.subsystems.Intake;
+import frc.robot.commands.FollowTrajectory;
 import frc.robot.subsystems.Lighting;
+import frc.robot.subsystems.Superstructure;
+import frc.robot.subsystems.Superstructure.State;
 import frc.robot.subsystems.Swerve;
  
 public class RDefault extends SequentialCommandGroup {
-    public RDefault(Swerve s_Swerve, Arm s_Arm, Intake s_Intake, Lighting s_Lighting){
-        TrajectoryConfig config =
-            new TrajectoryConfig(
-                    Constants.AutoConstants.kMaxSpeedMetersPerSecond,
-                    Constants.AutoConstants.kMaxAccelerationMetersPerSecondSquared)
-                .setKinematics(SwerveProfile.swerveKinematics);
-
-        // An example trajectory to follow.  All units in meters.
-        Trajectory rotate =
-            TrajectoryGenerator.generateTrajectory(
-                // Start at the origin facing the +X direction
-                new Pose2d(0, 0, new Rotation2d(0)),
-              List.of(new Translation2d(0.5, 0.4)),
-              new Pose2d(1.19, 0.26, new Rotation2d(0.24)),
-                config);
-
-        Trajectory backup =
-            TrajectoryGenerator.generateTrajectory(
-                // Start at the origin facing the +X direction
-                new Pose2d(0, 0, new Rotation2d(0)),
-               List.of(new Translation2d(0.25, 0.2)),
-               new Pose2d(0.5, 0.4, new Rotation2d(0.24)),
-                config);
-
-        var thetaController =
-            new ProfiledPIDController(
-                Constants.AutoConstants.kPThetaController, 0, 0, Constants.AutoConstants.kThetaControllerConstraints);
-        thetaController.enableContinuousInput(-Math.PI, Math.PI);
+    public RDefault(Swerve s_Swerve, Lighting s_Lighting, Superstructure s_Superstructure){
+        Trajectory rotate = AutoTrajectory.RIGHT_ROTATE.get();
+        Trajectory backup = AutoTrajectory.RIGHT_BACKUP.get();
 
-        SwerveControllerCommand swerveControllerCommand =
-            new SwerveControllerCommand(
-                rotate,
-                s_Swerve::getPose,
-                SwerveProfile.swerveKinematics,
-                new PIDController(Constants.AutoConstants.kPXController, 0, 0),
-                new PIDController(Constants.AutoConstants.kPYController, 0, 0),
-                thetaController,
-                s_Swerve::setModuleStates,
-                s_Swerve);
+        // The preloaded shot is staged and spun up while the robot drives to its shooting spot
+        FollowTrajectory followPath = new FollowTrajectory(s_Swerve, "RIGHT_ROTATE", rotate)
+            .atTime(0, () -> s_Superstructure.requestState(State.PRIMED, 24000));
+        FollowTrajectory followPath2 = new FollowTrajectory(s_Swerve, "RIGHT_BACKUP", backup);
 
-                SwerveControllerCommand swerveControllerCommand2 =
-                new SwerveControllerCommand(
-                    backup,
-                    s_Swerve::getPose,
-                    SwerveProfile.swerveKinematics,
-                    new PIDController(Constants.AutoConstants.kPXController, 0, 0),
-                    new PIDController(Constants.AutoConstants.kPYController, 0, 0),
-                    thetaController,
-                    s_Swerve::setModuleStates,
-                    s_Swerve);
         addCommands(
             new InstantCommand(() -> s_Lighting.setRedLightShow()),
             new InstantCommand(() -> s_Swerve.setPose(rotate.getInitialPose())),
-            swerveControllerCommand,
+            followPath,
             new InstantCommand(() -> s_Swerve.drive(new Translation2d(0, 0), 0, true, false)),
-            new TimedShootNote(s_Intake, s_Arm, s_Lighting, 24000, 2.6),
-            new TimedIntakeNote(s_Intake, s_Arm, s_Lighting, 3.1),
+            new TimedShootNote(s_Superstructure, 24000, 2.6),
+            new TimedIntakeNote(s_Superstructure, 3.1),
             new InstantCommand(() -> s_Swerve.drive(new Translation2d(0, 0), 0, true, false)),
-            new TimedShootNote(s_Intake, s_Arm, s_Lighting, 25000, 2.6),
+            new TimedShootNote(s_Superstructure, 25000, 2.6),
             new InstantCommand(() -> s_Swerve.setPose(backup.getInitialPose())),
-            swerveControllerCommand2,
+            followPath2,
             new InstantCommand(() -> s_Swerve.drive(new Translation2d(0, 0), 0, true, false)),
             new InstantCommand(() -> s_Lighting.setDisabledLightShow())
         );
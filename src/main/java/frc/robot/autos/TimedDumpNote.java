@@ -4,57 +4,44 @@
 
 package frc.robot.autos;
 
-import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj2.command.Command;
-import frc.robot.Constants.ArmProfile;
-import frc.robot.subsystems.Arm;
-import frc.robot.subsystems.Intake;
-import frc.robot.subsystems.Lighting;
+import frc.lib.util.RobotClock;
+import frc.robot.subsystems.Superstructure;
+import frc.robot.subsystems.Superstructure.State;
 
 public class TimedDumpNote extends Command {
   /** Creates a new TimedShootNote. */
-  private Intake s_Intake;
-  private Arm s_Arm;
-  private Lighting s_Lighting;
+  private Superstructure s_Superstructure;
   private double seconds;
-  private int timer;
+  private double startTime;
 
-  public TimedDumpNote(Intake intake, Arm arm, Lighting lighting, double seconds) {
+  public TimedDumpNote(Superstructure superstructure, double seconds) {
     // Use addRequirements() here to declare subsystem dependencies.
-    s_Intake = intake;
-    s_Arm = arm;
-    s_Lighting = lighting;
+    s_Superstructure = superstructure;
     this.seconds = seconds;
-    timer = 0;
+    addRequirements(s_Superstructure);
   }
 
   // Called when the command is initially scheduled.
   @Override
   public void initialize() {
-    timer = 0;
-    s_Intake.deployPlus();
-    s_Arm.setAmpShooterOutput(ArmProfile.kShooterAmpOutput);
+    startTime = RobotClock.now();
+    s_Superstructure.requestState(State.AMP);
   }
 
   // Called every time the scheduler runs while the command is scheduled.
   @Override
-  public void execute() {
-    timer += 20;
-    if (s_Intake.isIntakePlusEnabled() == true) {
-      s_Arm.dropNoteInAmp();
-      }
-  }
+  public void execute() {}
 
   // Called once the command ends or is interrupted.
   @Override
   public void end(boolean interrupted) {
-      s_Arm.resetArm();
-      s_Intake.resetIntakeForAmp(s_Arm, s_Lighting);
+    s_Superstructure.requestState(State.IDLE);
   }
 
   // Returns true when the command should end.
   @Override
   public boolean isFinished() {
-    return timer >= Units.secondsToMilliseconds(seconds);
+    return RobotClock.since(startTime) >= seconds;
   }
 }
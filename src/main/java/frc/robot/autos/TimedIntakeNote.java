@@ -4,51 +4,45 @@
 
 package frc.robot.autos;
 
-import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj2.command.Command;
-import frc.robot.subsystems.Arm;
-import frc.robot.subsystems.Intake;
-import frc.robot.subsystems.Lighting;
+import frc.lib.util.RobotClock;
+import frc.robot.subsystems.Superstructure;
+import frc.robot.subsystems.Superstructure.State;
 
 public class TimedIntakeNote extends Command {
   /** Creates a new TimedShootNote. */
-  private Intake s_Intake;
-  private Arm s_Arm;
-  private Lighting s_Lighting;
+  private Superstructure s_Superstructure;
   private double seconds;
-  private int timer;
+  private double startTime;
 
-  public TimedIntakeNote(Intake intake, Arm arm, Lighting lighting, double seconds) {
+  public TimedIntakeNote(Superstructure superstructure, double seconds) {
     // Use addRequirements() here to declare subsystem dependencies.
-    s_Intake = intake;
-    s_Arm = arm;
-    s_Lighting = lighting;
+    s_Superstructure = superstructure;
     this.seconds = seconds;
-    timer = 0;
+    addRequirements(s_Superstructure);
   }
 
   // Called when the command is initially scheduled.
   @Override
   public void initialize() {
-    timer = 0;
+    startTime = RobotClock.now();
+    s_Superstructure.requestState(State.INTAKING);
   }
 
   // Called every time the scheduler runs while the command is scheduled.
   @Override
-  public void execute() {
-    timer += 20;
-    s_Intake.deployAndIntake(s_Arm);
-  }
+  public void execute() {}
 
   // Called once the command ends or is interrupted.
   @Override
   public void end(boolean interrupted) {
-    s_Intake.resetIntake(s_Arm, s_Lighting);
+    s_Superstructure.requestState(s_Superstructure.hasNote() ? State.HOLDING : State.IDLE);
   }
 
   // Returns true when the command should end.
   @Override
   public boolean isFinished() {
-    return timer >= Units.secondsToMilliseconds(seconds);
+    // Seconds is now a timeout, the intake stops as soon as the note is seated
+    return s_Superstructure.hasNote() || RobotClock.since(startTime) >= seconds;
   }
 }
@@ -4,61 +4,50 @@
 
 package frc.robot.autos;
 
-import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj2.command.Command;
-import frc.robot.subsystems.Arm;
-import frc.robot.subsystems.Intake;
-import frc.robot.subsystems.Lighting;
+import frc.lib.util.RobotClock;
+import frc.robot.Constants.SuperstructureProfile;
+import frc.robot.subsystems.Superstructure;
+import frc.robot.subsystems.Superstructure.State;
 
 public class TimedShootNote extends Command {
   /** Creates a new TimedShootNote. */
-  private Intake s_Intake;
-  private Arm s_Arm;
-  private Lighting s_Lighting;
+  private Superstructure s_Superstructure;
   private double pivotAngle;
   private double seconds;
-  private int timer;
+  private double startTime;
 
-  public TimedShootNote(Intake intake, Arm arm, Lighting lighting, double pivotAngle, double seconds) {
+  public TimedShootNote(Superstructure superstructure, double pivotAngle, double seconds) {
     // Use addRequirements() here to declare subsystem dependencies.
-    s_Intake = intake;
-    s_Arm = arm;
-    s_Lighting = lighting;
+    s_Superstructure = superstructure;
     this.pivotAngle = pivotAngle;
     this.seconds = seconds;
-    timer = 0;
+    addRequirements(s_Superstructure);
   }
 
   // Called when the command is initially scheduled.
   @Override
   public void initialize() {
-    timer = 0;
-    s_Arm.prepareToShoot(s_Intake);
+    startTime = RobotClock.now();
+    s_Superstructure.requestState(State.STAGING, pivotAngle);
   }
 
   // Called every time the scheduler runs while the command is scheduled.
   @Override
-  public void execute() {
-    timer += 20;
-    if (s_Intake.isIntakePlusEnabled() == true) {
-      s_Arm.fireAtSetPos(pivotAngle);
-      }
-    // if (timer >= Units.secondsToMilliseconds(seconds)) {
-    //   s_Arm.resetArm();
-    //   s_Intake.resetIntake(s_Arm, s_Lighting);
-    // }
-  }
+  public void execute() {}
 
   // Called once the command ends or is interrupted.
   @Override
   public void end(boolean interrupted) {
-    s_Arm.resetArm();
-    s_Intake.resetIntake(s_Arm, s_Lighting);
+    s_Superstructure.requestState(State.IDLE);
   }
 
   // Returns true when the command should end.
   @Override
   public boolean isFinished() {
-    return timer >= Units.secondsToMilliseconds(seconds);
+    // Seconds is now a timeout, a shot that was primed on the way in fires right away and ends early
+    boolean noteGone = s_Superstructure.getState() == State.FIRING
+        && s_Superstructure.getTimeInState() >= SuperstructureProfile.kNoteExitTime;
+    return noteGone || RobotClock.since(startTime) >= seconds;
   }
 }
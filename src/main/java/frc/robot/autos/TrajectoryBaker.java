@@ -0,0 +1,58 @@
+package frc.robot.autos;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.math.trajectory.Trajectory;
+import frc.lib.util.TrajectoryStore;
+
+/**
+ * Build time tool run by the generateTrajectories Gradle task. Generates every AutoTrajectory,
+ * writes them to the deploy directory, then reads the file back and checks that every decoded
+ * trajectory matches the generated one.
+ * Usage: TrajectoryBaker <deploy directory>
+ */
+public final class TrajectoryBaker {
+    private TrajectoryBaker() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: TrajectoryBaker <deploy directory>");
+            System.exit(2);
+        }
+        Path file = Path.of(args[0]).resolve(AutoTrajectory.kFileName);
+
+        List<TrajectoryStore.Entry> entries = new ArrayList<>();
+        for (AutoTrajectory auto : AutoTrajectory.values()) {
+            long startTime = System.nanoTime();
+            Trajectory trajectory = auto.generate();
+            System.out.printf("Generated %-18s %4d states, %.2f s long, in %.1f ms%n",
+                auto.name(), trajectory.getStates().size(), trajectory.getTotalTimeSeconds(), (System.nanoTime() - startTime) / 1e6);
+            entries.add(new TrajectoryStore.Entry(auto.name(), auto.fingerprint(), trajectory));
+        }
+        TrajectoryStore.write(file, entries);
+        System.out.printf("Wrote %d trajectories to %s (%d bytes)%n", entries.size(), file, Files.size(file));
+
+        TrajectoryStore store = TrajectoryStore.open(file);
+        if (store == null) {
+            System.err.println("Could not read back " + file);
+            System.exit(1);
+        }
+        boolean allMatch = true;
+        for (TrajectoryStore.Entry entry : entries) {
+            Trajectory decoded = store.get(entry.name, entry.fingerprint);
+            if (decoded == null || !decoded.equals(entry.trajectory)) {
+                System.err.println("Decoded " + entry.name + " does not match the generated trajectory");
+                allMatch = false;
+            }
+        }
+        if (!allMatch) {
+            // Fails the build, the robot would otherwise fall back to generating at runtime
+            System.exit(1);
+        }
+        System.out.println("Every decoded trajectory matches its generated trajectory");
+    }
+}
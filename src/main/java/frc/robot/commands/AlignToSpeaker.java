@@ -0,0 +1,102 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.lib.math.HeadingController;
+import frc.lib.util.RobotClock;
+import frc.robot.Constants.AlignProfile;
+import frc.robot.Constants.LimelightProfile;
+import frc.robot.Constants.SwerveProfile;
+import frc.robot.subsystems.Swerve;
+import frc.robot.subsystems.Vision;
+
+/* Speaker Alignment Logic:
+ * -Each new limelight frame is turned into a target yaw: the gyro yaw when the frame was captured (from the yaw history)
+ *  minus the target's angle in the frame. The target yaw stays valid while the robot turns, unlike tx, which is stale
+ *  by the time it arrives
+ * -A HeadingController profiles the turn to the target yaw, using the Pigeon's yaw rate for its derivative term
+ * -The command ends once the robot is within tolerance and has stopped turning, and publishes how long that took
+ * -Until AlignProfile.kGainsTuned is set it turns at the old fixed rate on the filtered tx instead, ending once tx is in the align window
+ */
+public class AlignToSpeaker extends Command {
+  private Swerve s_Swerve;
+  private Vision s_Vision;
+
+  private final HeadingController controller = new HeadingController(
+      AlignProfile.kP, AlignProfile.kD, AlignProfile.kMaxVelocity, AlignProfile.kMaxAcceleration);
+  private boolean hasTarget;
+  private boolean aligned;
+  private double startTime;
+
+  public AlignToSpeaker(Swerve swerve, Vision vision) {
+    // Use addRequirements() here to declare subsystem dependencies.
+    s_Swerve = swerve;
+    s_Vision = vision;
+    addRequirements(s_Swerve);
+  }
+
+  // Called when the command is initially scheduled.
+  @Override
+  public void initialize() {
+    controller.reset(s_Swerve.getContinuousYawRadians(), s_Swerve.getYawRateRadiansPerSecond());
+    hasTarget = false;
+    aligned = false;
+    startTime = RobotClock.now();
+  }
+
+  // Called every time the scheduler runs while the command is scheduled.
+  @Override
+  public void execute() {
+    if (!AlignProfile.kGainsTuned) {
+      // Untuned gains could swing the robot hard, so turn at the old fixed rate on the filtered tx
+      double filteredAngle = s_Vision.getFilteredHorizontalAngle();
+      aligned = Math.abs(filteredAngle) < LimelightProfile.alignWindow;
+      s_Swerve.drive(new Translation2d(0, 0), aligned ? 0 : Math.copySign(AlignProfile.kFixedRate, filteredAngle), true, false);
+      return;
+    }
+
+    if (s_Vision.updateTargetSample()) {
+      double yawAtCapture = s_Swerve.getContinuousYawAt(s_Vision.getSampleCaptureTime());
+      if (!Double.isNaN(yawAtCapture)) {
+        controller.setTarget(yawAtCapture - Math.toRadians(s_Vision.getSampleAngle()));
+        hasTarget = true;
+      }
+    }
+
+    double yaw = s_Swerve.getContinuousYawRadians();
+    double yawRate = s_Swerve.getYawRateRadiansPerSecond();
+    double omega = hasTarget ? controller.calculate(yaw, yawRate) : 0;
+    omega = MathUtil.clamp(omega, -SwerveProfile.maxAngularVelocity, SwerveProfile.maxAngularVelocity);
+    // Swerve.drive takes clockwise positive rotation
+    s_Swerve.drive(new Translation2d(0, 0), -omega, true, false);
+
+    aligned = hasTarget && isAligned(controller.getTarget() - yaw, yawRate);
+    SmartDashboard.putNumber("Align/Heading Error (deg)", hasTarget ? Math.toDegrees(controller.getTarget() - yaw) : 0);
+  }
+
+  static boolean isAligned(double error, double yawRate) {
+    return Math.abs(Math.toDegrees(error)) <= AlignProfile.kAlignedTolerance
+        && Math.abs(Math.toDegrees(yawRate)) <= AlignProfile.kAlignedRateTolerance;
+  }
+
+  // Called once the command ends or is interrupted.
+  @Override
+  public void end(boolean interrupted) {
+    s_Swerve.drive(new Translation2d(0, 0), 0, true, false);
+    if (!interrupted) {
+      SmartDashboard.putNumber("Align/Time To Aligned (s)", RobotClock.since(startTime));
+    }
+  }
+
+  // Returns true when the command should end.
+  @Override
+  public boolean isFinished() {
+    return aligned;
+  }
+}
@@ -5,23 +5,28 @@
 package frc.robot.commands;
 
 import edu.wpi.first.wpilibj2.command.Command;
-import frc.robot.subsystems.Arm;
+import frc.robot.Constants.ArmProfile;
 import frc.robot.subsystems.Climber;
+import frc.robot.subsystems.Superstructure;
+import frc.robot.subsystems.Superstructure.State;
 
 public class ClimbChain extends Command {
   private Climber s_Climber;
-  private Arm s_Arm;
+  private Superstructure s_Superstructure;
 
   /** Creates a new ClimbChain. */
-  public ClimbChain(Climber climber, Arm arm) {
+  public ClimbChain(Climber climber, Superstructure superstructure) {
     // Use addRequirements() here to declare subsystem dependencies.
     s_Climber = climber;
-    s_Arm = arm;
+    s_Superstructure = superstructure;
+    addRequirements(s_Climber, s_Superstructure);
   }
 
   // Called when the command is initially scheduled.
   @Override
-  public void initialize() {}
+  public void initialize() {
+    s_Superstructure.requestState(State.CLIMB);
+  }
 
   // Called every time the scheduler runs while the command is scheduled.
   @Override
@@ -35,7 +40,7 @@ public class ClimbChain extends Command {
   @Override
   public void end(boolean interrupted) {
     s_Climber.setClimberOutput(0);
-    s_Arm.setArmPos();
+    s_Superstructure.requestState(State.CLIMB, ArmProfile.kPivotHangPos);
   }
 
   // Returns true when the command should end.
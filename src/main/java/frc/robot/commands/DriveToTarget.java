@@ -0,0 +1,100 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import java.util.concurrent.CompletableFuture;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.lib.util.PathService;
+import frc.lib.util.RobotClock;
+import frc.robot.FieldTarget;
+import frc.robot.subsystems.Swerve;
+
+/* Drive To Target Logic:
+ * -Paths are planned and followed on the field pose, the command ends right away until AprilTags have placed it
+ * -On start a path from the robot's current pose and velocity to the target is requested from the PathService
+ * -Until the path is ready the wheels keep doing what they were doing, so the robot does not lurch to a stop
+ * -Once it is ready the path is followed with FollowTrajectory, turning the robot to the target's heading
+ */
+public class DriveToTarget extends Command {
+  private Swerve s_Swerve;
+  private PathService pathService;
+  private FieldTarget target;
+
+  private CompletableFuture<Trajectory> pendingPath;
+  private FollowTrajectory follower;
+  private boolean failed;
+  private double requestTime;
+
+  public DriveToTarget(Swerve swerve, PathService pathService, FieldTarget target) {
+    // Use addRequirements() here to declare subsystem dependencies.
+    s_Swerve = swerve;
+    this.pathService = pathService;
+    this.target = target;
+    addRequirements(s_Swerve);
+  }
+
+  // Called when the command is initially scheduled.
+  @Override
+  public void initialize() {
+    follower = null;
+    failed = false;
+    requestTime = RobotClock.now();
+    if (!s_Swerve.isPoseOnField()) {
+      // Target poses are on the field, a path from anywhere else would drive somewhere wrong
+      DataLogManager.log("[DriveToTarget] Not driving to " + target + ", the robot has not been placed on the field yet");
+      pendingPath = null;
+      failed = true;
+      return;
+    }
+    pendingPath = pathService.request(target.name(), s_Swerve.getFieldPose(), s_Swerve.getFieldVelocity(), target.getPose());
+  }
+
+  // Called every time the scheduler runs while the command is scheduled.
+  @Override
+  public void execute() {
+    if (failed) {
+      return;
+    }
+    if (follower == null && pendingPath.isDone()) {
+      if (pendingPath.isCompletedExceptionally()) {
+        DataLogManager.log("[DriveToTarget] Path to " + target + " could not be generated");
+        failed = true;
+        return;
+      }
+      Pose2d goal = target.getPose();
+      follower = new FollowTrajectory(s_Swerve, target.name(), pendingPath.join(), goal.getRotation()).usingFieldPose();
+      follower.initialize();
+      SmartDashboard.putNumber("DriveToTarget/Path Wait (ms)", RobotClock.since(requestTime) * 1000);
+    }
+
+    if (follower != null) {
+      follower.execute();
+    }
+    else {
+      s_Swerve.setModuleStates(s_Swerve.getModuleStates());
+    }
+  }
+
+  // Called once the command ends or is interrupted.
+  @Override
+  public void end(boolean interrupted) {
+    if (follower != null) {
+      follower.end(interrupted);
+    }
+    s_Swerve.drive(new Translation2d(0, 0), 0, true, false);
+  }
+
+  // Returns true when the command should end.
+  @Override
+  public boolean isFinished() {
+    return failed || (follower != null && follower.isFinished());
+  }
+}
@@ -5,49 +5,33 @@
 package frc.robot.commands;
 
 import edu.wpi.first.wpilibj2.command.Command;
-import frc.robot.Constants.ArmProfile;
-import frc.robot.subsystems.Arm;
-import frc.robot.subsystems.Intake;
-import frc.robot.subsystems.Lighting;
+import frc.robot.subsystems.Superstructure;
+import frc.robot.subsystems.Superstructure.State;
 
 public class DumpNote extends Command {
-  private Intake s_Intake;
-  private Arm s_Arm;
-  private Lighting s_Lighting;
+  private Superstructure s_Superstructure;
 
   /** Creates a new DropAmpNote. */
-  public DumpNote(Intake intake, Arm arm, Lighting lighting) {
+  public DumpNote(Superstructure superstructure) {
     // Use addRequirements() here to declare subsystem dependencies.
-    s_Intake = intake;
-    s_Arm = arm;
-    s_Lighting = lighting;
+    s_Superstructure = superstructure;
+    addRequirements(s_Superstructure);
   }
 
   // Called when the command is initially scheduled.
   @Override
   public void initialize() {
-    s_Intake.deployPlus();
-    s_Arm.setAmpShooterOutput(ArmProfile.kShooterAmpOutput);
+    s_Superstructure.requestState(State.AMP);
   }
 
   // Called every time the scheduler runs while the command is scheduled.
   @Override
-  public void execute() {
-    if (s_Intake.isIntakePlusEnabled() == true) {
-      s_Arm.dropNoteInAmp();
-    }
-    // if (s_Arm.isArmReset() == true) {
-    //   s_Intake.resetIntake(s_Arm, s_Lighting);
-    // }
-  }
+  public void execute() {}
 
   // Called once the command ends or is interrupted.
   @Override
   public void end(boolean interrupted) {
-    s_Arm.resetArm();
-    //if (s_Arm.isArmReset() == true) 
-      s_Intake.resetIntakeForAmp(s_Arm, s_Lighting);
-  //}
+    s_Superstructure.requestState(State.IDLE);
   }
 
   // Returns true when the command should end.
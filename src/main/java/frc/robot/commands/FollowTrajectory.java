@@ -0,0 +1,250 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.lib.math.PrecomputedTrajectory;
+import frc.lib.math.SwerveMath;
+import frc.lib.util.RobotClock;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.SwerveProfile;
+import frc.robot.subsystems.Swerve;
+
+/* Trajectory Follower Logic:
+ * -Replaces SwerveControllerCommand without creating any objects in execute()
+ * -The reference is sampled from a PrecomputedTrajectory, which keeps its place between loops
+ * -Velocity feedforward is taken a little ahead along the path using the acceleration and curvature,
+ *  so the commanded direction already leads into a turn instead of lagging behind it
+ * -Position feedback is a P controller on x and y, heading is a P controller toward the final heading
+ * -Auto paths are followed against the odometry pose the auto reset, on the fly paths against the field pose
+ * -Chassis speeds are turned into module speeds and angles with plain arrays and sent with Swerve.setModuleStates
+ * -Event markers run an action (usually a superstructure request) once the path reaches a time or distance,
+ *  so mechanisms get ready while the robot is still driving. Distance markers are turned into times up front
+ */
+public class FollowTrajectory extends Command {
+  private Swerve s_Swerve;
+  private final PrecomputedTrajectory trajectory;
+  private final PrecomputedTrajectory.Sample reference = new PrecomputedTrajectory.Sample();
+  private final double targetHeading;
+  private final String name;
+  private boolean useFieldPose = false;
+
+  private final double[] moduleSpeeds = new double[4];
+  private final double[] moduleAngles = new double[4];
+
+  private double startTime;
+  private double headingError;
+
+  /* Event Markers, kept sorted by time */
+  private static class EventMarker {
+    final double time;
+    final Runnable action;
+
+    EventMarker(double time, Runnable action) {
+      this.time = time;
+      this.action = action;
+    }
+  }
+  private final List<EventMarker> markers = new ArrayList<>();
+  private int nextMarker;
+
+  /* Tracking Error */
+  private double maxPositionError;
+  private double sumSquaredPositionError;
+  private int errorSamples;
+
+  /* Allocation Check */
+  private final com.sun.management.ThreadMXBean threadBean;
+  private long maxAllocatedBytes;
+
+  /**
+   * @param name Name used in the tracking report
+   * @param trajectory Trajectory to follow, the robot ends up facing its final pose's heading
+   */
+  public FollowTrajectory(Swerve swerve, String name, Trajectory trajectory) {
+    this(swerve, name, trajectory, null);
+  }
+
+  /**
+   * @param name Name used in the tracking report
+   * @param trajectory Trajectory to follow
+   * @param targetHeading Heading the robot turns to while following, or null for the final pose's heading
+   */
+  public FollowTrajectory(Swerve swerve, String name, Trajectory trajectory, Rotation2d targetHeading) {
+    s_Swerve = swerve;
+    this.name = name;
+    this.trajectory = new PrecomputedTrajectory(trajectory);
+    this.targetHeading = targetHeading != null ? targetHeading.getRadians() : this.trajectory.getFinalHeading();
+
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    threadBean = AutoConstants.kMeasureFollowerAllocations && bean instanceof com.sun.management.ThreadMXBean
+        ? (com.sun.management.ThreadMXBean)bean : null;
+
+    addRequirements(s_Swerve);
+  }
+
+  /**
+   * Follows the trajectory against the field pose instead of the odometry pose, for paths in field
+   * coordinates rather than relative to where an auto reset the odometry.
+   */
+  public FollowTrajectory usingFieldPose() {
+    useFieldPose = true;
+    return this;
+  }
+
+  /**
+   * Runs an action once this much time has passed since the path started.
+   * Markers past the end of the path run when it finishes.
+   * @param seconds Time since the start of the path: (in Seconds)
+   */
+  public FollowTrajectory atTime(double seconds, Runnable action) {
+    EventMarker marker = new EventMarker(Math.min(seconds, trajectory.getTotalTime()), action);
+    int index = 0;
+    while (index < markers.size() && markers.get(index).time <= marker.time) {
+      index++;
+    }
+    markers.add(index, marker);
+    return this;
+  }
+
+  /**
+   * Runs an action once the reference has travelled this far along the path.
+   * @param meters Distance from the start of the path: (in Meters)
+   */
+  public FollowTrajectory atDistance(double meters, Runnable action) {
+    return atTime(trajectory.getTimeAtDistance(meters), action);
+  }
+
+  /**
+   * How much of an action started by a marker at this time overlaps the path, i.e. the time
+   * it saves compared to starting the action once the path is done.
+   * @param actionTime How long the action takes: (in Seconds)
+   */
+  public double getOverlap(double markerTime, double actionTime) {
+    return getOverlap(trajectory, markerTime, actionTime);
+  }
+
+  /** Same as {@link #getOverlap(double, double)}, for a trajectory without a follower. */
+  public static double getOverlap(PrecomputedTrajectory trajectory, double markerTime, double actionTime) {
+    return MathUtil.clamp(trajectory.getTotalTime() - markerTime, 0, actionTime);
+  }
+
+  public double getTimeAtDistance(double meters) {
+    return trajectory.getTimeAtDistance(meters);
+  }
+
+  // Called when the command is initially scheduled.
+  @Override
+  public void initialize() {
+    trajectory.reset();
+    // Start from the wheel angles the robot already has
+    SwerveModuleState[] currentStates = s_Swerve.getModuleStates();
+    for (int i = 0; i < moduleAngles.length; i++) {
+      moduleAngles[i] = currentStates[i].angle.getRadians();
+    }
+    maxPositionError = 0;
+    sumSquaredPositionError = 0;
+    errorSamples = 0;
+    maxAllocatedBytes = 0;
+    nextMarker = 0;
+    startTime = RobotClock.now();
+  }
+
+  // Called every time the scheduler runs while the command is scheduled.
+  @Override
+  public void execute() {
+    double time = RobotClock.since(startTime);
+    long allocatedBefore = threadBean != null ? threadBean.getCurrentThreadAllocatedBytes() : 0;
+    double positionError = calculate(time, useFieldPose ? s_Swerve.getFieldPose() : s_Swerve.getPose());
+    if (threadBean != null) {
+      maxAllocatedBytes = Math.max(maxAllocatedBytes, threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore);
+    }
+
+    maxPositionError = Math.max(maxPositionError, positionError);
+    sumSquaredPositionError += positionError * positionError;
+    errorSamples++;
+
+    s_Swerve.setModuleStates(moduleSpeeds, moduleAngles);
+    runMarkersUpTo(time);
+
+    SmartDashboard.putNumber("Follower/Position Error (m)", positionError);
+    SmartDashboard.putNumber("Follower/Heading Error (deg)", Math.toDegrees(headingError));
+  }
+
+  /**
+   * Computes the module speeds and angles for one loop without sending them.
+   * Public so the disabled warm up can run exactly this code.
+   * @param time Time since the start of the trajectory: (in Seconds)
+   * @return distance from the reference position: (in Meters)
+   */
+  public double calculate(double time, Pose2d pose) {
+    trajectory.sample(time, reference);
+    double robotX = pose.getX();
+    double robotY = pose.getY();
+    double robotHeading = pose.getRotation().getRadians();
+
+    /* Feedforward */
+    double lead = AutoConstants.kFeedforwardLead;
+    double feedforwardSpeed = reference.velocity + reference.acceleration * lead;
+    double feedforwardDirection = reference.heading + reference.velocity * reference.curvature * lead;
+
+    /* Feedback */
+    double errorX = reference.x - robotX;
+    double errorY = reference.y - robotY;
+    headingError = MathUtil.angleModulus(targetHeading - robotHeading);
+    double fieldVx = feedforwardSpeed * Math.cos(feedforwardDirection) + AutoConstants.kPXController * errorX;
+    double fieldVy = feedforwardSpeed * Math.sin(feedforwardDirection) + AutoConstants.kPYController * errorY;
+    double omega = MathUtil.clamp(AutoConstants.kPThetaController * headingError,
+        -AutoConstants.kMaxAngularSpeedRadiansPerSecond, AutoConstants.kMaxAngularSpeedRadiansPerSecond);
+
+    /* Inverse Kinematics */
+    SwerveMath.toModuleSetpoints(fieldVx, fieldVy, omega, robotHeading, SwerveProfile.moduleX, SwerveProfile.moduleY, moduleSpeeds, moduleAngles);
+
+    return Math.sqrt(errorX * errorX + errorY * errorY);
+  }
+
+  public double getTotalTime() {
+    return trajectory.getTotalTime();
+  }
+
+  private void runMarkersUpTo(double time) {
+    while (nextMarker < markers.size() && markers.get(nextMarker).time <= time) {
+      markers.get(nextMarker).action.run();
+      nextMarker++;
+    }
+  }
+
+  // Called once the command ends or is interrupted.
+  @Override
+  public void end(boolean interrupted) {
+    if (!interrupted) {
+      // The last loop can stop just short of markers at the very end of the path
+      runMarkersUpTo(Double.POSITIVE_INFINITY);
+    }
+    double rmsError = errorSamples > 0 ? Math.sqrt(sumSquaredPositionError / errorSamples) : 0;
+    SmartDashboard.putNumber("Follower/Max Position Error (m)", maxPositionError);
+    SmartDashboard.putNumber("Follower/RMS Position Error (m)", rmsError);
+    SmartDashboard.putNumber("Follower/Max Allocated Bytes Per Loop", maxAllocatedBytes);
+    DataLogManager.log(String.format("[Follower] %s: max error %.3f m, RMS error %.3f m, max %d bytes allocated per loop%s",
+        name, maxPositionError, rmsError, maxAllocatedBytes, interrupted ? " (interrupted)" : ""));
+  }
+
+  // Returns true when the command should end.
+  @Override
+  public boolean isFinished() {
+    return RobotClock.since(startTime) >= trajectory.getTotalTime();
+  }
+}
@@ -5,41 +5,39 @@
 package frc.robot.commands;
 
 import edu.wpi.first.wpilibj2.command.Command;
-import frc.robot.subsystems.Arm;
-import frc.robot.subsystems.Intake;
-import frc.robot.subsystems.Lighting;
+import frc.robot.subsystems.Superstructure;
+import frc.robot.subsystems.Superstructure.State;
 
 public class IntakeNote extends Command {
-  private Intake s_Intake;
-  private Arm s_Arm;
-  private Lighting s_Lighting;
+  private Superstructure s_Superstructure;
 
   /** Creates a new IntakeControl. */
-  public IntakeNote(Intake intake, Arm arm) {
+  public IntakeNote(Superstructure superstructure) {
     // Use addRequirements() here to declare subsystem dependencies.
-    s_Intake = intake;
-    s_Arm = arm;
+    s_Superstructure = superstructure;
+    addRequirements(s_Superstructure);
   }
 
   // Called when the command is initially scheduled.
   @Override
-  public void initialize() {}
+  public void initialize() {
+    s_Superstructure.requestState(State.INTAKING);
+  }
 
   // Called every time the scheduler runs while the command is scheduled.
   @Override
-  public void execute() {
-    s_Intake.deployAndIntake(s_Arm);
-  }
+  public void execute() {}
 
   // Called once the command ends or is interrupted.
   @Override
   public void end(boolean interrupted) {
-    s_Intake.resetIntake(s_Arm, s_Lighting);
+    s_Superstructure.requestState(s_Superstructure.hasNote() ? State.HOLDING : State.IDLE);
   }
 
   // Returns true when the command should end.
   @Override
   public boolean isFinished() {
-    return false;
+    // Stop and retract as soon as the note is seated
+    return s_Superstructure.hasNote();
   }
 }
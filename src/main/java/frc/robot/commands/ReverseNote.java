@@ -0,0 +1,42 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.subsystems.Superstructure;
+import frc.robot.subsystems.Superstructure.State;
+
+public class ReverseNote extends Command {
+  private Superstructure s_Superstructure;
+
+  /** Creates a new ReverseNote. Backs the note out with the indexor while it runs. */
+  public ReverseNote(Superstructure superstructure) {
+    // Use addRequirements() here to declare subsystem dependencies.
+    s_Superstructure = superstructure;
+    addRequirements(s_Superstructure);
+  }
+
+  // Called when the command is initially scheduled.
+  @Override
+  public void initialize() {
+    s_Superstructure.requestState(State.REVERSING);
+  }
+
+  // Called every time the scheduler runs while the command is scheduled.
+  @Override
+  public void execute() {}
+
+  // Called once the command ends or is interrupted.
+  @Override
+  public void end(boolean interrupted) {
+    s_Superstructure.requestState(State.IDLE);
+  }
+
+  // Returns true when the command should end.
+  @Override
+  public boolean isFinished() {
+    return false;
+  }
+}
@@ -5,41 +5,39 @@
 package frc.robot.commands;
 
 import edu.wpi.first.wpilibj2.command.Command;
-import frc.robot.subsystems.Arm;
 import frc.robot.subsystems.Climber;
-import frc.robot.subsystems.Intake;
+import frc.robot.subsystems.Superstructure;
+import frc.robot.subsystems.Superstructure.State;
 
 public class RunClimbersToFirstState extends Command {
-  private Intake s_Intake;
-  private Arm s_Arm;
   private Climber s_Climber;
+  private Superstructure s_Superstructure;
 
   /** Creates a new RunClimbersToFirstState. */
-  public RunClimbersToFirstState(Intake intake, Arm arm, Climber climber) {
+  public RunClimbersToFirstState(Climber climber, Superstructure superstructure) {
     // Use addRequirements() here to declare subsystem dependencies.
-    s_Intake = intake;
-    s_Arm = arm;
     s_Climber = climber;
+    s_Superstructure = superstructure;
+    addRequirements(s_Climber, s_Superstructure);
   }
 
   // Called when the command is initially scheduled.
   @Override
   public void initialize() {
-    s_Intake.deployPlus();
+    // Deploys the intake and raises the arm once it is clear
+    s_Superstructure.requestState(State.CLIMB);
   }
 
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void execute() {
     s_Climber.setClimberToClimbPos();
-    if (s_Intake.isIntakePlusEnabled() == true) {
-      s_Arm.setArmToClimbPos();
-    }
   }
 
   // Called once the command ends or is interrupted.
   @Override
   public void end(boolean interrupted) {
+    // The superstructure stays in CLIMB so the arm is not stowed under the chain
     s_Climber.setClimberOutput(0);
   }
 
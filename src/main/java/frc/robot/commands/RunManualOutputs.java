@@ -0,0 +1,50 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.subsystems.Superstructure;
+import frc.robot.subsystems.Superstructure.State;
+
+public class RunManualOutputs extends Command {
+  private Superstructure s_Superstructure;
+  private double innerRollerOutput;
+  private double outerRollerOutput;
+  private double indexorOutput;
+  private double shooterOutput;
+
+  /** Creates a new RunManualOutputs. Runs the rollers, indexor and shooter at fixed outputs while it runs. */
+  public RunManualOutputs(Superstructure superstructure, double innerRollerOutput, double outerRollerOutput, double indexorOutput, double shooterOutput) {
+    // Use addRequirements() here to declare subsystem dependencies.
+    s_Superstructure = superstructure;
+    this.innerRollerOutput = innerRollerOutput;
+    this.outerRollerOutput = outerRollerOutput;
+    this.indexorOutput = indexorOutput;
+    this.shooterOutput = shooterOutput;
+    addRequirements(s_Superstructure);
+  }
+
+  // Called when the command is initially scheduled.
+  @Override
+  public void initialize() {
+    s_Superstructure.requestManualOutputs(innerRollerOutput, outerRollerOutput, indexorOutput, shooterOutput);
+  }
+
+  // Called every time the scheduler runs while the command is scheduled.
+  @Override
+  public void execute() {}
+
+  // Called once the command ends or is interrupted.
+  @Override
+  public void end(boolean interrupted) {
+    s_Superstructure.requestState(State.IDLE);
+  }
+
+  // Returns true when the command should end.
+  @Override
+  public boolean isFinished() {
+    return false;
+  }
+}
@@ -4,27 +4,47 @@
 
 package frc.robot.subsystems;
 
-import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
-import com.revrobotics.CANSparkBase.IdleMode;
-import com.revrobotics.CANSparkBase.SoftLimitDirection;
+import static edu.wpi.first.units.MutableMeasure.mutable;
+import static edu.wpi.first.units.Units.Rotations;
+import static edu.wpi.first.units.Units.RotationsPerSecond;
+import static edu.wpi.first.units.Units.Seconds;
+import static edu.wpi.first.units.Units.Volts;
+
+import java.util.function.DoubleUnaryOperator;
+
 import com.revrobotics.CANSparkLowLevel.MotorType;
-import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
 import com.revrobotics.RelativeEncoder;
 import com.revrobotics.SparkPIDController;
 import com.revrobotics.SparkRelativeEncoder;
 
+import edu.wpi.first.units.Angle;
+import edu.wpi.first.units.MutableMeasure;
+import edu.wpi.first.units.Velocity;
+import edu.wpi.first.units.Voltage;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 import frc.lib.math.LinearInterpolation;
-import frc.lib.util.PIDGains;
+import frc.lib.util.CachedSparkMax;
+import frc.lib.util.CachedTalonSRX;
+import frc.lib.util.DeviceConfigurator;
+import frc.lib.util.RobotEvents;
+import frc.robot.CycleTelemetry;
+import frc.robot.CycleTelemetry.Stage;
 import frc.robot.Constants.ArmProfile;
+import frc.robot.Constants.PowerProfile;
+import frc.robot.Constants.SchedulerProfile;
+import frc.robot.Constants.SysIdProfile;
 
 public class Arm extends SubsystemBase {
-  private CANSparkMax m_pivotA = new CANSparkMax(ArmProfile.pivotMotorID_A, MotorType.kBrushless);
-  private CANSparkMax m_pivotB = new CANSparkMax(ArmProfile.pivotMotorID_B, MotorType.kBrushless);
-  private WPI_TalonSRX m_indexor = new WPI_TalonSRX(ArmProfile.indexorID);
-  private WPI_TalonSRX m_shooterA = new WPI_TalonSRX(ArmProfile.shooterID_A);
-  private WPI_TalonSRX m_shooterB = new WPI_TalonSRX(ArmProfile.shooterID_B);
+  /* Cached controllers skip resending outputs that have not changed */
+  private CachedSparkMax m_pivotA = new CachedSparkMax(ArmProfile.pivotMotorID_A, MotorType.kBrushless);
+  private CachedSparkMax m_pivotB = new CachedSparkMax(ArmProfile.pivotMotorID_B, MotorType.kBrushless);
+  private CachedTalonSRX m_indexor = new CachedTalonSRX(ArmProfile.indexorID);
+  private CachedTalonSRX m_shooterA = new CachedTalonSRX(ArmProfile.shooterID_A);
+  private CachedTalonSRX m_shooterB = new CachedTalonSRX(ArmProfile.shooterID_B);
 
   //private WPI_VictorSPX
   private RelativeEncoder pivotEncoderA = m_pivotA.getEncoder(SparkRelativeEncoder.Type.kHallSensor, ArmProfile.neoEncoderCountsPerRev);
@@ -32,57 +52,94 @@ public class Arm extends SubsystemBase {
 
   private SparkPIDController pivotControllerA = m_pivotA.getPIDController();
   private SparkPIDController pivotControllerB = m_pivotB.getPIDController();
+  private double requestedArmOutput = 0;
+  private boolean armVoltageMode = false;
+  private double armOutput = 0;
+  private DoubleUnaryOperator armOutputLimiter = DoubleUnaryOperator.identity();
 
   //private DigitalInput indexorSensor = new DigitalInput(ArmProfile.noteDetectorChannel);
 
-  /** Creates a new Arm. */
-  public Arm() {
+  /* SysId Logging, reused every sample */
+  private final MutableMeasure<Voltage> sysIdVoltage = mutable(Volts.of(0));
+  private final MutableMeasure<Angle> sysIdAngle = mutable(Rotations.of(0));
+  private final MutableMeasure<Velocity<Angle>> sysIdVelocity = mutable(RotationsPerSecond.of(0));
+
+  /* Pivot: logged in pivot motor shaft rotations. The superstructure interlock still applies, so deploy the intake first */
+  private final SysIdRoutine pivotRoutine = new SysIdRoutine(
+      new SysIdRoutine.Config(
+          Volts.of(SysIdProfile.kArmRampRate).per(Seconds.of(1)),
+          Volts.of(SysIdProfile.kArmStepVoltage),
+          Seconds.of(SysIdProfile.kArmTimeout)),
+      new SysIdRoutine.Mechanism(
+          volts -> setArmVoltage(volts.in(Volts)),
+          log -> log.motor("arm-pivot")
+              .voltage(sysIdVoltage.mut_replace(m_pivotA.getAppliedOutput() * m_pivotA.getBusVoltage(), Volts))
+              .angularPosition(sysIdAngle.mut_replace(pivotEncoderA.getPosition() / ArmProfile.kPositionFactor, Rotations))
+              .angularVelocity(sysIdVelocity.mut_replace(pivotEncoderA.getVelocity() / 60.0, RotationsPerSecond)),
+          this,
+          "arm-pivot"));
+
+  /* Shooter: both wheels driven together, measured with shooter B's encoder */
+  private final SysIdRoutine shooterRoutine = new SysIdRoutine(
+      new SysIdRoutine.Config(
+          Volts.of(SysIdProfile.kShooterRampRate).per(Seconds.of(1)),
+          Volts.of(SysIdProfile.kShooterStepVoltage),
+          Seconds.of(SysIdProfile.kShooterTimeout)),
+      new SysIdRoutine.Mechanism(
+          volts -> {
+            m_shooterA.setVoltage(volts.in(Volts));
+            m_shooterB.setVoltage(volts.in(Volts));
+          },
+          log -> log.motor("shooter")
+              .voltage(sysIdVoltage.mut_replace(m_shooterB.getMotorOutputVoltage(), Volts))
+              .angularPosition(sysIdAngle.mut_replace(m_shooterB.getSelectedSensorPosition() / ArmProfile.kShooterEncoderCountsPerRev, Rotations))
+              // Talon SRX velocity is in counts per 100 ms
+              .angularVelocity(sysIdVelocity.mut_replace(m_shooterB.getSelectedSensorVelocity() * 10.0 / ArmProfile.kShooterEncoderCountsPerRev, RotationsPerSecond)),
+          this,
+          "shooter"));
+
+  /** Creates a new Arm. Devices are configured separately by configureDevices() so it can run alongside other subsystems. */
+  public Arm() {}
+
+  /** Configures the arm's controllers, returns false if any configuration write failed. */
+  public boolean configureDevices() {
     /* Initaliaztion Box */
     /* Factory Resets */
-    m_pivotA.restoreFactoryDefaults();
-    m_pivotB.restoreFactoryDefaults();
     m_indexor.configFactoryDefault();
     m_shooterA.configFactoryDefault();
     m_shooterB.configFactoryDefault();
  
     /* Inversion Factors */
-    m_pivotA.setInverted(true);
-    m_pivotB.setInverted(false);
     m_indexor.setInverted(true);
     m_shooterA.setInverted(false);
     m_shooterB.setInverted(false);
 
-    /* Arm Current Limiting */
-    m_pivotA.setSmartCurrentLimit(ArmProfile.kPivotCurrentLimit);
-    m_pivotB.setSmartCurrentLimit(ArmProfile.kPivotCurrentLimit);
-
-    /* Arm Software Limiting */
-    m_pivotA.enableSoftLimit(SoftLimitDirection.kReverse, true);
-    m_pivotB.enableSoftLimit(SoftLimitDirection.kReverse, true);
-    m_pivotA.enableSoftLimit(SoftLimitDirection.kForward, false);
-    m_pivotB.enableSoftLimit(SoftLimitDirection.kForward, false);
-    m_pivotA.setSoftLimit(SoftLimitDirection.kReverse, (float)ArmProfile.kPivotSoftLimitRvs);
-    m_pivotB.setSoftLimit(SoftLimitDirection.kReverse, (float)ArmProfile.kPivotSoftLimitRvs);
-    m_pivotA.setSoftLimit(SoftLimitDirection.kForward, (float)ArmProfile.kPivotSoftLiimitFwd);
-    m_pivotB.setSoftLimit(SoftLimitDirection.kForward, (float)ArmProfile.kPivotSoftLiimitFwd);
-
-    /* Arm Neutral Modes */
-    m_pivotA.setIdleMode(IdleMode.kBrake);
-    m_pivotB.setIdleMode(IdleMode.kBrake);
-
-    /* Conversion Factors */
-    pivotEncoderA.setPositionConversionFactor(ArmProfile.kPositionFactor);
-    pivotEncoderB.setVelocityConversionFactor(ArmProfile.kVelocityFactor);
+    /* Shooter And Indexor Current Limits, only while the current budget is applied, which lowers them while other loads need the current
+     * A peak limit of 0 makes the continuous limit apply straight away
+     * Voltage compensation keeps shot speed the same as the battery sags */
+    for (CachedTalonSRX talon : new CachedTalonSRX[] {m_shooterA, m_shooterB, m_indexor}) {
+      if (PowerProfile.kApplyCurrentBudget) {
+        talon.configPeakCurrentLimit(0);
+        talon.enableCurrentLimit(true);
+      }
+      talon.configVoltageCompensation(PowerProfile.kCompensationVoltage);
+    }
+    if (PowerProfile.kApplyCurrentBudget) {
+      setShooterCurrentLimit(PowerProfile.kShooterMaxCurrentLimit);
+      setIndexorCurrentLimit(PowerProfile.kIndexorMaxCurrentLimit);
+    }
+
+    /* Pivot Inverts, Current Limits, Voltage Compensation, Soft Limits, Neutral Modes, Conversion Factors and PID Gains
+     * Only parameters that differ from the profile are written, and flash is only burned if something changed */
+    boolean pivotAOk = DeviceConfigurator.configureSparkMax("Arm Pivot A", m_pivotA, pivotEncoderA, pivotControllerA, ArmProfile.kPivotAProfile);
+    boolean pivotBOk = DeviceConfigurator.configureSparkMax("Arm Pivot B", m_pivotB, pivotEncoderB, pivotControllerB, ArmProfile.kPivotBProfile);
+
     pivotEncoderA.setPosition(ArmProfile.pivotInitialPos);
     pivotEncoderB.setPosition(ArmProfile.pivotInitialPos);
 
-    /* Arm PID Gains */
-    PIDGains.setSparkMaxGains(pivotControllerA, ArmProfile.kArmPositionGains);
-    PIDGains.setSparkMaxGains(pivotControllerB, ArmProfile.kArmPositionGains);
-
-    /* Flash Arm Controllers with Set Config */
-    m_pivotA.burnFlash();
-    m_pivotB.burnFlash();
+    /* Position is read by the superstructure in the fast rate tier */
+    m_pivotA.setPeriodicFramePeriod(PeriodicFrame.kStatus2, (int)(SchedulerProfile.kFastPeriod * 1000));
+    return pivotAOk && pivotBOk;
   }
 
   /* Set Arm To Position Logic:
@@ -155,6 +212,20 @@ public class Arm extends SubsystemBase {
     }
   }
 
+  /* Move Arm To Position Logic:
+   * -Same as fireAtSetPos but never runs the indexor, so the superstructure decides when to fire
+   */
+  public void setArmToPos(double commandedPos) {
+    if (isArmAtPos(commandedPos)) {
+      setArmOutput(0);
+    }
+    else if (pivotEncoderA.getPosition() < commandedPos) {
+      setArmOutput(ArmProfile.kArmDefaultOutput);
+    }
+    else {
+      setArmOutput(-0.15);
+    }
+  }
 
   public void resetArm() {
     setIndexorOuput(0);
@@ -178,6 +249,29 @@ public class Arm extends SubsystemBase {
     }
   }
 
+  public double getArmPosition() {
+    return pivotEncoderA.getPosition();
+  }
+
+  /** Output actually sent to the pivot, after the limiter. */
+  public double getArmOutput() {
+    return armOutput;
+  }
+
+  /** Output last asked for by setArmOutput or setArmVoltage, before the limiter. */
+  public double getRequestedArmOutput() {
+    return requestedArmOutput;
+  }
+
+  /** Whether the pivot is driven in the Spark Max's voltage mode (setArmVoltage) instead of duty cycle. */
+  public boolean isArmVoltageMode() {
+    return armVoltageMode;
+  }
+
+  public boolean isArmAtPos(double commandedPos) {
+    return Math.abs(pivotEncoderA.getPosition() - commandedPos) <= ArmProfile.kPivotPosThreshold;
+  }
+
   public boolean isArmClearForClimb() {
     if (pivotEncoderA.getPosition() >= ArmProfile.kPivotClimbPos - ArmProfile.kPivotPosThreshold) {
       return true;
@@ -216,18 +310,93 @@ public class Arm extends SubsystemBase {
     }
   }
 
-  public boolean isNoteDetected() {
-    if (m_indexor.getSupplyCurrent() > 4) {
-      return true;
+  public double getIndexorCurrent() {
+    return m_indexor.getSupplyCurrent();
+  }
+
+  /* Spark Max only measures motor current, supply current is that times the duty cycle */
+  public double getPivotSupplyCurrent() {
+    return Math.abs(m_pivotA.getAppliedOutput()) * m_pivotA.getOutputCurrent()
+        + Math.abs(m_pivotB.getAppliedOutput()) * m_pivotB.getOutputCurrent();
+  }
+
+  public double getShooterSupplyCurrent() {
+    return m_shooterA.getSupplyCurrent() + m_shooterB.getSupplyCurrent();
+  }
+
+  /* Current Budget: per motor limits, only sent when they change */
+  public void setShooterCurrentLimit(double amps) {
+    m_shooterA.configContinuousCurrentLimit((int)amps);
+    m_shooterB.configContinuousCurrentLimit((int)amps);
+  }
+
+  public void setIndexorCurrentLimit(double amps) {
+    m_indexor.configContinuousCurrentLimit((int)amps);
+  }
+
+  public boolean isIndexorRunning() {
+    return m_indexor.get() != 0;
+  }
+
+  public void setArmOutput(double commandedOutputFraction) {
+    requestedArmOutput = commandedOutputFraction;
+    armVoltageMode = false;
+    applyArmOutput();
+  }
+
+  /* SysId: both pivot motors at a voltage, passed through the limiter like any other output */
+  public void setArmVoltage(double volts) {
+    requestedArmOutput = volts / PowerProfile.kCompensationVoltage;
+    armVoltageMode = true;
+    applyArmOutput();
+  }
+
+  /** Every pivot output goes through this before it reaches the motors, the superstructure uses it for its collision interlock. */
+  public void setArmOutputLimiter(DoubleUnaryOperator limiter) {
+    armOutputLimiter = limiter;
+  }
+
+  /**
+   * Sends the last requested output through the limiter to the motors again.
+   * Called every cycle so a held move stays stopped and resumes once allowed, without a new request.
+   */
+  public void applyArmOutput() {
+    armOutput = armOutputLimiter.applyAsDouble(requestedArmOutput);
+    if (armVoltageMode) {
+      m_pivotA.setVoltage(armOutput * PowerProfile.kCompensationVoltage);
+      m_pivotB.setVoltage(armOutput * PowerProfile.kCompensationVoltage);
     }
     else {
-      return false;
+      m_pivotA.set(armOutput);
+      m_pivotB.set(armOutput);
     }
   }
 
-  public void setArmOutput(double commandedOutputFraction) {
-    m_pivotA.set(commandedOutputFraction);
-    m_pivotB.set(commandedOutputFraction);
+  /* Pivot routines stop short of the ends of the arm's travel, the forward soft limit is not enabled */
+  public Command pivotSysIdQuasistatic(SysIdRoutine.Direction direction) {
+    return pivotRoutine.quasistatic(direction).until(() -> isPastSysIdLimit(direction));
+  }
+
+  public Command pivotSysIdDynamic(SysIdRoutine.Direction direction) {
+    return pivotRoutine.dynamic(direction).until(() -> isPastSysIdLimit(direction));
+  }
+
+  private boolean isPastSysIdLimit(SysIdRoutine.Direction direction) {
+    return direction == SysIdRoutine.Direction.kForward
+        ? getArmPosition() >= SysIdProfile.kArmMaxPos
+        : getArmPosition() <= SysIdProfile.kArmMinPos;
+  }
+
+  public Command shooterSysIdQuasistatic(SysIdRoutine.Direction direction) {
+    return shooterRoutine.quasistatic(direction);
+  }
+
+  public Command shooterSysIdDynamic(SysIdRoutine.Direction direction) {
+    return shooterRoutine.dynamic(direction);
+  }
+
+  public boolean isShooterRunning() {
+    return m_shooterB.get() != 0;
   }
 
   public void setIndexorOuput(double commandedOutputFraction) {
@@ -253,10 +422,12 @@ public class Arm extends SubsystemBase {
   @Override
   public void periodic() {
     // This method will be called once per scheduler run
+    RobotEvents.beginPeriodic(getName());
     //setArmFWDSoftLimit();
-    isArmReset();
+    if (isArmReset()) {
+      CycleTelemetry.mark(Stage.ARM_RESET);
+    }
 
-    SmartDashboard.putBoolean("Note Collected", isNoteDetected());
    // SmartDashboard.putBoolean("Arm is Reset", isArmReset());
 
    SmartDashboard.putNumber("Indexor Current", m_indexor.getSupplyCurrent());
@@ -265,5 +436,6 @@ public class Arm extends SubsystemBase {
     SmartDashboard.putNumber("Neo Current (A) ", m_pivotA.getOutputCurrent());
     SmartDashboard.putNumber("Neo Current (B)", m_pivotB.getOutputCurrent());
     SmartDashboard.putNumber("Combined Neo Current", m_pivotA.getOutputCurrent() + m_pivotB.getOutputCurrent());
+    RobotEvents.endPeriodic();
   }
 }
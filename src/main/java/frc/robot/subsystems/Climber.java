@@ -4,25 +4,33 @@
 
 package frc.robot.subsystems;
 
-import com.ctre.phoenix6.hardware.TalonFX;
-
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.lib.util.CachedTalonFX;
+import frc.lib.util.DeviceConfigurator;
 import frc.robot.Constants.ClimberProfile;
+import frc.robot.Constants.PowerProfile;
 import frc.robot.Robot;
 
 public class Climber extends SubsystemBase {
-  private TalonFX m_climberA = new TalonFX(ClimberProfile.climberA_ID);
-  private TalonFX m_climberB = new TalonFX(ClimberProfile.climberB_ID);
+  private CachedTalonFX m_climberA = new CachedTalonFX(ClimberProfile.climberA_ID);
+  private CachedTalonFX m_climberB = new CachedTalonFX(ClimberProfile.climberB_ID);
 
   private boolean climberIsMaxHeight = false;
 
-  /** Creates a new Climber. */
-  public Climber() {
-    m_climberA.getConfigurator().apply(Robot.fxConfigs.climberFXConfigA);
-    m_climberB.getConfigurator().apply(Robot.fxConfigs.climberFXConfigB);
+  /** Creates a new Climber. Devices are configured separately by configureDevices(). */
+  public Climber() {}
+
+  /** Configures both climber motors, returns false if any configuration write failed. */
+  public boolean configureDevices() {
+    boolean climberAOk = DeviceConfigurator.configureTalonFX("Climber A", m_climberA, Robot.fxConfigs.climberFXConfigA);
+    boolean climberBOk = DeviceConfigurator.configureTalonFX("Climber B", m_climberB, Robot.fxConfigs.climberFXConfigB);
+    /* The current budget lowers the supply limit from the configured one */
+    m_climberA.setBaseCurrentLimits(Robot.fxConfigs.climberFXConfigA.CurrentLimits);
+    m_climberB.setBaseCurrentLimits(Robot.fxConfigs.climberFXConfigB.CurrentLimits);
 
     m_climberA.setPosition(0);
+    return climberAOk && climberBOk;
   }
 
   public void setClimberToClimbPos() {
@@ -44,26 +52,41 @@ public class Climber extends SubsystemBase {
     }
   }
 
+  public double getSupplyCurrent() {
+    return m_climberA.getSupplyCurrent().getValueAsDouble() + m_climberB.getSupplyCurrent().getValueAsDouble();
+  }
+
+  /* Current Budget: per motor supply limit, only sent when it changes */
+  public void setCurrentLimit(double amps) {
+    m_climberA.setSupplyCurrentLimit(amps);
+    m_climberB.setSupplyCurrentLimit(amps);
+  }
+
   public boolean isClimberMaxHeight() {
     return climberIsMaxHeight;
   }
 
+  /* Outputs are fractions of the compensation voltage, Phoenix 6 holds the voltage on the motor as the battery sags */
   public void setClimberOutput(double commandedOutputFraction) {
-    m_climberA.set(commandedOutputFraction);
-    m_climberB.set(commandedOutputFraction);
+    setClimberAOutput(commandedOutputFraction);
+    setClimberBOutput(commandedOutputFraction);
   }
 
   public void setClimberAOutput(double commandedOutputFraction) {
-    m_climberA.set(commandedOutputFraction);
+    m_climberA.setVoltage(commandedOutputFraction * PowerProfile.kCompensationVoltage);
   }
 
   public void setClimberBOutput(double commandedOutputFraction) {
-    m_climberB.set(commandedOutputFraction);
+    m_climberB.setVoltage(commandedOutputFraction * PowerProfile.kCompensationVoltage);
   }
 
   @Override
   public void periodic() {
     // This method will be called once per scheduler run
+  }
+
+  /* Runs in the slow rate tier */
+  public void updateTelemetry() {
     SmartDashboard.putNumber("Climber Encoder Counts", m_climberA.getPosition().getValue());
     SmartDashboard.putNumber("Climber Current Output", m_climberA.getSupplyCurrent().getValue());
   }
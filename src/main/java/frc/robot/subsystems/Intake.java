@@ -4,61 +4,81 @@
 
 package frc.robot.subsystems;
 
-import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
+import java.util.function.DoubleUnaryOperator;
+
 import com.revrobotics.CANSparkBase.IdleMode;
-import com.revrobotics.CANSparkBase.SoftLimitDirection;
 import com.revrobotics.CANSparkLowLevel.MotorType;
-import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
 import com.revrobotics.RelativeEncoder;
 import com.revrobotics.SparkPIDController;
 import com.revrobotics.SparkRelativeEncoder;
 
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import frc.lib.util.PIDGains;
+import frc.lib.util.CachedSparkMax;
+import frc.lib.util.CachedTalonSRX;
+import frc.lib.util.DeviceConfigurator;
+import frc.lib.util.RobotEvents;
+import frc.robot.CycleTelemetry;
+import frc.robot.CycleTelemetry.Stage;
 import frc.robot.Constants.IntakeProfile;
+import frc.robot.Constants.PowerProfile;
+import frc.robot.Constants.SchedulerProfile;
 
 public class Intake extends SubsystemBase {
-  private CANSparkMax m_wrist = new CANSparkMax(IntakeProfile.wristID, MotorType.kBrushless);
-  private WPI_TalonSRX m_outerRoller = new WPI_TalonSRX(IntakeProfile.outerRoller);
-  private WPI_TalonSRX m_innerRoller = new WPI_TalonSRX(IntakeProfile.innerRoller);
+  /* Cached controllers skip redundant outputs and the blocking idle mode changes made every loop */
+  private CachedSparkMax m_wrist = new CachedSparkMax(IntakeProfile.wristID, MotorType.kBrushless);
+  private CachedTalonSRX m_outerRoller = new CachedTalonSRX(IntakeProfile.outerRoller);
+  private CachedTalonSRX m_innerRoller = new CachedTalonSRX(IntakeProfile.innerRoller);
 
   private RelativeEncoder wristEncoder = m_wrist.getEncoder(SparkRelativeEncoder.Type.kHallSensor, IntakeProfile.neoEncoderCountsPerRev);
 
   private SparkPIDController wristController = m_wrist.getPIDController();
+  private double requestedWristOutput = 0;
+  private double wristOutput = 0;
+  private DoubleUnaryOperator wristOutputLimiter = DoubleUnaryOperator.identity();
        
   //private TimeOfFlight distanceSensor = new TimeOfFlight(0);
   //private double safeZoneSensor = distanceSensor.getRange();
 
-  /** Creates a new Intake. */
-  public Intake() {
-    m_wrist.restoreFactoryDefaults();
+  /** Creates a new Intake. Devices are configured separately by configureDevices(). */
+  public Intake() {}
+
+  /** Configures the intake's controllers, returns false if any configuration write failed. */
+  public boolean configureDevices() {
     m_outerRoller.configFactoryDefault();
     m_innerRoller.configFactoryDefault();
 
     m_wrist.clearFaults();
 
-    m_wrist.setInverted(false);
     m_outerRoller.setInverted(true);
     m_innerRoller.setInverted(true);
 
-    m_wrist.setSmartCurrentLimit(IntakeProfile.kWristCurrentLimit);
-    m_outerRoller.configPeakCurrentLimit(IntakeProfile.kRollerCurrentLimit);
+    /* Roller Current Limits, only while the current budget is applied, which lowers them and sheds them when the voltage sags
+     * A peak limit of 0 makes the continuous limit apply straight away */
+    if (PowerProfile.kApplyCurrentBudget) {
+      m_outerRoller.configPeakCurrentLimit(0);
+      m_innerRoller.configPeakCurrentLimit(0);
+      m_outerRoller.enableCurrentLimit(true);
+      m_innerRoller.enableCurrentLimit(true);
+      setRollerCurrentLimit(IntakeProfile.kRollerCurrentLimit);
+    }
+    else {
+      m_outerRoller.configPeakCurrentLimit(IntakeProfile.kRollerCurrentLimit);
+    }
 
-    m_wrist.enableSoftLimit(SoftLimitDirection.kReverse, true);
-    m_wrist.enableSoftLimit(SoftLimitDirection.kForward, true);
-    m_wrist.setSoftLimit(SoftLimitDirection.kReverse, (float)IntakeProfile.kInitialPos);
-    m_wrist.setSoftLimit(SoftLimitDirection.kForward, (float)IntakeProfile.kDeployedPos);
+    /* Roller outputs are fractions of the compensation voltage, so intaking does not slow as the battery sags */
+    m_outerRoller.configVoltageCompensation(PowerProfile.kCompensationVoltage);
+    m_innerRoller.configVoltageCompensation(PowerProfile.kCompensationVoltage);
 
-    m_wrist.setIdleMode(IdleMode.kBrake);
+    /* Only wrist parameters that differ from the profile are written, and flash is only burned if something changed */
+    boolean wristOk = DeviceConfigurator.configureSparkMax("Intake Wrist", m_wrist, wristEncoder, wristController, IntakeProfile.kWristProfile);
 
-    wristEncoder.setPositionConversionFactor(IntakeProfile.kPositionFactor);
-    wristEncoder.setVelocityConversionFactor(IntakeProfile.kVelocityFactor);
     wristEncoder.setPosition(IntakeProfile.kInitialPos);
 
-    PIDGains.setSparkMaxGains(wristController, IntakeProfile.kWristPositionGains);
-
-    m_wrist.burnFlash();
+    /* Position is read by the superstructure in the fast rate tier */
+    m_wrist.setPeriodicFramePeriod(PeriodicFrame.kStatus2, (int)(SchedulerProfile.kFastPeriod * 1000));
+    return wristOk;
   }
 
   public void deployPlus() {
@@ -67,7 +87,7 @@ public class Intake extends SubsystemBase {
       m_wrist.setIdleMode(IdleMode.kCoast);
     }
     else {
-      m_wrist.set(0.25);
+      setWristOutput(0.25);
     }
   }
 
@@ -109,7 +129,7 @@ public class Intake extends SubsystemBase {
       //s_lighting.setTeleOpLightShow();
     }
     else {
-      m_wrist.set(-0.18);
+      setWristOutput(-0.18);
       m_wrist.setIdleMode(IdleMode.kBrake);
     }
   }
@@ -124,7 +144,7 @@ public class Intake extends SubsystemBase {
       //s_lighting.setTeleOpLightShow();
     }
     else {
-      m_wrist.set(-0.1);
+      setWristOutput(-0.1);
       m_wrist.setIdleMode(IdleMode.kBrake);
     }
   }
@@ -138,6 +158,29 @@ public class Intake extends SubsystemBase {
     }
   }
 
+  public double getInnerRollerCurrent() {
+    return m_innerRoller.getSupplyCurrent();
+  }
+
+  public double getRollerSupplyCurrent() {
+    return m_innerRoller.getSupplyCurrent() + m_outerRoller.getSupplyCurrent();
+  }
+
+  /* Spark Max only measures motor current, supply current is that times the duty cycle */
+  public double getWristSupplyCurrent() {
+    return Math.abs(m_wrist.getAppliedOutput()) * m_wrist.getOutputCurrent();
+  }
+
+  /* Current Budget: per roller limit, only sent when it changes */
+  public void setRollerCurrentLimit(double amps) {
+    m_innerRoller.configContinuousCurrentLimit((int)amps);
+    m_outerRoller.configContinuousCurrentLimit((int)amps);
+  }
+
+  public boolean isInnerRollerRunning() {
+    return m_innerRoller.get() != 0;
+  }
+
   public void setInnerRollerOutput(double commandedOutputFraction) {
     m_innerRoller.set(commandedOutputFraction);
   } 
@@ -147,16 +190,51 @@ public class Intake extends SubsystemBase {
   } 
 
   public void setWristOutput(double commandedOutputFraction) {
-    m_wrist.set(commandedOutputFraction);
+    requestedWristOutput = commandedOutputFraction;
+    applyWristOutput();
+  }
+
+  /** Every wrist output goes through this before it reaches the motor, the superstructure uses it for its collision interlock. */
+  public void setWristOutputLimiter(DoubleUnaryOperator limiter) {
+    wristOutputLimiter = limiter;
+  }
+
+  /**
+   * Sends the last requested output through the limiter to the motor again.
+   * Called every cycle so a held move stays stopped and resumes once allowed, without a new request.
+   */
+  public void applyWristOutput() {
+    wristOutput = wristOutputLimiter.applyAsDouble(requestedWristOutput);
+    m_wrist.set(wristOutput);
+  }
+
+  /** Output actually sent to the wrist, after the limiter. */
+  public double getWristOutput() {
+    return wristOutput;
+  }
+
+  /** Output last asked for by setWristOutput, before the limiter. */
+  public double getRequestedWristOutput() {
+    return requestedWristOutput;
+  }
+
+  public double getWristPosition() {
+    return wristEncoder.getPosition();
   }
 
   @Override
   public void periodic() {
     // This method will be called once per scheduler run
+    RobotEvents.beginPeriodic(getName());
+    if (wristEncoder.getPosition() <= IntakeProfile.kInitailUpperLimitPos) {
+      CycleTelemetry.mark(Stage.WRIST_RETRACTED);
+    }
+
     SmartDashboard.putNumber("Inner Intake Current Output (Amps)", m_innerRoller.getSupplyCurrent());
     SmartDashboard.putNumber("Outer Intkake Current Output (Amps)", m_outerRoller.getSupplyCurrent());
     SmartDashboard.putNumber("Wrist Current Output (Amps)", m_wrist.getOutputCurrent());
     SmartDashboard.putBoolean("Intake++ is Deployed", isIntakePlusEnabled());
     SmartDashboard.putNumber("Wrist Encoder Counts", wristEncoder.getPosition());
+    RobotEvents.endPeriodic();
   }
 }
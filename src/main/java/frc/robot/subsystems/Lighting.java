@@ -4,6 +4,7 @@
 
 package frc.robot.subsystems;
 
+import com.ctre.phoenix.ErrorCode;
 import com.ctre.phoenix.led.Animation;
 import com.ctre.phoenix.led.CANdle;
 import com.ctre.phoenix.led.CANdle.LEDStripType;
@@ -23,15 +24,20 @@ public class Lighting extends SubsystemBase {
   private CANdle candle = new CANdle(LightingProfile.candldeID);
   private Animation animation = null;
 
-  /** Creates a new Lighting. */
+  /** Creates a new Lighting. The CANdle is configured separately by configureDevices(). */
   public Lighting() {
+    setDisabledLightShow();
+  }
+
+  /** Configures the CANdle, returns false if the configuration was not accepted. */
+  public boolean configureDevices() {
     CANdleConfiguration cfg = new CANdleConfiguration();
     cfg.brightnessScalar = LightingProfile.kBrightnessScalar;
     cfg.vBatOutputMode = VBatOutputMode.Modulated;
 
-    candle.configAllSettings(cfg);
-    candle.configLEDType(LEDStripType.GRB);
-    setDisabledLightShow();
+    ErrorCode settingsError = candle.configAllSettings(cfg);
+    ErrorCode typeError = candle.configLEDType(LEDStripType.GRB);
+    return settingsError == ErrorCode.OK && typeError == ErrorCode.OK;
   }
 
   public void setTeleOpLightShow() {
@@ -60,6 +66,10 @@ public class Lighting extends SubsystemBase {
   @Override
   public void periodic() {
     //This method will be called once per scheduler run
+  }
+
+  /* Runs in the slow rate tier, the CANdle does not need animations resent every loop */
+  public void updateLighting() {
     if (animation != null){
       candle.animate(animation);
     }
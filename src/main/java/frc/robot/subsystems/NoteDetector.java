@@ -0,0 +1,177 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import edu.wpi.first.wpilibj2.command.button.Trigger;
+import frc.lib.util.RobotClock;
+import frc.lib.util.RobotEvents;
+import frc.robot.Constants.NoteDetectorProfile;
+
+/* Note Detection Logic:
+ * -Every scheduler run while the indexor is running, sample indexor and inner roller current into a ring buffer
+ * -Skip the inrush current right after the indexor starts
+ * -A note is seated when the indexor current rises above its recent baseline for several samples in a row
+ *  (and the rollers saw a bump in the same window if they are running)
+ * -The detection stays latched until clear() is called or the note is fed into a running shooter
+ */
+public class NoteDetector extends SubsystemBase {
+  private final BooleanSupplier indexorRunning;
+  private final BooleanSupplier shooterRunning;
+  private final BooleanSupplier rollersRunning;
+  private final DoubleSupplier indexorCurrent;
+  private final DoubleSupplier rollerCurrent;
+
+  private final double[] indexorSamples = new double[NoteDetectorProfile.kSampleWindow];
+  private final double[] rollerSamples = new double[NoteDetectorProfile.kSampleWindow];
+  private final double[] sampleTimestamps = new double[NoteDetectorProfile.kSampleWindow];
+  private int newestIndex = -1;
+  private int sampleCount = 0;
+
+  private boolean indexorWasRunning = false;
+  private double indexorStartTime = 0;
+  private int samplesAboveThreshold = 0;
+
+  private boolean noteSeated = false;
+  private double detectionTimestamp = 0;
+  private int detectionCount = 0;
+
+  /** Creates a new NoteDetector. */
+  public NoteDetector(Arm arm, Intake intake) {
+    this(arm::isIndexorRunning, arm::isShooterRunning, intake::isInnerRollerRunning, arm::getIndexorCurrent, intake::getInnerRollerCurrent);
+  }
+
+  /** Creates a NoteDetector reading its signals from suppliers, so it can be run without the arm and intake */
+  public NoteDetector(BooleanSupplier indexorRunning, BooleanSupplier shooterRunning, BooleanSupplier rollersRunning,
+      DoubleSupplier indexorCurrent, DoubleSupplier rollerCurrent) {
+    this.indexorRunning = indexorRunning;
+    this.shooterRunning = shooterRunning;
+    this.rollersRunning = rollersRunning;
+    this.indexorCurrent = indexorCurrent;
+    this.rollerCurrent = rollerCurrent;
+  }
+
+  private void addSample(double timestamp, double indexorCurrent, double rollerCurrent) {
+    newestIndex = (newestIndex + 1) % indexorSamples.length;
+    indexorSamples[newestIndex] = indexorCurrent;
+    rollerSamples[newestIndex] = rollerCurrent;
+    sampleTimestamps[newestIndex] = timestamp;
+    if (sampleCount < indexorSamples.length) {
+      sampleCount++;
+    }
+  }
+
+  // Index of the sample taken "samplesAgo" runs before the newest one
+  private int indexOf(int samplesAgo) {
+    return (newestIndex - samplesAgo + indexorSamples.length) % indexorSamples.length;
+  }
+
+  private void resetBuffer() {
+    newestIndex = -1;
+    sampleCount = 0;
+    samplesAboveThreshold = 0;
+  }
+
+  private boolean rollersSawNote() {
+    if (!rollersRunning.getAsBoolean()) {
+      return true;
+    }
+    double min = rollerSamples[indexOf(0)];
+    double max = min;
+    for (int i = 1; i < sampleCount; i++) {
+      double sample = rollerSamples[indexOf(i)];
+      min = Math.min(min, sample);
+      max = Math.max(max, sample);
+    }
+    return (max - min) >= NoteDetectorProfile.kRollerSpikeDelta;
+  }
+
+  private void checkForNote() {
+    int debounce = NoteDetectorProfile.kDebounceSamples;
+    if (sampleCount < NoteDetectorProfile.kBaselineSamples + debounce) {
+      return;
+    }
+
+    // Baseline is taken from the samples just before the debounce window
+    double baseline = 0;
+    for (int i = 0; i < NoteDetectorProfile.kBaselineSamples; i++) {
+      baseline += indexorSamples[indexOf(debounce + i)];
+    }
+    baseline /= NoteDetectorProfile.kBaselineSamples;
+
+    double newest = indexorSamples[newestIndex];
+    if ((newest >= baseline + NoteDetectorProfile.kIndexorSpikeDelta) && (newest >= NoteDetectorProfile.kIndexorMinimumCurrent)) {
+      samplesAboveThreshold++;
+    }
+    else {
+      samplesAboveThreshold = 0;
+    }
+
+    if (samplesAboveThreshold >= debounce && rollersSawNote()) {
+      noteSeated = true;
+      // Stamp the event with the first sample of the spike, not the one that confirmed it
+      detectionTimestamp = sampleTimestamps[indexOf(debounce - 1)];
+      detectionCount++;
+    }
+  }
+
+  /** Whether a note has been detected since the last call to clear(). */
+  public boolean isNoteSeated() {
+    return noteSeated;
+  }
+
+  /** Fires when a note becomes seated. */
+  public Trigger noteSeated() {
+    return new Trigger(this::isNoteSeated);
+  }
+
+  /** FPGA timestamp (seconds) of the start of the current spike that detected the last note. */
+  public double getLastDetectionTimestamp() {
+    return detectionTimestamp;
+  }
+
+  public int getDetectionCount() {
+    return detectionCount;
+  }
+
+  /** Forget the held note, e.g. after it has been shot or when starting a new intake. */
+  public void clear() {
+    noteSeated = false;
+    resetBuffer();
+  }
+
+  @Override
+  public void periodic() {
+    // This method will be called once per scheduler run
+    RobotEvents.beginPeriodic(getName());
+    double now = RobotClock.now();
+    boolean indexorOn = indexorRunning.getAsBoolean();
+
+    if (indexorOn && !indexorWasRunning) {
+      indexorStartTime = now;
+      resetBuffer();
+    }
+    indexorWasRunning = indexorOn;
+
+    if (indexorOn && shooterRunning.getAsBoolean()) {
+      // Note is being fired, nothing is held anymore
+      if (noteSeated) {
+        clear();
+      }
+    }
+    else if (indexorOn && !noteSeated && (now - indexorStartTime) >= NoteDetectorProfile.kSpinUpBlankingTime) {
+      addSample(now, indexorCurrent.getAsDouble(), rollerCurrent.getAsDouble());
+      checkForNote();
+    }
+
+    SmartDashboard.putBoolean("Note Collected", noteSeated);
+    SmartDashboard.putNumber("Note Detected Timestamp", detectionTimestamp);
+    RobotEvents.endPeriodic();
+  }
+}
@@ -0,0 +1,369 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.lib.math.CollisionEnvelope;
+import frc.lib.math.JointInterlock;
+import frc.lib.util.RobotClock;
+import frc.lib.util.RobotEvents;
+import frc.robot.CycleTelemetry;
+import frc.robot.CycleTelemetry.Stage;
+import frc.robot.Constants.ArmProfile;
+import frc.robot.Constants.IntakeProfile;
+import frc.robot.Constants.SuperstructureProfile;
+
+/* Arm/Intake Coordination Logic:
+ * -The arm and wrist can only collide while the arm is above its free zone and the wrist is short of clear
+ * -The arm may start moving out of its free zone as soon as the deploying wrist will be clear by the time the arm gets there,
+ *  instead of waiting for the intake to be fully deployed
+ * -Every arm and wrist output, from any writer, passes through the interlock on its way to the motor. Whichever joint
+ *  is predicted to drive into the blocked region is held at 0 until the other one gets out of the way
+ * -The interlock is also the last step of every control cycle, so a held move stays held even if nothing writes again
+ *
+ * State Machine Logic:
+ * -Commands only request a state, the superstructure owns every arm, intake and shooter output
+ * -Each cycle the current state steps toward the requested one, running entry actions once and state actions every cycle
+ * -Shots step through STAGING (wrist deploying, arm moving, shooter spinning up all at once), SPINNING_UP, then FIRING
+ * -A shot requested while intaking goes straight to STAGING, keeping the wrist out instead of retracting and redeploying it
+ * -PRIMED stages the arm and spins the shooter without firing, so auto paths can get a shot ready while driving.
+ *  Requested while intaking it waits for the note to seat first, and a shot requested from PRIMED skips straight to firing
+ * -REVERSING runs the indexor backwards to back a note out, with the rollers stopped
+ * -MANUAL runs the roller, indexor and shooter outputs a technician button holds, and stops them when it is left
+ * -IDLE only stows once on entry, so technician buttons still work while nothing is requested
+ */
+public class Superstructure extends SubsystemBase {
+  public enum State {
+    IDLE,
+    INTAKING,
+    HOLDING,
+    PRIMED,
+    STAGING,
+    SPINNING_UP,
+    FIRING,
+    AMP,
+    CLIMB,
+    REVERSING,
+    MANUAL
+  }
+
+  private Arm s_Arm;
+  private Intake s_Intake;
+  private NoteDetector s_NoteDetector;
+  private Lighting s_Lighting;
+
+  private State state = State.IDLE;
+  private State requestedState = State.IDLE;
+  private double armTarget = ArmProfile.pivotInitialPos;
+  private double stateEnteredTime = 0;
+  private double shooterStartTime = Double.NaN;
+
+  /* Outputs held by the MANUAL state */
+  private double manualInnerRollerOutput = 0;
+  private double manualOuterRollerOutput = 0;
+  private double manualIndexorOutput = 0;
+  private double manualShooterOutput = 0;
+
+  private final CollisionEnvelope envelope = new CollisionEnvelope(SuperstructureProfile.kArmFreeZoneMax, SuperstructureProfile.kWristClearPos);
+  private final JointInterlock interlock;
+
+  /** Creates a new Superstructure. */
+  public Superstructure(Arm arm, Intake intake, NoteDetector noteDetector, Lighting lighting) {
+    s_Arm = arm;
+    s_Intake = intake;
+    s_NoteDetector = noteDetector;
+    s_Lighting = lighting;
+    interlock = new JointInterlock(envelope, SuperstructureProfile.kInterlockLookahead, s_Arm.getArmPosition(), s_Intake.getWristPosition());
+    s_Arm.setArmOutputLimiter(interlock::limitArmOutput);
+    s_Intake.setWristOutputLimiter(interlock::limitWristOutput);
+  }
+
+  /** Requests a state using its default arm position (speaker, amp or climb). */
+  public void requestState(State newState) {
+    switch (newState) {
+      case PRIMED:
+      case STAGING:
+      case SPINNING_UP:
+      case FIRING:
+        requestState(newState, ArmProfile.kpivotSpeakerPos);
+        break;
+      case AMP:
+        requestState(newState, ArmProfile.kpivotAmpPos);
+        break;
+      case CLIMB:
+        requestState(newState, ArmProfile.kPivotClimbPos);
+        break;
+      default:
+        requestState(newState, ArmProfile.pivotInitialPos);
+        break;
+    }
+  }
+
+  /**
+   * Requests a state. The state machine steps toward it on the next cycles.
+   * STAGING, SPINNING_UP and FIRING all request a shot, which steps through those states on its own.
+   * @param armTarget Arm position used by the primed, shot, amp and climb states: (in Encoder Counts)
+   */
+  public void requestState(State newState, double armTarget) {
+    if (newState == State.INTAKING && requestedState != State.INTAKING) {
+      // A new intake request always looks for a new note
+      s_NoteDetector.clear();
+    }
+    requestedState = newState;
+    this.armTarget = armTarget;
+  }
+
+  /** Requests the MANUAL state, running these outputs until another state is requested. */
+  public void requestManualOutputs(double innerRollerOutput, double outerRollerOutput, double indexorOutput, double shooterOutput) {
+    manualInnerRollerOutput = innerRollerOutput;
+    manualOuterRollerOutput = outerRollerOutput;
+    manualIndexorOutput = indexorOutput;
+    manualShooterOutput = shooterOutput;
+    requestState(State.MANUAL);
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  public double getTimeInState() {
+    return RobotClock.now() - stateEnteredTime;
+  }
+
+  public boolean hasNote() {
+    return s_NoteDetector.isNoteSeated();
+  }
+
+  /**
+   * Whether the arm can start moving toward a position this cycle without hitting the intake.
+   * The wrist only has to be clear by the time the arm leaves its free zone.
+   */
+  public boolean canMoveArmTo(double targetPos) {
+    double armPos = interlock.getArmPosition();
+    double wristPos = interlock.getWristPosition();
+    double wristVelocity = interlock.getWristVelocity();
+    if (targetPos <= SuperstructureProfile.kArmFreeZoneMax) {
+      // Moving toward or within the free zone never adds a collision
+      return true;
+    }
+    if (armPos > SuperstructureProfile.kArmFreeZoneMax || wristVelocity <= 0) {
+      // A stopped or retracting wrist is only trusted where it is now
+      return envelope.isSafe(targetPos, wristPos);
+    }
+
+    double timeToLeaveFreeZone = (SuperstructureProfile.kArmFreeZoneMax - armPos) / SuperstructureProfile.kArmSpeedEstimate;
+    double wristWhenArmLeaves = wristPos + wristVelocity * timeToLeaveFreeZone - SuperstructureProfile.kWristClearMargin;
+    return envelope.isSafe(targetPos, wristWhenArmLeaves);
+  }
+
+  /** Whether the wrist could be fully retracted right now without hitting the arm. */
+  public boolean canRetractWrist() {
+    double armPos = interlock.getArmPosition();
+    return envelope.isPathClear(armPos, interlock.getWristPosition(), armPos, IntakeProfile.kInitialPos);
+  }
+
+  private State nextState() {
+    switch (requestedState) {
+      case INTAKING:
+        if (state == State.INTAKING || state == State.HOLDING) {
+          return s_NoteDetector.isNoteSeated() ? State.HOLDING : State.INTAKING;
+        }
+        return State.INTAKING;
+      case PRIMED:
+        if (state == State.INTAKING && !s_NoteDetector.isNoteSeated()) {
+          return State.INTAKING;
+        }
+        return State.PRIMED;
+      case STAGING:
+      case SPINNING_UP:
+      case FIRING:
+        return nextShotState();
+      default:
+        return requestedState;
+    }
+  }
+
+  private State nextShotState() {
+    switch (state) {
+      case STAGING:
+        return s_Arm.isArmAtPos(armTarget) ? State.SPINNING_UP : State.STAGING;
+      case SPINNING_UP:
+        return (RobotClock.now() - shooterStartTime) >= SuperstructureProfile.kShooterSpinUpTime ? State.FIRING : State.SPINNING_UP;
+      case FIRING:
+        return State.FIRING;
+      case PRIMED:
+        // The shooter has been spinning since PRIMED was entered, SPINNING_UP only waits out whatever is left
+        return s_Arm.isArmAtPos(armTarget) ? State.SPINNING_UP : State.STAGING;
+      default:
+        return State.STAGING;
+    }
+  }
+
+  private void setState(State newState) {
+    if (newState == state) {
+      return;
+    }
+    State previousState = state;
+    state = newState;
+    stateEnteredTime = RobotClock.now();
+
+    if (previousState == State.INTAKING && s_NoteDetector.isNoteSeated()) {
+      CycleTelemetry.mark(Stage.NOTE_DETECTED, s_NoteDetector.getLastDetectionTimestamp());
+    }
+    if (previousState == State.REVERSING) {
+      s_Arm.setIndexorOuput(0);
+    }
+    if (previousState == State.MANUAL) {
+      stopRollers();
+      s_Arm.setShooterOutput(0);
+    }
+
+    switch (newState) {
+      case IDLE:
+        s_Arm.resetArm();
+        if (previousState == State.AMP) {
+          s_Intake.resetIntakeForAmp(s_Arm, s_Lighting);
+        }
+        else {
+          s_Intake.resetIntake(s_Arm, s_Lighting);
+        }
+        break;
+      case INTAKING:
+        CycleTelemetry.startCycle();
+        break;
+      case HOLDING:
+        s_Intake.resetIntake(s_Arm, s_Lighting);
+        break;
+      case PRIMED:
+        CycleTelemetry.startCycle();
+        stopRollers();
+        startShooter(ArmProfile.kShooterDefaultOutput);
+        break;
+      case STAGING:
+        if (previousState != State.PRIMED) {
+          CycleTelemetry.startCycle();
+        }
+        stopRollers();
+        startShooter(ArmProfile.kShooterDefaultOutput);
+        break;
+      case SPINNING_UP:
+        CycleTelemetry.mark(Stage.ARM_AT_SCORING_POS);
+        break;
+      case FIRING:
+        s_Arm.setIndexorOuput(ArmProfile.kIndexorDefaultOutput);
+        CycleTelemetry.mark(Stage.INDEXER_FIRE);
+        break;
+      case AMP:
+        CycleTelemetry.startCycle();
+        stopRollers();
+        s_Arm.setAmpShooterOutput(ArmProfile.kShooterAmpOutput);
+        break;
+      case CLIMB:
+        break;
+      case REVERSING:
+        s_Intake.setInnerRollerOutput(0);
+        s_Intake.setOuterRollerOutput(0);
+        s_Arm.setIndexorOuput(ArmProfile.kIndexorReverseOutput);
+        break;
+      case MANUAL:
+        break;
+    }
+  }
+
+  private void runState() {
+    switch (state) {
+      case INTAKING:
+        s_Intake.deployAndIntake(s_Arm);
+        markIntakePlusEnabled();
+        break;
+      case PRIMED:
+      case STAGING:
+      case SPINNING_UP:
+      case FIRING:
+        s_Intake.deployPlus();
+        markIntakePlusEnabled();
+        // The arm starts moving as soon as its path past the deploying intake is clear
+        if (canMoveArmTo(armTarget)) {
+          s_Arm.setArmToPos(armTarget);
+        }
+        break;
+      case AMP:
+        s_Intake.deployPlus();
+        markIntakePlusEnabled();
+        if (canMoveArmTo(armTarget)) {
+          s_Arm.dropNoteInAmp();
+          CycleTelemetry.recordScoringStages(s_Arm.isArmAtPos(armTarget), s_Arm.isIndexorRunning());
+        }
+        break;
+      case CLIMB:
+        s_Intake.deployPlus();
+        if (canMoveArmTo(armTarget)) {
+          s_Arm.setArmToPos(armTarget);
+        }
+        break;
+      case MANUAL:
+        s_Intake.setInnerRollerOutput(manualInnerRollerOutput);
+        s_Intake.setOuterRollerOutput(manualOuterRollerOutput);
+        s_Arm.setIndexorOuput(manualIndexorOutput);
+        s_Arm.setShooterOutput(manualShooterOutput);
+        break;
+      default:
+        // IDLE and HOLDING only act on entry
+        break;
+    }
+  }
+
+  private void markIntakePlusEnabled() {
+    if (s_Intake.isIntakePlusEnabled()) {
+      CycleTelemetry.mark(Stage.INTAKE_PLUS_ENABLED);
+    }
+  }
+
+  private void stopRollers() {
+    s_Intake.setInnerRollerOutput(0);
+    s_Intake.setOuterRollerOutput(0);
+    s_Arm.setIndexorOuput(0);
+  }
+
+  private void startShooter(double commandedOutputFraction) {
+    // Spin up time counts from when the shooter first started, so a shooter that is already running is not restarted
+    if (Double.isNaN(shooterStartTime)) {
+      shooterStartTime = RobotClock.now();
+    }
+    s_Arm.setShooterOutput(commandedOutputFraction);
+  }
+
+  /* Last step of every cycle: the latest requests go through the interlock again against this cycle's joint states */
+  private void enforceInterlocks() {
+    s_Arm.applyArmOutput();
+    s_Intake.applyWristOutput();
+  }
+
+  /* Runs in the fast rate tier, so the interlock reacts within one fast period */
+  public void updateControl() {
+    interlock.update(RobotClock.now(), s_Arm.getArmPosition(), s_Intake.getWristPosition());
+    setState(nextState());
+    runState();
+    enforceInterlocks();
+    if (!s_Arm.isShooterRunning()) {
+      shooterStartTime = Double.NaN;
+    }
+  }
+
+  @Override
+  public void periodic() {
+    // This method will be called once per scheduler run
+    RobotEvents.beginPeriodic(getName());
+    SmartDashboard.putBoolean("Superstructure/Arm Path To Speaker Clear", canMoveArmTo(ArmProfile.kpivotSpeakerPos));
+    SmartDashboard.putNumber("Superstructure/Interlock Count", interlock.getBlockCount());
+    SmartDashboard.putBoolean("Superstructure/Arm Held", interlock.isArmBlocked());
+    SmartDashboard.putBoolean("Superstructure/Wrist Held", interlock.isWristBlocked());
+    SmartDashboard.putString("Superstructure/State", state.toString());
+    SmartDashboard.putString("Superstructure/Requested State", requestedState.toString());
+    SmartDashboard.putNumber("Superstructure/Time In State (s)", RobotClock.now() - stateEnteredTime);
+    RobotEvents.endPeriodic();
+  }
+}
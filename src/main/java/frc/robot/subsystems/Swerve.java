@@ -1,31 +1,126 @@
 package frc.robot.subsystems;
 
+import static edu.wpi.first.units.MutableMeasure.mutable;
+import static edu.wpi.first.units.Units.Meters;
+import static edu.wpi.first.units.Units.MetersPerSecond;
+import static edu.wpi.first.units.Units.Rotations;
+import static edu.wpi.first.units.Units.RotationsPerSecond;
+import static edu.wpi.first.units.Units.Seconds;
+import static edu.wpi.first.units.Units.Volts;
+
 import com.ctre.phoenix6.configs.Pigeon2Configuration;
 import com.ctre.phoenix6.hardware.Pigeon2;
 
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.units.Angle;
+import edu.wpi.first.units.Distance;
+import edu.wpi.first.units.MutableMeasure;
+import edu.wpi.first.units.Velocity;
+import edu.wpi.first.units.Voltage;
+import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
+import frc.lib.math.SwerveMath;
+import frc.lib.util.DeviceConfigurator;
+import frc.lib.util.FeedforwardEstimator;
+import frc.lib.util.FeedforwardGains;
+import frc.lib.util.RobotClock;
+import frc.lib.util.RobotEvents;
+import frc.lib.util.StartupInitializer;
+import frc.lib.util.YawHistory;
+import frc.robot.Constants.AlignProfile;
 import frc.robot.Constants.LimelightProfile;
+import frc.robot.Constants.StartupProfile;
 import frc.robot.Constants.SwerveProfile;
+import frc.robot.Constants.SysIdProfile;
 import frc.robot.SwerveModule;
 
 public class Swerve extends SubsystemBase {
     private SwerveDriveOdometry swerveOdometry;
+    private SwerveDrivePoseEstimator fieldPoseEstimator;
+    private boolean poseOnField = false;
     private SwerveModule[] mSwerveMods;
     private Pigeon2 gyro;
+    private final YawHistory yawHistory = new YawHistory(AlignProfile.kYawHistorySize);
+
+    /* Drive Request: commands set it at the command scheduler's rate, the fast tier turns it into module setpoints */
+    private enum DriveRequest { NONE, CHASSIS, MODULES }
+    private DriveRequest driveRequest = DriveRequest.NONE;
+    private double requestedVx = 0;
+    private double requestedVy = 0;
+    private double requestedOmega = 0;
+    private boolean requestedFieldRelative = false;
+    private boolean requestedOpenLoop = false;
+    private final double[] moduleSpeeds = new double[4];
+    private final double[] moduleAngles = new double[4];
+
+    /* SysId Logging, reused every sample */
+    private final MutableMeasure<Voltage> sysIdVoltage = mutable(Volts.of(0));
+    private final MutableMeasure<Distance> sysIdDistance = mutable(Meters.of(0));
+    private final MutableMeasure<Velocity<Distance>> sysIdVelocity = mutable(MetersPerSecond.of(0));
+    private final MutableMeasure<Angle> sysIdAngle = mutable(Rotations.of(0));
+    private final MutableMeasure<Velocity<Angle>> sysIdAngularVelocity = mutable(RotationsPerSecond.of(0));
+
+    /* Drive: every wheel pointed forward and driven at the same voltage */
+    private final SysIdRoutine driveRoutine = new SysIdRoutine(
+        new SysIdRoutine.Config(
+            Volts.of(SysIdProfile.kDriveRampRate).per(Seconds.of(1)),
+            Volts.of(SysIdProfile.kDriveStepVoltage),
+            Seconds.of(SysIdProfile.kDriveTimeout)),
+        new SysIdRoutine.Mechanism(
+            volts -> {
+                driveRequest = DriveRequest.NONE;
+                for(SwerveModule mod : mSwerveMods){
+                    mod.setDriveVoltage(volts.in(Volts));
+                }
+            },
+            log -> {
+                for(SwerveModule mod : mSwerveMods){
+                    log.motor("drive-" + mod.moduleNumber)
+                        .voltage(sysIdVoltage.mut_replace(mod.getDriveVoltage(), Volts))
+                        .linearPosition(sysIdDistance.mut_replace(mod.getDriveMeters(), Meters))
+                        .linearVelocity(sysIdVelocity.mut_replace(mod.getDriveMetersPerSecond(), MetersPerSecond));
+                }
+            },
+            this,
+            "swerve-drive"));
+
+    /* Steer: every wheel turned at the same voltage while the drive motors hold still */
+    private final SysIdRoutine steerRoutine = new SysIdRoutine(
+        new SysIdRoutine.Config(
+            Volts.of(SysIdProfile.kSteerRampRate).per(Seconds.of(1)),
+            Volts.of(SysIdProfile.kSteerStepVoltage),
+            Seconds.of(SysIdProfile.kSteerTimeout)),
+        new SysIdRoutine.Mechanism(
+            volts -> {
+                driveRequest = DriveRequest.NONE;
+                for(SwerveModule mod : mSwerveMods){
+                    mod.setSteerVoltage(volts.in(Volts));
+                }
+            },
+            log -> {
+                for(SwerveModule mod : mSwerveMods){
+                    log.motor("steer-" + mod.moduleNumber)
+                        .voltage(sysIdVoltage.mut_replace(mod.getSteerVoltage(), Volts))
+                        .angularPosition(sysIdAngle.mut_replace(mod.getSteerRotations(), Rotations))
+                        .angularVelocity(sysIdAngularVelocity.mut_replace(mod.getSteerRotationsPerSecond(), RotationsPerSecond));
+                }
+            },
+            this,
+            "swerve-steer"));
 
     public Swerve() {
         gyro = new Pigeon2(SwerveProfile.pigeonID, "canivore1");
-        gyro.getConfigurator().apply(new Pigeon2Configuration());
-        gyro.setYaw(0);
         mSwerveMods = new SwerveModule[] {
             new SwerveModule(0, SwerveProfile.Mod0.constants),
             new SwerveModule(1, SwerveProfile.Mod1.constants),
@@ -34,35 +129,99 @@ public class Swerve extends SubsystemBase {
         };
 
         swerveOdometry = new SwerveDriveOdometry(SwerveProfile.swerveKinematics, getGyroYaw(), getModulePositions());
+        fieldPoseEstimator = new SwerveDrivePoseEstimator(SwerveProfile.swerveKinematics, getGyroYaw(), getModulePositions(), new Pose2d(),
+            VecBuilder.fill(0.1, 0.1, 0.1),
+            VecBuilder.fill(LimelightProfile.kPoseTranslationStdDev, LimelightProfile.kPoseTranslationStdDev, LimelightProfile.kPoseHeadingStdDev));
     }
 
-    public void drive(Translation2d translation, double rotation, boolean fieldRelative, boolean isOpenLoop) {
-        SwerveModuleState[] swerveModuleStates =
-            SwerveProfile.swerveKinematics.toSwerveModuleStates(
-                fieldRelative ? ChassisSpeeds.fromFieldRelativeSpeeds(
-                                    translation.getX(), 
-                                    translation.getY(), 
-                                    -rotation, 
-                                    getHeading()
-                                )
-                                : new ChassisSpeeds(
-                                    translation.getX(), 
-                                    translation.getY(), 
-                                    -rotation)
-                                );
-        SwerveDriveKinematics.desaturateWheelSpeeds(swerveModuleStates, SwerveProfile.maxSpeed);
+    /** Queues the gyro and every module's steer and drive configuration so they all run at once. */
+    public void configureDevices(StartupInitializer startup) {
+        startup.submit("Pigeon", () -> {
+            boolean gyroOk = DeviceConfigurator.configurePigeon2("Pigeon", gyro, new Pigeon2Configuration());
+            return gyroOk && gyro.setYaw(0).isOK();
+        }, StartupProfile.kDeviceTimeout, StartupProfile.kDeviceRetries);
 
         for(SwerveModule mod : mSwerveMods){
-            mod.setDesiredState(swerveModuleStates[mod.moduleNumber], isOpenLoop);
+            startup.submit("Mod " + mod.moduleNumber + " Steer", mod::configureSteer, StartupProfile.kDeviceTimeout, StartupProfile.kDeviceRetries);
+            startup.submit("Mod " + mod.moduleNumber + " Drive", mod::configureDrive, StartupProfile.kDeviceTimeout, StartupProfile.kDeviceRetries);
         }
-    }    
+    }
+
+    /**
+     * Drives the robot. The request is kept and turned into module setpoints again every fast tier cycle,
+     * so field relative driving follows the newest heading between command scheduler runs.
+     */
+    public void drive(Translation2d translation, double rotation, boolean fieldRelative, boolean isOpenLoop) {
+        driveRequest = DriveRequest.CHASSIS;
+        requestedVx = translation.getX();
+        requestedVy = translation.getY();
+        requestedOmega = -rotation;
+        requestedFieldRelative = fieldRelative;
+        requestedOpenLoop = isOpenLoop;
+        // Sent right away as well, so a new request does not wait for the next fast tier cycle
+        updateModuleControl();
+    }
 
     /* Used by SwerveControllerCommand in Auto */
     public void setModuleStates(SwerveModuleState[] desiredStates) {
-        SwerveDriveKinematics.desaturateWheelSpeeds(desiredStates, SwerveProfile.maxSpeed);
-        
         for(SwerveModule mod : mSwerveMods){
-            mod.setDesiredState(desiredStates[mod.moduleNumber], false);
+            moduleSpeeds[mod.moduleNumber] = desiredStates[mod.moduleNumber].speedMetersPerSecond;
+            moduleAngles[mod.moduleNumber] = desiredStates[mod.moduleNumber].angle.getRadians();
+        }
+        requestModuleSetpoints();
+    }
+
+    /* Used by the trajectory follower, same as setModuleStates but takes plain arrays so nothing is allocated */
+    public void setModuleStates(double[] speedsMetersPerSecond, double[] anglesRadians) {
+        System.arraycopy(speedsMetersPerSecond, 0, moduleSpeeds, 0, moduleSpeeds.length);
+        System.arraycopy(anglesRadians, 0, moduleAngles, 0, moduleAngles.length);
+        requestModuleSetpoints();
+    }
+
+    private void requestModuleSetpoints() {
+        driveRequest = DriveRequest.MODULES;
+        requestedOpenLoop = false;
+        desaturateModuleSpeeds();
+        updateModuleControl();
+    }
+
+    private void desaturateModuleSpeeds() {
+        SwerveMath.desaturate(moduleSpeeds, SwerveProfile.maxSpeed);
+    }
+
+    /* Inverse kinematics on plain arrays, the same as SwerveDriveKinematics.toSwerveModuleStates without creating objects */
+    private void calculateModuleSetpoints() {
+        double heading = requestedFieldRelative ? getHeading().getRadians() : 0;
+        SwerveMath.toModuleSetpoints(requestedVx, requestedVy, requestedOmega, heading,
+            SwerveProfile.moduleX, SwerveProfile.moduleY, moduleSpeeds, moduleAngles);
+        desaturateModuleSpeeds();
+    }
+
+    /* Runs in the fast rate tier after odometry: sends the current drive request to the modules against their newest angles */
+    public void updateModuleControl(){
+        if (driveRequest == DriveRequest.NONE) {
+            return;
+        }
+        if (driveRequest == DriveRequest.CHASSIS) {
+            calculateModuleSetpoints();
+        }
+        for(SwerveModule mod : mSwerveMods){
+            mod.setDesiredState(moduleSpeeds[mod.moduleNumber], moduleAngles[mod.moduleNumber], requestedOpenLoop);
+        }
+    }
+
+    /* Current Budget: drive motors only, the steer motors keep their static limit */
+    public double getDriveSupplyCurrent(){
+        double current = 0;
+        for(SwerveModule mod : mSwerveMods){
+            current += mod.getDriveSupplyCurrent();
+        }
+        return current;
+    }
+
+    public void setDriveCurrentLimit(double amps){
+        for(SwerveModule mod : mSwerveMods){
+            mod.setDriveCurrentLimit(amps);
         }
     }
 
@@ -74,6 +233,16 @@ public class Swerve extends SubsystemBase {
         return states;
     }
 
+    public ChassisSpeeds getRobotRelativeSpeeds(){
+        return SwerveProfile.swerveKinematics.toChassisSpeeds(getModuleStates());
+    }
+
+    /* Translation velocity in the field pose's frame, used to start on the fly paths from the robot's current motion */
+    public Translation2d getFieldVelocity(){
+        ChassisSpeeds speeds = getRobotRelativeSpeeds();
+        return new Translation2d(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond).rotateBy(getFieldPose().getRotation());
+    }
+
     public SwerveModulePosition[] getModulePositions(){
         SwerveModulePosition[] positions = new SwerveModulePosition[4];
         for(SwerveModule mod : mSwerveMods){
@@ -90,6 +259,34 @@ public class Swerve extends SubsystemBase {
         swerveOdometry.resetPosition(getGyroYaw(), getModulePositions(), pose);
     }
 
+    /**
+     * Pose on the field (blue alliance origin), from odometry corrected by the Limelight's AprilTag poses.
+     * Separate from getPose(), which autos reset to their own origin and field relative driving turns with.
+     * Only means anything once {@link #isPoseOnField()}.
+     */
+    public Pose2d getFieldPose() {
+        return fieldPoseEstimator.getEstimatedPosition();
+    }
+
+    /* Whether an AprilTag pose has placed the field pose on the field yet */
+    public boolean isPoseOnField() {
+        return poseOnField;
+    }
+
+    /* Runs in the normal rate tier: the first AprilTag pose places the robot on the field, later ones correct it */
+    public void updateFieldPose(Vision s_Vision) {
+        if (!s_Vision.updateFieldPose()) {
+            return;
+        }
+        if (!poseOnField) {
+            fieldPoseEstimator.resetPosition(getGyroYaw(), getModulePositions(), s_Vision.getFieldPose());
+            poseOnField = true;
+            DataLogManager.log("[Swerve] Placed on the field at " + s_Vision.getFieldPose());
+            return;
+        }
+        fieldPoseEstimator.addVisionMeasurement(s_Vision.getFieldPose(), s_Vision.getFieldPoseCaptureTime());
+    }
+
     public Rotation2d getHeading(){
         return getPose().getRotation();
     }
@@ -106,6 +303,20 @@ public class Swerve extends SubsystemBase {
         return Rotation2d.fromDegrees(gyro.getYaw().getValue());
     }
 
+    /* Continuous (not wrapped) gyro yaw, counterclockwise positive */
+    public double getContinuousYawRadians() {
+        return Math.toRadians(gyro.getYaw().getValueAsDouble());
+    }
+
+    public double getYawRateRadiansPerSecond() {
+        return Math.toRadians(gyro.getAngularVelocityZWorld().getValueAsDouble());
+    }
+
+    /* Continuous gyro yaw at an earlier time on the RobotClock, from the samples recorded with odometry */
+    public double getContinuousYawAt(double time) {
+        return yawHistory.getYawAt(time);
+    }
+
     public void resetModulesToAbsolute(){
         for(SwerveModule mod : mSwerveMods){
             mod.resetToAbsolute();
@@ -124,15 +335,66 @@ public class Swerve extends SubsystemBase {
         }
     }
 
+    public Command driveSysIdQuasistatic(SysIdRoutine.Direction direction) {
+        return driveRoutine.quasistatic(direction);
+    }
+
+    public Command driveSysIdDynamic(SysIdRoutine.Direction direction) {
+        return driveRoutine.dynamic(direction);
+    }
+
+    public Command steerSysIdQuasistatic(SysIdRoutine.Direction direction) {
+        return steerRoutine.quasistatic(direction);
+    }
+
+    public Command steerSysIdDynamic(SysIdRoutine.Direction direction) {
+        return steerRoutine.dynamic(direction);
+    }
+
     @Override
     public void periodic(){
-        swerveOdometry.update(getGyroYaw(), getModulePositions());
+        RobotEvents.beginPeriodic(getName());
+        for(SwerveModule mod : mSwerveMods){
+            mod.updateFeedforwardEstimate();
+        }
+        RobotEvents.endPeriodic();
+    }
+
+    /* Runs in the fast rate tier */
+    public void updateOdometry(){
+        Rotation2d gyroYaw = getGyroYaw();
+        SwerveModulePosition[] positions = getModulePositions();
+        swerveOdometry.update(gyroYaw, positions);
+        fieldPoseEstimator.update(gyroYaw, positions);
+        yawHistory.add(RobotClock.now(), getContinuousYawRadians());
+    }
 
+    /* Runs in the slow rate tier */
+    public void updateTelemetry(){
         for(SwerveModule mod : mSwerveMods){
             SmartDashboard.putNumber("Mod " + mod.moduleNumber + " CANcoder", mod.getCANcoder().getDegrees());
             SmartDashboard.putNumber("Mod " + mod.moduleNumber + " Angle", mod.getPosition().angle.getDegrees());
             SmartDashboard.putNumber("Mod " + mod.moduleNumber + " Velocity", mod.getState().speedMetersPerSecond);  
             SmartDashboard.putNumber("Gyro Yaw", gyro.getYaw().getValue()); 
         }
+        publishFeedforwardEstimates();
+    }
+
+    /* Online drive feedforward next to the offline fit it started from, and the dashboard lock toggle */
+    private void publishFeedforwardEstimates(){
+        boolean locked = SmartDashboard.getBoolean("Drive FF/Locked", SwerveProfile.driveFFLocked);
+        FeedforwardGains offline = SwerveModule.getOfflineDriveGains();
+        SmartDashboard.putBoolean("Drive FF/Locked", locked);
+        SmartDashboard.putNumber("Drive FF/Offline kS", offline.kS);
+        SmartDashboard.putNumber("Drive FF/Offline kV", offline.kV);
+        SmartDashboard.putNumber("Drive FF/Offline kA", offline.kA);
+        for(SwerveModule mod : mSwerveMods){
+            FeedforwardEstimator estimator = mod.getDriveFeedforward();
+            estimator.setLocked(locked);
+            SmartDashboard.putNumber("Drive FF/Mod " + mod.moduleNumber + " kS", estimator.getKS());
+            SmartDashboard.putNumber("Drive FF/Mod " + mod.moduleNumber + " kV", estimator.getKV());
+            SmartDashboard.putNumber("Drive FF/Mod " + mod.moduleNumber + " kA", estimator.getKA());
+            SmartDashboard.putNumber("Drive FF/Mod " + mod.moduleNumber + " Updates", estimator.getUpdateCount());
+        }
     }
 }
\ No newline at end of file
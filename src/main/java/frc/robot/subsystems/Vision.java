@@ -5,10 +5,13 @@
 package frc.robot.subsystems;
 
 import edu.wpi.first.math.filter.LinearFilter;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.lib.util.RobotEvents;
 import frc.robot.Constants.LimelightProfile;
 
 public class Vision extends SubsystemBase {
@@ -18,43 +21,18 @@ public class Vision extends SubsystemBase {
     private NetworkTableEntry ty = limeLightTable.getEntry("ty"); // y coordinate
     private NetworkTableEntry ta = limeLightTable.getEntry("ta"); // Target area
     private NetworkTableEntry tv = limeLightTable.getEntry("tv"); // target valid? boolean
+    private NetworkTableEntry tl = limeLightTable.getEntry("tl"); // pipeline latency (ms)
+    private NetworkTableEntry cl = limeLightTable.getEntry("cl"); // capture latency (ms)
+    private NetworkTableEntry botpose = limeLightTable.getEntry("botpose_wpiblue"); // field pose, blue origin: x, y, z, roll, pitch, yaw, latency (ms), tag count
     public boolean limeLightIsOn = false; 
 
     private NetworkTableEntry LEDModeEntry = limeLightTable.getEntry("ledMode");
 
-    private double[] ffGains = {
-      0.0008171388625648901,
-      0.0025796090816614394,
-      0.004245625441810102,
-      0.0028920364306526743,
-      -0.004485549864848663,
-      -0.017206206747234075,
-      -0.027692599432802778,
-      -0.022583572720391073,
-      0.01028905933557547,
-      0.07228314186855418,
-      0.14849473849283668,
-      0.21195572576869964,
-      0.23668096456728935,
-      0.21195572576869964,
-      0.14849473849283668,
-      0.07228314186855418,
-      0.01028905933557547,
-      -0.022583572720391073,
-      -0.027692599432802778,
-      -0.017206206747234075,
-      -0.004485549864848663,
-      0.0028920364306526743,
-      0.004245625441810102,
-      0.0025796090816614394,
-      0.0008171388625648901
-  };
-
   private double[] fbGains = {};
 
-  private LinearFilter filter_d = new LinearFilter(ffGains, fbGains);
-  private LinearFilter filter_ha = new LinearFilter(ffGains, fbGains);
-  private LinearFilter filter_va = new LinearFilter(ffGains, fbGains);
+  private LinearFilter filter_d = new LinearFilter(LimelightProfile.kFilterGains, fbGains);
+  private LinearFilter filter_ha = new LinearFilter(LimelightProfile.kFilterGains, fbGains);
+  private LinearFilter filter_va = new LinearFilter(LimelightProfile.kFilterGains, fbGains);
 
   private double filtered_distance;
   private double distance;
@@ -63,6 +41,17 @@ public class Vision extends SubsystemBase {
   private double filtered_v_angle;
   private double v_angle;
 
+  // Latest unfiltered target sample and when its frame was captured
+  private long lastTargetChange = -1;
+  private double sampleAngle;
+  private double sampleCaptureTime = Double.NaN;
+
+  // Latest field pose from the AprilTags and when its frame was captured
+  private static final double[] kNoPose = new double[0];
+  private long lastPoseChange = -1;
+  private Pose2d fieldPose;
+  private double fieldPoseCaptureTime = Double.NaN;
+
   /** Creates a new Vision2. */
   public Vision() {}
 
@@ -126,6 +115,55 @@ public class Vision extends SubsystemBase {
     return(filtered_distance);
   }
 
+  // Reads the newest frame if it has not been read yet, returns true when it has a target
+  public boolean updateTargetSample() {
+    long change = tx.getLastChange();
+    if (change == lastTargetChange || getCaptureStatus() != 1) {
+      return false;
+    }
+    lastTargetChange = change;
+    sampleAngle = tx.getDouble(0.0);
+    // NetworkTables times are on the same clock as the FPGA, in microseconds
+    sampleCaptureTime = change / 1e6 - (tl.getDouble(0.0) + cl.getDouble(0.0)) / 1000.0;
+    return true;
+  }
+
+  // Unfiltered horizontal angle of the latest sample (degrees, target to the right is positive)
+  public double getSampleAngle() {
+    return sampleAngle;
+  }
+
+  // When the latest sample's frame was captured (seconds, RobotClock)
+  public double getSampleCaptureTime() {
+    return sampleCaptureTime;
+  }
+
+  // Reads the newest field pose if it has not been read yet, returns true when it saw enough tags
+  public boolean updateFieldPose() {
+    long change = botpose.getLastChange();
+    if (change == lastPoseChange || getCaptureStatus() != 1) {
+      return false;
+    }
+    lastPoseChange = change;
+    double[] pose = botpose.getDoubleArray(kNoPose);
+    if (pose.length < 8 || pose[7] < LimelightProfile.kMinPoseTags || (pose[0] == 0 && pose[1] == 0)) {
+      return false;
+    }
+    fieldPose = new Pose2d(pose[0], pose[1], Rotation2d.fromDegrees(pose[5]));
+    fieldPoseCaptureTime = change / 1e6 - pose[6] / 1000.0;
+    return true;
+  }
+
+  // Robot pose on the field from the latest frame (meters, blue alliance origin)
+  public Pose2d getFieldPose() {
+    return fieldPose;
+  }
+
+  // When the latest field pose's frame was captured (seconds, RobotClock)
+  public double getFieldPoseCaptureTime() {
+    return fieldPoseCaptureTime;
+  }
+
   public void turnLimelightOn(){
     LEDModeEntry.setNumber(3);
     limeLightIsOn = true;
@@ -149,8 +187,10 @@ public class Vision extends SubsystemBase {
   @Override
   public void periodic() {
     // This method will be called once per scheduler run
+    RobotEvents.beginPeriodic(getName());
     distance = calculateDistance();
     filtered_distance = filter_d.calculate(distance);
+    RobotEvents.endPeriodic();
 
     // SmartDashboard.putNumber("/nLimelight capture status: ", getCaptureStatus());
     //  SmartDashboard.putNumber("LimelightFilteredDistance (inches)", filtered_distance);
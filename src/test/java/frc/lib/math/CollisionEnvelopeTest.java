@@ -0,0 +1,53 @@
+package frc.lib.math;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class CollisionEnvelopeTest {
+    private static final double kArmFreeZoneMax = 2500;
+    private static final double kWristClearPos = 6500;
+
+    private final CollisionEnvelope envelope = new CollisionEnvelope(kArmFreeZoneMax, kWristClearPos);
+
+    @Test
+    public void blockedOnlyWithArmUpAndWristIn() {
+        assertTrue(envelope.isSafe(0, 0));
+        assertTrue(envelope.isSafe(kArmFreeZoneMax, 0), "The free zone limit itself is safe");
+        assertTrue(envelope.isSafe(50000, kWristClearPos), "The clear position itself is safe");
+        assertTrue(envelope.isSafe(50000, 9000));
+        assertFalse(envelope.isSafe(kArmFreeZoneMax + 1, 0));
+        assertFalse(envelope.isSafe(50000, kWristClearPos - 1));
+    }
+
+    @Test
+    public void pathWithinSafeRegionIsClear() {
+        // Arm sweeps up with the wrist already clear
+        assertTrue(envelope.isPathClear(0, 8000, 50000, 8000));
+        // Wrist retracts with the arm stowed
+        assertTrue(envelope.isPathClear(0, 8000, 0, 0));
+    }
+
+    @Test
+    public void pathEndingInBlockedRegionIsNotClear() {
+        assertFalse(envelope.isPathClear(0, 0, 50000, 0));
+        assertFalse(envelope.isPathClear(50000, 8000, 50000, 0));
+    }
+
+    @Test
+    public void diagonalPathCuttingTheCornerIsNotClear() {
+        // Arm rises before the wrist is out: the midpoint (25000, 4000) is blocked although both ends are safe
+        assertTrue(envelope.isSafe(0, 0));
+        assertTrue(envelope.isSafe(50000, 8000));
+        assertFalse(envelope.isPathClear(0, 0, 50000, 8000));
+    }
+
+    @Test
+    public void diagonalPathThatClearsInTimeIsClear() {
+        // Wrist is clear by the time the arm leaves its free zone
+        assertTrue(envelope.isPathClear(0, 6000, 2600, 8000));
+        // Arm is back in its free zone before the wrist comes in
+        assertTrue(envelope.isPathClear(3000, 9000, 0, 0));
+    }
+}
@@ -0,0 +1,123 @@
+package frc.lib.math;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+public class GridPlannerTest {
+    private static final Translation2d kLeft = new Translation2d(1.75, 1.25);
+    private static final Translation2d kRight = new Translation2d(8.25, 1.25);
+
+    private NavGrid grid;
+    private GridPlanner planner;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        grid = NavGridTest.load(NavGridTest.kBlockedFieldJson, NavGridTest.kRobotRadius);
+        planner = new GridPlanner(grid);
+    }
+
+    private static double length(List<Translation2d> path) {
+        double length = 0;
+        for (int i = 1; i < path.size(); i++) {
+            length += Math.hypot(path.get(i).getX() - path.get(i - 1).getX(), path.get(i).getY() - path.get(i - 1).getY());
+        }
+        return length;
+    }
+
+    /* Every leg of the path only crosses free cells */
+    private void assertClear(List<Translation2d> path) {
+        for (int i = 1; i < path.size(); i++) {
+            int from = grid.indexOf(path.get(i - 1));
+            int to = grid.indexOf(path.get(i));
+            assertTrue(grid.hasLineOfSight(from, to), "leg " + i + " crosses an obstacle: " + path);
+        }
+    }
+
+    @Test
+    public void openFieldIsOneStraightLeg() {
+        Translation2d start = new Translation2d(1.25, 1.25);
+        Translation2d goal = new Translation2d(3.25, 4.25);
+        List<Translation2d> path = planner.findPath(start, goal);
+
+        assertNotNull(path);
+        assertEquals(2, path.size());
+        assertSame(start, path.get(0));
+        assertSame(goal, path.get(1));
+    }
+
+    @Test
+    public void pathGoesAroundObstacle() {
+        List<Translation2d> path = planner.findPath(kLeft, kRight);
+
+        assertNotNull(path);
+        assertSame(kLeft, path.get(0));
+        assertSame(kRight, path.get(path.size() - 1));
+        assertTrue(path.size() > 2, "expected corners, got " + path);
+        assertClear(path);
+
+        // Has to climb into the gap above the block and back down, but not wander
+        double straightLine = kRight.getX() - kLeft.getX();
+        double around = 2 * Math.hypot(2.0, 3.0) + 3.0;
+        assertTrue(length(path) > straightLine);
+        assertTrue(length(path) < around * 1.15, "path is " + length(path) + " m long");
+    }
+
+    @Test
+    public void distanceFieldKeepsPathValid() {
+        List<Translation2d> plain = planner.findPath(kLeft, kRight);
+
+        GridPlanner precomputed = new GridPlanner(grid);
+        precomputed.precompute(kRight);
+        List<Translation2d> path = precomputed.findPath(kLeft, kRight);
+
+        assertNotNull(path);
+        assertSame(kLeft, path.get(0));
+        assertSame(kRight, path.get(path.size() - 1));
+        assertClear(path);
+        assertTrue(length(path) < length(plain) * 1.1, "distance field path is " + length(path) + " m, plain is " + length(plain) + " m");
+    }
+
+    @Test
+    public void plannerCanBeReused() {
+        List<Translation2d> first = planner.findPath(kLeft, kRight);
+        planner.findPath(kRight, new Translation2d(8.25, 4.25));
+        List<Translation2d> again = planner.findPath(kLeft, kRight);
+
+        assertEquals(first.size(), again.size());
+        assertEquals(length(first), length(again), 1e-9);
+    }
+
+    @Test
+    public void startInsideObstacleKeepsExactStart() {
+        Translation2d start = new Translation2d(3.8, 1.25);
+        List<Translation2d> path = planner.findPath(start, kLeft);
+
+        assertNotNull(path);
+        assertSame(start, path.get(0));
+        assertSame(kLeft, path.get(path.size() - 1));
+    }
+
+    @Test
+    public void unreachableGoalReturnsNull() throws IOException {
+        NavGrid walled = NavGridTest.load("{ \"cellSize\": 0.5, \"fieldLength\": 10.0, \"fieldWidth\": 5.0,"
+            + " \"obstacles\": [ { \"name\": \"Wall\", \"polygon\": [[4.0, 0.0], [6.0, 0.0], [6.0, 5.0], [4.0, 5.0]] } ] }",
+            NavGridTest.kRobotRadius);
+
+        assertNull(new GridPlanner(walled).findPath(kLeft, kRight));
+
+        GridPlanner precomputed = new GridPlanner(walled);
+        precomputed.precompute(kRight);
+        assertNull(precomputed.findPath(kLeft, kRight));
+    }
+}
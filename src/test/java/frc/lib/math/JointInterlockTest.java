@@ -0,0 +1,105 @@
+package frc.lib.math;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class JointInterlockTest {
+    private static final double kArmFreeZoneMax = 2500;
+    private static final double kWristClearPos = 6500;
+    private static final double kLookahead = 0.06;
+    private static final double kPeriod = 0.01;
+
+    private final CollisionEnvelope envelope = new CollisionEnvelope(kArmFreeZoneMax, kWristClearPos);
+
+    @Test
+    public void allowsMovesThatCannotCollide() {
+        JointInterlock interlock = new JointInterlock(envelope, kLookahead, 0, 0);
+        interlock.update(0, 0, 0);
+
+        assertEquals(-0.35, interlock.limitArmOutput(-0.35), 0);
+        assertEquals(0.25, interlock.limitWristOutput(0.25), 0);
+        assertEquals(0.4, interlock.limitArmOutput(0.4), 0, "A stopped arm in its free zone may start raising");
+        assertEquals(0, interlock.getBlockCount());
+    }
+
+    @Test
+    public void stopsArmBeforeItLeavesFreeZone() {
+        JointInterlock interlock = new JointInterlock(envelope, kLookahead, 2000, 0);
+        interlock.update(0, 2000, 0);
+        interlock.update(kPeriod, 2200, 0); // 20000 counts/s, predicted 3400
+
+        assertEquals(0, interlock.limitArmOutput(0.4), 0);
+        assertTrue(interlock.isArmBlocked());
+        assertEquals(1, interlock.getBlockCount());
+    }
+
+    @Test
+    public void blockedArmStaysBlockedUntilWristIsClear() {
+        JointInterlock interlock = new JointInterlock(envelope, kLookahead, 2000, 0);
+        interlock.update(0, 2000, 0);
+        interlock.update(kPeriod, 2200, 0);
+        assertEquals(0, interlock.limitArmOutput(0.4), 0);
+
+        // The arm has stopped, so its prediction alone would look safe, and writers keep asking to raise it
+        double time = kPeriod;
+        for (int i = 0; i < 20; i++) {
+            time += kPeriod;
+            interlock.update(time, 2200, 3000);
+            assertEquals(0, interlock.limitArmOutput(0.4), 0, "Held arm moved before the wrist was clear");
+            assertEquals(0, interlock.limitArmOutput(0.4), 0, "A second writer in the same cycle got past the hold");
+        }
+        assertEquals(1, interlock.getBlockCount(), "One held move counts once");
+
+        interlock.update(time + kPeriod, 2200, kWristClearPos);
+        assertEquals(0.4, interlock.limitArmOutput(0.4), 0);
+        assertFalse(interlock.isArmBlocked());
+    }
+
+    @Test
+    public void loweringReleasesHeldArm() {
+        JointInterlock interlock = new JointInterlock(envelope, kLookahead, 2000, 0);
+        interlock.update(0, 2000, 0);
+        interlock.update(kPeriod, 2200, 0);
+        assertEquals(0, interlock.limitArmOutput(0.4), 0);
+
+        assertEquals(-0.15, interlock.limitArmOutput(-0.15), 0);
+        assertFalse(interlock.isArmBlocked());
+    }
+
+    @Test
+    public void blockedWristRetractStaysBlockedUntilArmIsInFreeZone() {
+        JointInterlock interlock = new JointInterlock(envelope, kLookahead, 40000, 8000);
+        interlock.update(0, 40000, 8000);
+        interlock.update(kPeriod, 40000, 7800); // Retracting at 20000 counts/s, predicted 6600 then past clear
+
+        assertEquals(-0.18, interlock.limitWristOutput(-0.18), 0, "Still clear one lookahead ahead");
+        interlock.update(2 * kPeriod, 40000, 7600);
+        assertEquals(0, interlock.limitWristOutput(-0.18), 0);
+        assertTrue(interlock.isWristBlocked());
+
+        // Wrist stopped just short of the limit, the arm comes down but is still above its free zone
+        double time = 2 * kPeriod;
+        for (int arm = 38000; arm > kArmFreeZoneMax; arm -= 2000) {
+            time += kPeriod;
+            interlock.update(time, arm, 7600);
+            assertEquals(0, interlock.limitWristOutput(-0.18), 0, "Held wrist retracted while the arm was up");
+        }
+
+        interlock.update(time + kPeriod, 0, 7600);
+        assertEquals(-0.18, interlock.limitWristOutput(-0.18), 0);
+        assertFalse(interlock.isWristBlocked());
+        assertEquals(1, interlock.getBlockCount());
+    }
+
+    @Test
+    public void velocityIsNotUpdatedWithoutTimePassing() {
+        JointInterlock interlock = new JointInterlock(envelope, kLookahead, 0, 0);
+        interlock.update(1.0, 0, 0);
+        interlock.update(1.0, 2400, 0);
+        assertEquals(0, interlock.getArmVelocity(), 0);
+        assertEquals(2400, interlock.getArmPosition(), 0);
+    }
+}
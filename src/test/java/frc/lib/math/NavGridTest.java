@@ -0,0 +1,121 @@
+package frc.lib.math;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+public class NavGridTest {
+    /* 10 x 5 m field of 0.5 m cells with a block rising from the bottom wall, leaving a gap above it */
+    static final String kBlockedFieldJson = "{ \"cellSize\": 0.5, \"fieldLength\": 10.0, \"fieldWidth\": 5.0,"
+        + " \"obstacles\": [ { \"name\": \"Block\", \"polygon\": [[4.0, 0.0], [6.0, 0.0], [6.0, 3.5], [4.0, 3.5]] } ] }";
+    static final double kRobotRadius = 0.3;
+
+    private NavGrid grid;
+
+    static NavGrid load(String json, double robotRadius) throws IOException {
+        Path file = Files.createTempFile("navgrid", ".json");
+        try {
+            Files.writeString(file, json);
+            return NavGrid.load(file, robotRadius);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @BeforeEach
+    public void setup() throws IOException {
+        grid = load(kBlockedFieldJson, kRobotRadius);
+    }
+
+    private boolean isBlockedAt(double x, double y) {
+        return grid.isBlocked(grid.indexOf(new Translation2d(x, y)));
+    }
+
+    @Test
+    public void sizeComesFromField() {
+        assertEquals(20, grid.getColumns());
+        assertEquals(10, grid.getRows());
+        assertEquals(200, grid.getCellCount());
+        assertEquals(0.5, grid.getCellSize(), 0.0);
+    }
+
+    @Test
+    public void wallsAreInflatedByRobotRadius() {
+        assertTrue(isBlockedAt(0.25, 2.25));
+        assertTrue(isBlockedAt(9.75, 2.25));
+        assertTrue(isBlockedAt(2.25, 0.25));
+        assertTrue(isBlockedAt(2.25, 4.75));
+        assertFalse(isBlockedAt(0.75, 2.25));
+        assertFalse(isBlockedAt(2.25, 4.25));
+    }
+
+    @Test
+    public void obstaclesAreInflatedByRobotRadius() {
+        assertTrue(isBlockedAt(5.25, 2.25), "inside the block");
+        assertTrue(isBlockedAt(3.75, 2.25), "0.25 m from the block");
+        assertTrue(isBlockedAt(5.25, 3.75), "0.25 m above the block");
+        assertFalse(isBlockedAt(3.25, 2.25), "0.75 m from the block");
+        assertFalse(isBlockedAt(5.25, 4.25), "in the gap above the block");
+    }
+
+    @Test
+    public void cellsOutsideGridAreBlocked() {
+        assertTrue(grid.isBlocked(-1, 3));
+        assertTrue(grid.isBlocked(3, -1));
+        assertTrue(grid.isBlocked(grid.getColumns(), 3));
+        assertTrue(grid.isBlocked(3, grid.getRows()));
+    }
+
+    @Test
+    public void positionsAreClampedOntoGrid() {
+        assertEquals(grid.indexOf(0, 0), grid.indexOf(new Translation2d(-3.0, -3.0)));
+        assertEquals(grid.indexOf(grid.getColumns() - 1, grid.getRows() - 1), grid.indexOf(new Translation2d(30.0, 30.0)));
+    }
+
+    @Test
+    public void cellCenterMapsBackToCell() {
+        for (int index = 0; index < grid.getCellCount(); index++) {
+            assertEquals(index, grid.indexOf(grid.centerOf(index)));
+            assertEquals(index, grid.indexOf(grid.columnOf(index), grid.rowOf(index)));
+        }
+    }
+
+    @Test
+    public void lineOfSightStopsAtObstacles() {
+        int left = grid.indexOf(new Translation2d(2.25, 2.25));
+        int right = grid.indexOf(new Translation2d(8.25, 2.25));
+        int gapLeft = grid.indexOf(new Translation2d(2.25, 4.25));
+        int gapRight = grid.indexOf(new Translation2d(8.25, 4.25));
+
+        assertFalse(grid.hasLineOfSight(left, right));
+        assertTrue(grid.hasLineOfSight(gapLeft, gapRight));
+        assertTrue(grid.hasLineOfSight(left, gapLeft));
+        assertEquals(grid.hasLineOfSight(left, gapRight), grid.hasLineOfSight(gapRight, left));
+    }
+
+    @Test
+    public void nearestFreeMovesOutOfObstacle() {
+        int free = grid.indexOf(new Translation2d(2.25, 2.25));
+        assertEquals(free, grid.nearestFree(free));
+
+        int insideInflation = grid.indexOf(new Translation2d(3.75, 2.25));
+        int nearest = grid.nearestFree(insideInflation);
+        assertFalse(grid.isBlocked(nearest));
+        assertEquals(grid.indexOf(new Translation2d(3.25, 2.25)), nearest);
+    }
+
+    @Test
+    public void fullyBlockedGridHasNoFreeCell() throws IOException {
+        NavGrid blocked = load("{ \"cellSize\": 0.5, \"fieldLength\": 2.0, \"fieldWidth\": 2.0, \"obstacles\": [] }", 1.0);
+        assertEquals(-1, blocked.nearestFree(0));
+    }
+}
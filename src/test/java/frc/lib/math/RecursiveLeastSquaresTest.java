@@ -0,0 +1,132 @@
+package frc.lib.math;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class RecursiveLeastSquaresTest {
+    private static final double kDt = 0.02;
+
+    /* Drive-like feedforward: kS, kV, kA */
+    private static final double[] kGains = {0.15, 2.4, 0.3};
+
+    private final double[] x = new double[3];
+
+    private void drive(RecursiveLeastSquares leastSquares, Random random, double[] gains, int samples) {
+        for (int i = 0; i < samples; i++) {
+            double velocity = (random.nextDouble() * 2 - 1) * 4;
+            x[0] = Math.signum(velocity);
+            x[1] = velocity;
+            x[2] = (random.nextDouble() * 2 - 1) * 6;
+            leastSquares.update(x, gains[0] * x[0] + gains[1] * x[1] + gains[2] * x[2], kDt);
+        }
+    }
+
+    @Test
+    public void convergesToTrueGains() {
+        RecursiveLeastSquares leastSquares = new RecursiveLeastSquares(new double[] {0.1, 2.0, 0.2}, 1.0, 0.995, 100.0);
+        drive(leastSquares, new Random(1), kGains, 500);
+
+        for (int i = 0; i < kGains.length; i++) {
+            assertEquals(kGains[i], leastSquares.getEstimate(i), 1e-3);
+        }
+        assertEquals(500, leastSquares.getUpdateCount());
+        assertTrue(leastSquares.getCovarianceTrace() < 3.0);
+    }
+
+    @Test
+    public void followsSlowlyChangingGains() {
+        RecursiveLeastSquares leastSquares = new RecursiveLeastSquares(kGains, 1.0, 0.99, 100.0);
+        Random random = new Random(2);
+        drive(leastSquares, random, kGains, 200);
+
+        double[] worn = {0.25, 2.7, 0.3};
+        drive(leastSquares, random, worn, 500);
+        assertEquals(worn[1], leastSquares.getEstimate(1), 0.01);
+        assertEquals(worn[0], leastSquares.getEstimate(0), 0.01);
+    }
+
+    @Test
+    public void rateLimitBoundsEachStep() {
+        double[] maxRate = {0.02, 0.05, 0.02};
+        RecursiveLeastSquares leastSquares = new RecursiveLeastSquares(new double[] {0.0, 1.0, 0.0}, 1.0, 0.995, 100.0)
+            .withRateLimits(maxRate);
+        Random random = new Random(3);
+        for (int update = 0; update < 100; update++) {
+            double[] before = {leastSquares.getEstimate(0), leastSquares.getEstimate(1), leastSquares.getEstimate(2)};
+            drive(leastSquares, random, kGains, 1);
+            for (int i = 0; i < before.length; i++) {
+                assertTrue(Math.abs(leastSquares.getEstimate(i) - before[i]) <= maxRate[i] * kDt + 1e-12,
+                    "coefficient " + i + " moved " + (leastSquares.getEstimate(i) - before[i]));
+            }
+        }
+    }
+
+    @Test
+    public void staysWithinBounds() {
+        double[] min = {0.0, 1.0, 0.0};
+        double[] max = {0.6, 2.0, 1.0};
+        RecursiveLeastSquares leastSquares = new RecursiveLeastSquares(new double[] {0.1, 1.5, 0.1}, 1.0, 0.995, 100.0)
+            .withBounds(min, max);
+        // kV of 2.4 is past the upper bound
+        drive(leastSquares, new Random(4), kGains, 500);
+
+        // Pinned near the bound, the other coefficients soak up what it cannot explain
+        assertEquals(max[1], leastSquares.getEstimate(1), 0.05);
+        for (int i = 0; i < min.length; i++) {
+            assertTrue(leastSquares.getEstimate(i) >= min[i] && leastSquares.getEstimate(i) <= max[i]);
+        }
+    }
+
+    @Test
+    public void startOutsideBoundsApproachesAtRateLimit() {
+        // Untuned constants start kV at 0, below its lower bound of 1
+        double[] min = {0.0, 1.0, 0.0};
+        double[] max = {0.6, 4.0, 1.0};
+        double[] maxRate = {0.02, 0.05, 0.02};
+        RecursiveLeastSquares leastSquares = new RecursiveLeastSquares(new double[] {0.0, 0.0, 0.0}, 1.0, 0.995, 100.0)
+            .withBounds(min, max)
+            .withRateLimits(maxRate);
+
+        Random random = new Random(5);
+        drive(leastSquares, random, kGains, 1);
+        assertEquals(maxRate[1] * kDt, leastSquares.getEstimate(1), 1e-12);
+
+        double previous = leastSquares.getEstimate(1);
+        for (int update = 0; update < 100; update++) {
+            drive(leastSquares, random, kGains, 1);
+            double step = leastSquares.getEstimate(1) - previous;
+            assertTrue(step >= 0 && step <= maxRate[1] * kDt + 1e-12, "kV stepped " + step);
+            previous = leastSquares.getEstimate(1);
+        }
+        assertTrue(previous < min[1], "kV reached its bound faster than its rate limit allows");
+    }
+
+    @Test
+    public void resetRestoresCoefficientsAndCovariance() {
+        RecursiveLeastSquares leastSquares = new RecursiveLeastSquares(new double[] {0.1, 2.0, 0.2}, 1.0, 0.995, 100.0);
+        drive(leastSquares, new Random(6), kGains, 200);
+
+        leastSquares.reset(new double[] {0.3, 1.5, 0.4});
+        assertEquals(0.3, leastSquares.getEstimate(0), 0.0);
+        assertEquals(1.5, leastSquares.getEstimate(1), 0.0);
+        assertEquals(0.4, leastSquares.getEstimate(2), 0.0);
+        assertEquals(3.0, leastSquares.getCovarianceTrace(), 1e-12);
+        assertEquals(0, leastSquares.getUpdateCount());
+    }
+
+    @Test
+    public void covarianceDoesNotWindUpWithoutExcitation() {
+        double maxTrace = 10.0;
+        RecursiveLeastSquares leastSquares = new RecursiveLeastSquares(kGains, 1.0, 0.95, maxTrace);
+        double[] idle = {0, 0, 0};
+        for (int i = 0; i < 1000; i++) {
+            leastSquares.update(idle, 0, kDt);
+        }
+        assertTrue(leastSquares.getCovarianceTrace() < maxTrace / 0.95 + 1e-9);
+        assertEquals(kGains[1], leastSquares.getEstimate(1), 0.0);
+    }
+}
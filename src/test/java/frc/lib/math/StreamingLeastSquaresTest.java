@@ -0,0 +1,122 @@
+package frc.lib.math;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class StreamingLeastSquaresTest {
+    private static final double kEpsilon = 1e-9;
+
+    /* Arm-like feedforward: kS, kV, kA, kG */
+    private static final double[] kGains = {0.12, 2.3, 0.4, 0.65};
+
+    private static double[] armFeatures(double velocity, double acceleration, double angle) {
+        return new double[] {Math.signum(velocity), velocity, acceleration, Math.cos(angle)};
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Test
+    public void tooFewSamplesHasNoSolution() {
+        StreamingLeastSquares leastSquares = new StreamingLeastSquares(3);
+        leastSquares.add(new double[] {1, 1, 0}, 1);
+        leastSquares.add(new double[] {1, 2, 1}, 2);
+        assertNull(leastSquares.solve());
+        assertEquals(2, leastSquares.getCount());
+    }
+
+    @Test
+    public void featureThatNeverVariesHasNoSolution() {
+        StreamingLeastSquares leastSquares = new StreamingLeastSquares(2);
+        for (int i = 0; i < 10; i++) {
+            leastSquares.add(new double[] {i, 0}, 3.0 * i);
+        }
+        assertNull(leastSquares.solve());
+    }
+
+    @Test
+    public void exactDataIsFitExactly() {
+        StreamingLeastSquares leastSquares = new StreamingLeastSquares(4);
+        for (int i = 0; i < 200; i++) {
+            double velocity = (i % 2 == 0 ? 1 : -1) * (0.1 + 0.02 * i);
+            double[] x = armFeatures(velocity, Math.sin(i * 0.3), i * 0.05);
+            leastSquares.add(x, dot(kGains, x));
+        }
+
+        double[] coefficients = leastSquares.solve();
+        assertNotNull(coefficients);
+        assertArrayEquals(kGains, coefficients, 1e-9);
+        assertEquals(0, leastSquares.getResidualSumOfSquares(coefficients), 1e-6);
+        assertEquals(1, leastSquares.getRSquared(coefficients), 1e-9);
+    }
+
+    @Test
+    public void noisyDataRecoversGains() {
+        Random random = new Random(42);
+        double noise = 0.05;
+        StreamingLeastSquares leastSquares = new StreamingLeastSquares(4);
+        for (int i = 0; i < 20000; i++) {
+            double velocity = (random.nextDouble() * 2 - 1) * 3;
+            double[] x = armFeatures(velocity, (random.nextDouble() * 2 - 1) * 5, random.nextDouble() * Math.PI);
+            leastSquares.add(x, dot(kGains, x) + random.nextGaussian() * noise);
+        }
+
+        double[] coefficients = leastSquares.solve();
+        assertNotNull(coefficients);
+        assertArrayEquals(kGains, coefficients, 0.01);
+        assertEquals(noise, leastSquares.getResidualStdDev(coefficients), 0.005);
+        assertTrue(leastSquares.getRSquared(coefficients) > 0.99);
+    }
+
+    @Test
+    public void residualsMatchDirectComputation() {
+        double[][] xs = {{1, 0.5}, {1, 1.0}, {1, 2.0}, {1, 3.5}, {1, 4.0}};
+        double[] ys = {1.2, 1.9, 4.1, 7.2, 7.9};
+        StreamingLeastSquares leastSquares = new StreamingLeastSquares(2);
+        for (int i = 0; i < xs.length; i++) {
+            leastSquares.add(xs[i], ys[i]);
+        }
+
+        double[] coefficients = leastSquares.solve();
+        double residualSumOfSquares = 0;
+        double mean = 0;
+        for (double y : ys) {
+            mean += y / ys.length;
+        }
+        double totalSumOfSquares = 0;
+        for (int i = 0; i < xs.length; i++) {
+            double residual = ys[i] - dot(coefficients, xs[i]);
+            residualSumOfSquares += residual * residual;
+            totalSumOfSquares += (ys[i] - mean) * (ys[i] - mean);
+        }
+
+        assertEquals(residualSumOfSquares, leastSquares.getResidualSumOfSquares(coefficients), kEpsilon);
+        assertEquals(1 - residualSumOfSquares / totalSumOfSquares, leastSquares.getRSquared(coefficients), kEpsilon);
+        assertEquals(Math.sqrt(residualSumOfSquares / (xs.length - 2)), leastSquares.getResidualStdDev(coefficients), kEpsilon);
+    }
+
+    @Test
+    public void pivotingHandlesZeroLeadingFeature() {
+        // The first feature is zero for every sample but one, so the first pivot has to be swapped in
+        StreamingLeastSquares leastSquares = new StreamingLeastSquares(2);
+        leastSquares.add(new double[] {0, 1}, 2);
+        leastSquares.add(new double[] {0, 2}, 4);
+        leastSquares.add(new double[] {1, 1}, 5);
+
+        double[] coefficients = leastSquares.solve();
+        assertNotNull(coefficients);
+        assertArrayEquals(new double[] {3, 2}, coefficients, kEpsilon);
+    }
+}
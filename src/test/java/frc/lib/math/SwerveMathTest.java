@@ -0,0 +1,88 @@
+package frc.lib.math;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.MathUtil;
+
+public class SwerveMathTest {
+    private static final double kEpsilon = 1e-9;
+
+    /* Square 0.6 m module layout: front left, front right, back left, back right */
+    private static final double[] kModuleX = {0.3, 0.3, -0.3, -0.3};
+    private static final double[] kModuleY = {0.3, -0.3, 0.3, -0.3};
+
+    private final double[] speeds = new double[4];
+    private final double[] angles = new double[4];
+
+    @Test
+    public void translationDrivesEveryModuleTheSame() {
+        SwerveMath.toModuleSetpoints(1.0, 1.0, 0, 0, kModuleX, kModuleY, speeds, angles);
+        for (int i = 0; i < speeds.length; i++) {
+            assertEquals(Math.sqrt(2), speeds[i], kEpsilon);
+            assertEquals(Math.PI / 4, angles[i], kEpsilon);
+        }
+    }
+
+    @Test
+    public void fieldRelativeSpeedsAreTurnedByTheHeading() {
+        // Facing left, driving toward field +x is driving to the robot's right
+        SwerveMath.toModuleSetpoints(2.0, 0, 0, Math.PI / 2, kModuleX, kModuleY, speeds, angles);
+        for (int i = 0; i < speeds.length; i++) {
+            assertEquals(2.0, speeds[i], kEpsilon);
+            assertEquals(-Math.PI / 2, angles[i], kEpsilon);
+        }
+    }
+
+    @Test
+    public void rotationPointsModulesAroundTheCenter() {
+        double omega = 1.5;
+        SwerveMath.toModuleSetpoints(0, 0, omega, 0, kModuleX, kModuleY, speeds, angles);
+        double radius = Math.hypot(0.3, 0.3);
+        for (int i = 0; i < speeds.length; i++) {
+            assertEquals(omega * radius, speeds[i], kEpsilon);
+            // Counterclockwise: each module drives at a right angle to its position, to the left of it
+            double positionAngle = Math.atan2(kModuleY[i], kModuleX[i]);
+            assertEquals(0, MathUtil.angleModulus(angles[i] - positionAngle - Math.PI / 2), kEpsilon);
+        }
+    }
+
+    @Test
+    public void stoppedModulesKeepTheirAngle() {
+        double[] kept = {0.1, 0.2, 0.3, 0.4};
+        System.arraycopy(kept, 0, angles, 0, angles.length);
+        SwerveMath.toModuleSetpoints(0, 0, 0, 1.0, kModuleX, kModuleY, speeds, angles);
+        for (int i = 0; i < speeds.length; i++) {
+            assertEquals(0, speeds[i], kEpsilon);
+            assertEquals(kept[i], angles[i], 0.0);
+        }
+    }
+
+    @Test
+    public void desaturateKeepsTheRatiosBetweenModules() {
+        double[] moduleSpeeds = {6.0, -3.0, 1.5, 0};
+        SwerveMath.desaturate(moduleSpeeds, 4.0);
+        assertEquals(4.0, moduleSpeeds[0], kEpsilon);
+        assertEquals(-2.0, moduleSpeeds[1], kEpsilon);
+        assertEquals(1.0, moduleSpeeds[2], kEpsilon);
+        assertEquals(0, moduleSpeeds[3], kEpsilon);
+
+        double[] slow = {1.0, -2.0, 3.0, 0.5};
+        SwerveMath.desaturate(slow, 4.0);
+        assertEquals(3.0, slow[2], 0.0);
+    }
+
+    @Test
+    public void reversedPastNinetyDegrees() {
+        assertFalse(SwerveMath.isReversed(0, 0));
+        assertFalse(SwerveMath.isReversed(Math.toRadians(89), 0));
+        assertTrue(SwerveMath.isReversed(Math.toRadians(91), 0));
+        assertTrue(SwerveMath.isReversed(Math.PI, 0));
+        // Wraps: 170 degrees and -170 degrees are 20 degrees apart
+        assertFalse(SwerveMath.isReversed(Math.toRadians(170), Math.toRadians(-170)));
+        assertTrue(SwerveMath.isReversed(Math.toRadians(10), Math.toRadians(-170) + 4 * Math.PI));
+    }
+}
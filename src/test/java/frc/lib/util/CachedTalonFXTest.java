@@ -0,0 +1,47 @@
+package frc.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.ctre.phoenix6.controls.ControlRequest;
+import com.ctre.phoenix6.controls.DutyCycleOut;
+import com.ctre.phoenix6.controls.VoltageOut;
+
+import edu.wpi.first.hal.HAL;
+
+/**
+ * Control requests a simulated Talon FX is sent by setVoltage and set.
+ */
+public class CachedTalonFXTest {
+    private static final double kEpsilon = 1e-9;
+
+    @BeforeAll
+    public static void initializeHAL() {
+        assertTrue(HAL.initialize(500, 0), "HAL did not initialize");
+    }
+
+    @Test
+    public void setVoltageSendsVoltageOut() {
+        CachedTalonFX talon = new CachedTalonFX(60);
+        talon.setVoltage(4.2);
+
+        ControlRequest applied = talon.getAppliedControl();
+        assertTrue(applied instanceof VoltageOut, "applied " + applied.getName());
+        assertEquals(4.2, ((VoltageOut)applied).Output, kEpsilon);
+    }
+
+    @Test
+    public void switchingModesResendsTheOutput() {
+        CachedTalonFX talon = new CachedTalonFX(61);
+        talon.setVoltage(4.2);
+        talon.set(0.3);
+        assertTrue(talon.getAppliedControl() instanceof DutyCycleOut, "applied " + talon.getAppliedControl().getName());
+
+        // Same voltage as before, but the duty cycle in between means it has to be sent again
+        talon.setVoltage(4.2);
+        assertTrue(talon.getAppliedControl() instanceof VoltageOut, "applied " + talon.getAppliedControl().getName());
+    }
+}
@@ -0,0 +1,62 @@
+package frc.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.ctre.phoenix.ErrorCode;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
+
+/**
+ * Outputs a simulated Talon SRX is sent, with and without voltage compensation, on a sagging battery.
+ */
+public class CachedTalonSRXTest {
+    private static final double kEpsilon = 1e-9;
+    private static final double kSaggingBattery = 10.0;
+
+    @BeforeAll
+    public static void initializeHAL() {
+        assertTrue(HAL.initialize(500, 0), "HAL did not initialize");
+    }
+
+    @AfterEach
+    public void restoreBattery() {
+        RoboRioSim.resetData();
+    }
+
+    @Test
+    public void compensatedVoltageIsAFractionOfTheCompensationVoltage() {
+        CachedTalonSRX talon = new CachedTalonSRX(60);
+        assertEquals(ErrorCode.OK, talon.configVoltageCompensation(12.0));
+        RoboRioSim.setVInVoltage(kSaggingBattery);
+
+        talon.setVoltage(6.0);
+        assertEquals(0.5, talon.get(), kEpsilon);
+        talon.setVoltage(-3.0);
+        assertEquals(-0.25, talon.get(), kEpsilon);
+    }
+
+    @Test
+    public void uncompensatedVoltageIsAFractionOfTheBattery() {
+        CachedTalonSRX talon = new CachedTalonSRX(61);
+        RoboRioSim.setVInVoltage(kSaggingBattery);
+
+        talon.setVoltage(6.0);
+        assertEquals(6.0 / kSaggingBattery, talon.get(), kEpsilon);
+    }
+
+    @Test
+    public void compensatedPercentOutputIsSentAsIs() {
+        CachedTalonSRX talon = new CachedTalonSRX(62);
+        talon.configVoltageCompensation(12.0);
+        RoboRioSim.setVInVoltage(kSaggingBattery);
+
+        talon.set(0.35);
+        assertEquals(0.35, talon.get(), kEpsilon);
+    }
+}
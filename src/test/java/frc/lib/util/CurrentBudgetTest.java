@@ -0,0 +1,229 @@
+package frc.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CurrentBudgetTest {
+    private static final double kEpsilon = 1e-9;
+
+    private CurrentBudget.Config config;
+
+    /* What each load draws and the last limit sent to it, per device */
+    private double shooterCurrent;
+    private double driveCurrent;
+    private double rollerCurrent;
+    private boolean shooterDemanding;
+    private double shooterLimit;
+    private double driveLimit;
+    private double rollerLimit;
+
+    @BeforeEach
+    public void setup() {
+        // Defaults: 12.5 V open circuit, 0.02 ohm, 8 V minimum, so a 225 A budget
+        config = new CurrentBudget.Config();
+        shooterCurrent = 0;
+        driveCurrent = 0;
+        rollerCurrent = 0;
+        shooterDemanding = false;
+        shooterLimit = Double.NaN;
+        driveLimit = Double.NaN;
+        rollerLimit = Double.NaN;
+    }
+
+    /* Null PDH, readings are passed to allocate() directly */
+    private CurrentBudget createBudget() {
+        CurrentBudget budget = new CurrentBudget(null, config);
+        budget.register("Shooter", 1, 2, 10.0, 40.0, () -> shooterCurrent, limit -> shooterLimit = limit)
+            .withDemand(() -> shooterDemanding);
+        budget.register("Swerve Drive", 3, 4, 20.0, 60.0, () -> driveCurrent, limit -> driveLimit = limit);
+        budget.register("Intake Rollers", 5, 2, 10.0, 30.0, () -> rollerCurrent, limit -> rollerLimit = limit)
+            .sheddable(5.0);
+        return budget;
+    }
+
+    @Test
+    public void loadsAreKeptInPriorityOrder() {
+        CurrentBudget budget = new CurrentBudget(null, config);
+        budget.register("Low", 5, 1, 0, 10, () -> 0, null);
+        budget.register("High", 0, 1, 0, 10, () -> 0, null);
+        budget.register("Middle", 2, 1, 0, 10, () -> 0, null);
+
+        assertEquals("High", budget.getLoads().get(0).getName());
+        assertEquals("Middle", budget.getLoads().get(1).getName());
+        assertEquals("Low", budget.getLoads().get(2).getName());
+    }
+
+    @Test
+    public void budgetComesFromBatteryModel() {
+        CurrentBudget budget = createBudget();
+        budget.allocate(0.0, 12.5, 0, false);
+        assertEquals((12.5 - 8.0) / 0.02, budget.getBudget(), kEpsilon);
+
+        config.maxTotalCurrent = 150.0;
+        CurrentBudget capped = createBudget();
+        capped.allocate(0.0, 12.5, 0, false);
+        assertEquals(150.0, capped.getBudget(), kEpsilon);
+    }
+
+    @Test
+    public void plentyOfCurrentGivesEveryLoadItsFullLimit() {
+        config.maxTotalCurrent = 1000.0;
+        config.minVoltage = 0.0;
+        CurrentBudget budget = createBudget();
+        budget.allocate(0.0, 12.5, 0, false);
+
+        assertEquals(40.0, shooterLimit, kEpsilon);
+        assertEquals(60.0, driveLimit, kEpsilon);
+        assertEquals(30.0, rollerLimit, kEpsilon);
+    }
+
+    @Test
+    public void demandingShooterIsServedBeforeDrive() {
+        shooterDemanding = true;
+        CurrentBudget budget = createBudget();
+        budget.allocate(0.0, 12.5, 0, false);
+
+        // 225 A: minimums take 2 * 10 + 4 * 20 + 2 * 10 = 120 A, the shooter's full limit another 60 A,
+        // and the drive gets what is left in 5 A steps
+        assertEquals(40.0, shooterLimit, kEpsilon);
+        assertEquals(30.0, driveLimit, kEpsilon);
+        assertEquals(10.0, rollerLimit, kEpsilon);
+        double allocated = 2 * shooterLimit + 4 * driveLimit + 2 * rollerLimit;
+        assertTrue(allocated <= budget.getBudget(), "allocated " + allocated + " A of " + budget.getBudget() + " A");
+    }
+
+    @Test
+    public void measuredNeedIsServedBeforeLeftovers() {
+        config.maxTotalCurrent = 170.0;
+        driveCurrent = 4 * 25.0;
+        CurrentBudget budget = createBudget();
+        budget.allocate(0.0, 12.5, driveCurrent, false);
+
+        // 170 A less 120 A of minimums leaves 50 A. The drive's need (25 A + 10 A headroom per device)
+        // is served first, in whole steps, and the idle shooter only gets what is left after it
+        assertEquals(30.0, driveLimit, kEpsilon);
+        assertEquals(15.0, shooterLimit, kEpsilon);
+        assertEquals(10.0, rollerLimit, kEpsilon);
+    }
+
+    @Test
+    public void unmanagedCurrentIsTakenOffFirst() {
+        CurrentBudget budget = createBudget();
+        budget.allocate(0.0, 12.5, 0, false);
+        double driveWithoutUnmanaged = driveLimit;
+
+        budget = createBudget();
+        budget.allocate(0.0, 12.5, 60.0, false);
+        assertTrue(driveLimit < driveWithoutUnmanaged, "drive limit " + driveLimit + " was " + driveWithoutUnmanaged);
+    }
+
+    @Test
+    public void loadsThatCannotBeLimitedReserveWhatTheyDraw() {
+        CurrentBudget budget = new CurrentBudget(null, config);
+        double[] armCurrent = {0};
+        budget.register("Arm Pivot", 0, 2, 40.0, 40.0, () -> armCurrent[0], null);
+        budget.register("Swerve Drive", 3, 4, 20.0, 60.0, () -> driveCurrent, limit -> driveLimit = limit);
+
+        budget.allocate(0.0, 12.5, 0, false);
+        double driveWithIdleArm = driveLimit;
+
+        armCurrent[0] = 70.0;
+        budget.allocate(0.0, 12.5, 70.0, false);
+        assertTrue(driveLimit < driveWithIdleArm, "drive limit " + driveLimit + " was " + driveWithIdleArm);
+        assertEquals(40.0, budget.getLoads().get(0).getAllocatedLimit(), kEpsilon);
+    }
+
+    @Test
+    public void limitsAreWholeSteps() {
+        shooterDemanding = true;
+        CurrentBudget budget = createBudget();
+        budget.allocate(0.0, 12.5, 37.0, false);
+
+        for (CurrentBudget.Load load : budget.getLoads()) {
+            double limit = load.getAllocatedLimit();
+            assertEquals(0.0, limit % config.limitStep, kEpsilon, load.getName() + " limit " + limit);
+        }
+    }
+
+    @Test
+    public void lowVoltageShedsAndRecovers() {
+        CurrentBudget budget = createBudget();
+        budget.allocate(0.0, 12.5, 0, false);
+        assertFalse(budget.isShedding());
+        assertEquals(10.0, rollerLimit, kEpsilon);
+
+        budget.allocate(0.02, 8.8, 0, false);
+        assertTrue(budget.isShedding());
+        assertEquals(5.0, rollerLimit, kEpsilon);
+
+        // Recovered, but not for long enough
+        budget.allocate(0.04, 11.0, 0, false);
+        budget.allocate(0.04 + config.restoreDelay / 2, 11.0, 0, false);
+        assertTrue(budget.isShedding());
+
+        // Dips below the restore voltage start the wait over
+        budget.allocate(0.04 + config.restoreDelay * 0.9, 10.0, 0, false);
+        budget.allocate(0.04 + config.restoreDelay * 1.1, 11.0, 0, false);
+        assertTrue(budget.isShedding());
+
+        budget.allocate(0.04 + config.restoreDelay * 2.2, 11.0, 0, false);
+        assertFalse(budget.isShedding());
+        assertTrue(rollerLimit >= 10.0);
+    }
+
+    @Test
+    public void budgetShortOfMinimumsSheds() {
+        config.maxTotalCurrent = 100.0;
+        CurrentBudget budget = createBudget();
+        budget.allocate(0.0, 12.5, 0, false);
+
+        assertTrue(budget.isShedding());
+        assertEquals(5.0, rollerLimit, kEpsilon);
+        // Loads that are not sheddable never go below their minimum
+        assertEquals(10.0, shooterLimit, kEpsilon);
+        assertEquals(20.0, driveLimit, kEpsilon);
+    }
+
+    @Test
+    public void batteryModelLearnsResistance() {
+        CurrentBudget budget = createBudget();
+        double openCircuit = 12.6;
+        double resistance = 0.03;
+        double time = 0;
+        for (int i = 0; i < 3000; i++) {
+            double current = 20 + 180 * (0.5 + 0.5 * Math.sin(i * 0.05));
+            budget.allocate(time, openCircuit - resistance * current, current, false);
+            time += 0.02;
+        }
+        assertEquals(openCircuit, budget.getOpenCircuitVoltage(), 0.02);
+        assertEquals(resistance, budget.getBatteryResistance(), 0.002);
+    }
+
+    @Test
+    public void monitorOnlySendsNoLimits() {
+        config.applyLimits = false;
+        shooterDemanding = true;
+        CurrentBudget budget = createBudget();
+        budget.allocate(0.0, 12.5, 0, false);
+        budget.allocate(0.02, 8.5, 0, false);
+
+        assertTrue(Double.isNaN(shooterLimit));
+        assertTrue(Double.isNaN(driveLimit));
+        assertTrue(Double.isNaN(rollerLimit));
+        // The allocation is still worked out for the dashboard, the same as when it is applied
+        config.applyLimits = true;
+        CurrentBudget applied = createBudget();
+        applied.allocate(0.0, 12.5, 0, false);
+        applied.allocate(0.02, 8.5, 0, false);
+        assertTrue(budget.isShedding());
+        assertEquals(applied.getBudget(), budget.getBudget(), kEpsilon);
+        for (int i = 0; i < budget.getLoads().size(); i++) {
+            assertEquals(applied.getLoads().get(i).getAllocatedLimit(), budget.getLoads().get(i).getAllocatedLimit(), kEpsilon);
+        }
+        assertEquals(5.0, budget.getLoads().get(2).getAllocatedLimit(), kEpsilon);
+    }
+}
@@ -0,0 +1,101 @@
+package frc.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.trajectory.Trajectory;
+import frc.robot.autos.AutoTrajectory;
+
+public class TrajectoryStoreTest {
+    private static final double kSampleStep = 0.05;
+
+    private Path directory;
+    private Path file;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("trajectories");
+        file = directory.resolve(AutoTrajectory.kFileName);
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.getParent());
+        Files.deleteIfExists(directory);
+    }
+
+    private List<TrajectoryStore.Entry> bakeAll() throws IOException {
+        List<TrajectoryStore.Entry> entries = new ArrayList<>();
+        for (AutoTrajectory auto : AutoTrajectory.values()) {
+            entries.add(new TrajectoryStore.Entry(auto.name(), auto.fingerprint(), auto.generate()));
+        }
+        TrajectoryStore.write(file, entries);
+        return entries;
+    }
+
+    @Test
+    public void decodedTrajectoriesMatchRuntimeGeneration() throws IOException {
+        bakeAll();
+        TrajectoryStore store = TrajectoryStore.open(file);
+        assertNotNull(store);
+
+        for (AutoTrajectory auto : AutoTrajectory.values()) {
+            Trajectory generated = auto.generate();
+            Trajectory decoded = store.get(auto.name(), auto.fingerprint());
+            assertNotNull(decoded, auto.name());
+            assertEquals(generated, decoded, auto.name());
+            assertEquals(generated.getTotalTimeSeconds(), decoded.getTotalTimeSeconds(), 0.0, auto.name());
+
+            // What the follower actually sees
+            for (double time = 0.0; time <= generated.getTotalTimeSeconds(); time += kSampleStep) {
+                Trajectory.State expected = generated.sample(time);
+                Trajectory.State actual = decoded.sample(time);
+                assertEquals(expected.poseMeters, actual.poseMeters, auto.name() + " at " + time);
+                assertEquals(expected.velocityMetersPerSecond, actual.velocityMetersPerSecond, 0.0, auto.name() + " at " + time);
+            }
+        }
+    }
+
+    @Test
+    public void staleFingerprintIsRejected() throws IOException {
+        bakeAll();
+        TrajectoryStore store = TrajectoryStore.open(file);
+        assertNotNull(store);
+
+        AutoTrajectory auto = AutoTrajectory.BACKUP;
+        assertNull(store.get(auto.name(), auto.fingerprint() + 1));
+    }
+
+    @Test
+    public void unknownNameIsRejected() throws IOException {
+        bakeAll();
+        TrajectoryStore store = TrajectoryStore.open(file);
+        assertNotNull(store);
+
+        assertNull(store.get("NOT_AN_AUTO", 0));
+    }
+
+    @Test
+    public void missingFileOpensAsNull() {
+        assertNull(TrajectoryStore.open(directory.resolve("missing.bin")));
+    }
+
+    @Test
+    public void corruptFileOpensAsNull() throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        assertNull(TrajectoryStore.open(file));
+    }
+}
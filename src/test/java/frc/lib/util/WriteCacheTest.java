@@ -0,0 +1,90 @@
+package frc.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class WriteCacheTest {
+    private static final double kRefreshPeriod = 0.5;
+
+    private double time;
+    private WriteCache cache;
+
+    @BeforeEach
+    public void setup() {
+        time = 10.0;
+        RobotClock.setSource(() -> time);
+        cache = new WriteCache(kRefreshPeriod);
+    }
+
+    @AfterEach
+    public void restoreClock() {
+        RobotClock.useFPGA();
+    }
+
+    @Test
+    public void firstWriteIsSent() {
+        assertTrue(cache.needsWrite(0.0));
+    }
+
+    @Test
+    public void repeatedValueIsSkipped() {
+        assertTrue(cache.needsWrite(0.25));
+        time += 0.02;
+        assertFalse(cache.needsWrite(0.25));
+        time += 0.02;
+        assertFalse(cache.needsWrite(0.25));
+    }
+
+    @Test
+    public void changedValueIsSent() {
+        assertTrue(cache.needsWrite(0.25));
+        assertTrue(cache.needsWrite(0.5));
+        assertTrue(cache.needsWrite(0.25));
+    }
+
+    @Test
+    public void unchangedValueIsResentAfterRefreshPeriod() {
+        assertTrue(cache.needsWrite(1.0));
+        time += kRefreshPeriod - 0.01;
+        assertFalse(cache.needsWrite(1.0));
+        time += 0.01;
+        assertTrue(cache.needsWrite(1.0));
+        // The refresh restarts the period
+        time += 0.01;
+        assertFalse(cache.needsWrite(1.0));
+    }
+
+    @Test
+    public void invalidateForcesNextWrite() {
+        assertTrue(cache.needsWrite(1.0));
+        cache.invalidate();
+        assertTrue(cache.needsWrite(1.0));
+        assertFalse(cache.needsWrite(1.0));
+    }
+
+    @Test
+    public void nanIsNeverCached() {
+        // NaN never equals the last value, so a NaN output is passed on for the device to reject
+        assertTrue(cache.needsWrite(Double.NaN));
+        assertTrue(cache.needsWrite(Double.NaN));
+    }
+
+    @Test
+    public void countersTrackSentAndSkippedWrites() {
+        long sent = WriteCache.getSentWrites();
+        long skipped = WriteCache.getSkippedWrites();
+
+        cache.needsWrite(0.5);
+        cache.needsWrite(0.5);
+        cache.needsWrite(0.5);
+        cache.needsWrite(0.75);
+
+        assertEquals(sent + 2, WriteCache.getSentWrites());
+        assertEquals(skipped + 2, WriteCache.getSkippedWrites());
+    }
+}
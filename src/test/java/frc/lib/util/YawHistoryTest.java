@@ -0,0 +1,95 @@
+package frc.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class YawHistoryTest {
+    private static final double kEpsilon = 1e-9;
+
+    private YawHistory history;
+
+    @BeforeEach
+    public void setup() {
+        history = new YawHistory(5);
+    }
+
+    @Test
+    public void emptyHistoryIsNaN() {
+        assertTrue(Double.isNaN(history.getYawAt(1.0)));
+    }
+
+    @Test
+    public void singleSampleIsReturnedForAnyTime() {
+        history.add(1.0, 0.5);
+        assertEquals(0.5, history.getYawAt(0.0), kEpsilon);
+        assertEquals(0.5, history.getYawAt(1.0), kEpsilon);
+        assertEquals(0.5, history.getYawAt(2.0), kEpsilon);
+    }
+
+    @Test
+    public void exactSampleTimesReturnTheirYaw() {
+        history.add(1.00, 0.1);
+        history.add(1.02, 0.2);
+        history.add(1.04, 0.4);
+        assertEquals(0.1, history.getYawAt(1.00), kEpsilon);
+        assertEquals(0.2, history.getYawAt(1.02), kEpsilon);
+        assertEquals(0.4, history.getYawAt(1.04), kEpsilon);
+    }
+
+    @Test
+    public void interpolatesBetweenSamples() {
+        history.add(1.00, 0.0);
+        history.add(1.02, 0.2);
+        history.add(1.04, 1.0);
+        assertEquals(0.1, history.getYawAt(1.01), kEpsilon);
+        assertEquals(0.6, history.getYawAt(1.03), kEpsilon);
+        assertEquals(0.05, history.getYawAt(1.005), kEpsilon);
+    }
+
+    @Test
+    public void newerThanHistoryReturnsNewest() {
+        history.add(1.00, 0.1);
+        history.add(1.02, 0.3);
+        assertEquals(0.3, history.getYawAt(5.0), kEpsilon);
+    }
+
+    @Test
+    public void olderThanHistoryReturnsOldest() {
+        history.add(1.00, 0.1);
+        history.add(1.02, 0.3);
+        assertEquals(0.1, history.getYawAt(0.5), kEpsilon);
+    }
+
+    @Test
+    public void continuousYawIsNotWrapped() {
+        history.add(1.00, 3.0);
+        history.add(1.02, 3.4);
+        assertEquals(3.2, history.getYawAt(1.01), kEpsilon);
+    }
+
+    @Test
+    public void oldSamplesAreOverwrittenOnceFull() {
+        for (int i = 0; i < 8; i++) {
+            history.add(i, i * 10.0);
+        }
+        // Only times 3 through 7 are left
+        assertEquals(30.0, history.getYawAt(0.0), kEpsilon);
+        assertEquals(30.0, history.getYawAt(3.0), kEpsilon);
+        assertEquals(35.0, history.getYawAt(3.5), kEpsilon);
+        assertEquals(65.0, history.getYawAt(6.5), kEpsilon);
+        assertEquals(70.0, history.getYawAt(7.0), kEpsilon);
+    }
+
+    @Test
+    public void interpolatesAcrossBufferWrap() {
+        for (int i = 0; i < 6; i++) {
+            history.add(i, i);
+        }
+        // Newest sample sits at the start of the buffer, the one before it at the end
+        assertEquals(4.25, history.getYawAt(4.25), kEpsilon);
+        assertEquals(4.75, history.getYawAt(4.75), kEpsilon);
+    }
+}
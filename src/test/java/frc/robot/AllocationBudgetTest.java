@@ -0,0 +1,217 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import frc.robot.autos.AutoTrajectory;
+import frc.robot.commands.AlignToSpeaker;
+import frc.robot.commands.FollowTrajectory;
+import frc.robot.commands.TeleopSwerve;
+import frc.robot.subsystems.Arm;
+import frc.robot.subsystems.Climber;
+import frc.robot.subsystems.Intake;
+import frc.robot.subsystems.Lighting;
+import frc.robot.subsystems.NoteDetector;
+import frc.robot.subsystems.Superstructure;
+import frc.robot.subsystems.Swerve;
+import frc.robot.subsystems.Vision;
+
+/**
+ * Runs every subsystem's periodic, the fast tier tasks and the commands that run every loop against
+ * simulated hardware, and fails if any of them allocates more per call than its budget.
+ * Garbage made every loop is what turns into GC pauses and loop overruns on the roboRIO.
+ *
+ * Each path is run kWarmupIterations times first so the JIT has compiled it (escape analysis removes
+ * some allocations once compiled), then kMeasuredIterations times with the bytes the thread allocated
+ * read from ThreadMXBean around every call. The average per call is checked against the budget.
+ */
+public class AllocationBudgetTest {
+    private static final int kWarmupIterations = 5000;
+    private static final int kMeasuredIterations = 5000;
+
+    /* Average Bytes Allowed Per Call */
+    // Written to be allocation free, the allowance only covers measurement noise
+    private static final long kAllocationFreeBudget = 64;
+    private static final long kFastTierBudget = 2048; // Odometry still creates its Rotation2d and module positions, the field pose estimator a history entry
+    private static final long kPeriodicBudget = 512; // Not rewritten to be allocation free, dashboard values and sensor reads
+    private static final long kDriveCommandBudget = 256; // Swerve.drive is allocation free, the commands still build its Translation2d
+
+    private static final com.sun.management.ThreadMXBean threads = getThreadBean();
+    private static long measurementOverhead;
+
+    private static Swerve s_Swerve;
+    private static Arm s_Arm;
+    private static Intake s_Intake;
+    private static Vision s_Vision;
+    private static Climber s_Climber;
+    private static Lighting s_Lighting;
+    private static NoteDetector s_NoteDetector;
+    private static Superstructure s_Superstructure;
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean)bean : null;
+    }
+
+    @BeforeAll
+    public static void setup() {
+        assertTrue(HAL.initialize(500, 0), "HAL did not initialize");
+        DriverStationSim.setEnabled(true);
+        DriverStationSim.notifyNewData();
+
+        // One of each, the simulated devices are keyed by CAN id
+        s_Swerve = new Swerve();
+        s_Arm = new Arm();
+        s_Intake = new Intake();
+        s_Vision = new Vision();
+        s_Climber = new Climber();
+        s_Lighting = new Lighting();
+        s_NoteDetector = new NoteDetector(s_Arm, s_Intake);
+        s_Superstructure = new Superstructure(s_Arm, s_Intake, s_NoteDetector, s_Lighting);
+
+        if (threads != null && threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+            // Whatever reading the counter itself costs is taken off every measurement
+            Runnable empty = () -> {};
+            measurementOverhead = Long.MAX_VALUE;
+            for (int i = 0; i < kWarmupIterations; i++) {
+                long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+                empty.run();
+                measurementOverhead = Math.min(measurementOverhead, threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before);
+            }
+        }
+    }
+
+    /**
+     * Runs a path and fails if its average allocation per call is over budget.
+     * @param name Name used in the failure message
+     * @param budget Average bytes allowed per call
+     */
+    private static void checkBudget(String name, long budget, Runnable path) {
+        assumeTrue(threads != null && threads.isThreadAllocatedMemorySupported(), "This JVM cannot measure thread allocation");
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < kWarmupIterations; i++) {
+            path.run();
+        }
+
+        long total = 0;
+        long max = 0;
+        int worstIteration = 0;
+        for (int i = 0; i < kMeasuredIterations; i++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            path.run();
+            long bytes = Math.max(0, threads.getThreadAllocatedBytes(threadId) - before - measurementOverhead);
+            total += bytes;
+            if (bytes > max) {
+                max = bytes;
+                worstIteration = i;
+            }
+        }
+        double average = (double)total / kMeasuredIterations;
+        assertTrue(average <= budget, String.format(
+            "%s allocates %.1f bytes per call on average (budget %d bytes), %d bytes total over %d calls, worst call %d bytes at iteration %d. "
+                + "Look for new objects, boxing, string building or lambdas capturing state in this path.",
+            name, average, budget, total, kMeasuredIterations, max, worstIteration));
+    }
+
+    /* Subsystem Periodics */
+
+    @Test
+    public void swervePeriodic() {
+        checkBudget("Swerve.periodic", kAllocationFreeBudget, s_Swerve::periodic);
+    }
+
+    @Test
+    public void armPeriodic() {
+        checkBudget("Arm.periodic", kPeriodicBudget, s_Arm::periodic);
+    }
+
+    @Test
+    public void intakePeriodic() {
+        checkBudget("Intake.periodic", kPeriodicBudget, s_Intake::periodic);
+    }
+
+    @Test
+    public void visionPeriodic() {
+        checkBudget("Vision.periodic", kPeriodicBudget, s_Vision::periodic);
+    }
+
+    @Test
+    public void climberPeriodic() {
+        checkBudget("Climber.periodic", kPeriodicBudget, s_Climber::periodic);
+    }
+
+    @Test
+    public void lightingPeriodic() {
+        checkBudget("Lighting.periodic", kPeriodicBudget, s_Lighting::periodic);
+    }
+
+    @Test
+    public void noteDetectorPeriodic() {
+        checkBudget("NoteDetector.periodic", kPeriodicBudget, s_NoteDetector::periodic);
+    }
+
+    @Test
+    public void superstructurePeriodic() {
+        checkBudget("Superstructure.periodic", kPeriodicBudget, s_Superstructure::periodic);
+    }
+
+    /* Fast Tier */
+
+    @Test
+    public void swerveOdometry() {
+        checkBudget("Swerve.updateOdometry", kFastTierBudget, s_Swerve::updateOdometry);
+    }
+
+    @Test
+    public void swerveModuleControl() {
+        s_Swerve.drive(new Translation2d(0.5, 0.25), 0.1, true, false);
+        checkBudget("Swerve.updateModuleControl", kAllocationFreeBudget, s_Swerve::updateModuleControl);
+        s_Swerve.drive(new Translation2d(0, 0), 0, true, false);
+    }
+
+    @Test
+    public void superstructureControl() {
+        s_Superstructure.requestState(Superstructure.State.INTAKING);
+        checkBudget("Superstructure.updateControl", kAllocationFreeBudget, s_Superstructure::updateControl);
+        s_Superstructure.requestState(Superstructure.State.IDLE);
+    }
+
+    /* Commands */
+
+    @Test
+    public void followTrajectory() {
+        FollowTrajectory follow = new FollowTrajectory(s_Swerve, "BACKUP", AutoTrajectory.BACKUP.generate());
+        follow.initialize();
+        checkBudget("FollowTrajectory.execute", kAllocationFreeBudget, follow::execute);
+        follow.end(true);
+    }
+
+    @Test
+    public void teleopSwerve() {
+        TeleopSwerve teleop = new TeleopSwerve(s_Swerve, () -> 0.5, () -> 0.25, () -> 0.1, () -> false, () -> false);
+        teleop.initialize();
+        checkBudget("TeleopSwerve.execute", kDriveCommandBudget, teleop::execute);
+        teleop.end(true);
+    }
+
+    @Test
+    public void alignToSpeaker() {
+        AlignToSpeaker align = new AlignToSpeaker(s_Swerve, s_Vision);
+        align.initialize();
+        checkBudget("AlignToSpeaker.execute", kDriveCommandBudget, align::execute);
+        align.end(true);
+    }
+}
@@ -0,0 +1,85 @@
+package frc.robot.autos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import frc.lib.math.PrecomputedTrajectory;
+import frc.robot.Constants.IntakeProfile;
+import frc.robot.Constants.SuperstructureProfile;
+import frc.robot.commands.FollowTrajectory;
+import frc.robot.subsystems.Superstructure.State;
+
+/**
+ * Time the auto event markers save: how much of a superstructure request started at the marker
+ * overlaps the path, instead of being started once the robot has stopped.
+ */
+public class EventMarkerTest {
+    private static final double kEpsilon = 1e-9;
+
+    /**
+     * Rough time a state takes to get ready from a stowed robot, from the superstructure speed estimates.
+     * INTAKING is ready once the wrist is deployed, PRIMED once the arm is at its target and the shooter is spun up.
+     */
+    private static double estimatePrepTime(State state, double armTarget) {
+        double wristDeployTime = IntakeProfile.kDeployedLowerLimitPos / SuperstructureProfile.kWristSpeedEstimate;
+        switch (state) {
+            case INTAKING:
+                return wristDeployTime;
+            case PRIMED:
+                double wristClearTime = SuperstructureProfile.kWristClearPos / SuperstructureProfile.kWristSpeedEstimate;
+                double armFreeZoneTime = SuperstructureProfile.kArmFreeZoneMax / SuperstructureProfile.kArmSpeedEstimate;
+                double armReadyTime = Math.max(0, wristClearTime - armFreeZoneTime) + armTarget / SuperstructureProfile.kArmSpeedEstimate;
+                return Math.max(armReadyTime, SuperstructureProfile.kShooterSpinUpTime);
+            default:
+                return 0;
+        }
+    }
+
+    private static double timeSaved(AutoTrajectory auto, double markerTime, State state, double armTarget) {
+        PrecomputedTrajectory trajectory = new PrecomputedTrajectory(auto.generate());
+        return FollowTrajectory.getOverlap(trajectory, markerTime, estimatePrepTime(state, armTarget));
+    }
+
+    @Test
+    public void defaultAutoDeploysIntakeWhileBackingUp() {
+        double prepTime = estimatePrepTime(State.INTAKING, 0);
+        double saved = timeSaved(AutoTrajectory.DEFAULT_BACKUP, 0, State.INTAKING, 0);
+        assertTrue(prepTime > 0);
+        assertTrue(saved > 0, "intake marker saves nothing");
+        assertTrue(saved <= prepTime + kEpsilon);
+    }
+
+    @Test
+    public void rightDefaultPrimesShotWhileDriving() {
+        double prepTime = estimatePrepTime(State.PRIMED, 24000);
+        double saved = timeSaved(AutoTrajectory.RIGHT_ROTATE, 0, State.PRIMED, 24000);
+        assertTrue(prepTime > 0);
+        assertTrue(saved > 0, "primed marker saves nothing");
+        assertTrue(saved <= prepTime + kEpsilon);
+    }
+
+    @Test
+    public void markerAtEndOfPathSavesNothing() {
+        PrecomputedTrajectory trajectory = new PrecomputedTrajectory(AutoTrajectory.DEFAULT_BACKUP.generate());
+        assertEquals(0, FollowTrajectory.getOverlap(trajectory, trajectory.getTotalTime(), 1.0), kEpsilon);
+    }
+
+    @Test
+    public void overlapIsLimitedByPathLength() {
+        PrecomputedTrajectory trajectory = new PrecomputedTrajectory(AutoTrajectory.BACKUP.generate());
+        double actionTime = trajectory.getTotalTime() + 5.0;
+        assertEquals(trajectory.getTotalTime(), FollowTrajectory.getOverlap(trajectory, 0, actionTime), kEpsilon);
+    }
+
+    @Test
+    public void distanceMarkersMapOntoPathTime() {
+        PrecomputedTrajectory trajectory = new PrecomputedTrajectory(AutoTrajectory.BACKUP.generate());
+        assertEquals(0, trajectory.getTimeAtDistance(0), kEpsilon);
+        assertEquals(trajectory.getTotalTime(), trajectory.getTimeAtDistance(trajectory.getTotalDistance()), 1e-6);
+
+        double halfway = trajectory.getTimeAtDistance(trajectory.getTotalDistance() / 2);
+        assertTrue(halfway > 0 && halfway < trajectory.getTotalTime());
+    }
+}
@@ -0,0 +1,122 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.filter.LinearFilter;
+import frc.lib.math.HeadingController;
+import frc.lib.util.YawHistory;
+import frc.robot.Constants.AlignProfile;
+import frc.robot.Constants.LimelightProfile;
+import frc.robot.Constants.SwerveProfile;
+
+/**
+ * Turns 20 degrees to a target with a lagging camera, once with the old fixed rate alignment on the
+ * filtered tx and once with AlignToSpeaker's controller. The drivetrain is modelled as a first order
+ * lag on yaw rate.
+ */
+public class AlignToSpeakerTest {
+  private static final double kLoopPeriod = 0.02;
+  private static final double kFramePeriod = 1.0 / 30.0;
+  private static final double kCameraLatency = 0.05;
+  private static final double kYawRateTimeConstant = 0.08;
+  private static final double kDuration = 5.0;
+  private static final double kMaxTimeToAligned = 1.5;
+
+  /** @return Time the robot became aligned and stayed aligned until the end, NaN if it never settled */
+  private static double simulateTimeToAligned(boolean profiled) {
+    final double targetYaw = 0;
+
+    double yaw = Math.toRadians(20);
+    double yawRate = 0;
+    double omega = 0;
+    double nextFrameTime = 0;
+    double alignedSince = Double.NaN;
+    ArrayDeque<double[]> framesInFlight = new ArrayDeque<>();
+    YawHistory history = new YawHistory(AlignProfile.kYawHistorySize);
+    HeadingController controller = new HeadingController(
+        AlignProfile.kP, AlignProfile.kD, AlignProfile.kMaxVelocity, AlignProfile.kMaxAcceleration);
+    controller.reset(yaw, yawRate);
+    LinearFilter filter = new LinearFilter(LimelightProfile.kFilterGains, new double[0]);
+    double latestTx = Double.NaN;
+    double latestCaptureTime = Double.NaN;
+    boolean newFrame = false;
+
+    for (double time = 0; time < kDuration; time += kLoopPeriod) {
+      /* Drivetrain */
+      yawRate += (omega - yawRate) * kLoopPeriod / kYawRateTimeConstant;
+      yaw += yawRate * kLoopPeriod;
+      history.add(time, yaw);
+
+      /* Camera: frames are captured at the frame rate and arrive after the latency */
+      while (nextFrameTime <= time) {
+        framesInFlight.add(new double[] {nextFrameTime, Math.toDegrees(history.getYawAt(nextFrameTime) - targetYaw)});
+        nextFrameTime += kFramePeriod;
+      }
+      while (!framesInFlight.isEmpty() && framesInFlight.peek()[0] + kCameraLatency <= time) {
+        double[] frame = framesInFlight.poll();
+        latestCaptureTime = frame[0];
+        latestTx = frame[1];
+        newFrame = true;
+      }
+      if (Double.isNaN(latestTx)) {
+        continue;
+      }
+
+      /* Controller */
+      if (profiled) {
+        if (newFrame) {
+          controller.setTarget(history.getYawAt(latestCaptureTime) - Math.toRadians(latestTx));
+        }
+        omega = MathUtil.clamp(controller.calculate(yaw, yawRate), -SwerveProfile.maxAngularVelocity, SwerveProfile.maxAngularVelocity);
+      }
+      else {
+        // Same as the fixed rate fallback in AlignToSpeaker.execute
+        double filteredTx = filter.calculate(latestTx);
+        omega = Math.abs(filteredTx) < LimelightProfile.alignWindow ? 0 : -Math.copySign(AlignProfile.kFixedRate, filteredTx);
+      }
+      newFrame = false;
+
+      if (AlignToSpeaker.isAligned(targetYaw - yaw, yawRate)) {
+        if (Double.isNaN(alignedSince)) {
+          alignedSince = time;
+        }
+      }
+      else {
+        alignedSince = Double.NaN;
+      }
+    }
+    return alignedSince;
+  }
+
+  @Test
+  public void profiledControllerSettles() {
+    double timeToAligned = simulateTimeToAligned(true);
+    assertFalse(Double.isNaN(timeToAligned), "profiled alignment never settled");
+    assertTrue(timeToAligned < kMaxTimeToAligned, "profiled alignment took " + timeToAligned + " s");
+  }
+
+  @Test
+  public void profiledControllerBeatsFixedRate() {
+    double profiledTime = simulateTimeToAligned(true);
+    double fixedTime = simulateTimeToAligned(false);
+    assertTrue(Double.isNaN(fixedTime) || profiledTime < fixedTime,
+        "profiled " + profiledTime + " s, fixed rate " + fixedTime + " s");
+  }
+
+  @Test
+  public void alignedNeedsSmallErrorAndRate() {
+    assertTrue(AlignToSpeaker.isAligned(0, 0));
+    assertFalse(AlignToSpeaker.isAligned(Math.toRadians(AlignProfile.kAlignedTolerance * 2), 0));
+    assertFalse(AlignToSpeaker.isAligned(0, Math.toRadians(AlignProfile.kAlignedRateTolerance * 2)));
+  }
+}
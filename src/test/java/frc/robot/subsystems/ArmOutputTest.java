@@ -0,0 +1,76 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.Constants.PowerProfile;
+
+/**
+ * Pivot outputs on a simulated arm: voltages and duty cycles both pass through the output limiter,
+ * and voltages are sent in the Spark Max's voltage mode.
+ */
+public class ArmOutputTest {
+  private static final double kEpsilon = 1e-9;
+
+  private static Arm arm;
+  private double limiterInput;
+  private double limiterScale;
+
+  @BeforeAll
+  public static void setup() {
+    assertTrue(HAL.initialize(500, 0), "HAL did not initialize");
+    arm = new Arm();
+  }
+
+  @BeforeEach
+  public void resetLimiter() {
+    limiterInput = Double.NaN;
+    limiterScale = 0.5;
+    arm.setArmOutputLimiter(output -> {
+      limiterInput = output;
+      return output * limiterScale;
+    });
+  }
+
+  @Test
+  public void voltageGoesThroughTheLimiterInVoltageMode() {
+    arm.setArmVoltage(6.0);
+    assertEquals(6.0 / PowerProfile.kCompensationVoltage, limiterInput, kEpsilon);
+    assertEquals(6.0 / PowerProfile.kCompensationVoltage, arm.getRequestedArmOutput(), kEpsilon);
+    assertEquals(3.0 / PowerProfile.kCompensationVoltage, arm.getArmOutput(), kEpsilon);
+    assertTrue(arm.isArmVoltageMode());
+  }
+
+  @Test
+  public void dutyCycleGoesThroughTheLimiter() {
+    arm.setArmVoltage(6.0);
+    arm.setArmOutput(0.4);
+    assertEquals(0.4, limiterInput, kEpsilon);
+    assertEquals(0.2, arm.getArmOutput(), kEpsilon);
+    assertFalse(arm.isArmVoltageMode());
+  }
+
+  @Test
+  public void heldVoltageIsLimitedAgainEveryCycle() {
+    arm.setArmVoltage(-4.0);
+    limiterScale = 0;
+    arm.applyArmOutput();
+    assertEquals(0, arm.getArmOutput(), kEpsilon);
+
+    // Released by the limiter, the same request resumes without being sent again
+    limiterScale = 1;
+    arm.applyArmOutput();
+    assertEquals(-4.0 / PowerProfile.kCompensationVoltage, arm.getArmOutput(), kEpsilon);
+    assertTrue(arm.isArmVoltageMode());
+  }
+}
@@ -0,0 +1,174 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+import frc.lib.util.RobotClock;
+import frc.robot.Constants.NoteDetectorProfile;
+
+/**
+ * Feeds the detector made up indexor and roller currents on a fake clock, one sample per 20ms loop.
+ */
+public class NoteDetectorTest {
+  private static final double kLoopPeriod = 0.02;
+  private static final double kIdleCurrent = 2.0;
+  private static final double kNoteCurrent = 8.0;
+
+  private double time;
+  private boolean indexorRunning;
+  private boolean shooterRunning;
+  private boolean rollersRunning;
+  private double indexorCurrent;
+  private double rollerCurrent;
+  private NoteDetector detector;
+
+  @BeforeAll
+  public static void initializeHAL() {
+    assertTrue(HAL.initialize(500, 0), "HAL did not initialize");
+  }
+
+  @BeforeEach
+  public void setup() {
+    time = 100.0;
+    indexorRunning = false;
+    shooterRunning = false;
+    rollersRunning = false;
+    indexorCurrent = 0;
+    rollerCurrent = 0;
+    RobotClock.setSource(() -> time);
+    detector = new NoteDetector(() -> indexorRunning, () -> shooterRunning, () -> rollersRunning, () -> indexorCurrent, () -> rollerCurrent);
+  }
+
+  @AfterEach
+  public void restoreClock() {
+    RobotClock.useFPGA();
+  }
+
+  private void step(int loops) {
+    for (int i = 0; i < loops; i++) {
+      detector.periodic();
+      time += kLoopPeriod;
+    }
+  }
+
+  // Runs the indexor long enough to get past the blanking time and fill the baseline
+  private void startIndexor() {
+    indexorRunning = true;
+    indexorCurrent = kIdleCurrent;
+    rollerCurrent = kIdleCurrent;
+    step((int)Math.ceil(NoteDetectorProfile.kSpinUpBlankingTime / kLoopPeriod) + NoteDetectorProfile.kBaselineSamples + 2);
+  }
+
+  @Test
+  public void detectsSustainedSpike() {
+    startIndexor();
+    assertFalse(detector.isNoteSeated());
+
+    double spikeStart = time;
+    indexorCurrent = kNoteCurrent;
+    step(NoteDetectorProfile.kDebounceSamples);
+
+    assertTrue(detector.isNoteSeated());
+    assertEquals(1, detector.getDetectionCount());
+    assertEquals(spikeStart, detector.getLastDetectionTimestamp(), 1e-9, "Detection should be stamped with the first sample of the spike");
+  }
+
+  @Test
+  public void ignoresSpikeShorterThanDebounce() {
+    startIndexor();
+
+    indexorCurrent = kNoteCurrent;
+    step(NoteDetectorProfile.kDebounceSamples - 1);
+    indexorCurrent = kIdleCurrent;
+    step(NoteDetectorProfile.kSampleWindow);
+
+    assertFalse(detector.isNoteSeated());
+  }
+
+  @Test
+  public void ignoresInrushDuringBlanking() {
+    indexorRunning = true;
+    indexorCurrent = 30.0;
+    step((int)(NoteDetectorProfile.kSpinUpBlankingTime / kLoopPeriod) - 1);
+    indexorCurrent = kIdleCurrent;
+    step(NoteDetectorProfile.kSampleWindow);
+
+    assertFalse(detector.isNoteSeated());
+  }
+
+  @Test
+  public void ignoresSpikeBelowMinimumCurrent() {
+    indexorRunning = true;
+    indexorCurrent = 0.5;
+    step((int)Math.ceil(NoteDetectorProfile.kSpinUpBlankingTime / kLoopPeriod) + NoteDetectorProfile.kBaselineSamples + 2);
+
+    indexorCurrent = NoteDetectorProfile.kIndexorMinimumCurrent - 0.5;
+    step(NoteDetectorProfile.kSampleWindow);
+
+    assertFalse(detector.isNoteSeated());
+  }
+
+  @Test
+  public void requiresRollerBumpWhileRollersRun() {
+    rollersRunning = true;
+    startIndexor();
+
+    indexorCurrent = kNoteCurrent;
+    step(NoteDetectorProfile.kDebounceSamples + 2);
+    assertFalse(detector.isNoteSeated(), "Indexor spike without a roller bump should not count while the rollers run");
+
+    indexorCurrent = kIdleCurrent;
+    step(NoteDetectorProfile.kSampleWindow);
+    indexorCurrent = kNoteCurrent;
+    rollerCurrent = kIdleCurrent + NoteDetectorProfile.kRollerSpikeDelta + 1.0;
+    step(NoteDetectorProfile.kDebounceSamples);
+    assertTrue(detector.isNoteSeated());
+  }
+
+  @Test
+  public void staysLatchedUntilFired() {
+    startIndexor();
+    indexorCurrent = kNoteCurrent;
+    step(NoteDetectorProfile.kDebounceSamples);
+    assertTrue(detector.isNoteSeated());
+
+    // Indexor stopping with the note held keeps it seated
+    indexorRunning = false;
+    indexorCurrent = 0;
+    step(10);
+    assertTrue(detector.isNoteSeated());
+
+    indexorRunning = true;
+    shooterRunning = true;
+    step(1);
+    assertFalse(detector.isNoteSeated());
+    assertEquals(1, detector.getDetectionCount());
+  }
+
+  @Test
+  public void clearForgetsNote() {
+    startIndexor();
+    indexorCurrent = kNoteCurrent;
+    step(NoteDetectorProfile.kDebounceSamples);
+    assertTrue(detector.isNoteSeated());
+
+    detector.clear();
+    assertFalse(detector.isNoteSeated());
+
+    // Current that stays high is the new baseline, not a second note
+    step(NoteDetectorProfile.kSampleWindow);
+    assertFalse(detector.isNoteSeated());
+    assertEquals(1, detector.getDetectionCount());
+  }
+}
@@ -0,0 +1,103 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import frc.robot.Constants.ArmProfile;
+import frc.robot.Constants.PowerProfile;
+import frc.robot.Constants.SuperstructureProfile;
+
+/**
+ * Arm move time and shooter speed at firing, from a fresh battery down to a sagging one, with duty
+ * cycle outputs against voltage compensated ones. Timed autos and shots rely on both staying the same
+ * through a match.
+ */
+public class VoltageCompensationTest {
+  private static final double[] kBusVoltages = {12.5, 12.0, 11.5, 11.0};
+
+  /* Voltage compensation scales outputs to the nominal voltage but cannot apply more than the battery has */
+  private static double getAppliedVoltage(double output, double busVoltage, boolean compensated) {
+    return compensated ? Math.min(output * PowerProfile.kCompensationVoltage, busVoltage) : output * busVoltage;
+  }
+
+  /* Arm from stowed to the speaker position at the arm's default output, on two NEOs through the pivot gearing */
+  private static double simulateArmMoveTime(double volts) {
+    final double dt = 0.001;
+    final double armMoI = 0.8; // Assumed (kg m^2), gravity is left out
+    DCMotor motors = DCMotor.getNEO(2).withReduction(ArmProfile.kArmGearRatio);
+    // Pivot A's position is motor rotations times kPositionFactor
+    double targetRadians = (ArmProfile.kpivotSpeakerPos - ArmProfile.kPivotPosThreshold) / ArmProfile.kPositionFactor / ArmProfile.kArmGearRatio * 2.0 * Math.PI;
+    double angle = 0;
+    double velocity = 0;
+    double time = 0;
+    while (angle < targetRadians && time < 10.0) {
+      velocity += motors.getTorque(motors.getCurrent(velocity, volts)) / armMoI * dt;
+      angle += velocity * dt;
+      time += dt;
+    }
+    return time;
+  }
+
+  /* Shooter speed after the spin up wait, when the note is fired (RPM) */
+  private static double simulateShooterSpeed(double volts) {
+    final double dt = 0.001;
+    final double flywheelMoI = 0.002; // Assumed (kg m^2)
+    DCMotor motors = DCMotor.getCIM(2);
+    double velocity = 0;
+    for (double time = 0; time < SuperstructureProfile.kShooterSpinUpTime; time += dt) {
+      velocity += motors.getTorque(motors.getCurrent(velocity, volts)) / flywheelMoI * dt;
+    }
+    return velocity * 60.0 / (2.0 * Math.PI);
+  }
+
+  private static double getArmTimeSpread(boolean compensated) {
+    double min = Double.POSITIVE_INFINITY, max = 0;
+    for (double busVoltage : kBusVoltages) {
+      double time = simulateArmMoveTime(getAppliedVoltage(ArmProfile.kArmDefaultOutput, busVoltage, compensated));
+      min = Math.min(min, time);
+      max = Math.max(max, time);
+    }
+    return max - min;
+  }
+
+  /* Fraction of the fastest speed lost at the slowest */
+  private static double getShooterSpeedSpread(boolean compensated) {
+    double min = Double.POSITIVE_INFINITY, max = 0;
+    for (double busVoltage : kBusVoltages) {
+      double speed = simulateShooterSpeed(getAppliedVoltage(ArmProfile.kShooterDefaultOutput, busVoltage, compensated));
+      min = Math.min(min, speed);
+      max = Math.max(max, speed);
+    }
+    return (max - min) / max;
+  }
+
+  @Test
+  public void appliedVoltageIsCappedByTheBattery() {
+    assertEquals(0.5 * PowerProfile.kCompensationVoltage, getAppliedVoltage(0.5, 11.0, true), 1e-9);
+    assertEquals(11.0, getAppliedVoltage(1.0, 11.0, true), 1e-9);
+    assertEquals(5.5, getAppliedVoltage(0.5, 11.0, false), 1e-9);
+  }
+
+  @Test
+  public void compensatedArmTimeDoesNotChangeWithSag() {
+    // The arm's default output stays well under what a sagging battery can apply
+    assertTrue(getArmTimeSpread(false) > 0.01, "duty cycle arm time spread " + getArmTimeSpread(false) + " s");
+    assertEquals(0.0, getArmTimeSpread(true), 1e-9);
+  }
+
+  @Test
+  public void fullOutputShooterStillSagsWhenCompensated() {
+    // Full output saturates below the compensation voltage, so compensation only removes the part above it
+    double dutyCycleSpread = getShooterSpeedSpread(false);
+    double compensatedSpread = getShooterSpeedSpread(true);
+    assertTrue(compensatedSpread > 0, "compensated shooter speed spread " + compensatedSpread);
+    assertTrue(compensatedSpread < dutyCycleSpread, "compensated " + compensatedSpread + ", duty cycle " + dutyCycleSpread);
+  }
+}